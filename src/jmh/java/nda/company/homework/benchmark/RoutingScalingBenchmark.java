@@ -0,0 +1,286 @@
+package nda.company.homework.benchmark;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryPreloader;
+import nda.company.homework.routing.preload.GraphAdjacency;
+import nda.company.homework.routing.preload.SyntheticGraphGenerator;
+import nda.company.homework.routing.preload.SyntheticGraphGenerator.Topology;
+import nda.company.homework.routing.services.RoutingResult;
+import nda.company.homework.routing.services.RoutingService;
+import nda.company.homework.routing.services.SearchStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.FileSystemUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling suite on synthetic graphs ({@link SyntheticGraphGenerator}) from a thousand to ten million nodes.
+ * <p>
+ * Route latency and nodes explored are measured per topology, node count, average degree and query distance
+ * distribution; graph build and sharded NDJSON preload time per topology, node count and degree. Query pairs are
+ * drawn once per trial from a fixed seed, so every run asks the same questions. Ten million nodes need several GB of
+ * heap for the build; narrow the matrix with {@code -p nodeCount=...} on smaller machines.
+ * {@link RoutingScalingBenchmarkRunner} writes the results as JSON.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx12g"})
+public class RoutingScalingBenchmark {
+    private static final long SEED = 25;
+    private static final int QUERY_COUNT = 1024;
+    private static final int LOCAL_HOPS = 8;
+    private static final int FAR_SOURCES = 16;
+    private static final int NDJSON_SHARDS = 16;
+
+    /**
+     * How far apart the endpoints of a query are.
+     */
+    public enum QueryDistance {
+        /**
+         * Destination is the end of a random walk of 8 borders from the origin.
+         */
+        LOCAL,
+        /**
+         * Destination is uniform among the countries of the origin's component.
+         */
+        UNIFORM,
+        /**
+         * Destination is a farthest country from the origin by BFS, for 16 origins.
+         */
+        FAR
+    }
+
+    @State(Scope.Benchmark)
+    public static class GraphState {
+        @Param({"GRID", "RANDOM_GEOMETRIC", "POWER_LAW", "SMALL_COMPONENTS"})
+        public Topology topology;
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int nodeCount;
+        @Param({"4", "8"})
+        public int averageDegree;
+
+        private CountryGraph graph;
+        private RoutingService routingService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            this.graph = generate();
+            this.routingService = new RoutingService(graph);
+        }
+
+        CountryGraph generate() {
+            return SyntheticGraphGenerator.generate(topology, nodeCount, averageDegree, SEED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QueryState {
+        @Param({"LOCAL", "UNIFORM", "FAR"})
+        public QueryDistance distance;
+
+        private String[] origins;
+        private String[] destinations;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup(GraphState graphState) {
+            CountryGraph graph = graphState.graph;
+            SplittableRandom random = new SplittableRandom(SEED);
+            int[] originIds = new int[QUERY_COUNT];
+            int[] destinationIds = new int[QUERY_COUNT];
+            switch (distance) {
+                case LOCAL -> randomWalks(graph, random, originIds, destinationIds);
+                case UNIFORM -> sameComponentPairs(graph, random, originIds, destinationIds);
+                case FAR -> farthestPairs(graph, random, originIds, destinationIds);
+            }
+            this.origins = new String[QUERY_COUNT];
+            this.destinations = new String[QUERY_COUNT];
+            for (int query = 0; query < QUERY_COUNT; query++) {
+                origins[query] = graph.codeById(originIds[query]);
+                destinations[query] = graph.codeById(destinationIds[query]);
+            }
+        }
+
+        int nextQuery() {
+            int query = next;
+            next = (next + 1) % QUERY_COUNT;
+            return query;
+        }
+    }
+
+    /**
+     * Nodes explored by the searches of one iteration; nodes per query is {@code settledNodes / queries}.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ExploredCounters {
+        public long settledNodes;
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            settledNodes = 0;
+            queries = 0;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ShardState {
+        private CountryPreloader loader;
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setup(GraphState graphState) throws IOException {
+            this.loader = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader());
+            this.directory = Files.createTempDirectory("synthetic-countries");
+            SyntheticGraphGenerator.writeNdjson(graphState.graph, directory, NDJSON_SHARDS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public RoutingResult findRoute(GraphState graphState, QueryState queryState) {
+        int query = queryState.nextQuery();
+        return graphState.routingService.findRoute(queryState.origins[query], queryState.destinations[query]);
+    }
+
+    @Benchmark
+    public SearchStats nodesExplored(GraphState graphState, QueryState queryState, ExploredCounters counters) {
+        int query = queryState.nextQuery();
+        SearchStats stats = graphState.routingService.searchStats(
+                queryState.origins[query],
+                queryState.destinations[query]
+        );
+        counters.settledNodes += stats.settledNodes();
+        counters.queries++;
+        return stats;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public CountryGraph buildGraph(GraphState graphState) {
+        return graphState.generate();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public CountryGraph preloadShards(ShardState shardState) {
+        return shardState.loader.load(shardState.directory.toUri().toString());
+    }
+
+    private static void randomWalks(
+            CountryGraph graph,
+            SplittableRandom random,
+            int[] originIds,
+            int[] destinationIds
+    ) {
+        for (int query = 0; query < QUERY_COUNT; query++) {
+            int nodeId = random.nextInt(graph.nodeCount());
+            originIds[query] = nodeId;
+            for (int hop = 0; hop < LOCAL_HOPS && graph.degreeOf(nodeId) > 0; hop++) {
+                nodeId = graph.neighborAt(nodeId, random.nextInt(graph.degreeOf(nodeId)));
+            }
+            destinationIds[query] = nodeId;
+        }
+    }
+
+    private static void sameComponentPairs(
+            CountryGraph graph,
+            SplittableRandom random,
+            int[] originIds,
+            int[] destinationIds
+    ) {
+        // node ids grouped by component (counting sort), so a uniform member is one array read
+        int nodeCount = graph.nodeCount();
+        int[] componentStart = new int[graph.componentCount() + 1];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            componentStart[graph.componentOf(nodeId) + 1]++;
+        }
+        for (int component = 0; component < graph.componentCount(); component++) {
+            componentStart[component + 1] += componentStart[component];
+        }
+        int[] fillPosition = Arrays.copyOf(componentStart, graph.componentCount());
+        int[] nodeIdsByComponent = new int[nodeCount];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            nodeIdsByComponent[fillPosition[graph.componentOf(nodeId)]++] = nodeId;
+        }
+
+        for (int query = 0; query < QUERY_COUNT; query++) {
+            int originId = random.nextInt(nodeCount);
+            int component = graph.componentOf(originId);
+            originIds[query] = originId;
+            destinationIds[query] = nodeIdsByComponent[componentStart[component]
+                    + random.nextInt(graph.componentSize(component))];
+        }
+    }
+
+    private static void farthestPairs(
+            CountryGraph graph,
+            SplittableRandom random,
+            int[] originIds,
+            int[] destinationIds
+    ) {
+        GraphAdjacency adjacency = graph.adjacency();
+        int[] queue = new int[graph.nodeCount()];
+        boolean[] visited = new boolean[graph.nodeCount()];
+        int[] sourceIds = new int[FAR_SOURCES];
+        int[] farthestIds = new int[FAR_SOURCES];
+        for (int source = 0; source < FAR_SOURCES; source++) {
+            int sourceId = random.nextInt(graph.nodeCount());
+            Arrays.fill(visited, false);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = sourceId;
+            visited[sourceId] = true;
+            while (head < tail) {
+                int nodeId = queue[head++];
+                for (int edge = adjacency.neighborStart(nodeId); edge < adjacency.neighborEnd(nodeId); edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    if (!visited[neighborId]) {
+                        visited[neighborId] = true;
+                        queue[tail++] = neighborId;
+                    }
+                }
+            }
+            sourceIds[source] = sourceId;
+            // BFS dequeues by distance, so the last node is a farthest one
+            farthestIds[source] = queue[tail - 1];
+        }
+        for (int query = 0; query < QUERY_COUNT; query++) {
+            originIds[query] = sourceIds[query % FAR_SOURCES];
+            destinationIds[query] = farthestIds[query % FAR_SOURCES];
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package nda.company.homework.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link RoutingScalingBenchmark} and writes the results as JSON to {@code target/jmh-scaling.json} for tracking
+ * across commits; further JMH command line options (e.g. {@code -p nodeCount=1000,100000}) narrow the matrix.
+ */
+public final class RoutingScalingBenchmarkRunner {
+    private static final String RESULT_FILE = "target/jmh-scaling.json";
+
+    private RoutingScalingBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder optionsBuilder = new OptionsBuilder()
+                .include(RoutingScalingBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_FILE);
+        if (args.length > 0) {
+            optionsBuilder.parent(new CommandLineOptions(args));
+        }
+        Options options = optionsBuilder.build();
+        new Runner(options).run();
+    }
+}
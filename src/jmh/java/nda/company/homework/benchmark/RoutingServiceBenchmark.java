@@ -1,9 +1,21 @@
 package nda.company.homework.benchmark;
 
+import nda.company.homework.routing.analytics.GraphAnalytics;
+import nda.company.homework.routing.api.NodePathJsonConverter;
+import nda.company.homework.routing.api.NodePathResponse;
+import nda.company.homework.routing.api.RoutingApi;
+import nda.company.homework.routing.api.RoutingResponse;
 import nda.company.homework.routing.preload.CountryGraph;
 import nda.company.homework.routing.preload.CountryPreloader;
+import nda.company.homework.routing.preload.PreloadOptions;
+import nda.company.homework.routing.services.RouteMetric;
+import nda.company.homework.routing.services.RouteOptions;
 import nda.company.homework.routing.services.RoutingResult;
 import nda.company.homework.routing.services.RoutingService;
+import nda.company.homework.routing.services.SearchMode;
+import nda.company.homework.routing.services.SearchOptions;
+import nda.company.homework.routing.services.SearchStats;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -16,11 +28,25 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
 @BenchmarkMode({Mode.AverageTime})
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
 @Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
@@ -30,7 +56,12 @@ public class RoutingServiceBenchmark {
     @State(Scope.Benchmark)
     public static class BenchmarkState {
 
+        private CountryGraph countryGraph;
         private RoutingService routingService;
+        private final RouteOptions avoidRusAndKaz = RouteOptions.defaults().withAvoid(List.of("RUS", "KAZ"));
+        private final List<String> germany = List.of("DEU");
+        private final List<String> threeCountries = List.of("DEU", "CHN", "BRA");
+        private List<String> allCountries;
 
         @Setup(Level.Trial)
         public void setup() {
@@ -38,11 +69,181 @@ public class RoutingServiceBenchmark {
                     new ObjectMapper(),
                     new DefaultResourceLoader()
             );
+            this.countryGraph = loader.load();
+            this.routingService = new RoutingService(countryGraph);
+            List<String> codes = new ArrayList<>(countryGraph.nodeCount());
+            for (int nodeId = 0; nodeId < countryGraph.nodeCount(); nodeId++) {
+                codes.add(countryGraph.codeById(nodeId));
+            }
+            this.allCountries = codes;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PreloadState {
+        private static final int SHARD_COUNT = 4;
+
+        private CountryPreloader jsonLoader;
+        private CountryPreloader snapshotLoader;
+        private CountryPreloader mappedLoader;
+        private CountryPreloader compiledLoader;
+        private CountryPreloader shardLoader;
+        private String shardLocation;
+        private RoutingService mappedRoutingService;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            this.jsonLoader = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader());
+            // reads countries.graph written by the build next to countries.json
+            this.compiledLoader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader(),
+                    PreloadOptions.defaults().withCompiledGraph(true)
+            );
+            Path snapshotPath = Files.createTempDirectory("country-graph").resolve("countries.graph");
+            snapshotPath.toFile().deleteOnExit();
+            this.snapshotLoader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader(),
+                    PreloadOptions.defaults().withSnapshotPath(snapshotPath)
+            );
+            // first load writes the snapshot, every measured load reads it
+            snapshotLoader.load();
+            this.mappedLoader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader(),
+                    PreloadOptions.defaults().withSnapshotPath(snapshotPath).withMappedGraph(true)
+            );
+            this.mappedRoutingService = new RoutingService(mappedLoader.load());
+            this.shardLoader = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader());
+            this.shardLocation = writeShards(SHARD_COUNT).toUri().toString();
+        }
+
+        /**
+         * Splits the bundled countries into NDJSON shard files, one country per line.
+         */
+        private static Path writeShards(int shardCount) throws IOException {
+            ObjectMapper objectMapper = new ObjectMapper();
+            JsonNode countries;
+            try (InputStream inputStream = new DefaultResourceLoader()
+                    .getResource(CountryPreloader.DEFAULT_LOCATION)
+                    .getInputStream()) {
+                countries = objectMapper.readTree(inputStream);
+            }
+            List<StringBuilder> shards = new ArrayList<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                shards.add(new StringBuilder());
+            }
+            for (int country = 0; country < countries.size(); country++) {
+                shards.get(country * shardCount / countries.size())
+                        .append(objectMapper.writeValueAsString(countries.get(country)))
+                        .append('\n');
+            }
+            Path directory = Files.createTempDirectory("country-shards");
+            directory.toFile().deleteOnExit();
+            for (int shard = 0; shard < shardCount; shard++) {
+                Path file = directory.resolve("countries-" + shard + ".ndjson");
+                Files.writeString(file, shards.get(shard));
+                file.toFile().deleteOnExit();
+            }
+            return directory;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NextHopState {
+
+        private RoutingService routingService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            CountryPreloader loader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader(),
+                    PreloadOptions.defaults().withNextHopTable(true)
+            );
             CountryGraph countryGraph = loader.load();
             this.routingService = new RoutingService(countryGraph);
         }
     }
 
+    @State(Scope.Benchmark)
+    public static class LandmarkState {
+
+        private RoutingService routingService;
+        private RoutingService bidirectionalRoutingService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            CountryPreloader loader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader(),
+                    PreloadOptions.defaults().withLandmarksPerComponent(4)
+            );
+            CountryGraph countryGraph = loader.load();
+            this.routingService = new RoutingService(countryGraph, SearchMode.LANDMARKS, Integer.MAX_VALUE);
+            this.bidirectionalRoutingService = new RoutingService(countryGraph);
+        }
+    }
+
+    /**
+     * Nodes settled by the searches of one iteration; nodes per query is {@code settledNodes / queries}.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SettledNodeCounters {
+        public long settledNodes;
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            settledNodes = 0;
+            queries = 0;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CachedState {
+
+        private RoutingService routingService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            CountryPreloader loader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader(),
+                    PreloadOptions.defaults()
+            );
+            this.routingService = new RoutingService(
+                    loader.load(),
+                    SearchOptions.defaults().withRouteCacheMaxEntries(1024)
+            );
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MockMvcState {
+
+        private RoutingService routingService;
+        private final JacksonJsonHttpMessageConverter jacksonConverter = new JacksonJsonHttpMessageConverter();
+        private final NodePathJsonConverter nodePathConverter = new NodePathJsonConverter();
+        private MockMvc jacksonMockMvc;
+        private MockMvc preEncodedMockMvc;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            CountryPreloader loader = new CountryPreloader(
+                    new ObjectMapper(),
+                    new DefaultResourceLoader()
+            );
+            this.routingService = new RoutingService(loader.load());
+            this.jacksonMockMvc = MockMvcBuilders.standaloneSetup(new RoutingApi(routingService, false)).build();
+            this.preEncodedMockMvc = MockMvcBuilders.standaloneSetup(new RoutingApi(routingService, true))
+                    .setMessageConverters(new NodePathJsonConverter(), new JacksonJsonHttpMessageConverter())
+                    .build();
+        }
+    }
+
     @Benchmark
     public List<String> shortRoute(BenchmarkState state) {
         return ((RoutingResult.Success) state.routingService.findRoute("CZE", "ITA")).route();
@@ -53,11 +254,196 @@ public class RoutingServiceBenchmark {
         return ((RoutingResult.Success) state.routingService.findRoute("PRT", "CHN")).route();
     }
 
+    @Benchmark
+    public List<String> longRouteByDistance(BenchmarkState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("PRT", "CHN", RouteMetric.DISTANCE)).route();
+    }
+
+    @Benchmark
+    public List<String> longRouteAvoidingTwoCountries(BenchmarkState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("PRT", "CHN", state.avoidRusAndKaz)).route();
+    }
+
+    @Benchmark
+    public List<List<String>> longRouteFiveAlternatives(BenchmarkState state) {
+        return ((RoutingResult.Alternatives) state.routingService.findAlternativeRoutes("PRT", "CHN", 5)).routes();
+    }
+
+    @Benchmark
+    public BigInteger longRouteCountShortestRoutes(BenchmarkState state) {
+        return ((RoutingResult.ShortestRoutes) state.routingService.countShortestRoutes("PRT", "CHN")).count();
+    }
+
+    @Benchmark
+    public List<String> longRouteRandomShortestRoute(BenchmarkState state) {
+        return ((RoutingResult.Success) state.routingService.sampleShortestRoute("PRT", "CHN")).route();
+    }
+
+    @Benchmark
+    public List<String> shortRouteNextHop(NextHopState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("CZE", "ITA")).route();
+    }
+
+    @Benchmark
+    public List<String> longRouteNextHop(NextHopState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("PRT", "CHN")).route();
+    }
+
+    @Benchmark
+    public List<String> shortRouteLandmarks(LandmarkState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("CZE", "ITA")).route();
+    }
+
+    @Benchmark
+    public List<String> longRouteLandmarks(LandmarkState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("PRT", "CHN")).route();
+    }
+
+    @Benchmark
+    public SearchStats longRouteSettledBidirectional(LandmarkState state, SettledNodeCounters counters) {
+        return countSettledNodes(state.bidirectionalRoutingService.searchStats("PRT", "CHN"), counters);
+    }
+
+    @Benchmark
+    public SearchStats longRouteSettledLandmarks(LandmarkState state, SettledNodeCounters counters) {
+        return countSettledNodes(state.routingService.searchStats("PRT", "CHN"), counters);
+    }
+
+    @Benchmark
+    public List<String> longRouteCached(CachedState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("PRT", "CHN")).route();
+    }
+
+    @Benchmark
+    public List<String> longRouteCachedReverse(CachedState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute("CHN", "PRT")).route();
+    }
+
+    @Benchmark
+    public byte[] longRouteJsonJackson(MockMvcState state) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        RoutingResult.Success success = (RoutingResult.Success) state.routingService.findRoute("PRT", "CHN");
+        state.jacksonConverter.write(new RoutingResponse(success.route()), MediaType.APPLICATION_JSON, output);
+        return output.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public byte[] longRouteJsonPreEncoded(MockMvcState state) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        RoutingResult.NodePath path = (RoutingResult.NodePath) state.routingService.findNodePath("PRT", "CHN");
+        state.nodePathConverter.write(new NodePathResponse(path), MediaType.APPLICATION_JSON, output);
+        return output.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public byte[] longRouteHttpJackson(MockMvcState state) throws Exception {
+        return state.jacksonMockMvc.perform(get("/routing/PRT/CHN")).andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] longRouteHttpPreEncoded(MockMvcState state) throws Exception {
+        return state.preEncodedMockMvc.perform(get("/routing/PRT/CHN"))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+    }
+
+    @Benchmark
+    public List<List<String>> withinThreeCrossings(BenchmarkState state) {
+        return ((RoutingResult.Isochrone) state.routingService.findWithinCrossings(state.germany, 3))
+                .countriesByCrossings();
+    }
+
+    @Benchmark
+    public List<List<String>> withinThreeCrossingsThreeOrigins(BenchmarkState state) {
+        return ((RoutingResult.Isochrone) state.routingService.findWithinCrossings(state.threeCountries, 3))
+                .countriesByCrossings();
+    }
+
+    @Benchmark
+    public int[][] allPairsMatrix(BenchmarkState state) {
+        return ((RoutingResult.Matrix) state.routingService.findCrossingMatrix(
+                state.allCountries,
+                state.allCountries
+        )).crossings();
+    }
+
+    @Benchmark
+    public long allPairsByFindRoute(BenchmarkState state) {
+        long crossings = 0;
+        for (String origin : state.allCountries) {
+            for (String destination : state.allCountries) {
+                if (state.routingService.findRoute(origin, destination) instanceof RoutingResult.Success success) {
+                    crossings += success.route().size() - 1;
+                }
+            }
+        }
+        return crossings;
+    }
+
+    @Benchmark
+    public GraphAnalytics graphAnalytics(BenchmarkState state) {
+        return GraphAnalytics.compute(state.countryGraph);
+    }
+
+    @Benchmark
+    public CountryGraph preloadJson(PreloadState state) {
+        return state.jsonLoader.load();
+    }
+
+    @Benchmark
+    public CountryGraph preloadSnapshot(PreloadState state) {
+        return state.snapshotLoader.load();
+    }
+
+    @Benchmark
+    public CountryGraph preloadCompiled(PreloadState state) {
+        return state.compiledLoader.load();
+    }
+
+    @Benchmark
+    public CountryGraph preloadShards(PreloadState state) {
+        return state.shardLoader.load(state.shardLocation);
+    }
+
+    @Benchmark
+    public CountryGraph preloadMapped(PreloadState state) {
+        return state.mappedLoader.load();
+    }
+
+    @Benchmark
+    public List<String> longRouteMapped(PreloadState state) {
+        return ((RoutingResult.Success) state.mappedRoutingService.findRoute("PRT", "CHN")).route();
+    }
+
+    @Benchmark
+    public List<String> longRouteByDistanceMapped(PreloadState state) {
+        return ((RoutingResult.Success) state.mappedRoutingService.findRoute("PRT", "CHN", RouteMetric.DISTANCE))
+                .route();
+    }
+
+    @Benchmark
+    public CountryGraph openBorder(BenchmarkState state) {
+        CountryGraph graph = state.countryGraph;
+        return graph.withBorder(graph.idByCode("CZE"), graph.idByCode("ITA"));
+    }
+
+    @Benchmark
+    public CountryGraph closeBridgeBorder(BenchmarkState state) {
+        CountryGraph graph = state.countryGraph;
+        return graph.withoutBorder(graph.idByCode("ESP"), graph.idByCode("PRT"));
+    }
+
     @Benchmark
     public List<String> sameCountry(BenchmarkState state) {
         return ((RoutingResult.Success) state.routingService.findRoute("DEU", "DEU")).route();
     }
 
+    @Benchmark
+    public List<String> sameCountryRawInput(BenchmarkState state) {
+        return ((RoutingResult.Success) state.routingService.findRoute(" deu", "Deu ")).route();
+    }
+
     @Benchmark
     public boolean fastRejectDifferentComponents(BenchmarkState state) {
         return state.routingService.findRoute("USA", "FRA") instanceof RoutingResult.NoLandRoute;
@@ -67,4 +453,10 @@ public class RoutingServiceBenchmark {
     public boolean rejectUnknownCountry(BenchmarkState state) {
         return state.routingService.findRoute("ZZZ", "POL") instanceof RoutingResult.UnknownCountry;
     }
+
+    private static SearchStats countSettledNodes(SearchStats stats, SettledNodeCounters counters) {
+        counters.settledNodes += stats.settledNodes();
+        counters.queries++;
+        return stats;
+    }
 }
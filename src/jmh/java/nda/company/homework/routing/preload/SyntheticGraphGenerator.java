@@ -0,0 +1,311 @@
+package nda.company.homework.routing.preload;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic graphs for scaling benchmarks and tests, far larger than the bundled country data.
+ * <p>
+ * Graphs go through the same {@link CountryGraphBuildState} as preloaded data (code index, union-find, CSR arrays
+ * and great-circle distances), so building one costs what preloading it costs minus JSON parsing. Node {@code i}
+ * gets id {@code i} and code {@link #codeOf(int)}, and every node gets coordinates: positions in the unit square are
+ * spread over latitudes {@code -60..60} and longitudes {@code -180..180}. The same arguments always give the same
+ * graph.
+ */
+public final class SyntheticGraphGenerator {
+    private static final int PACKED_CODE_LETTERS = 3;
+    private static final int LETTERS = 26;
+    private static final int MAX_SMALL_COMPONENT_SIZE = 16;
+    private static final double SMALL_COMPONENT_SPREAD = 0.01;
+
+    /**
+     * Shape of a synthetic graph.
+     */
+    public enum Topology {
+        /**
+         * Square lattice: 4 neighbours, plus one diagonal (6, a triangular lattice) from an average degree of 6 and
+         * both diagonals (8) from 8. Long routes of about {@code 2 * sqrt(V)} hops.
+         */
+        GRID,
+        /**
+         * Random points in the unit square, joined when closer than the radius that gives the average degree.
+         * Road-network-like: local edges, routes of {@code O(sqrt(V / degree))} hops, small pockets cut off. Below
+         * an average degree of about 4.5 (the percolation threshold) it falls apart into many mid-sized components.
+         */
+        RANDOM_GEOMETRIC,
+        /**
+         * Preferential attachment (Barabasi-Albert): each node joins {@code degree / 2} earlier nodes chosen by
+         * degree, giving a power-law degree distribution with hubs and routes of {@code O(log V)} hops.
+         */
+        POWER_LAW,
+        /**
+         * Components of 1 to 16 nodes, each a random tree plus random chords up to the average degree: most pairs
+         * are unreachable and every search stays tiny.
+         */
+        SMALL_COMPONENTS
+    }
+
+    private SyntheticGraphGenerator() {
+    }
+
+    /**
+     * @param topology graph shape
+     * @param nodeCount number of nodes
+     * @param averageDegree target average degree; the topology decides how closely it is met
+     * @param seed random seed
+     * @return graph with coordinates and edge distances
+     * @throws IllegalArgumentException when {@code nodeCount} or {@code averageDegree} is not positive
+     */
+    public static CountryGraph generate(Topology topology, int nodeCount, int averageDegree, long seed) {
+        if (nodeCount <= 0) {
+            throw new IllegalArgumentException("Node count must be positive");
+        }
+        if (averageDegree <= 0) {
+            throw new IllegalArgumentException("Average degree must be positive");
+        }
+
+        CountryGraphBuildState buildState = new CountryGraphBuildState();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            buildState.idFor(codeOf(nodeId));
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (topology) {
+            case GRID -> grid(buildState, nodeCount, averageDegree);
+            case RANDOM_GEOMETRIC -> randomGeometric(buildState, nodeCount, averageDegree, random);
+            case POWER_LAW -> powerLaw(buildState, nodeCount, averageDegree, random);
+            case SMALL_COMPONENTS -> smallComponents(buildState, nodeCount, averageDegree, random);
+        }
+        return buildState.toGraph();
+    }
+
+    /**
+     * Upper-case letter code of a synthetic node: three letters ({@code AAA} to {@code ZZZ}) for the first
+     * {@code 26^3} ids, so small graphs resolve through the packed index like real countries, then longer codes
+     * without a leading {@code A}.
+     *
+     * @param nodeId node id
+     * @return unique code
+     */
+    public static String codeOf(int nodeId) {
+        char[] letters = new char[13];
+        int position = letters.length;
+        int remaining = nodeId;
+        do {
+            letters[--position] = (char) ('A' + remaining % LETTERS);
+            remaining /= LETTERS;
+        } while (remaining > 0);
+        while (letters.length - position < PACKED_CODE_LETTERS) {
+            letters[--position] = 'A';
+        }
+        return new String(letters, position, letters.length - position);
+    }
+
+    /**
+     * Writes a graph as NDJSON shards ({@code countries-0000.ndjson}, ...) that {@link CountryPreloader} reads back
+     * from the directory: one line per node with its code, borders and coordinates, in node id order.
+     *
+     * @param graph on-heap graph
+     * @param directory target directory, created when missing
+     * @param shardCount number of files
+     * @throws IOException when a file cannot be written
+     */
+    public static void writeNdjson(CountryGraph graph, Path directory, int shardCount) throws IOException {
+        Files.createDirectories(directory);
+        int nodeCount = graph.nodeCount();
+        double[] latitudes = graph.latitudes();
+        double[] longitudes = graph.longitudes();
+        GraphAdjacency adjacency = graph.adjacency();
+        for (int shard = 0; shard < shardCount; shard++) {
+            Path file = directory.resolve(String.format("countries-%04d.ndjson", shard));
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                int end = (int) ((long) (shard + 1) * nodeCount / shardCount);
+                for (int nodeId = (int) ((long) shard * nodeCount / shardCount); nodeId < end; nodeId++) {
+                    writer.write("{\"cca3\":\"");
+                    writer.write(graph.codeById(nodeId));
+                    writer.write("\",\"borders\":[");
+                    for (int edge = adjacency.neighborStart(nodeId); edge < adjacency.neighborEnd(nodeId); edge++) {
+                        writer.write(edge == adjacency.neighborStart(nodeId) ? "\"" : ",\"");
+                        writer.write(graph.codeById(adjacency.neighborTarget(edge)));
+                        writer.write('"');
+                    }
+                    writer.write(']');
+                    if (latitudes != null) {
+                        writer.write(",\"latlng\":[" + latitudes[nodeId] + "," + longitudes[nodeId] + "]");
+                    }
+                    writer.write("}\n");
+                }
+            }
+        }
+    }
+
+    private static void grid(CountryGraphBuildState buildState, int nodeCount, int averageDegree) {
+        int width = (int) Math.ceil(Math.sqrt(nodeCount));
+        int height = (nodeCount + width - 1) / width;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            int row = nodeId / width;
+            int column = nodeId % width;
+            setPosition(buildState, nodeId, (column + 0.5) / width, (row + 0.5) / height);
+            if (column + 1 < width && nodeId + 1 < nodeCount) {
+                buildState.connectUndirected(nodeId, nodeId + 1);
+            }
+            if (nodeId + width < nodeCount) {
+                buildState.connectUndirected(nodeId, nodeId + width);
+            }
+            if (averageDegree >= 6 && column + 1 < width && nodeId + width + 1 < nodeCount) {
+                buildState.connectUndirected(nodeId, nodeId + width + 1);
+            }
+            if (averageDegree >= 8 && column > 0 && nodeId + width - 1 < nodeCount) {
+                buildState.connectUndirected(nodeId, nodeId + width - 1);
+            }
+        }
+    }
+
+    /**
+     * Buckets points into cells of the connection radius, so each point is compared only with the 3x3 cells around
+     * it: {@code O(V * degree)} instead of all pairs.
+     */
+    private static void randomGeometric(
+            CountryGraphBuildState buildState,
+            int nodeCount,
+            int averageDegree,
+            SplittableRandom random
+    ) {
+        double radius = Math.sqrt(averageDegree / (Math.PI * nodeCount));
+        int cellsPerSide = (int) Math.max(1, Math.min(1 / radius, Math.sqrt(nodeCount)));
+        double[] x = new double[nodeCount];
+        double[] y = new double[nodeCount];
+        int[] cellByNodeId = new int[nodeCount];
+        int[] cellStart = new int[cellsPerSide * cellsPerSide + 1];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            x[nodeId] = random.nextDouble();
+            y[nodeId] = random.nextDouble();
+            setPosition(buildState, nodeId, x[nodeId], y[nodeId]);
+            int cell = cellOf(y[nodeId], cellsPerSide) * cellsPerSide + cellOf(x[nodeId], cellsPerSide);
+            cellByNodeId[nodeId] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int cell = 0; cell < cellsPerSide * cellsPerSide; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] nodeIdsByCell = new int[nodeCount];
+        int[] fillPosition = new int[cellsPerSide * cellsPerSide];
+        System.arraycopy(cellStart, 0, fillPosition, 0, fillPosition.length);
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            nodeIdsByCell[fillPosition[cellByNodeId[nodeId]]++] = nodeId;
+        }
+
+        double radiusSquared = radius * radius;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            int cellRow = cellByNodeId[nodeId] / cellsPerSide;
+            int cellColumn = cellByNodeId[nodeId] % cellsPerSide;
+            for (int row = Math.max(0, cellRow - 1); row <= Math.min(cellsPerSide - 1, cellRow + 1); row++) {
+                for (int column = Math.max(0, cellColumn - 1); column <= Math.min(cellsPerSide - 1, cellColumn + 1);
+                     column++) {
+                    int cell = row * cellsPerSide + column;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int otherId = nodeIdsByCell[i];
+                        double dx = x[nodeId] - x[otherId];
+                        double dy = y[nodeId] - y[otherId];
+                        if (otherId > nodeId && dx * dx + dy * dy <= radiusSquared) {
+                            buildState.connectUndirected(nodeId, otherId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Every edge endpoint is appended to one array, so a uniform pick from it chooses nodes proportionally to their
+     * degree. The first {@code m + 1} nodes form a clique, which guarantees {@code m} distinct targets afterwards.
+     */
+    private static void powerLaw(
+            CountryGraphBuildState buildState,
+            int nodeCount,
+            int averageDegree,
+            SplittableRandom random
+    ) {
+        int edgesPerNode = Math.max(1, averageDegree / 2);
+        int[] endpoints = new int[Math.multiplyExact(2 * edgesPerNode, nodeCount)];
+        int endpointCount = 0;
+        int[] chosen = new int[edgesPerNode];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            setPosition(buildState, nodeId, random.nextDouble(), random.nextDouble());
+            if (nodeId <= edgesPerNode) {
+                for (int otherId = 0; otherId < nodeId; otherId++) {
+                    buildState.connectUndirected(nodeId, otherId);
+                    endpoints[endpointCount++] = nodeId;
+                    endpoints[endpointCount++] = otherId;
+                }
+                continue;
+            }
+            int chosenCount = 0;
+            while (chosenCount < edgesPerNode) {
+                int target = endpoints[random.nextInt(endpointCount)];
+                if (!contains(chosen, chosenCount, target)) {
+                    chosen[chosenCount++] = target;
+                }
+            }
+            for (int i = 0; i < chosenCount; i++) {
+                buildState.connectUndirected(nodeId, chosen[i]);
+                endpoints[endpointCount++] = nodeId;
+                endpoints[endpointCount++] = chosen[i];
+            }
+        }
+    }
+
+    private static void smallComponents(
+            CountryGraphBuildState buildState,
+            int nodeCount,
+            int averageDegree,
+            SplittableRandom random
+    ) {
+        int firstId = 0;
+        while (firstId < nodeCount) {
+            int size = Math.min(nodeCount - firstId, 1 + random.nextInt(MAX_SMALL_COMPONENT_SIZE));
+            double centerX = random.nextDouble();
+            double centerY = random.nextDouble();
+            for (int member = 0; member < size; member++) {
+                setPosition(
+                        buildState,
+                        firstId + member,
+                        clamp(centerX + (random.nextDouble() - 0.5) * SMALL_COMPONENT_SPREAD),
+                        clamp(centerY + (random.nextDouble() - 0.5) * SMALL_COMPONENT_SPREAD)
+                );
+                if (member > 0) {
+                    buildState.connectUndirected(firstId + member, firstId + random.nextInt(member));
+                }
+            }
+            // chords beyond the tree; duplicates and self-loops are dropped by the build state
+            long chords = Math.round(size * averageDegree / 2.0) - (size - 1);
+            for (long chord = 0; chord < chords && size > 2; chord++) {
+                buildState.connectUndirected(firstId + random.nextInt(size), firstId + random.nextInt(size));
+            }
+            firstId += size;
+        }
+    }
+
+    private static void setPosition(CountryGraphBuildState buildState, int nodeId, double x, double y) {
+        buildState.setCoordinates(nodeId, -60 + 120 * y, -180 + 360 * x);
+    }
+
+    private static int cellOf(double position, int cellsPerSide) {
+        return Math.min(cellsPerSide - 1, (int) (position * cellsPerSide));
+    }
+
+    private static double clamp(double position) {
+        return Math.max(0, Math.min(1, position));
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,15 +1,71 @@
 package nda.company.homework.routing;
 
 import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
 import nda.company.homework.routing.preload.CountryPreloader;
+import nda.company.homework.routing.preload.PreloadOptions;
+import nda.company.homework.routing.services.SearchMode;
+import nda.company.homework.routing.services.SearchOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 
 @Configuration
 public class RoutingConfig {
     @Bean
-    public CountryGraph countryGraphData(CountryPreloader countryPreloader) {
-        return countryPreloader.load();
+    public PreloadOptions preloadOptions(
+            @Value("${routing.preload.next-hop-table:false}") boolean nextHopTable,
+            @Value("${routing.preload.landmarks-per-component:0}") int landmarksPerComponent,
+            @Value("${routing.preload.snapshot-path:}") String snapshotPath,
+            @Value("${routing.preload.mapped-graph:false}") boolean mappedGraph,
+            @Value("${routing.preload.compiled-graph:true}") boolean compiledGraph,
+            @Value("${routing.preload.shard-bytes:" + PreloadOptions.DEFAULT_SHARD_BYTES + "}") long shardBytes
+    ) {
+        return new PreloadOptions(
+                nextHopTable,
+                landmarksPerComponent,
+                snapshotPath.isBlank() ? null : Path.of(snapshotPath),
+                mappedGraph,
+                compiledGraph,
+                shardBytes
+        );
+    }
+
+    @Bean
+    public SearchOptions searchOptions(
+            @Value("${routing.search.mode:bidirectional}") SearchMode mode,
+            @Value("${routing.search.parallel-frontier-threshold:"
+                    + SearchOptions.DEFAULT_PARALLEL_FRONTIER_THRESHOLD + "}") int parallelFrontierThreshold,
+            @Value("${routing.alternatives.max-routes:"
+                    + SearchOptions.DEFAULT_MAX_ALTERNATIVES + "}") int maxAlternatives,
+            @Value("${routing.alternatives.spur-search-budget:"
+                    + SearchOptions.DEFAULT_ALTERNATIVE_SPUR_SEARCH_BUDGET + "}") int alternativeSpurSearchBudget,
+            @Value("${routing.cache.max-entries:"
+                    + SearchOptions.DEFAULT_ROUTE_CACHE_MAX_ENTRIES + "}") int routeCacheMaxEntries,
+            @Value("${routing.cache.tree-max-nodes:"
+                    + SearchOptions.DEFAULT_TREE_CACHE_MAX_NODES + "}") int treeCacheMaxNodes
+    ) {
+        return new SearchOptions(
+                mode,
+                parallelFrontierThreshold,
+                maxAlternatives,
+                alternativeSpurSearchBudget,
+                routeCacheMaxEntries,
+                treeCacheMaxNodes
+        );
+    }
+
+    @Bean
+    public CountryGraphHolder countryGraphHolder(
+            CountryPreloader countryPreloader,
+            @Value("${routing.preload.countries-location:" + CountryPreloader.DEFAULT_LOCATION + "}") String location
+    ) {
+        long startedAtNanos = System.nanoTime();
+        CountryGraph graph = countryPreloader.load(location);
+        return new CountryGraphHolder(graph, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos));
     }
 }
@@ -0,0 +1,127 @@
+package nda.company.homework.routing.analytics;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+import java.util.Arrays;
+
+/**
+ * Articulation points and bridges of the border graph (Tarjan's low-link DFS).
+ * <p>
+ * An articulation point is a country whose removal disconnects its component; a bridge is a border whose removal
+ * does. The DFS keeps an explicit stack with one edge cursor per node instead of recursion, so component depth is
+ * not limited by the thread stack. Runs in {@code O(V + E)}.
+ */
+final class Biconnectivity {
+
+    private Biconnectivity() {
+    }
+
+    /**
+     * @param graph immutable country graph
+     * @return articulation points and bridges in ascending node id order
+     */
+    static Result compute(CountryGraph graph) {
+        int nodeCount = graph.nodeCount();
+        GraphAdjacency adjacency = graph.adjacency();
+        // discovery time 0 means "not visited yet"
+        int[] discovery = new int[nodeCount];
+        int[] low = new int[nodeCount];
+        int[] parent = new int[nodeCount];
+        int[] cursor = new int[nodeCount];
+        int[] stack = new int[nodeCount];
+        boolean[] articulation = new boolean[nodeCount];
+        int[] bridges = new int[16];
+        int bridgeCount = 0;
+        int time = 0;
+
+        for (int rootId = 0; rootId < nodeCount; rootId++) {
+            if (discovery[rootId] != 0) {
+                continue;
+            }
+            discovery[rootId] = low[rootId] = ++time;
+            parent[rootId] = -1;
+            cursor[rootId] = adjacency.neighborStart(rootId);
+            stack[0] = rootId;
+            int depth = 1;
+            int rootChildren = 0;
+
+            while (depth > 0) {
+                int nodeId = stack[depth - 1];
+                if (cursor[nodeId] < adjacency.neighborEnd(nodeId)) {
+                    int neighborId = adjacency.neighborTarget(cursor[nodeId]++);
+                    if (discovery[neighborId] == 0) {
+                        discovery[neighborId] = low[neighborId] = ++time;
+                        parent[neighborId] = nodeId;
+                        cursor[neighborId] = adjacency.neighborStart(neighborId);
+                        stack[depth++] = neighborId;
+                        if (nodeId == rootId) {
+                            rootChildren++;
+                        }
+                    } else if (neighborId != parent[nodeId]) {
+                        // borders are unique, so skipping the parent node skips exactly the tree edge
+                        low[nodeId] = Math.min(low[nodeId], discovery[neighborId]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                int parentId = parent[nodeId];
+                if (parentId < 0) {
+                    continue;
+                }
+                low[parentId] = Math.min(low[parentId], low[nodeId]);
+                if (low[nodeId] > discovery[parentId]) {
+                    if (bridgeCount + 2 > bridges.length) {
+                        bridges = Arrays.copyOf(bridges, bridges.length * 2);
+                    }
+                    bridges[bridgeCount++] = Math.min(parentId, nodeId);
+                    bridges[bridgeCount++] = Math.max(parentId, nodeId);
+                }
+                if (parentId != rootId && low[nodeId] >= discovery[parentId]) {
+                    articulation[parentId] = true;
+                }
+            }
+            if (rootChildren > 1) {
+                articulation[rootId] = true;
+            }
+        }
+
+        int articulationCount = 0;
+        for (boolean isArticulation : articulation) {
+            if (isArticulation) {
+                articulationCount++;
+            }
+        }
+        int[] articulationPoints = new int[articulationCount];
+        for (int nodeId = 0, index = 0; nodeId < nodeCount; nodeId++) {
+            if (articulation[nodeId]) {
+                articulationPoints[index++] = nodeId;
+            }
+        }
+        return new Result(articulationPoints, sortPairs(Arrays.copyOf(bridges, bridgeCount)));
+    }
+
+    /**
+     * Sorts {@code (lower, higher)} pairs by lower, then higher endpoint.
+     */
+    private static int[] sortPairs(int[] pairs) {
+        long[] keys = new long[pairs.length / 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) pairs[2 * i] << 32) | pairs[2 * i + 1];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            pairs[2 * i] = (int) (keys[i] >>> 32);
+            pairs[2 * i + 1] = (int) keys[i];
+        }
+        return pairs;
+    }
+
+    /**
+     * @param articulationPoints node ids whose removal disconnects their component
+     * @param bridgeEndpoints bridges as consecutive {@code (lower, higher)} node id pairs
+     */
+    record Result(int[] articulationPoints, int[] bridgeEndpoints) {
+    }
+}
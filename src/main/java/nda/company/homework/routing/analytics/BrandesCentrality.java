@@ -0,0 +1,144 @@
+package nda.company.homework.routing.analytics;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Betweenness centrality (Brandes) and eccentricity of every node of the unweighted border graph.
+ * <p>
+ * One BFS per source counts shortest paths ({@code sigma}), and a reverse sweep over the BFS order accumulates
+ * each node's dependency ({@code delta}) on the source. Sources are independent, so they are split across cores:
+ * every split owns epoch-stamped scratch arrays and a partial centrality array, and partial arrays are summed when
+ * splits are joined. The same BFS yields the source's eccentricity (its deepest level) for free. Splits run on the
+ * caller's pool and skip their remaining sources once the computation is cancelled.
+ */
+final class BrandesCentrality {
+
+    private BrandesCentrality() {
+    }
+
+    /**
+     * @param graph immutable country graph
+     * @param pool pool the per-source splits run on
+     * @param cancelled polled before every source
+     * @return centrality and eccentricity per node id
+     * @throws CancellationException when {@code cancelled} turned true during the computation
+     */
+    static Result compute(CountryGraph graph, ForkJoinPool pool, BooleanSupplier cancelled) {
+        int nodeCount = graph.nodeCount();
+        int[] eccentricity = new int[nodeCount];
+        // a parallel stream started inside a pool task splits on that pool instead of the common one
+        double[] dependencySums = pool.submit(() -> IntStream.range(0, nodeCount)
+                        .parallel()
+                        .collect(
+                                () -> new Accumulator(graph, eccentricity, cancelled),
+                                Accumulator::addSource,
+                                Accumulator::merge
+                        ))
+                .join()
+                .centrality;
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Centrality computation was cancelled");
+        }
+
+        // every unordered pair was counted once from each endpoint
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            dependencySums[nodeId] /= 2;
+        }
+        return new Result(dependencySums, eccentricity);
+    }
+
+    /**
+     * @param betweenness number of shortest paths through each node, split evenly between equal paths
+     * @param eccentricity largest number of crossings from each node to a country of its component
+     */
+    record Result(double[] betweenness, int[] eccentricity) {
+    }
+
+    /**
+     * Scratch buffers and partial sums of one parallel split.
+     */
+    private static final class Accumulator {
+        private final CountryGraph graph;
+        private final int[] eccentricity;
+        private final BooleanSupplier cancelled;
+        private final double[] centrality;
+        private final int[] mark;
+        private final int[] level;
+        private final int[] order;
+        private final double[] pathCount;
+        private final double[] dependency;
+        private int epoch;
+
+        Accumulator(CountryGraph graph, int[] eccentricity, BooleanSupplier cancelled) {
+            int nodeCount = graph.nodeCount();
+            this.graph = graph;
+            this.eccentricity = eccentricity;
+            this.cancelled = cancelled;
+            this.centrality = new double[nodeCount];
+            this.mark = new int[nodeCount];
+            this.level = new int[nodeCount];
+            this.order = new int[nodeCount];
+            this.pathCount = new double[nodeCount];
+            this.dependency = new double[nodeCount];
+        }
+
+        void addSource(int sourceId) {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            GraphAdjacency adjacency = graph.adjacency();
+            int current = ++epoch;
+
+            mark[sourceId] = current;
+            level[sourceId] = 0;
+            pathCount[sourceId] = 1;
+            dependency[sourceId] = 0;
+            order[0] = sourceId;
+            int tail = 1;
+            for (int head = 0; head < tail; head++) {
+                int nodeId = order[head];
+                int end = adjacency.neighborEnd(nodeId);
+                for (int edge = adjacency.neighborStart(nodeId); edge < end; edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    if (mark[neighborId] != current) {
+                        mark[neighborId] = current;
+                        level[neighborId] = level[nodeId] + 1;
+                        pathCount[neighborId] = 0;
+                        dependency[neighborId] = 0;
+                        order[tail++] = neighborId;
+                    }
+                    if (level[neighborId] == level[nodeId] + 1) {
+                        pathCount[neighborId] += pathCount[nodeId];
+                    }
+                }
+            }
+            eccentricity[sourceId] = level[order[tail - 1]];
+
+            // farthest nodes first, so every node's dependency is final before it is pushed to its predecessors
+            for (int i = tail - 1; i > 0; i--) {
+                int nodeId = order[i];
+                double share = (1 + dependency[nodeId]) / pathCount[nodeId];
+                int end = adjacency.neighborEnd(nodeId);
+                for (int edge = adjacency.neighborStart(nodeId); edge < end; edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    if (mark[neighborId] == current && level[neighborId] == level[nodeId] - 1) {
+                        dependency[neighborId] += pathCount[neighborId] * share;
+                    }
+                }
+                centrality[nodeId] += dependency[nodeId];
+            }
+        }
+
+        void merge(Accumulator other) {
+            for (int nodeId = 0; nodeId < centrality.length; nodeId++) {
+                centrality[nodeId] += other.centrality[nodeId];
+            }
+        }
+    }
+}
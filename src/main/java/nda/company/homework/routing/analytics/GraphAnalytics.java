@@ -0,0 +1,187 @@
+package nda.company.homework.routing.analytics;
+
+import nda.company.homework.routing.preload.CountryGraph;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed structural metrics of one immutable country graph.
+ * <p>
+ * Holds betweenness centrality and eccentricity per country, the diameter of every connected component, and the
+ * chokepoints of the border network: articulation points (countries) and bridges (borders) whose removal
+ * disconnects a component. Everything is indexed by graph node id; arrays are never exposed for writing.
+ */
+public final class GraphAnalytics {
+    private final CountryGraph graph;
+    private final double[] betweenness;
+    private final int[] eccentricity;
+    private final int[] componentDiameters;
+    private final int[] articulationPoints;
+    private final int[] bridgeEndpoints;
+    private final boolean[] articulation;
+    private final long centralityMillis;
+    private final long biconnectivityMillis;
+
+    private GraphAnalytics(
+            CountryGraph graph,
+            BrandesCentrality.Result centrality,
+            Biconnectivity.Result biconnectivity,
+            long centralityMillis,
+            long biconnectivityMillis
+    ) {
+        this.graph = graph;
+        this.betweenness = centrality.betweenness();
+        this.eccentricity = centrality.eccentricity();
+        this.componentDiameters = new int[graph.componentCount()];
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            int componentId = graph.componentOf(nodeId);
+            componentDiameters[componentId] = Math.max(componentDiameters[componentId], eccentricity[nodeId]);
+        }
+        this.articulationPoints = biconnectivity.articulationPoints();
+        this.bridgeEndpoints = biconnectivity.bridgeEndpoints();
+        this.articulation = new boolean[graph.nodeCount()];
+        for (int nodeId : articulationPoints) {
+            articulation[nodeId] = true;
+        }
+        this.centralityMillis = centralityMillis;
+        this.biconnectivityMillis = biconnectivityMillis;
+    }
+
+    /**
+     * Runs every analysis over the graph. Centrality is {@code O(V * E)} and uses the common pool; the rest is linear.
+     *
+     * @param graph immutable country graph
+     * @return analytics bound to {@code graph}
+     */
+    public static GraphAnalytics compute(CountryGraph graph) {
+        return compute(graph, ForkJoinPool.commonPool(), () -> false);
+    }
+
+    /**
+     * Runs every analysis over the graph, with the {@code O(V * E)} centrality pass split on {@code pool}.
+     *
+     * @param graph immutable country graph
+     * @param pool pool the centrality pass runs on
+     * @param cancelled polled between centrality sources, so a superseded computation stops early
+     * @return analytics bound to {@code graph}
+     * @throws CancellationException when {@code cancelled} turned true during the centrality pass
+     */
+    public static GraphAnalytics compute(CountryGraph graph, ForkJoinPool pool, BooleanSupplier cancelled) {
+        long startedAtNanos = System.nanoTime();
+        BrandesCentrality.Result centrality = BrandesCentrality.compute(graph, pool, cancelled);
+        long biconnectivityStartedAtNanos = System.nanoTime();
+        Biconnectivity.Result biconnectivity = Biconnectivity.compute(graph);
+        long finishedAtNanos = System.nanoTime();
+        return new GraphAnalytics(
+                graph,
+                centrality,
+                biconnectivity,
+                TimeUnit.NANOSECONDS.toMillis(biconnectivityStartedAtNanos - startedAtNanos),
+                TimeUnit.NANOSECONDS.toMillis(finishedAtNanos - biconnectivityStartedAtNanos)
+        );
+    }
+
+    /**
+     * @return graph these analytics were computed for
+     */
+    public CountryGraph graph() {
+        return graph;
+    }
+
+    /**
+     * @param nodeId node id
+     * @return number of shortest routes between other countries passing through the country, split evenly
+     * between equally short routes
+     */
+    public double betweenness(int nodeId) {
+        return betweenness[nodeId];
+    }
+
+    /**
+     * @param nodeId node id
+     * @return most crossings from the country to any country of its component
+     */
+    public int eccentricity(int nodeId) {
+        return eccentricity[nodeId];
+    }
+
+    /**
+     * @param componentId connected component id
+     * @return most crossings between any two countries of the component
+     */
+    public int componentDiameter(int componentId) {
+        return componentDiameters[componentId];
+    }
+
+    /**
+     * @param nodeId node id
+     * @return whether removing the country disconnects its component
+     */
+    public boolean isArticulationPoint(int nodeId) {
+        return articulation[nodeId];
+    }
+
+    /**
+     * @return articulation point node ids in ascending order
+     */
+    public int[] articulationPoints() {
+        return articulationPoints.clone();
+    }
+
+    /**
+     * @return number of bridges
+     */
+    public int bridgeCount() {
+        return bridgeEndpoints.length / 2;
+    }
+
+    /**
+     * @param index bridge index, below {@link #bridgeCount()}
+     * @return lower endpoint node id of the bridge
+     */
+    public int bridgeLow(int index) {
+        return bridgeEndpoints[2 * index];
+    }
+
+    /**
+     * @param index bridge index, below {@link #bridgeCount()}
+     * @return higher endpoint node id of the bridge
+     */
+    public int bridgeHigh(int index) {
+        return bridgeEndpoints[2 * index + 1];
+    }
+
+    /**
+     * @param limit maximum number of countries to return
+     * @return node ids by descending betweenness, ties by ascending node id
+     */
+    public int[] mostCentral(int limit) {
+        return IntStream.range(0, graph.nodeCount())
+                .boxed()
+                .sorted((left, right) -> {
+                    int byCentrality = Double.compare(betweenness[right], betweenness[left]);
+                    return byCentrality != 0 ? byCentrality : Integer.compare(left, right);
+                })
+                .limit(limit)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return wall time of the parallel centrality and eccentricity pass
+     */
+    public long centralityMillis() {
+        return centralityMillis;
+    }
+
+    /**
+     * @return wall time of the articulation point and bridge pass
+     */
+    public long biconnectivityMillis() {
+        return biconnectivityMillis;
+    }
+}
@@ -0,0 +1,236 @@
+package nda.company.homework.routing.analytics;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Computes {@link GraphAnalytics} for the loaded graph in the background.
+ * <p>
+ * Analytics cost {@code O(V * E)}, which is far more than loading the graph, so the computation runs on its
+ * own daemon thread once the graph bean exists and never delays startup or routing. Until the first computation
+ * finishes, {@link #current()} returns {@code null} and callers report the analytics as pending. Every graph
+ * published by a reload is analyzed again; meanwhile the analytics of the previous graph stay available.
+ * <p>
+ * The parallel centrality pass runs on a dedicated bounded {@link ForkJoinPool}, so it never occupies the common pool
+ * that request-time searches split on. A newer graph supersedes the computation in progress: a queued one is dropped
+ * and a running one stops at its next source. Graphs with more countries than the configured limit are not analyzed.
+ */
+@Service
+public class GraphAnalyticsService implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphAnalyticsService.class);
+    public static final int DEFAULT_PARALLELISM = 2;
+    public static final int DEFAULT_MAX_COUNTRIES = 20_000;
+
+    // null when disabled
+    private final ExecutorService worker;
+    // null when disabled
+    private final ForkJoinPool centralityPool;
+    private final int maxCountries;
+    // bumped per requested computation; computations of an older generation are superseded
+    private final AtomicLong generation = new AtomicLong();
+    // whether the latest graph was refused for exceeding maxCountries
+    private volatile boolean tooLarge;
+    // latest requested computation, null when disabled
+    private volatile CompletableFuture<GraphAnalytics> latest;
+    // latest successful computation
+    private volatile GraphAnalytics ready;
+
+    /**
+     * @param graphHolder source of the graph to analyze and of reloaded graphs
+     * @param enabled whether analytics are computed at all
+     * @param parallelism threads of the centrality pool, {@code 0} for the number of available cores
+     * @param maxCountries largest graph that is analyzed
+     */
+    public GraphAnalyticsService(
+            CountryGraphHolder graphHolder,
+            @Value("${routing.analytics.enabled:true}") boolean enabled,
+            @Value("${routing.analytics.parallelism:" + DEFAULT_PARALLELISM + "}") int parallelism,
+            @Value("${routing.analytics.max-countries:" + DEFAULT_MAX_COUNTRIES + "}") int maxCountries
+    ) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Analytics parallelism must not be negative");
+        }
+        if (maxCountries < 1) {
+            throw new IllegalArgumentException("Analytics max countries must be positive");
+        }
+        this.maxCountries = maxCountries;
+        if (!enabled) {
+            this.worker = null;
+            this.centralityPool = null;
+            return;
+        }
+        this.centralityPool = new ForkJoinPool(
+                parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism,
+                centralityThreadFactory(),
+                null,
+                false
+        );
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "graph-analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        graphHolder.addListener(snapshot -> computeInBackground(snapshot.graph()));
+        computeInBackground(graphHolder.current());
+    }
+
+    /**
+     * @return state of the background computation
+     */
+    public Status status() {
+        CompletableFuture<GraphAnalytics> computation = latest;
+        if (computation == null) {
+            return Status.DISABLED;
+        }
+        if (tooLarge) {
+            return Status.TOO_LARGE;
+        }
+        if (ready != null) {
+            return Status.READY;
+        }
+        return computation.isCompletedExceptionally() ? Status.FAILED : Status.PENDING;
+    }
+
+    /**
+     * @return analytics of the current graph, or of the previous one while a reloaded graph is being analyzed;
+     * {@code null} until the first computation succeeds
+     */
+    public GraphAnalytics current() {
+        return ready;
+    }
+
+    /**
+     * Blocks until the latest requested computation finishes, following newer graphs that supersede it.
+     *
+     * @return computed analytics
+     * @throws IllegalStateException when analytics are disabled, the graph is too large or the computation failed
+     */
+    public GraphAnalytics await() {
+        while (true) {
+            CompletableFuture<GraphAnalytics> computation = latest;
+            if (computation == null) {
+                throw new IllegalStateException("Graph analytics are disabled");
+            }
+            try {
+                return computation.join();
+            } catch (CompletionException e) {
+                if (computation != latest) {
+                    continue;
+                }
+                throw new IllegalStateException("Graph analytics computation failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops the worker and centrality threads; called by the container on shutdown.
+     */
+    @Override
+    public void close() {
+        if (worker != null) {
+            generation.incrementAndGet();
+            worker.shutdownNow();
+            centralityPool.shutdownNow();
+        }
+    }
+
+    private synchronized void computeInBackground(CountryGraph graph) {
+        long requested = generation.incrementAndGet();
+        BooleanSupplier superseded = () -> generation.get() != requested;
+        if (graph.nodeCount() > maxCountries) {
+            LOGGER.warn(
+                    "Skipped graph analytics: countries={} above routing.analytics.max-countries={}",
+                    graph.nodeCount(),
+                    maxCountries
+            );
+            // analytics of the previous graph would describe other countries, so none are served
+            tooLarge = true;
+            ready = null;
+            latest = CompletableFuture.failedFuture(new IllegalStateException(
+                    "Graph has " + graph.nodeCount() + " countries, above the analytics limit of " + maxCountries
+            ));
+            return;
+        }
+        tooLarge = false;
+        latest = CompletableFuture.supplyAsync(() -> {
+            if (superseded.getAsBoolean()) {
+                throw new CancellationException("Superseded by a newer graph");
+            }
+            long startedAtNanos = System.nanoTime();
+            try {
+                GraphAnalytics computed = GraphAnalytics.compute(graph, centralityPool, superseded);
+                if (!publishIfCurrent(requested, computed)) {
+                    throw new CancellationException("Superseded by a newer graph");
+                }
+                LOGGER.info(
+                        "Computed graph analytics: countries={}, articulationPoints={}, bridges={}, "
+                                + "centralityMs={}, biconnectivityMs={}, totalMs={}",
+                        graph.nodeCount(),
+                        computed.articulationPoints().length,
+                        computed.bridgeCount(),
+                        computed.centralityMillis(),
+                        computed.biconnectivityMillis(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos)
+                );
+                return computed;
+            } catch (CancellationException e) {
+                LOGGER.info("Dropped superseded graph analytics: countries={}", graph.nodeCount());
+                throw e;
+            } catch (RuntimeException | Error e) {
+                LOGGER.error("Failed to compute graph analytics", e);
+                throw e;
+            }
+        }, worker);
+    }
+
+    /**
+     * Serves {@code computed} unless a newer graph was requested meanwhile. Runs under the same lock as
+     * {@link #computeInBackground}, so a finished computation cannot overwrite the state of a graph published after
+     * it, including the cleared analytics of a graph that is too large.
+     *
+     * @return whether {@code computed} is now served
+     */
+    private synchronized boolean publishIfCurrent(long requested, GraphAnalytics computed) {
+        if (generation.get() != requested) {
+            return false;
+        }
+        ready = computed;
+        return true;
+    }
+
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory centralityThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("graph-centrality-" + counter.incrementAndGet());
+            return thread;
+        };
+    }
+
+    /**
+     * Progress of the background computation.
+     */
+    public enum Status {
+        DISABLED,
+        TOO_LARGE,
+        PENDING,
+        READY,
+        FAILED
+    }
+}
@@ -0,0 +1 @@
+package nda.company.homework.routing.analytics;
@@ -0,0 +1,11 @@
+package nda.company.homework.routing.api;
+
+import java.util.List;
+
+/**
+ * Alternative-routes payload returned by the REST API.
+ *
+ * @param routes distinct routes as ordered lists of CCA3 country codes, fewest border crossings first
+ */
+public record AlternativeRoutesResponse(List<List<String>> routes) {
+}
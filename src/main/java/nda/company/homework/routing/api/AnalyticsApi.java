@@ -0,0 +1,122 @@
+package nda.company.homework.routing.api;
+
+import nda.company.homework.routing.analytics.GraphAnalytics;
+import nda.company.homework.routing.analytics.GraphAnalyticsService;
+import nda.company.homework.routing.preload.CountryGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsApi {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalyticsApi.class);
+    private static final int MAX_TOP = 1_000;
+
+    private final GraphAnalyticsService analyticsService;
+
+    public AnalyticsApi(GraphAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    /**
+     * Returns component diameters, chokepoints and the most central countries.
+     *
+     * @param top number of most central countries to return
+     * @return HTTP 200 with analytics, HTTP 400 for an invalid {@code top},
+     *         or HTTP 503/500/404 problem details while analytics are pending, failed, disabled or skipped
+     */
+    @GetMapping
+    public ResponseEntity<?> summary(@RequestParam(defaultValue = "10") int top) {
+        if (top < 0 || top > MAX_TOP) {
+            return problem(HttpStatus.BAD_REQUEST, "top must be between 0 and " + MAX_TOP);
+        }
+        GraphAnalytics analytics = analyticsService.current();
+        if (analytics == null) {
+            return unavailable();
+        }
+
+        CountryGraph graph = analytics.graph();
+        List<AnalyticsResponse.Component> components = new ArrayList<>(graph.componentCount());
+        for (int componentId = 0; componentId < graph.componentCount(); componentId++) {
+            components.add(new AnalyticsResponse.Component(
+                    graph.componentSize(componentId),
+                    analytics.componentDiameter(componentId)
+            ));
+        }
+        List<String> articulationPoints = new ArrayList<>();
+        for (int nodeId : analytics.articulationPoints()) {
+            articulationPoints.add(graph.codeById(nodeId));
+        }
+        List<List<String>> bridges = new ArrayList<>(analytics.bridgeCount());
+        for (int index = 0; index < analytics.bridgeCount(); index++) {
+            bridges.add(List.of(
+                    graph.codeById(analytics.bridgeLow(index)),
+                    graph.codeById(analytics.bridgeHigh(index))
+            ));
+        }
+        List<AnalyticsResponse.Country> mostCentral = new ArrayList<>(top);
+        for (int nodeId : analytics.mostCentral(top)) {
+            mostCentral.add(toCountry(analytics, nodeId));
+        }
+        return ResponseEntity.ok(new AnalyticsResponse(components, articulationPoints, bridges, mostCentral));
+    }
+
+    /**
+     * Returns centrality, eccentricity and chokepoint status of one country.
+     *
+     * @param country country code (CCA3)
+     * @return HTTP 200 with country metrics, HTTP 400 problem details when the country is unknown,
+     *         or HTTP 503/500/404 problem details while analytics are pending, failed, disabled or skipped
+     */
+    @GetMapping("/{country}")
+    public ResponseEntity<?> country(@PathVariable String country) {
+        GraphAnalytics analytics = analyticsService.current();
+        if (analytics == null) {
+            return unavailable();
+        }
+        int nodeId = analytics.graph().idByRawCode(country);
+        if (nodeId < 0) {
+            return problem(HttpStatus.BAD_REQUEST, "Unknown country code: " + country.trim().toUpperCase(Locale.ROOT));
+        }
+        return ResponseEntity.ok(toCountry(analytics, nodeId));
+    }
+
+    private static AnalyticsResponse.Country toCountry(GraphAnalytics analytics, int nodeId) {
+        CountryGraph graph = analytics.graph();
+        return new AnalyticsResponse.Country(
+                graph.codeById(nodeId),
+                analytics.betweenness(nodeId),
+                analytics.eccentricity(nodeId),
+                analytics.componentDiameter(graph.componentOf(nodeId)),
+                analytics.isArticulationPoint(nodeId)
+        );
+    }
+
+    private ResponseEntity<ProblemDetail> unavailable() {
+        GraphAnalyticsService.Status status = analyticsService.status();
+        LOGGER.debug("Analytics request rejected: status={}", status);
+        return switch (status) {
+            case DISABLED -> problem(HttpStatus.NOT_FOUND, "Graph analytics are disabled");
+            case TOO_LARGE -> problem(HttpStatus.NOT_FOUND, "Graph is too large for analytics");
+            case FAILED -> problem(HttpStatus.INTERNAL_SERVER_ERROR, "Graph analytics computation failed");
+            default -> problem(HttpStatus.SERVICE_UNAVAILABLE, "Graph analytics are still being computed");
+        };
+    }
+
+    private static ResponseEntity<ProblemDetail> problem(HttpStatus status, String detail) {
+        return ResponseEntity.status(status).body(ProblemDetail.forStatusAndDetail(status, detail));
+    }
+}
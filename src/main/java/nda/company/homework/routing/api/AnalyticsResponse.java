@@ -0,0 +1,46 @@
+package nda.company.homework.routing.api;
+
+import java.util.List;
+
+/**
+ * Graph-wide analytics payload returned by the REST API.
+ *
+ * @param components connected components by id
+ * @param articulationPoints CCA3 codes of countries whose removal disconnects their component
+ * @param bridges borders whose removal disconnects their component, each as a pair of CCA3 codes
+ * @param mostCentral countries with the highest betweenness centrality, most central first
+ */
+public record AnalyticsResponse(
+        List<Component> components,
+        List<String> articulationPoints,
+        List<List<String>> bridges,
+        List<Country> mostCentral
+) {
+
+    /**
+     * Summary of one connected component.
+     *
+     * @param size number of countries
+     * @param diameter most border crossings between two countries of the component
+     */
+    public record Component(int size, int diameter) {
+    }
+
+    /**
+     * Per-country metrics.
+     *
+     * @param country CCA3 code
+     * @param betweenness shortest routes between other countries passing through this one
+     * @param eccentricity most border crossings to any country of the same component
+     * @param componentDiameter diameter of the country's component
+     * @param articulationPoint whether removing the country disconnects its component
+     */
+    public record Country(
+            String country,
+            double betweenness,
+            int eccentricity,
+            int componentDiameter,
+            boolean articulationPoint
+    ) {
+    }
+}
@@ -0,0 +1,75 @@
+package nda.company.homework.routing.api;
+
+import nda.company.homework.routing.services.FirstRouteProbe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/**
+ * Training run of the {@code appcds} Maven profile: serves one route over HTTP and exits.
+ * <p>
+ * Once the application is ready, the {@link FirstRouteProbe} route is requested from the application's own port,
+ * so the web request path, the routing engine and the JSON writers are loaded before the JVM exits and
+ * {@code -XX:ArchiveClassesAtExit} writes them into the class archive. Registered only with
+ * {@code routing.appcds.training-run=true}; the exit code is {@code 0} when the route was served.
+ */
+@Component
+@ConditionalOnProperty(name = "routing.appcds.training-run", havingValue = "true")
+public class AppCdsTrainingRun {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppCdsTrainingRun.class);
+
+    private final FirstRouteProbe probe;
+
+    public AppCdsTrainingRun(FirstRouteProbe probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * Requests the probe route through the HTTP API, then closes the context and exits the JVM.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        // listeners of one event run in no guaranteed order; the probe's startup path belongs in the archive too
+        if (probe.firstRouteMillis() < 0) {
+            probe.onApplicationReady();
+        }
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        int exitCode = serveRoute(context.getEnvironment().getRequiredProperty("local.server.port", Integer.class));
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private int serveRoute(int port) {
+        List<String> codes = probe.probeCodes();
+        if (codes.isEmpty()) {
+            LOGGER.warn("Skipped training route: the graph has no countries");
+            return 1;
+        }
+        URI uri = URI.create("http://localhost:" + port + "/routing/" + codes.get(0) + "/" + codes.get(1));
+        try {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(uri).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()
+            );
+            LOGGER.info("Served training route: uri={}, status={}", uri, response.statusCode());
+            return response.statusCode() == 200 ? 0 : 1;
+        } catch (IOException e) {
+            LOGGER.error("Training route request failed: uri={}", uri, e);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+}
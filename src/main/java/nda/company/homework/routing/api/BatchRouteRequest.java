@@ -0,0 +1,11 @@
+package nda.company.homework.routing.api;
+
+/**
+ * One line of a batch request body.
+ *
+ * @param origin origin country code (CCA3)
+ * @param destination destination country code (CCA3)
+ * @param optimize {@code crossings} (default when absent) or {@code distance}
+ */
+public record BatchRouteRequest(String origin, String destination, String optimize) {
+}
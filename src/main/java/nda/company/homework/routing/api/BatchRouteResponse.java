@@ -0,0 +1,29 @@
+package nda.company.homework.routing.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One line of a batch response body: either a route or the failure message for the request line at {@code index}.
+ *
+ * @param index zero-based position of the request line (blank lines are not counted)
+ * @param route ordered list of CCA3 country codes, absent on failure
+ * @param distanceKm total great-circle distance, present only for distance-optimized routes
+ * @param error failure message as returned by the single-route endpoint, absent on success
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchRouteResponse(int index, List<String> route, Double distanceKm, String error) {
+
+    static BatchRouteResponse success(List<String> route, Double distanceKm) {
+        return new BatchRouteResponse(-1, route, distanceKm, null);
+    }
+
+    static BatchRouteResponse failure(String error) {
+        return new BatchRouteResponse(-1, null, null, error);
+    }
+
+    BatchRouteResponse withIndex(int lineIndex) {
+        return new BatchRouteResponse(lineIndex, route, distanceKm, error);
+    }
+}
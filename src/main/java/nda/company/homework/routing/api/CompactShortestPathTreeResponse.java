@@ -0,0 +1,19 @@
+package nda.company.homework.routing.api;
+
+import java.util.List;
+
+/**
+ * Compact one-to-all payload: parallel arrays indexed by position in {@code countries}.
+ *
+ * @param origin normalized CCA3 code of the origin
+ * @param countries every country reachable by land, in BFS order (the origin first)
+ * @param crossings fewest border crossings from the origin, per country
+ * @param parents index in {@code countries} of the previous country on one shortest route, {@code -1} for the origin
+ */
+public record CompactShortestPathTreeResponse(
+        String origin,
+        List<String> countries,
+        int[] crossings,
+        int[] parents
+) {
+}
@@ -0,0 +1,127 @@
+package nda.company.homework.routing.api;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import nda.company.homework.routing.preload.CountryGraphReloader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+
+/**
+ * Graph administration endpoints; registered only with {@code routing.admin.enabled=true}, since they change what
+ * every client is served and carry no authentication of their own.
+ */
+@RestController
+@RequestMapping("/admin/graph")
+@ConditionalOnProperty(name = "routing.admin.enabled", havingValue = "true")
+public class GraphAdminApi {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphAdminApi.class);
+
+    private final CountryGraphHolder graphHolder;
+    private final CountryGraphReloader reloader;
+
+    public GraphAdminApi(CountryGraphHolder graphHolder, CountryGraphReloader reloader) {
+        this.graphHolder = graphHolder;
+        this.reloader = reloader;
+    }
+
+    /**
+     * Returns the version of the graph currently served.
+     *
+     * @return HTTP 200 with version, size and load time
+     */
+    @GetMapping
+    public GraphVersionResponse version() {
+        return toResponse(graphHolder.snapshot());
+    }
+
+    /**
+     * Rebuilds the graph from the configured countries location and publishes it.
+     * <p>
+     * Requests keep being served from the current graph while the new one loads; requests already running when
+     * the new graph is published finish on the old one.
+     *
+     * @return HTTP 200 with the published version, or HTTP 500 problem details when loading failed and the
+     *         current version is still served
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            return ResponseEntity.ok(toResponse(reloader.reload().join()));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            LOGGER.debug("Graph reload request failed: reason={}", cause.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ProblemDetail.forStatusAndDetail(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Country graph reload failed, still serving version " + graphHolder.snapshot().version()
+                            + ": " + cause.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Opens a border between two countries without reloading the countries data.
+     *
+     * @param left first CCA3 code
+     * @param right second CCA3 code
+     * @return HTTP 200 with the published version (unchanged when the border already exists), HTTP 400 problem
+     *         details for unknown or equal codes, or HTTP 409 when the graph is served from a mapped snapshot
+     */
+    @PutMapping("/borders/{left}/{right}")
+    public ResponseEntity<?> openBorder(@PathVariable String left, @PathVariable String right) {
+        return toEditResponse(reloader.openBorder(left, right));
+    }
+
+    /**
+     * Closes a border between two countries without reloading the countries data.
+     *
+     * @param left first CCA3 code
+     * @param right second CCA3 code
+     * @return HTTP 200 with the published version (unchanged when there is no such border), HTTP 400 problem
+     *         details for unknown or equal codes, or HTTP 409 when the graph is served from a mapped snapshot
+     */
+    @DeleteMapping("/borders/{left}/{right}")
+    public ResponseEntity<?> closeBorder(@PathVariable String left, @PathVariable String right) {
+        return toEditResponse(reloader.closeBorder(left, right));
+    }
+
+    private ResponseEntity<?> toEditResponse(CompletableFuture<CountryGraphHolder.Snapshot> edit) {
+        try {
+            return ResponseEntity.ok(toResponse(edit.join()));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            HttpStatus status = cause instanceof IllegalArgumentException
+                    ? HttpStatus.BAD_REQUEST
+                    : cause instanceof UnsupportedOperationException
+                            ? HttpStatus.CONFLICT
+                            : HttpStatus.INTERNAL_SERVER_ERROR;
+            LOGGER.debug("Border update request failed: reason={}", cause.getMessage());
+            return ResponseEntity.status(status).body(ProblemDetail.forStatusAndDetail(status, cause.getMessage()));
+        }
+    }
+
+    private static GraphVersionResponse toResponse(CountryGraphHolder.Snapshot snapshot) {
+        CountryGraph graph = snapshot.graph();
+        return new GraphVersionResponse(
+                snapshot.version(),
+                graph.nodeCount(),
+                graph.edgeCount(),
+                graph.componentCount(),
+                snapshot.loadMillis()
+        );
+    }
+}
@@ -0,0 +1,13 @@
+package nda.company.homework.routing.api;
+
+/**
+ * Published graph version returned by the admin API.
+ *
+ * @param version publication number, increased by one per reload
+ * @param countries number of countries
+ * @param borders number of land borders
+ * @param components number of connected components
+ * @param loadMillis time it took to build this version
+ */
+public record GraphVersionResponse(long version, int countries, int borders, int components, long loadMillis) {
+}
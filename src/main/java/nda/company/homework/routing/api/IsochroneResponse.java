@@ -0,0 +1,14 @@
+package nda.company.homework.routing.api;
+
+import java.util.List;
+
+/**
+ * Within-K-crossings payload returned by the REST API.
+ *
+ * @param origins normalized origin CCA3 codes
+ * @param maxCrossings requested crossing limit
+ * @param countriesByCrossings reached CCA3 codes, entry {@code i} holding countries exactly {@code i} crossings
+ *                             from the nearest origin
+ */
+public record IsochroneResponse(List<String> origins, int maxCrossings, List<List<String>> countriesByCrossings) {
+}
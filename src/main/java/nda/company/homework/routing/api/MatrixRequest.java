@@ -0,0 +1,12 @@
+package nda.company.homework.routing.api;
+
+import java.util.List;
+
+/**
+ * Many-to-many request body.
+ *
+ * @param origins origin CCA3 codes (any case), matrix rows
+ * @param destinations destination CCA3 codes (any case), matrix columns
+ */
+public record MatrixRequest(List<String> origins, List<String> destinations) {
+}
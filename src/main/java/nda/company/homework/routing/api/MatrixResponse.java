@@ -0,0 +1,13 @@
+package nda.company.homework.routing.api;
+
+import java.util.List;
+
+/**
+ * Dense many-to-many payload returned by the REST API.
+ *
+ * @param origins normalized origin CCA3 codes, one per row
+ * @param destinations normalized destination CCA3 codes, one per column
+ * @param crossings fewest border crossings per (origin, destination) pair, {@code -1} when there is no land route
+ */
+public record MatrixResponse(List<String> origins, List<String> destinations, int[][] crossings) {
+}
@@ -0,0 +1,90 @@
+package nda.company.homework.routing.api;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.services.RoutingResult;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@link NodePathResponse} as {@code {"route":["CZE","AUT","ITA"]}} without Jackson.
+ * <p>
+ * Code tokens are pre-encoded UTF-8 bytes owned by the graph, so a response is one {@code byte[]} sized up front
+ * and filled with array copies: no code strings, no intermediate lists, no per-character encoding. The output is
+ * byte-identical to {@link RoutingResponse} serialized by Jackson for crossing-count routes.
+ */
+@Component
+public class NodePathJsonConverter extends AbstractHttpMessageConverter<NodePathResponse> {
+    private static final byte[] PREFIX = "{\"route\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    public NodePathJsonConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return NodePathResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected NodePathResponse readInternal(
+            Class<? extends NodePathResponse> clazz,
+            HttpInputMessage inputMessage
+    ) {
+        throw new HttpMessageNotReadableException("Node paths are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(NodePathResponse response, MediaType contentType) {
+        return (long) encodedLength(response.path());
+    }
+
+    @Override
+    protected void writeInternal(NodePathResponse response, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(encode(response.path()));
+    }
+
+    /**
+     * Encodes the response body.
+     *
+     * @param path route to encode
+     * @return UTF-8 JSON bytes
+     */
+    private static byte[] encode(RoutingResult.NodePath path) {
+        CountryGraph graph = path.graph();
+        int[] nodeIds = path.nodeIds();
+        byte[] body = new byte[encodedLength(path)];
+        System.arraycopy(PREFIX, 0, body, 0, PREFIX.length);
+        int position = PREFIX.length;
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (i > 0) {
+                body[position++] = ',';
+            }
+            position = graph.writeJsonCodeToken(nodeIds[i], body, position);
+        }
+        System.arraycopy(SUFFIX, 0, body, position, SUFFIX.length);
+        return body;
+    }
+
+    private static int encodedLength(RoutingResult.NodePath path) {
+        CountryGraph graph = path.graph();
+        int[] nodeIds = path.nodeIds();
+        int length = PREFIX.length + SUFFIX.length + Math.max(0, nodeIds.length - 1);
+        for (int nodeId : nodeIds) {
+            length += graph.jsonCodeTokenLength(nodeId);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,33 @@
+package nda.company.homework.routing.api;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import nda.company.homework.routing.services.RoutingResult;
+
+import java.util.Objects;
+
+/**
+ * Crossing-count route payload in node-id form, written by {@link NodePathJsonConverter} from pre-encoded tokens.
+ * <p>
+ * Keeps the graph behind the node ids out of reach of other converters: when content negotiation picks Jackson
+ * instead (a media type the pre-encoded writer does not produce), the payload serializes through
+ * {@link #toResponse()} exactly like {@link RoutingResponse}.
+ *
+ * @param path route as node ids of the graph it was found on
+ */
+public record NodePathResponse(RoutingResult.NodePath path) {
+
+    /**
+     * Creates payload around a node path.
+     */
+    public NodePathResponse {
+        path = Objects.requireNonNull(path, "path");
+    }
+
+    /**
+     * @return the same route as a Jackson-serializable payload
+     */
+    @JsonValue
+    public RoutingResponse toResponse() {
+        return new RoutingResponse(path.route());
+    }
+}
@@ -0,0 +1,36 @@
+package nda.company.homework.routing.api;
+
+/**
+ * What {@code GET /routing/{origin}/{destination}} returns among the routes with the fewest crossings.
+ */
+enum RouteMode {
+    /**
+     * One shortest route (default), chosen by the configured engine.
+     */
+    ONE,
+    /**
+     * Only the number of distinct shortest routes.
+     */
+    COUNT,
+    /**
+     * The number of shortest routes and up to {@code limit} of them.
+     */
+    ALL,
+    /**
+     * One shortest route drawn uniformly at random.
+     */
+    RANDOM;
+
+    /**
+     * @param value mode name, any case
+     * @return matching mode, or {@code null} when the value is unknown
+     */
+    static RouteMode parse(String value) {
+        for (RouteMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
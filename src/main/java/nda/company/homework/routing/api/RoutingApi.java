@@ -1,27 +1,58 @@
 package nda.company.homework.routing.api;
 
+import nda.company.homework.routing.services.RouteMetric;
+import nda.company.homework.routing.services.RouteOptions;
 import nda.company.homework.routing.services.RoutingResult;
 import nda.company.homework.routing.services.RoutingService;
+import nda.company.homework.routing.services.ShortestPathTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 
 @RestController
 @RequestMapping("/routing")
 public class RoutingApi {
     private static final Logger LOGGER = LoggerFactory.getLogger(RoutingApi.class);
+    private static final long MAX_MATRIX_CELLS = 1_000_000;
+    private static final int DEFAULT_ROUTE_LIMIT = 10;
+    private static final int MAX_ROUTE_LIMIT = 1_000;
 
     private final RoutingService routingService;
+    private final boolean preEncodedJson;
 
     public RoutingApi(RoutingService routingService) {
+        this(routingService, true);
+    }
+
+    /**
+     * @param preEncodedJson whether plain crossing-count routes are returned as node paths written by
+     *                       {@link NodePathJsonConverter} instead of {@link RoutingResponse} serialized by Jackson
+     */
+    @Autowired
+    public RoutingApi(
+            RoutingService routingService,
+            @Value("${routing.api.pre-encoded-json:true}") boolean preEncodedJson
+    ) {
         this.routingService = routingService;
+        this.preEncodedJson = preEncodedJson;
     }
 
     /**
@@ -29,11 +60,82 @@ public class RoutingApi {
      *
      * @param origin origin country code (CCA3)
      * @param destination destination country code (CCA3)
+     * @param optimize {@code crossings} (default) for fewest border crossings,
+     *                 or {@code distance} for shortest great-circle distance
+     * @param alternatives optional number of distinct routes to return (crossings only), fewest crossings first
+     * @param via optional comma-separated waypoint country codes visited in order between origin and destination
+     * @param avoid optional comma-separated country codes the route must not pass through
+     * @param mode {@code one} (default) for one route, {@code count} for the number of shortest routes,
+     *             {@code all} for the count and up to {@code limit} shortest routes,
+     *             or {@code random} for one shortest route drawn uniformly (crossings only, without other options)
+     * @param limit maximum number of routes for {@code mode=all}
      * @return HTTP 200 with route payload, or HTTP 400 problem details when route is invalid/unreachable
      */
     @GetMapping("/{origin}/{destination}")
-    public ResponseEntity<?> route(@PathVariable String origin, @PathVariable String destination) {
-        RoutingResult result = routingService.findRoute(origin, destination);
+    public ResponseEntity<?> route(
+            @PathVariable String origin,
+            @PathVariable String destination,
+            @RequestParam(defaultValue = "crossings") String optimize,
+            @RequestParam(required = false) Integer alternatives,
+            @RequestParam(required = false) String via,
+            @RequestParam(required = false) String avoid,
+            @RequestParam(defaultValue = "one") String mode,
+            @RequestParam(required = false) Integer limit
+    ) {
+        RouteMetric metric = parseMetric(optimize);
+        if (metric == null) {
+            return badRequest("Unknown optimize value: " + optimize);
+        }
+        RouteMode routeMode = RouteMode.parse(mode);
+        if (routeMode == null) {
+            return badRequest("Unknown mode value: " + mode);
+        }
+        if (limit != null) {
+            if (routeMode != RouteMode.ALL) {
+                return badRequest("limit is only supported with mode=all");
+            }
+            if (limit < 1 || limit > MAX_ROUTE_LIMIT) {
+                return badRequest("limit must be between 1 and " + MAX_ROUTE_LIMIT);
+            }
+        }
+        if (routeMode != RouteMode.ONE) {
+            if (metric != RouteMetric.CROSSINGS || alternatives != null || via != null || avoid != null) {
+                return badRequest("mode " + mode.trim() + " only supports plain crossing-count routes");
+            }
+            return shortestRoutes(origin, destination, routeMode, limit == null ? DEFAULT_ROUTE_LIMIT : limit);
+        }
+        if (alternatives != null) {
+            if (alternatives < 1) {
+                return badRequest("alternatives must be a positive number");
+            }
+            if (metric != RouteMetric.CROSSINGS) {
+                return badRequest("alternatives are only supported with optimize=crossings");
+            }
+        }
+        List<String> viaCodes = parseCodes(via);
+        if (viaCodes == null) {
+            return badRequest("via must be a comma-separated list of country codes");
+        }
+        if (alternatives != null && !viaCodes.isEmpty()) {
+            return badRequest("alternatives cannot be combined with via");
+        }
+        List<String> avoidCodes = parseCodes(avoid);
+        if (avoidCodes == null) {
+            return badRequest("avoid must be a comma-separated list of country codes");
+        }
+
+        if (preEncodedJson && metric == RouteMetric.CROSSINGS && alternatives == null
+                && viaCodes.isEmpty() && avoidCodes.isEmpty()) {
+            return nodePathRoute(origin, destination);
+        }
+
+        RoutingResult result = alternatives != null
+                ? routingService.findAlternativeRoutes(origin, destination, alternatives, avoidCodes)
+                : routingService.findRoute(
+                        origin,
+                        destination,
+                        RouteOptions.defaults().withMetric(metric).withVia(viaCodes).withAvoid(avoidCodes)
+                );
         if (result instanceof RoutingResult.Success success) {
             LOGGER.debug(
                     "Route resolved: origin={} destination={} pathLength={}",
@@ -41,8 +143,88 @@ public class RoutingApi {
                     destination,
                     success.route().size()
             );
+            return ResponseEntity.ok(new RoutingResponse(success.route(), success.distanceKm(), success.legs()));
+        }
+        if (result instanceof RoutingResult.Alternatives alternativeRoutes) {
+            LOGGER.debug(
+                    "Alternative routes resolved: origin={} destination={} routes={}",
+                    origin,
+                    destination,
+                    alternativeRoutes.routes().size()
+            );
+            return ResponseEntity.ok(new AlternativeRoutesResponse(alternativeRoutes.routes()));
+        }
+        if (result instanceof RoutingResult.Failure failure) {
+            LOGGER.debug(
+                    "Route request rejected: origin={} destination={} reason={}",
+                    origin,
+                    destination,
+                    failure.message()
+            );
+            return badRequest(failure.message());
+        }
+        LOGGER.error("Unsupported routing result type: {}", result.getClass().getName());
+        throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
+    }
+
+    private ResponseEntity<?> shortestRoutes(String origin, String destination, RouteMode mode, int limit) {
+        RoutingResult result;
+        if (mode == RouteMode.COUNT) {
+            result = routingService.countShortestRoutes(origin, destination);
+        } else if (mode == RouteMode.ALL) {
+            result = routingService.findAllShortestRoutes(origin, destination, limit);
+        } else {
+            result = routingService.sampleShortestRoute(origin, destination);
+        }
+        if (result instanceof RoutingResult.ShortestRoutes routes) {
+            LOGGER.debug(
+                    "Shortest routes resolved: origin={} destination={} mode={} count={}",
+                    origin,
+                    destination,
+                    mode,
+                    routes.count()
+            );
+            return ResponseEntity.ok(new ShortestRoutesResponse(
+                    routes.origin(),
+                    routes.destination(),
+                    routes.crossings(),
+                    routes.count(),
+                    mode == RouteMode.ALL ? routes.routes() : null
+            ));
+        }
+        if (result instanceof RoutingResult.Success success) {
+            LOGGER.debug(
+                    "Random shortest route resolved: origin={} destination={} pathLength={}",
+                    origin,
+                    destination,
+                    success.route().size()
+            );
             return ResponseEntity.ok(new RoutingResponse(success.route()));
         }
+        if (result instanceof RoutingResult.Failure failure) {
+            LOGGER.debug(
+                    "Shortest routes request rejected: origin={} destination={} reason={}",
+                    origin,
+                    destination,
+                    failure.message()
+            );
+            return badRequest(failure.message());
+        }
+        LOGGER.error("Unsupported routing result type: {}", result.getClass().getName());
+        throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
+    }
+
+    private ResponseEntity<?> nodePathRoute(String origin, String destination) {
+        RoutingResult result = routingService.findNodePath(origin, destination);
+        if (result instanceof RoutingResult.NodePath path) {
+            LOGGER.debug(
+                    "Route resolved: origin={} destination={} pathLength={}",
+                    origin,
+                    destination,
+                    path.nodeIds().length
+            );
+            return ResponseEntity.ok(new NodePathResponse(path));
+        }
         if (result instanceof RoutingResult.Failure failure) {
             LOGGER.debug(
                     "Route request rejected: origin={} destination={} reason={}",
@@ -50,10 +232,168 @@ public class RoutingApi {
                     destination,
                     failure.message()
             );
-            ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, failure.message());
-            return ResponseEntity.badRequest().body(problemDetail);
+            return badRequest(failure.message());
+        }
+        LOGGER.error("Unsupported routing result type: {}", result.getClass().getName());
+        throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
+    }
+
+    /**
+     * Returns fewest border crossings and the shortest-path tree from origin to every country reachable by land.
+     *
+     * @param origin origin country code (CCA3)
+     * @param format {@code map} (default) for a per-country map, or {@code compact} for parallel arrays
+     * @return HTTP 200 with tree payload, or HTTP 400 problem details when origin is unknown
+     */
+    @GetMapping("/{origin}")
+    public ResponseEntity<?> shortestPathTree(
+            @PathVariable String origin,
+            @RequestParam(defaultValue = "map") String format
+    ) {
+        boolean compact = "compact".equalsIgnoreCase(format.trim());
+        if (!compact && !"map".equalsIgnoreCase(format.trim())) {
+            return badRequest("Unknown format value: " + format);
+        }
+
+        RoutingResult result = routingService.findShortestPathTree(origin);
+        if (result instanceof RoutingResult.Tree treeResult) {
+            ShortestPathTree tree = treeResult.tree();
+            LOGGER.debug("Shortest-path tree resolved: origin={} reachable={}", origin, tree.size());
+            return ResponseEntity.ok(compact ? toCompactResponse(tree) : toMapResponse(tree));
+        }
+        if (result instanceof RoutingResult.Failure failure) {
+            LOGGER.debug("Shortest-path tree request rejected: origin={} reason={}", origin, failure.message());
+            return badRequest(failure.message());
+        }
+        LOGGER.error("Unsupported routing result type: {}", result.getClass().getName());
+        throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
+    }
+
+    /**
+     * Returns every country within {@code k} border crossings of the nearest origin, grouped by crossings.
+     *
+     * @param origins comma-separated origin country codes (CCA3)
+     * @param k maximum number of border crossings
+     * @return HTTP 200 with reached countries per crossing count,
+     *         or HTTP 400 problem details when {@code k} is negative or an origin is unknown
+     */
+    @GetMapping("/{origins}/within/{k}")
+    public ResponseEntity<?> within(@PathVariable String origins, @PathVariable int k) {
+        if (k < 0) {
+            return badRequest("k must not be negative");
+        }
+        List<String> originCodes = parseCodes(origins);
+        if (originCodes == null) {
+            return badRequest("origins must be a comma-separated list of country codes");
+        }
+
+        RoutingResult result = routingService.findWithinCrossings(originCodes, k);
+        if (result instanceof RoutingResult.Isochrone isochrone) {
+            LOGGER.debug(
+                    "Isochrone resolved: origins={} maxCrossings={} levels={}",
+                    isochrone.origins(),
+                    k,
+                    isochrone.countriesByCrossings().size()
+            );
+            return ResponseEntity.ok(new IsochroneResponse(
+                    isochrone.origins(),
+                    isochrone.maxCrossings(),
+                    isochrone.countriesByCrossings()
+            ));
+        }
+        if (result instanceof RoutingResult.Failure failure) {
+            LOGGER.debug("Isochrone request rejected: origins={} reason={}", origins, failure.message());
+            return badRequest(failure.message());
+        }
+        LOGGER.error("Unsupported routing result type: {}", result.getClass().getName());
+        throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
+    }
+
+    /**
+     * Returns fewest border crossings for every (origin, destination) pair.
+     *
+     * @param request origin and destination code lists
+     * @return HTTP 200 with dense matrix ({@code -1} for pairs without a land route),
+     *         or HTTP 400 problem details when the request is invalid or a code is unknown
+     */
+    @PostMapping("/matrix")
+    public ResponseEntity<?> matrix(@RequestBody MatrixRequest request) {
+        if (!hasCodes(request.origins()) || !hasCodes(request.destinations())) {
+            return badRequest("origins and destinations must be non-empty lists of country codes");
+        }
+        if ((long) request.origins().size() * request.destinations().size() > MAX_MATRIX_CELLS) {
+            return badRequest("matrix must not exceed " + MAX_MATRIX_CELLS + " cells");
+        }
+
+        RoutingResult result = routingService.findCrossingMatrix(request.origins(), request.destinations());
+        if (result instanceof RoutingResult.Matrix matrix) {
+            LOGGER.debug(
+                    "Crossing matrix resolved: origins={} destinations={}",
+                    matrix.origins().size(),
+                    matrix.destinations().size()
+            );
+            return ResponseEntity.ok(new MatrixResponse(matrix.origins(), matrix.destinations(), matrix.crossings()));
+        }
+        if (result instanceof RoutingResult.Failure failure) {
+            LOGGER.debug("Crossing matrix request rejected: reason={}", failure.message());
+            return badRequest(failure.message());
         }
         LOGGER.error("Unsupported routing result type: {}", result.getClass().getName());
         throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
     }
+
+    private static boolean hasCodes(List<String> codes) {
+        return codes != null && !codes.isEmpty() && codes.stream().allMatch(Objects::nonNull);
+    }
+
+    private static ShortestPathTreeResponse toMapResponse(ShortestPathTree tree) {
+        Map<String, ShortestPathTreeResponse.Reachable> countries = new LinkedHashMap<>(tree.size() * 2);
+        for (int index = 0; index < tree.size(); index++) {
+            int parentIndex = tree.parentIndexAt(index);
+            countries.put(tree.codeAt(index), new ShortestPathTreeResponse.Reachable(
+                    tree.crossingsAt(index),
+                    parentIndex < 0 ? null : tree.codeAt(parentIndex)
+            ));
+        }
+        return new ShortestPathTreeResponse(tree.origin(), countries);
+    }
+
+    private static CompactShortestPathTreeResponse toCompactResponse(ShortestPathTree tree) {
+        return new CompactShortestPathTreeResponse(
+                tree.origin(),
+                tree.codes(),
+                tree.crossings(),
+                tree.parentIndices()
+        );
+    }
+
+    private static ResponseEntity<ProblemDetail> badRequest(String detail) {
+        return ResponseEntity.badRequest().body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, detail));
+    }
+
+    /**
+     * @return codes in request order, empty when the parameter is absent, or {@code null} when an entry is blank
+     */
+    private static List<String> parseCodes(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        List<String> codes = new ArrayList<>();
+        for (String code : value.split(",", -1)) {
+            if (code.isBlank()) {
+                return null;
+            }
+            codes.add(code);
+        }
+        return codes;
+    }
+
+    static RouteMetric parseMetric(String value) {
+        for (RouteMetric metric : RouteMetric.values()) {
+            if (metric.name().equalsIgnoreCase(value.trim())) {
+                return metric;
+            }
+        }
+        return null;
+    }
 }
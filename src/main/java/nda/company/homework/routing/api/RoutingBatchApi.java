@@ -0,0 +1,165 @@
+package nda.company.homework.routing.api;
+
+import jakarta.servlet.http.HttpServletResponse;
+import nda.company.homework.routing.services.OrderedBatchExecutor;
+import nda.company.homework.routing.services.RouteMetric;
+import nda.company.homework.routing.services.RoutingResult;
+import nda.company.homework.routing.services.RoutingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+@RestController
+@RequestMapping("/routing")
+public class RoutingBatchApi {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoutingBatchApi.class);
+    private static final int FLUSH_EVERY_LINES = 64;
+
+    private final RoutingService routingService;
+    private final OrderedBatchExecutor batchExecutor;
+    private final ObjectMapper objectMapper;
+
+    public RoutingBatchApi(
+            RoutingService routingService,
+            OrderedBatchExecutor batchExecutor,
+            ObjectMapper objectMapper
+    ) {
+        this.routingService = routingService;
+        this.batchExecutor = batchExecutor;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Routes many pairs in one request.
+     * <p>
+     * The NDJSON body is read line by line while results are written, so neither side is fully buffered.
+     * Lines are routed in parallel and answered as NDJSON in input order, each tagged with its line index.
+     * A malformed line or a failed route yields an {@code error} line instead of failing the whole batch.
+     *
+     * @param body NDJSON lines {@code {"origin": "CZE", "destination": "ITA", "optimize": "crossings"}}
+     * @param response servlet response the NDJSON results are streamed to
+     * @throws IOException when the request cannot be read or the response cannot be written
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void batch(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream output = response.getOutputStream();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int[] written = {0};
+
+        try {
+            batchExecutor.mapInOrder(new LineIterator(reader), this::routeLine, result -> {
+                try {
+                    output.write(objectMapper.writeValueAsBytes(result.withIndex(written[0]++)));
+                    output.write('\n');
+                    if (written[0] % FLUSH_EVERY_LINES == 0) {
+                        output.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flush();
+        LOGGER.debug("Batch routed: lines={}", written[0]);
+    }
+
+    private BatchRouteResponse routeLine(String line) {
+        BatchRouteRequest request;
+        try {
+            request = objectMapper.readValue(line, BatchRouteRequest.class);
+        } catch (JacksonException e) {
+            return BatchRouteResponse.failure("Malformed request line");
+        }
+        if (request == null || request.origin() == null || request.destination() == null) {
+            return BatchRouteResponse.failure("origin and destination are required");
+        }
+        RouteMetric metric = request.optimize() == null
+                ? RouteMetric.CROSSINGS
+                : RoutingApi.parseMetric(request.optimize());
+        if (metric == null) {
+            return BatchRouteResponse.failure("Unknown optimize value: " + request.optimize());
+        }
+
+        RoutingResult result;
+        try {
+            result = routingService.findRoute(request.origin(), request.destination(), metric);
+        } catch (RuntimeException e) {
+            // the 200 status and earlier lines are already sent, so one failing pair must not end the stream
+            LOGGER.warn(
+                    "Batch line failed: origin={} destination={} optimize={}",
+                    request.origin(),
+                    request.destination(),
+                    request.optimize(),
+                    e
+            );
+            return BatchRouteResponse.failure("Route lookup failed");
+        }
+        if (result instanceof RoutingResult.Success success) {
+            return BatchRouteResponse.success(success.route(), success.distanceKm());
+        }
+        if (result instanceof RoutingResult.Failure failure) {
+            return BatchRouteResponse.failure(failure.message());
+        }
+        throw new IllegalStateException("Unsupported routing result: " + result.getClass().getName());
+    }
+
+    /**
+     * Lazily reads non-blank lines.
+     */
+    private static final class LineIterator implements Iterator<String> {
+        private final BufferedReader reader;
+        private String next;
+
+        LineIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isBlank()) {
+                        next = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = next;
+            next = null;
+            return line;
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package nda.company.homework.routing.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import nda.company.homework.routing.services.RouteLeg;
+
 import java.util.List;
 
 /**
  * Successful routing payload returned by the REST API.
  *
  * @param route ordered list of CCA3 country codes from origin to destination
+ * @param distanceKm total great-circle distance in kilometres, present only for distance-optimized routes
+ * @param legs per-leg boundaries within {@code route}, present only for routes through {@code via} waypoints
  */
-public record RoutingResponse(List<String> route) {
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RoutingResponse(List<String> route, Double distanceKm, List<RouteLeg> legs) {
+
+    public RoutingResponse(List<String> route, Double distanceKm) {
+        this(route, distanceKm, null);
+    }
+
+    public RoutingResponse(List<String> route) {
+        this(route, null, null);
+    }
 }
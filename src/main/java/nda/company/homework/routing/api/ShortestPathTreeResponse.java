@@ -0,0 +1,24 @@
+package nda.company.homework.routing.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * One-to-all payload returned by the REST API.
+ *
+ * @param origin normalized CCA3 code of the origin
+ * @param countries every country reachable by land, in BFS order, keyed by CCA3 code
+ */
+public record ShortestPathTreeResponse(String origin, Map<String, Reachable> countries) {
+
+    /**
+     * Tree entry for one reachable country.
+     *
+     * @param crossings fewest border crossings from the origin
+     * @param parent previous country on one shortest route, absent for the origin itself
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Reachable(int crossings, String parent) {
+    }
+}
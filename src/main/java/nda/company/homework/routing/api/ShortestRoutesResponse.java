@@ -0,0 +1,25 @@
+package nda.company.homework.routing.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * All-shortest-routes payload returned by the REST API.
+ *
+ * @param origin normalized origin CCA3 code
+ * @param destination normalized destination CCA3 code
+ * @param crossings border crossings of every shortest route
+ * @param count exact number of distinct shortest routes
+ * @param routes up to {@code limit} shortest routes, present only for {@code mode=all}
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ShortestRoutesResponse(
+        String origin,
+        String destination,
+        int crossings,
+        BigInteger count,
+        List<List<String>> routes
+) {
+}
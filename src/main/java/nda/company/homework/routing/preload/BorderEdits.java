@@ -0,0 +1,201 @@
+package nda.company.homework.routing.preload;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Single-border edits that derive a new {@link CountryGraph} from an existing one without re-reading countries data.
+ * <p>
+ * Every edit is {@code O(V + E)}: the offsets, targets and distances arrays are copied in full, with three bulk
+ * copies around the two touched rows, so untouched rows move as contiguous memory instead of being re-derived from
+ * an edge list. Codes, the code index, JSON tokens and coordinates are shared with the source graph, and component
+ * arrays are shared as well whenever the edit keeps connectivity unchanged.
+ * <p>
+ * Opening a border between two components folds the higher component id into the lower one and moves the last id
+ * into the freed slot, so ids stay dense; relabelling reads every node's component id. Closing a border runs
+ * breadth-first searches from both endpoints in lockstep: they stop as soon as they meet (still connected) or one
+ * side runs out of nodes, and that side is then exactly the split-off component. The traversal visits at most about
+ * twice the smaller side, but its scratch arrays and the copied component array are sized by the whole graph.
+ */
+final class BorderEdits {
+
+    private BorderEdits() {
+    }
+
+    /**
+     * @param graph source graph without a border between the two countries
+     * @return graph with the border added
+     */
+    static CountryGraph open(CountryGraph graph, int leftId, int rightId) {
+        int lowId = Math.min(leftId, rightId);
+        int highId = Math.max(leftId, rightId);
+        int[] offsets = graph.neighborOffsets();
+        int[] targets = graph.neighborTargets();
+        float[] distances = graph.neighborDistancesKm();
+        // the new entries go to the end of both rows
+        int lowSlot = offsets[lowId + 1];
+        int highSlot = offsets[highId + 1] + 1;
+
+        int[] newTargets = new int[targets.length + 2];
+        copyWithPair(targets, newTargets, lowSlot, highSlot);
+        newTargets[lowSlot] = highId;
+        newTargets[highSlot] = lowId;
+        float[] newDistances = null;
+        if (distances != null) {
+            float distanceKm = graph.greatCircleKm(lowId, highId);
+            newDistances = new float[distances.length + 2];
+            copyWithPair(distances, newDistances, lowSlot, highSlot);
+            newDistances[lowSlot] = distanceKm;
+            newDistances[highSlot] = distanceKm;
+        }
+        int[] newOffsets = shiftOffsets(offsets, lowId, highId, 1);
+
+        int[] components = graph.componentIds();
+        int[] sizes = graph.componentSizes();
+        int lowComponent = components[lowId];
+        int highComponent = components[highId];
+        if (lowComponent == highComponent) {
+            return new CountryGraph(graph, newOffsets, newTargets, newDistances, components, sizes);
+        }
+
+        int keptComponent = Math.min(lowComponent, highComponent);
+        int foldedComponent = Math.max(lowComponent, highComponent);
+        int lastComponent = sizes.length - 1;
+        int[] newComponents = new int[components.length];
+        for (int nodeId = 0; nodeId < components.length; nodeId++) {
+            int component = components[nodeId];
+            if (component == foldedComponent) {
+                component = keptComponent;
+            } else if (component == lastComponent) {
+                component = foldedComponent;
+            }
+            newComponents[nodeId] = component;
+        }
+        int[] newSizes = Arrays.copyOf(sizes, lastComponent);
+        newSizes[keptComponent] += sizes[foldedComponent];
+        if (foldedComponent != lastComponent) {
+            newSizes[foldedComponent] = sizes[lastComponent];
+        }
+        return new CountryGraph(graph, newOffsets, newTargets, newDistances, newComponents, newSizes);
+    }
+
+    /**
+     * @param graph source graph with a border between the two countries
+     * @return graph with the border removed
+     */
+    static CountryGraph close(CountryGraph graph, int leftId, int rightId) {
+        int lowId = Math.min(leftId, rightId);
+        int highId = Math.max(leftId, rightId);
+        int[] offsets = graph.neighborOffsets();
+        int[] targets = graph.neighborTargets();
+        float[] distances = graph.neighborDistancesKm();
+        int lowSlot = slotOf(offsets, targets, lowId, highId);
+        int highSlot = slotOf(offsets, targets, highId, lowId);
+
+        int[] newTargets = new int[targets.length - 2];
+        copyWithoutPair(targets, newTargets, lowSlot, highSlot);
+        float[] newDistances = null;
+        if (distances != null) {
+            newDistances = new float[distances.length - 2];
+            copyWithoutPair(distances, newDistances, lowSlot, highSlot);
+        }
+        int[] newOffsets = shiftOffsets(offsets, lowId, highId, -1);
+
+        int[] components = graph.componentIds();
+        int[] sizes = graph.componentSizes();
+        int[] splitNodes = splitSide(newOffsets, newTargets, lowId, highId);
+        if (splitNodes == null) {
+            return new CountryGraph(graph, newOffsets, newTargets, newDistances, components, sizes);
+        }
+
+        int oldComponent = components[lowId];
+        int newComponent = sizes.length;
+        int[] newComponents = components.clone();
+        for (int nodeId : splitNodes) {
+            newComponents[nodeId] = newComponent;
+        }
+        int[] newSizes = Arrays.copyOf(sizes, newComponent + 1);
+        newSizes[oldComponent] -= splitNodes.length;
+        newSizes[newComponent] = splitNodes.length;
+        return new CountryGraph(graph, newOffsets, newTargets, newDistances, newComponents, newSizes);
+    }
+
+    /**
+     * Expands one node per side in turn until a side reaches the other one or has nothing left to expand.
+     *
+     * @return nodes of the exhausted side, or {@code null} when both endpoints are still connected
+     */
+    private static int[] splitSide(int[] offsets, int[] targets, int lowId, int highId) {
+        int nodeCount = offsets.length - 1;
+        byte[] sideByNodeId = new byte[nodeCount];
+        int[][] queues = {new int[nodeCount], new int[nodeCount]};
+        int[] heads = new int[2];
+        int[] tails = {1, 1};
+        queues[0][0] = lowId;
+        queues[1][0] = highId;
+        sideByNodeId[lowId] = 1;
+        sideByNodeId[highId] = 2;
+
+        for (int side = 0; ; side ^= 1) {
+            int[] queue = queues[side];
+            if (heads[side] == tails[side]) {
+                return Arrays.copyOf(queue, tails[side]);
+            }
+            byte mark = (byte) (side + 1);
+            int nodeId = queue[heads[side]++];
+            for (int edge = offsets[nodeId]; edge < offsets[nodeId + 1]; edge++) {
+                int neighborId = targets[edge];
+                if (sideByNodeId[neighborId] == 0) {
+                    sideByNodeId[neighborId] = mark;
+                    queue[tails[side]++] = neighborId;
+                } else if (sideByNodeId[neighborId] != mark) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private static int slotOf(int[] offsets, int[] targets, int nodeId, int neighborId) {
+        for (int edge = offsets[nodeId]; edge < offsets[nodeId + 1]; edge++) {
+            if (targets[edge] == neighborId) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("Border is missing from one of its rows");
+    }
+
+    /**
+     * Rows after {@code lowId} move by {@code delta}, rows after {@code highId} by twice as much.
+     */
+    private static int[] shiftOffsets(int[] offsets, int lowId, int highId, int delta) {
+        int[] shifted = offsets.clone();
+        for (int nodeId = lowId + 1; nodeId < shifted.length; nodeId++) {
+            shifted[nodeId] += nodeId <= highId ? delta : 2 * delta;
+        }
+        return shifted;
+    }
+
+    /**
+     * Copies {@code source} leaving {@code target} slots {@code lowSlot} and {@code highSlot} free.
+     *
+     * @param highSlot free slot index in {@code target}, after {@code lowSlot}
+     */
+    private static void copyWithPair(Object source, Object target, int lowSlot, int highSlot) {
+        int length = Array.getLength(source);
+        System.arraycopy(source, 0, target, 0, lowSlot);
+        System.arraycopy(source, lowSlot, target, lowSlot + 1, highSlot - lowSlot - 1);
+        System.arraycopy(source, highSlot - 1, target, highSlot + 1, length - highSlot + 1);
+    }
+
+    /**
+     * Copies {@code source} skipping slots {@code lowSlot} and {@code highSlot}.
+     *
+     * @param highSlot skipped slot index in {@code source}, after {@code lowSlot}
+     */
+    private static void copyWithoutPair(Object source, Object target, int lowSlot, int highSlot) {
+        int length = Array.getLength(source);
+        System.arraycopy(source, 0, target, 0, lowSlot);
+        System.arraycopy(source, lowSlot + 1, target, lowSlot, highSlot - lowSlot - 1);
+        System.arraycopy(source, highSlot + 1, target, highSlot - 1, length - highSlot - 1);
+    }
+}
@@ -0,0 +1,155 @@
+package nda.company.homework.routing.preload;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Country code to node id lookup with a direct-index table for three-letter codes.
+ * <p>
+ * A code of three ASCII letters is packed into {@code 26^3 = 17,576} slots ({@code a * 676 + b * 26 + c}), so
+ * resolving it is three character reads and one array read: no hashing, no boxing, and raw request input is
+ * resolved case-insensitively without creating upper-cased copies. Codes of any other shape (test graphs,
+ * malformed data) fall back to a map; only they pay for normalization.
+ * Filled once while the graph is built and read-only afterwards.
+ */
+final class CountryCodeIndex {
+    private static final int LETTERS = 26;
+    private static final int PACKED_CODE_COUNT = LETTERS * LETTERS * LETTERS;
+    private static final int UNKNOWN_NODE_ID = -1;
+
+    private final int[] nodeIdByPackedCode = new int[PACKED_CODE_COUNT];
+    private final Map<String, Integer> nodeIdByOtherCode = new HashMap<>();
+
+    CountryCodeIndex() {
+        Arrays.fill(nodeIdByPackedCode, UNKNOWN_NODE_ID);
+    }
+
+    /**
+     * @param nodeIdByCode map from normalized code to node id
+     * @return index holding every entry of the map
+     */
+    static CountryCodeIndex of(Map<String, Integer> nodeIdByCode) {
+        CountryCodeIndex index = new CountryCodeIndex();
+        nodeIdByCode.forEach(index::put);
+        return index;
+    }
+
+    /**
+     * @param code normalized code
+     * @param nodeId node id to resolve the code to
+     */
+    void put(String code, int nodeId) {
+        int packedCode = pack(code, 0, code.length(), false);
+        if (packedCode >= 0) {
+            nodeIdByPackedCode[packedCode] = nodeId;
+        } else {
+            nodeIdByOtherCode.put(code, nodeId);
+        }
+    }
+
+    /**
+     * @param code normalized code (exact match)
+     * @return node id, or {@code -1} when code is unknown
+     */
+    int idOf(String code) {
+        int packedCode = pack(code, 0, code.length(), false);
+        if (packedCode >= 0) {
+            return nodeIdByPackedCode[packedCode];
+        }
+        Integer nodeId = nodeIdByOtherCode.get(code);
+        return nodeId == null ? UNKNOWN_NODE_ID : nodeId;
+    }
+
+    /**
+     * Resolves raw input, ignoring surrounding whitespace and letter case.
+     *
+     * @param rawCode code as received, may be {@code null}
+     * @return node id, or {@code -1} when code is blank or unknown
+     */
+    int idOfRaw(CharSequence rawCode) {
+        if (rawCode == null) {
+            return UNKNOWN_NODE_ID;
+        }
+        int from = 0;
+        int to = rawCode.length();
+        while (from < to && rawCode.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && rawCode.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        int packedCode = pack(rawCode, from, to, true);
+        if (packedCode >= 0) {
+            return nodeIdByPackedCode[packedCode];
+        }
+        if (from == to || nodeIdByOtherCode.isEmpty()) {
+            return UNKNOWN_NODE_ID;
+        }
+        Integer nodeId = nodeIdByOtherCode.get(rawCode.subSequence(from, to).toString().toUpperCase(Locale.ROOT));
+        return nodeId == null ? UNKNOWN_NODE_ID : nodeId;
+    }
+
+    /**
+     * Resolves raw input held in a character buffer (e.g. a JSON parser's text buffer), ignoring surrounding
+     * whitespace and letter case.
+     *
+     * @param chars buffer holding the code
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return node id, or {@code -1} when code is blank or unknown
+     */
+    int idOfRaw(char[] chars, int offset, int length) {
+        int from = offset;
+        int to = offset + length;
+        while (from < to && chars[from] <= ' ') {
+            from++;
+        }
+        while (to > from && chars[to - 1] <= ' ') {
+            to--;
+        }
+        if (to - from == 3) {
+            int packedCode = pack(chars[from], chars[from + 1], chars[from + 2], true);
+            if (packedCode >= 0) {
+                return nodeIdByPackedCode[packedCode];
+            }
+        }
+        if (from == to || nodeIdByOtherCode.isEmpty()) {
+            return UNKNOWN_NODE_ID;
+        }
+        Integer nodeId = nodeIdByOtherCode.get(new String(chars, from, to - from).toUpperCase(Locale.ROOT));
+        return nodeId == null ? UNKNOWN_NODE_ID : nodeId;
+    }
+
+    /**
+     * @return packed slot of a three-letter code, or {@code -1} when {@code code[from, to)} is not three ASCII
+     *         letters (upper-case only unless {@code ignoreCase})
+     */
+    private static int pack(CharSequence code, int from, int to, boolean ignoreCase) {
+        if (to - from != 3) {
+            return -1;
+        }
+        return pack(code.charAt(from), code.charAt(from + 1), code.charAt(from + 2), ignoreCase);
+    }
+
+    private static int pack(char first, char second, char third, boolean ignoreCase) {
+        int firstLetter = letterIndex(first, ignoreCase);
+        int secondLetter = letterIndex(second, ignoreCase);
+        int thirdLetter = letterIndex(third, ignoreCase);
+        if ((firstLetter | secondLetter | thirdLetter) < 0) {
+            return -1;
+        }
+        return (firstLetter * LETTERS + secondLetter) * LETTERS + thirdLetter;
+    }
+
+    private static int letterIndex(char symbol, boolean ignoreCase) {
+        if (symbol >= 'A' && symbol <= 'Z') {
+            return symbol - 'A';
+        }
+        if (ignoreCase && symbol >= 'a' && symbol <= 'z') {
+            return symbol - 'a';
+        }
+        return -1;
+    }
+}
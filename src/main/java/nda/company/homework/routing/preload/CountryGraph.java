@@ -1,21 +1,40 @@
 package nda.company.homework.routing.preload;
 
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 
 /**
  * Immutable in-memory representation of countries and land borders.
+ * <p>
+ * Adjacency is stored in compressed sparse row (CSR) form: neighbors of node {@code v} are
+ * {@code neighborTargets[neighborOffsets[v] .. neighborOffsets[v + 1] - 1]}.
+ * Why this layout: two flat arrays instead of one array per node keep the object count constant
+ * and make neighbor scans sequential memory reads.
+ * <p>
+ * A graph mapped from a {@link CountryGraphSnapshot} keeps the same layout in the mapped file instead of heap arrays;
+ * search engines read both kinds through {@link #adjacency()}, and the array accessors are unavailable.
  */
 public final class CountryGraph {
-    private static final int UNKNOWN_NODE_ID = -1;
-
-    private final Map<String, Integer> nodeIdByCode;
+    private final CountryCodeIndex codeIndex;
     private final String[] codeByNodeId;
-    private final int[][] adjacencyByNodeId;
+    private final byte[][] jsonTokenByNodeId;
+    private final int[] neighborOffsets;
+    private final int[] neighborTargets;
+    private final float[] neighborDistancesKm;
+    // null unless edge distances were computed from coordinates
+    private final double[] latitudeByNodeId;
+    private final double[] longitudeByNodeId;
     private final int[] componentByNodeId;
     private final int edgeCount;
-    private final int componentCount;
+    private final int[] componentSizes;
+    private final NextHopTable nextHopTable;
+    private final LandmarkTable landmarkTable;
+    private final GraphAdjacency adjacency;
+    // null unless the graph reads from a mapped snapshot; the heap fields above are null then
+    private final MappedGraphStore mappedStore;
+    private final int nodeCount;
 
     /**
      * Creates a graph from precomputed structures.
@@ -33,27 +52,283 @@ public final class CountryGraph {
             int[][] adjacencyByNodeId,
             int[] componentByNodeId
     ) {
-        this.nodeIdByCode = Collections.unmodifiableMap(nodeIdByCode);
+        this(
+                nodeIdByCode,
+                codeByNodeId,
+                offsetsOf(adjacencyByNodeId),
+                targetsOf(adjacencyByNodeId),
+                componentByNodeId
+        );
+    }
+
+    /**
+     * Creates a graph from precomputed CSR adjacency.
+     * <p>
+     * The constructor assumes the inputs are already stable and will not be mutated afterwards.
+     *
+     * @param nodeIdByCode map from CCA3 code to internal node id
+     * @param codeByNodeId array mapping internal node id back to CCA3 code
+     * @param neighborOffsets start index of each node's neighbors in {@code neighborTargets}, size {@code V + 1}
+     * @param neighborTargets concatenated neighbor ids of all nodes, size {@code 2E}
+     * @param componentByNodeId connected-component id per node
+     */
+    public CountryGraph(
+            Map<String, Integer> nodeIdByCode,
+            String[] codeByNodeId,
+            int[] neighborOffsets,
+            int[] neighborTargets,
+            int[] componentByNodeId
+    ) {
+        this(nodeIdByCode, codeByNodeId, neighborOffsets, neighborTargets, null, componentByNodeId);
+    }
+
+    /**
+     * Creates a graph from precomputed CSR adjacency with great-circle edge distances.
+     * <p>
+     * The constructor assumes the inputs are already stable and will not be mutated afterwards.
+     *
+     * @param nodeIdByCode map from CCA3 code to internal node id
+     * @param codeByNodeId array mapping internal node id back to CCA3 code
+     * @param neighborOffsets start index of each node's neighbors in {@code neighborTargets}, size {@code V + 1}
+     * @param neighborTargets concatenated neighbor ids of all nodes, size {@code 2E}
+     * @param neighborDistancesKm edge distance in kilometres aligned with {@code neighborTargets}, or {@code null}
+     * @param componentByNodeId connected-component id per node
+     */
+    public CountryGraph(
+            Map<String, Integer> nodeIdByCode,
+            String[] codeByNodeId,
+            int[] neighborOffsets,
+            int[] neighborTargets,
+            float[] neighborDistancesKm,
+            int[] componentByNodeId
+    ) {
+        this(
+                CountryCodeIndex.of(nodeIdByCode),
+                codeByNodeId,
+                neighborOffsets,
+                neighborTargets,
+                neighborDistancesKm,
+                null,
+                null,
+                componentByNodeId
+        );
+    }
+
+    /**
+     * Creates a graph whose code lookup was filled by the builder.
+     *
+     * @param latitudeByNodeId country latitudes used to weigh borders opened later, or {@code null}
+     * @param longitudeByNodeId country longitudes used to weigh borders opened later, or {@code null}
+     */
+    CountryGraph(
+            CountryCodeIndex codeIndex,
+            String[] codeByNodeId,
+            int[] neighborOffsets,
+            int[] neighborTargets,
+            float[] neighborDistancesKm,
+            double[] latitudeByNodeId,
+            double[] longitudeByNodeId,
+            int[] componentByNodeId
+    ) {
+        this.codeIndex = codeIndex;
         this.codeByNodeId = codeByNodeId;
-        this.adjacencyByNodeId = adjacencyByNodeId;
+        this.neighborOffsets = neighborOffsets;
+        this.neighborTargets = neighborTargets;
+        this.neighborDistancesKm = neighborDistancesKm;
+        this.latitudeByNodeId = latitudeByNodeId;
+        this.longitudeByNodeId = longitudeByNodeId;
         this.componentByNodeId = componentByNodeId;
 
-        if (this.codeByNodeId.length != this.adjacencyByNodeId.length) {
-            throw new IllegalArgumentException("Code and adjacency arrays must have the same length");
+        if (this.codeByNodeId.length + 1 != this.neighborOffsets.length) {
+            throw new IllegalArgumentException("Offsets array must have one more entry than code array");
+        }
+        if (this.neighborOffsets[0] != 0 || this.neighborOffsets[this.codeByNodeId.length] != this.neighborTargets.length) {
+            throw new IllegalArgumentException("Offsets array must span the whole targets array");
+        }
+        if (this.neighborDistancesKm != null && this.neighborDistancesKm.length != this.neighborTargets.length) {
+            throw new IllegalArgumentException("Distance and targets arrays must have the same length");
         }
         if (this.codeByNodeId.length != this.componentByNodeId.length) {
             throw new IllegalArgumentException("Code and component arrays must have the same length");
         }
 
-        this.edgeCount = computeEdgeCount(this.adjacencyByNodeId);
-        this.componentCount = computeComponentCount(this.componentByNodeId);
+        this.edgeCount = this.neighborTargets.length / 2;
+        this.componentSizes = computeComponentSizes(this.componentByNodeId);
+        this.jsonTokenByNodeId = encodeJsonTokens(this.codeByNodeId);
+        this.nextHopTable = null;
+        this.landmarkTable = null;
+        this.adjacency = new HeapAdjacency(neighborOffsets, neighborTargets, neighborDistancesKm);
+        this.mappedStore = null;
+        this.nodeCount = codeByNodeId.length;
+    }
+
+    /**
+     * Creates a graph reading everything from a mapped snapshot.
+     */
+    CountryGraph(MappedGraphStore mappedStore) {
+        this.codeIndex = null;
+        this.codeByNodeId = null;
+        this.jsonTokenByNodeId = null;
+        this.neighborOffsets = null;
+        this.neighborTargets = null;
+        this.neighborDistancesKm = null;
+        this.latitudeByNodeId = null;
+        this.longitudeByNodeId = null;
+        this.componentByNodeId = null;
+        this.edgeCount = mappedStore.edgeCount();
+        this.componentSizes = null;
+        this.nextHopTable = null;
+        this.landmarkTable = null;
+        this.adjacency = mappedStore;
+        this.mappedStore = mappedStore;
+        this.nodeCount = mappedStore.nodeCount();
+    }
+
+    private CountryGraph(CountryGraph source, NextHopTable nextHopTable, LandmarkTable landmarkTable) {
+        this.codeIndex = source.codeIndex;
+        this.codeByNodeId = source.codeByNodeId;
+        this.jsonTokenByNodeId = source.jsonTokenByNodeId;
+        this.neighborOffsets = source.neighborOffsets;
+        this.neighborTargets = source.neighborTargets;
+        this.neighborDistancesKm = source.neighborDistancesKm;
+        this.latitudeByNodeId = source.latitudeByNodeId;
+        this.longitudeByNodeId = source.longitudeByNodeId;
+        this.componentByNodeId = source.componentByNodeId;
+        this.edgeCount = source.edgeCount;
+        this.componentSizes = source.componentSizes;
+        this.nextHopTable = nextHopTable;
+        this.landmarkTable = landmarkTable;
+        this.adjacency = source.adjacency;
+        this.mappedStore = source.mappedStore;
+        this.nodeCount = source.nodeCount;
+    }
+
+    /**
+     * Creates a graph after a border edit: countries, codes and coordinates are shared with {@code source},
+     * precomputed tables are dropped because they describe the old borders.
+     */
+    CountryGraph(
+            CountryGraph source,
+            int[] neighborOffsets,
+            int[] neighborTargets,
+            float[] neighborDistancesKm,
+            int[] componentByNodeId,
+            int[] componentSizes
+    ) {
+        this.codeIndex = source.codeIndex;
+        this.codeByNodeId = source.codeByNodeId;
+        this.jsonTokenByNodeId = source.jsonTokenByNodeId;
+        this.neighborOffsets = neighborOffsets;
+        this.neighborTargets = neighborTargets;
+        this.neighborDistancesKm = neighborDistancesKm;
+        this.latitudeByNodeId = source.latitudeByNodeId;
+        this.longitudeByNodeId = source.longitudeByNodeId;
+        this.componentByNodeId = componentByNodeId;
+        this.edgeCount = neighborTargets.length / 2;
+        this.componentSizes = componentSizes;
+        this.nextHopTable = null;
+        this.landmarkTable = null;
+        this.adjacency = new HeapAdjacency(neighborOffsets, neighborTargets, neighborDistancesKm);
+        this.mappedStore = null;
+        this.nodeCount = source.nodeCount;
+    }
+
+    /**
+     * Returns a graph sharing all structures with this one and carrying a precomputed next-hop table.
+     *
+     * @param nextHopTable table built from this graph
+     * @return graph with the next-hop table attached
+     */
+    public CountryGraph withNextHopTable(NextHopTable nextHopTable) {
+        return new CountryGraph(this, Objects.requireNonNull(nextHopTable, "nextHopTable"), landmarkTable);
+    }
+
+    /**
+     * @return precomputed next-hop table, or {@code null} when it was not built for this graph
+     */
+    public NextHopTable nextHopTable() {
+        return nextHopTable;
+    }
+
+    /**
+     * Returns a graph sharing all structures with this one and carrying landmark distance tables.
+     *
+     * @param landmarkTable landmark tables built from this graph
+     * @return graph with the landmark tables attached
+     */
+    public CountryGraph withLandmarkTable(LandmarkTable landmarkTable) {
+        return new CountryGraph(this, nextHopTable, Objects.requireNonNull(landmarkTable, "landmarkTable"));
+    }
+
+    /**
+     * @return landmark distance tables for goal-directed search, or {@code null} when they were not built
+     */
+    public LandmarkTable landmarkTable() {
+        return landmarkTable;
+    }
+
+    /**
+     * Returns a graph with one more border, sharing codes, the code index, JSON tokens and coordinates with this graph.
+     * <p>
+     * Adjacency arrays are copied in full, so the edit costs {@code O(V + E)}. When the border joins two components
+     * their ids are merged without a rebuild. Precomputed next-hop and landmark tables are not carried over.
+     *
+     * @param leftId first country node id
+     * @param rightId second country node id
+     * @return new graph, or this graph when the border already exists
+     * @throws IllegalArgumentException when both ids are the same country
+     * @throws IllegalStateException when this graph has edge distances but no coordinates to weigh the new border
+     * @throws UnsupportedOperationException when this graph is mapped from a snapshot
+     */
+    public CountryGraph withBorder(int leftId, int rightId) {
+        validateBorder(leftId, rightId);
+        requireHeap();
+        return hasBorder(leftId, rightId) ? this : BorderEdits.open(this, leftId, rightId);
+    }
+
+    /**
+     * Returns a graph without one border, sharing codes, the code index, JSON tokens and coordinates with this graph.
+     * <p>
+     * Adjacency arrays are copied in full, so the edit costs {@code O(V + E)}. When the border was a bridge, the
+     * smaller side becomes a new component; the search that detects this stops as soon as either side is exhausted or
+     * both sides meet. Precomputed next-hop and landmark tables are not carried over.
+     *
+     * @param leftId first country node id
+     * @param rightId second country node id
+     * @return new graph, or this graph when there is no such border
+     * @throws IllegalArgumentException when both ids are the same country
+     * @throws UnsupportedOperationException when this graph is mapped from a snapshot
+     */
+    public CountryGraph withoutBorder(int leftId, int rightId) {
+        validateBorder(leftId, rightId);
+        requireHeap();
+        return hasBorder(leftId, rightId) ? BorderEdits.close(this, leftId, rightId) : this;
+    }
+
+    /**
+     * @param leftId first country node id
+     * @param rightId second country node id
+     * @return whether the two countries share a border
+     */
+    public boolean hasBorder(int leftId, int rightId) {
+        validateNodeId(leftId);
+        validateNodeId(rightId);
+        // scan the shorter row
+        int nodeId = degreeOf(leftId) <= degreeOf(rightId) ? leftId : rightId;
+        int otherId = nodeId == leftId ? rightId : leftId;
+        for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+            if (adjacency.neighborTarget(edge) == otherId) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * @return number of countries represented in this graph
      */
     public int nodeCount() {
-        return codeByNodeId.length;
+        return nodeCount;
     }
 
     /**
@@ -67,7 +342,15 @@ public final class CountryGraph {
      * @return number of connected components in the graph
      */
     public int componentCount() {
-        return componentCount;
+        return mappedStore != null ? mappedStore.componentCount() : componentSizes.length;
+    }
+
+    /**
+     * @param componentId connected-component id
+     * @return number of countries in the component
+     */
+    public int componentSize(int componentId) {
+        return mappedStore != null ? mappedStore.componentSize(componentId) : componentSizes[componentId];
     }
 
     /**
@@ -77,8 +360,19 @@ public final class CountryGraph {
      * @return node id, or {@code -1} when code is unknown
      */
     public int idByCode(String code) {
-        Integer nodeId = nodeIdByCode.get(code);
-        return nodeId == null ? UNKNOWN_NODE_ID : nodeId;
+        return mappedStore != null ? mappedStore.idOf(code) : codeIndex.idOf(code);
+    }
+
+    /**
+     * Resolves raw input to a node id, ignoring surrounding whitespace and letter case.
+     * <p>
+     * Three-letter codes resolve through a direct-index table without creating any strings.
+     *
+     * @param rawCode country code as received, may be {@code null}
+     * @return node id, or {@code -1} when code is blank or unknown
+     */
+    public int idByRawCode(CharSequence rawCode) {
+        return mappedStore != null ? mappedStore.idOfRaw(rawCode) : codeIndex.idOfRaw(rawCode);
     }
 
     /**
@@ -89,7 +383,54 @@ public final class CountryGraph {
      */
     public String codeById(int nodeId) {
         validateNodeId(nodeId);
-        return codeByNodeId[nodeId];
+        return mappedStore != null ? mappedStore.codeOf(nodeId) : codeByNodeId[nodeId];
+    }
+
+    /**
+     * Unchecked UTF-8 JSON string token of a node's code, quotes included (for example {@code "CZE"}).
+     * <p>
+     * Tokens are encoded once when the graph is built, so serializers can copy them straight into response bytes.
+     * The returned array is backed by precomputed graph data and must be treated as read-only. Mapped graphs encode
+     * a fresh token per call instead of holding one per country on the heap; serializers should prefer
+     * {@link #jsonCodeTokenLength(int)} and {@link #writeJsonCodeToken(int, byte[], int)}, which allocate nothing.
+     *
+     * @param nodeId internal node id
+     * @return quoted and escaped code bytes
+     */
+    public byte[] jsonCodeToken(int nodeId) {
+        if (mappedStore == null) {
+            return jsonTokenByNodeId[nodeId];
+        }
+        byte[] token = new byte[mappedStore.jsonTokenLength(nodeId)];
+        mappedStore.writeJsonToken(nodeId, token, 0);
+        return token;
+    }
+
+    /**
+     * @param nodeId internal node id
+     * @return length of {@link #jsonCodeToken(int)}, computed from the mapped code bytes for mapped graphs
+     */
+    public int jsonCodeTokenLength(int nodeId) {
+        return mappedStore != null ? mappedStore.jsonTokenLength(nodeId) : jsonTokenByNodeId[nodeId].length;
+    }
+
+    /**
+     * Writes {@link #jsonCodeToken(int)} into {@code target}; mapped graphs copy the code bytes straight from the
+     * mapping.
+     *
+     * @param nodeId internal node id
+     * @param target array to write into, with at least {@link #jsonCodeTokenLength(int)} bytes free at
+     *               {@code position}
+     * @param position index of the token's first byte in {@code target}
+     * @return index just after the token
+     */
+    public int writeJsonCodeToken(int nodeId, byte[] target, int position) {
+        if (mappedStore != null) {
+            return mappedStore.writeJsonToken(nodeId, target, position);
+        }
+        byte[] token = jsonTokenByNodeId[nodeId];
+        System.arraycopy(token, 0, target, position, token.length);
+        return position + token.length;
     }
 
     /**
@@ -100,20 +441,28 @@ public final class CountryGraph {
      */
     public int componentOf(int nodeId) {
         validateNodeId(nodeId);
-        return componentByNodeId[nodeId];
+        return mappedStore != null ? mappedStore.componentOf(nodeId) : componentByNodeId[nodeId];
     }
 
     /**
-     * Returns direct neighbors of the node.
+     * Returns a copy of direct neighbors of the node.
      * <p>
-     * The returned array is backed by precomputed graph data and must be treated as read-only.
+     * Convenient for tests and tooling; search engines should iterate {@link #adjacency()} instead.
      *
      * @param nodeId internal node id
      * @return neighboring node ids
      */
     public int[] neighborsOf(int nodeId) {
         validateNodeId(nodeId);
-        return adjacencyByNodeId[nodeId];
+        if (neighborTargets != null) {
+            return Arrays.copyOfRange(neighborTargets, neighborOffsets[nodeId], neighborOffsets[nodeId + 1]);
+        }
+        int start = adjacency.neighborStart(nodeId);
+        int[] neighbors = new int[adjacency.neighborEnd(nodeId) - start];
+        for (int index = 0; index < neighbors.length; index++) {
+            neighbors[index] = adjacency.neighborTarget(start + index);
+        }
+        return neighbors;
     }
 
     /**
@@ -123,7 +472,8 @@ public final class CountryGraph {
      * @return node degree in the undirected border graph
      */
     public int degreeOf(int nodeId) {
-        return neighborsOf(nodeId).length;
+        validateNodeId(nodeId);
+        return adjacency.neighborEnd(nodeId) - adjacency.neighborStart(nodeId);
     }
 
     /**
@@ -134,31 +484,186 @@ public final class CountryGraph {
      * @return neighboring node id
      */
     public int neighborAt(int nodeId, int index) {
-        int[] neighbors = neighborsOf(nodeId);
-        Objects.checkIndex(index, neighbors.length);
-        return neighbors[index];
+        Objects.checkIndex(index, degreeOf(nodeId));
+        return adjacency.neighborTarget(adjacency.neighborStart(nodeId) + index);
+    }
+
+    /**
+     * Unchecked adjacency for search engines, the same for on-heap and mapped graphs.
+     *
+     * @return adjacency backed by graph data
+     */
+    public GraphAdjacency adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * @return whether this graph reads from a memory-mapped snapshot instead of heap arrays
+     */
+    public boolean isMapped() {
+        return mappedStore != null;
+    }
+
+    /**
+     * Unchecked CSR row offsets for search engines: neighbors of {@code v} start at {@code offsets[v]}
+     * and end before {@code offsets[v + 1]}.
+     * <p>
+     * The returned array is backed by precomputed graph data and must be treated as read-only.
+     *
+     * @return offsets array of size {@code V + 1}
+     * @throws UnsupportedOperationException when this graph is mapped from a snapshot
+     */
+    public int[] neighborOffsets() {
+        requireHeap();
+        return neighborOffsets;
+    }
+
+    /**
+     * Unchecked CSR neighbor ids for search engines, indexed through {@link #neighborOffsets()}.
+     * <p>
+     * The returned array is backed by precomputed graph data and must be treated as read-only.
+     *
+     * @return targets array of size {@code 2E}
+     * @throws UnsupportedOperationException when this graph is mapped from a snapshot
+     */
+    public int[] neighborTargets() {
+        requireHeap();
+        return neighborTargets;
     }
 
-    private static int computeEdgeCount(int[][] adj) {
-        int adjacencyEntries = 0;
-        for (int[] neighbors : adj) {
-            adjacencyEntries += neighbors.length;
+    /**
+     * Unchecked great-circle edge distances in kilometres, aligned with {@link #neighborTargets()}.
+     * <p>
+     * The returned array is backed by precomputed graph data and must be treated as read-only.
+     *
+     * @return distances array of size {@code 2E}, or {@code null} when coordinates were not available
+     * @throws UnsupportedOperationException when this graph is mapped from a snapshot
+     */
+    public float[] neighborDistancesKm() {
+        requireHeap();
+        return neighborDistancesKm;
+    }
+
+    /**
+     * @return component id per node, backed by graph data
+     */
+    int[] componentIds() {
+        return componentByNodeId;
+    }
+
+    /**
+     * @return country count per component id, backed by graph data
+     */
+    int[] componentSizes() {
+        return componentSizes;
+    }
+
+    /**
+     * @return latitude per node backed by graph data, or {@code null} when coordinates were not kept
+     */
+    double[] latitudes() {
+        return latitudeByNodeId;
+    }
+
+    /**
+     * @return longitude per node backed by graph data, or {@code null} when coordinates were not kept
+     */
+    double[] longitudes() {
+        return longitudeByNodeId;
+    }
+
+    /**
+     * @return great-circle distance between two countries
+     * @throws IllegalStateException when coordinates were not kept for this graph
+     */
+    float greatCircleKm(int leftId, int rightId) {
+        if (latitudeByNodeId == null) {
+            throw new IllegalStateException("Graph has no country coordinates to compute a border distance");
+        }
+        return (float) GreatCircle.distanceKm(
+                latitudeByNodeId[leftId],
+                longitudeByNodeId[leftId],
+                latitudeByNodeId[rightId],
+                longitudeByNodeId[rightId]
+        );
+    }
+
+    private static int[] offsetsOf(int[][] adjacencyByNodeId) {
+        int[] offsets = new int[adjacencyByNodeId.length + 1];
+        for (int nodeId = 0; nodeId < adjacencyByNodeId.length; nodeId++) {
+            offsets[nodeId + 1] = offsets[nodeId] + adjacencyByNodeId[nodeId].length;
+        }
+        return offsets;
+    }
+
+    private static int[] targetsOf(int[][] adjacencyByNodeId) {
+        int targetCount = 0;
+        for (int[] neighbors : adjacencyByNodeId) {
+            targetCount += neighbors.length;
+        }
+
+        int[] targets = new int[targetCount];
+        int position = 0;
+        for (int[] neighbors : adjacencyByNodeId) {
+            System.arraycopy(neighbors, 0, targets, position, neighbors.length);
+            position += neighbors.length;
+        }
+        return targets;
+    }
+
+    private static byte[][] encodeJsonTokens(String[] codeByNodeId) {
+        byte[][] tokens = new byte[codeByNodeId.length][];
+        for (int nodeId = 0; nodeId < codeByNodeId.length; nodeId++) {
+            tokens[nodeId] = jsonTokenOf(codeByNodeId[nodeId]);
         }
-        return adjacencyEntries / 2;
+        return tokens;
     }
 
-    private static int computeComponentCount(int[] componentId) {
+    private static byte[] jsonTokenOf(String code) {
+        StringBuilder token = new StringBuilder(code.length() + 2).append('"');
+        for (int i = 0; i < code.length(); i++) {
+            char symbol = code.charAt(i);
+            if (symbol == '"' || symbol == '\\') {
+                token.append('\\').append(symbol);
+            } else if (symbol < 0x20) {
+                token.append(String.format("\\u%04x", (int) symbol));
+            } else {
+                token.append(symbol);
+            }
+        }
+        return token.append('"').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int[] computeComponentSizes(int[] componentId) {
         int maxComponent = -1;
         for (int id : componentId) {
             if (id > maxComponent) {
                 maxComponent = id;
             }
         }
-        return maxComponent + 1;
+        int[] sizes = new int[maxComponent + 1];
+        for (int id : componentId) {
+            sizes[id]++;
+        }
+        return sizes;
     }
 
     private void validateNodeId(int nodeId) {
-        Objects.checkIndex(nodeId, codeByNodeId.length);
+        Objects.checkIndex(nodeId, nodeCount);
+    }
+
+    private void requireHeap() {
+        if (mappedStore != null) {
+            throw new UnsupportedOperationException("Graph is mapped from a snapshot and has no heap arrays");
+        }
+    }
+
+    private void validateBorder(int leftId, int rightId) {
+        validateNodeId(leftId);
+        validateNodeId(rightId);
+        if (leftId == rightId) {
+            throw new IllegalArgumentException("A country cannot border itself: " + codeById(leftId));
+        }
     }
 
 }
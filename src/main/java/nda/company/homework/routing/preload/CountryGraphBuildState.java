@@ -1,22 +1,30 @@
 package nda.company.homework.routing.preload;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Startup-only mutable builder for {@link CountryGraph}.
- * It assigns ids, stores unique undirected edges, unions components, and creates adjacency arrays.
+ * It assigns ids, stores unique undirected edges, unions components, and creates CSR adjacency arrays.
+ * When every country has coordinates, it also precomputes great-circle edge distances.
+ * Shards of the data can be read into separate instances in parallel and merged in order afterwards.
  */
 final class CountryGraphBuildState {
-    private final Map<String, Integer> nodeIdByCode = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final CountryCodeIndex codeIndex = new CountryCodeIndex();
     private final List<String> codeByNodeId = new ArrayList<>();
     private final EdgePairList uniqueEdges = new EdgePairList();
     private final DisjointSetUnion connectedComponents = new DisjointSetUnion();
     private final Set<Long> seenUndirectedEdges = new HashSet<>();
+    private double[] latitudeByNodeId = newCoordinateArray(INITIAL_CAPACITY);
+    private double[] longitudeByNodeId = newCoordinateArray(INITIAL_CAPACITY);
 
     /**
      * Returns or creates a stable internal id for a country code.
@@ -25,11 +33,48 @@ final class CountryGraphBuildState {
      * @return internal node id
      */
     int idFor(String countryCode) {
-        return nodeIdByCode.computeIfAbsent(countryCode, code -> {
-            int newId = connectedComponents.addElement();
-            codeByNodeId.add(code);
-            return newId;
-        });
+        int nodeId = codeIndex.idOf(countryCode);
+        if (nodeId < 0) {
+            nodeId = connectedComponents.addElement();
+            codeByNodeId.add(countryCode);
+            codeIndex.put(countryCode, nodeId);
+        }
+        return nodeId;
+    }
+
+    /**
+     * Resolves a code read as raw characters, ignoring surrounding whitespace and letter case. A code seen before is
+     * answered from the packed index with the string already stored for it, so only a new code is copied.
+     *
+     * @param chars buffer holding the code
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return normalized CCA3 code, or {@code null} when the code is blank
+     */
+    String codeOfRaw(char[] chars, int offset, int length) {
+        int nodeId = codeIndex.idOfRaw(chars, offset, length);
+        if (nodeId >= 0) {
+            return codeByNodeId.get(nodeId);
+        }
+        String code = new String(chars, offset, length).trim();
+        return code.isEmpty() ? null : code.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Stores country coordinates used for great-circle edge distances.
+     *
+     * @param nodeId internal node id
+     * @param latitude latitude in degrees
+     * @param longitude longitude in degrees
+     */
+    void setCoordinates(int nodeId, double latitude, double longitude) {
+        if (nodeId >= latitudeByNodeId.length) {
+            int newCapacity = Math.max(latitudeByNodeId.length * 2, nodeId + 1);
+            latitudeByNodeId = copyCoordinates(latitudeByNodeId, newCapacity);
+            longitudeByNodeId = copyCoordinates(longitudeByNodeId, newCapacity);
+        }
+        latitudeByNodeId[nodeId] = latitude;
+        longitudeByNodeId[nodeId] = longitude;
     }
 
     /**
@@ -40,19 +85,67 @@ final class CountryGraphBuildState {
      * @param rightId second node id
      */
     void connectUndirected(int leftId, int rightId) {
+        if (addUniqueEdge(leftId, rightId)) {
+            connectedComponents.union(leftId, rightId);
+        }
+    }
+
+    /**
+     * Appends the countries, coordinates, borders and components of another build state, typically one filled from
+     * a later shard of the same data. Its ids are remapped in the order it assigned them and its edges are appended
+     * in insertion order, so merging shards in order gives the same graph as reading them one after another.
+     * Components are merged from the shard's union-find roots ({@code O(V)} unions) rather than replayed per edge.
+     *
+     * @param shard build state to merge; left unchanged
+     */
+    void merge(CountryGraphBuildState shard) {
+        int shardNodeCount = shard.codeByNodeId.size();
+        int[] nodeIdByShardNodeId = new int[shardNodeCount];
+        for (int shardNodeId = 0; shardNodeId < shardNodeCount; shardNodeId++) {
+            int nodeId = idFor(shard.codeByNodeId.get(shardNodeId));
+            nodeIdByShardNodeId[shardNodeId] = nodeId;
+            if (shardNodeId < shard.latitudeByNodeId.length && !Double.isNaN(shard.latitudeByNodeId[shardNodeId])) {
+                setCoordinates(
+                        nodeId,
+                        shard.latitudeByNodeId[shardNodeId],
+                        shard.longitudeByNodeId[shardNodeId]
+                );
+            }
+        }
+
+        int[] shardRootByNodeId = shard.connectedComponents.snapshotParents();
+        for (int shardNodeId = 0; shardNodeId < shardNodeCount; shardNodeId++) {
+            connectedComponents.union(
+                    nodeIdByShardNodeId[shardNodeId],
+                    nodeIdByShardNodeId[shardRootByNodeId[shardNodeId]]
+            );
+        }
+
+        int[] edgeFromShardNodeId = shard.uniqueEdges.fromArray();
+        int[] edgeToShardNodeId = shard.uniqueEdges.toArray();
+        for (int i = 0; i < edgeFromShardNodeId.length; i++) {
+            addUniqueEdge(nodeIdByShardNodeId[edgeFromShardNodeId[i]], nodeIdByShardNodeId[edgeToShardNodeId[i]]);
+        }
+    }
+
+    /**
+     * Stores an undirected edge unless it is a self-loop or already stored.
+     *
+     * @return whether the edge was new
+     */
+    private boolean addUniqueEdge(int leftId, int rightId) {
         if (leftId == rightId) {
-            return;
+            return false;
         }
 
         int lowerNodeId = Math.min(leftId, rightId);
         int higherNodeId = Math.max(leftId, rightId);
-        long edgeKey = edgeKey(lowerNodeId, higherNodeId);
-        if (!seenUndirectedEdges.add(edgeKey)) {
-            return;
+        if (!seenUndirectedEdges.add(edgeKey(lowerNodeId, higherNodeId))) {
+            return false;
         }
 
         uniqueEdges.add(lowerNodeId, higherNodeId);
-        connectedComponents.union(lowerNodeId, higherNodeId);
+        return true;
     }
 
     /**
@@ -65,34 +158,96 @@ final class CountryGraphBuildState {
         int[] edgeFromNodeId = uniqueEdges.fromArray();
         int[] edgeToNodeId = uniqueEdges.toArray();
         int[] componentRootByNodeId = connectedComponents.snapshotParents();
-        int[][] adjacencyByNodeId = buildAdjacency(codeByNodeIdArray.length, edgeFromNodeId, edgeToNodeId);
+        int[] neighborOffsets = buildAdjacencyOffsets(codeByNodeIdArray.length, edgeFromNodeId, edgeToNodeId);
+        int[] neighborTargets = buildAdjacency(neighborOffsets, edgeFromNodeId, edgeToNodeId);
+        float[] neighborDistancesKm = buildEdgeDistances(neighborOffsets, neighborTargets);
         int[] denseComponentByNodeId = buildComponentId(componentRootByNodeId);
-        return new CountryGraph(nodeIdByCode, codeByNodeIdArray, adjacencyByNodeId, denseComponentByNodeId);
+        // coordinates are kept only alongside distances, so borders opened later get a distance too
+        int nodeCount = codeByNodeIdArray.length;
+        return new CountryGraph(
+                codeIndex,
+                codeByNodeIdArray,
+                neighborOffsets,
+                neighborTargets,
+                neighborDistancesKm,
+                neighborDistancesKm == null ? null : Arrays.copyOf(latitudeByNodeId, nodeCount),
+                neighborDistancesKm == null ? null : Arrays.copyOf(longitudeByNodeId, nodeCount),
+                denseComponentByNodeId
+        );
     }
 
     /**
-     * Builds adjacency in two passes: degree count and fill.
+     * Builds CSR row offsets from node degrees (exclusive prefix sums).
      */
-    private static int[][] buildAdjacency(int nodeCount, int[] edgeFromNodeId, int[] edgeToNodeId) {
-        int[] degreeByNodeId = new int[nodeCount];
+    private static int[] buildAdjacencyOffsets(int nodeCount, int[] edgeFromNodeId, int[] edgeToNodeId) {
+        int[] neighborOffsets = new int[nodeCount + 1];
         for (int i = 0; i < edgeFromNodeId.length; i++) {
-            degreeByNodeId[edgeFromNodeId[i]]++;
-            degreeByNodeId[edgeToNodeId[i]]++;
+            neighborOffsets[edgeFromNodeId[i] + 1]++;
+            neighborOffsets[edgeToNodeId[i] + 1]++;
         }
-
-        int[][] adjacencyByNodeId = new int[nodeCount][];
         for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
-            adjacencyByNodeId[nodeId] = new int[degreeByNodeId[nodeId]];
+            neighborOffsets[nodeId + 1] += neighborOffsets[nodeId];
         }
+        return neighborOffsets;
+    }
 
-        int[] fillPositionByNodeId = new int[nodeCount];
+    /**
+     * Fills CSR neighbor targets directly: each undirected edge is written into both endpoint rows.
+     */
+    private static int[] buildAdjacency(int[] neighborOffsets, int[] edgeFromNodeId, int[] edgeToNodeId) {
+        int nodeCount = neighborOffsets.length - 1;
+        int[] neighborTargets = new int[neighborOffsets[nodeCount]];
+        int[] fillPositionByNodeId = Arrays.copyOf(neighborOffsets, nodeCount);
         for (int i = 0; i < edgeFromNodeId.length; i++) {
             int leftNodeId = edgeFromNodeId[i];
             int rightNodeId = edgeToNodeId[i];
-            adjacencyByNodeId[leftNodeId][fillPositionByNodeId[leftNodeId]++] = rightNodeId;
-            adjacencyByNodeId[rightNodeId][fillPositionByNodeId[rightNodeId]++] = leftNodeId;
+            neighborTargets[fillPositionByNodeId[leftNodeId]++] = rightNodeId;
+            neighborTargets[fillPositionByNodeId[rightNodeId]++] = leftNodeId;
         }
-        return adjacencyByNodeId;
+        return neighborTargets;
+    }
+
+    /**
+     * Computes haversine distance for every CSR adjacency entry, aligned with {@code neighborTargets}.
+     *
+     * @return edge distances in kilometres, or {@code null} when some country has no coordinates
+     */
+    private float[] buildEdgeDistances(int[] neighborOffsets, int[] neighborTargets) {
+        int nodeCount = neighborOffsets.length - 1;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            if (nodeId >= latitudeByNodeId.length || Double.isNaN(latitudeByNodeId[nodeId])) {
+                return null;
+            }
+        }
+
+        float[] neighborDistancesKm = new float[neighborTargets.length];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            for (int edge = neighborOffsets[nodeId]; edge < neighborOffsets[nodeId + 1]; edge++) {
+                neighborDistancesKm[edge] = (float) haversineKm(nodeId, neighborTargets[edge]);
+            }
+        }
+        return neighborDistancesKm;
+    }
+
+    private double haversineKm(int leftNodeId, int rightNodeId) {
+        return GreatCircle.distanceKm(
+                latitudeByNodeId[leftNodeId],
+                longitudeByNodeId[leftNodeId],
+                latitudeByNodeId[rightNodeId],
+                longitudeByNodeId[rightNodeId]
+        );
+    }
+
+    private static double[] newCoordinateArray(int capacity) {
+        double[] coordinates = new double[capacity];
+        Arrays.fill(coordinates, Double.NaN);
+        return coordinates;
+    }
+
+    private static double[] copyCoordinates(double[] coordinates, int newCapacity) {
+        double[] copy = Arrays.copyOf(coordinates, newCapacity);
+        Arrays.fill(copy, coordinates.length, newCapacity, Double.NaN);
+        return copy;
     }
 
     /**
@@ -0,0 +1,67 @@
+package nda.company.homework.routing.preload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build-time tool that compiles countries JSON into a {@link CountryGraphSnapshot}, so the packaged application
+ * builds its graph without parsing JSON.
+ * <p>
+ * The Maven build runs it before packaging and writes {@code countries.graph} next to {@code countries.json} in the
+ * build output, where {@link CountryPreloader} finds it through {@link CountryPreloader#compiledGraphLocation}.
+ * The compiled graph records the checksum of the JSON it was built from, so other data at runtime is parsed as usual,
+ * and a build whose existing output still matches the JSON keeps it without parsing again.
+ */
+public final class CountryGraphCompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountryGraphCompiler.class);
+
+    private CountryGraphCompiler() {
+    }
+
+    /**
+     * @param args countries JSON file, then the compiled graph file to write
+     * @throws IOException when the data cannot be read or the graph cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: CountryGraphCompiler <countries.json> <countries.graph>");
+        }
+        compile(Path.of(args[0]), Path.of(args[1]));
+    }
+
+    /**
+     * @param source countries JSON file
+     * @param target compiled graph file, replaced atomically unless it is a valid graph of the same data and format
+     * @return compiled graph size in bytes
+     * @throws IOException when the data cannot be read or the graph cannot be written
+     */
+    public static long compile(Path source, Path target) throws IOException {
+        long startedAtNanos = System.nanoTime();
+        byte[] data = Files.readAllBytes(source);
+        long checksum = CountryGraphSnapshot.checksumOf(data);
+        if (Files.exists(target) && CountryGraphSnapshot.read(target, checksum) != null) {
+            LOGGER.info("Country graph is up to date: source={}, target={}", source, target);
+            return Files.size(target);
+        }
+        CountryGraph graph = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader())
+                .load(source.toUri().toString());
+        long bytes = CountryGraphSnapshot.write(graph, checksum, target);
+        LOGGER.info(
+                "Compiled country graph: source={}, target={}, countries={}, edges={}, bytes={}, compileMs={}",
+                source,
+                target,
+                graph.nodeCount(),
+                graph.edgeCount(),
+                bytes,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos)
+        );
+        return bytes;
+    }
+}
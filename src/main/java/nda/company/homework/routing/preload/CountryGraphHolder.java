@@ -0,0 +1,84 @@
+package nda.company.homework.routing.preload;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the current {@link CountryGraph} and replaces it atomically on reload.
+ * <p>
+ * Readers take one {@link #snapshot()} per request and keep using that graph until they finish, so a reload never
+ * changes the graph under an in-flight request; the old graph is collected once the last such request returns.
+ * Publishing is a single volatile write of an immutable snapshot, so readers never block.
+ */
+public final class CountryGraphHolder {
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param graph initial graph, published as version {@code 1}
+     */
+    public CountryGraphHolder(CountryGraph graph) {
+        this(graph, 0);
+    }
+
+    /**
+     * @param graph initial graph, published as version {@code 1}
+     * @param loadMillis time it took to build {@code graph}
+     */
+    public CountryGraphHolder(CountryGraph graph, long loadMillis) {
+        this.snapshot = new Snapshot(Objects.requireNonNull(graph, "graph"), 1, loadMillis);
+    }
+
+    /**
+     * @return current graph
+     */
+    public CountryGraph current() {
+        return snapshot.graph();
+    }
+
+    /**
+     * @return current graph with its version
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces the current graph and notifies listeners on the calling thread.
+     *
+     * @param graph new graph
+     * @param loadMillis time it took to build {@code graph}
+     * @return published snapshot
+     */
+    public Snapshot publish(CountryGraph graph, long loadMillis) {
+        Objects.requireNonNull(graph, "graph");
+        Snapshot published;
+        synchronized (this) {
+            published = new Snapshot(graph, snapshot.version() + 1, loadMillis);
+            snapshot = published;
+        }
+        for (Consumer<Snapshot> listener : listeners) {
+            listener.accept(published);
+        }
+        return published;
+    }
+
+    /**
+     * @param listener called with every snapshot published after registration
+     */
+    public void addListener(Consumer<Snapshot> listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * One published graph.
+     *
+     * @param graph immutable graph
+     * @param version publication number, starting at {@code 1} and increasing by one per reload
+     * @param loadMillis time it took to build {@code graph}
+     */
+    public record Snapshot(CountryGraph graph, long version, long loadMillis) {
+    }
+}
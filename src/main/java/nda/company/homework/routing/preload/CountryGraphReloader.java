@@ -0,0 +1,238 @@
+package nda.company.homework.routing.preload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the country graph in the background and publishes it through {@link CountryGraphHolder}.
+ * <p>
+ * Reloads run one at a time on a dedicated daemon thread with {@link CountryPreloader}, so requests keep being
+ * served from the current graph while the new one is parsed and precomputed. A failed reload is logged and leaves
+ * the current graph in place. With {@code routing.reload.watch=true} and a {@code file:} location, changes to the
+ * file (or to any file of a shard directory) trigger a reload after a short quiet period, so a file written in several
+ * steps is loaded once.
+ * <p>
+ * Single borders can be opened or closed on the same thread without re-reading the file: the edit derives a new graph
+ * from the current one with {@link CountryGraph#withBorder} or {@link CountryGraph#withoutBorder}. Edits live in
+ * memory only, so the next full reload replaces them with the file contents.
+ */
+@Component
+public class CountryGraphReloader implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountryGraphReloader.class);
+    private static final String FILE_PREFIX = "file:";
+    private static final long WATCH_QUIET_MILLIS = 250;
+
+    private final CountryPreloader preloader;
+    private final CountryGraphHolder graphHolder;
+    private final String location;
+    private final ExecutorService reloads;
+    // null unless the location is watched
+    private final WatchService watchService;
+
+    /**
+     * @param location resource the graph is reloaded from
+     * @param watch whether to reload when the file at a {@code file:} location changes
+     */
+    public CountryGraphReloader(
+            CountryPreloader preloader,
+            CountryGraphHolder graphHolder,
+            @Value("${routing.preload.countries-location:" + CountryPreloader.DEFAULT_LOCATION + "}") String location,
+            @Value("${routing.reload.watch:false}") boolean watch
+    ) {
+        if (watch && !location.startsWith(FILE_PREFIX)) {
+            throw new IllegalArgumentException("Watching countries data requires a file: location, got " + location);
+        }
+        this.preloader = preloader;
+        this.graphHolder = graphHolder;
+        this.location = location;
+        this.reloads = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "country-graph-reload"));
+        this.watchService = watch ? startWatching(Path.of(location.substring(FILE_PREFIX.length()))) : null;
+    }
+
+    /**
+     * Starts a reload after any reload already in progress.
+     *
+     * @return future completed with the published snapshot, or exceptionally when loading failed
+     */
+    public CompletableFuture<CountryGraphHolder.Snapshot> reload() {
+        return CompletableFuture.supplyAsync(this::reloadNow, reloads);
+    }
+
+    /**
+     * Adds a border to the current graph after any reload or edit already in progress.
+     *
+     * @param leftCode first country code
+     * @param rightCode second country code
+     * @return future completed with the published snapshot, or with the current one when the border already exists;
+     *         completed exceptionally with {@link IllegalArgumentException} for unknown or equal codes
+     */
+    public CompletableFuture<CountryGraphHolder.Snapshot> openBorder(String leftCode, String rightCode) {
+        return CompletableFuture.supplyAsync(() -> editNow(leftCode, rightCode, true), reloads);
+    }
+
+    /**
+     * Removes a border from the current graph after any reload or edit already in progress.
+     *
+     * @param leftCode first country code
+     * @param rightCode second country code
+     * @return future completed with the published snapshot, or with the current one when there is no such border;
+     *         completed exceptionally with {@link IllegalArgumentException} for unknown or equal codes
+     */
+    public CompletableFuture<CountryGraphHolder.Snapshot> closeBorder(String leftCode, String rightCode) {
+        return CompletableFuture.supplyAsync(() -> editNow(leftCode, rightCode, false), reloads);
+    }
+
+    /**
+     * Stops watching and cancels queued reloads; called by the container on shutdown.
+     */
+    @Override
+    public void close() {
+        reloads.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close countries file watcher", e);
+            }
+        }
+    }
+
+    private CountryGraphHolder.Snapshot reloadNow() {
+        long startedAtNanos = System.nanoTime();
+        long previousVersion = graphHolder.snapshot().version();
+        try {
+            CountryGraph graph = preloader.load(location);
+            long reloadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+            CountryGraphHolder.Snapshot snapshot = graphHolder.publish(graph, reloadMillis);
+            LOGGER.info(
+                    "Reloaded country graph: version={}, previousVersion={}, countries={}, edges={}, reloadMs={}",
+                    snapshot.version(),
+                    previousVersion,
+                    graph.nodeCount(),
+                    graph.edgeCount(),
+                    reloadMillis
+            );
+            return snapshot;
+        } catch (RuntimeException e) {
+            LOGGER.error("Country graph reload failed, keeping version {}", previousVersion, e);
+            throw e;
+        }
+    }
+
+    private CountryGraphHolder.Snapshot editNow(String leftCode, String rightCode, boolean open) {
+        long startedAtNanos = System.nanoTime();
+        CountryGraphHolder.Snapshot current = graphHolder.snapshot();
+        CountryGraph graph = current.graph();
+        int leftId = resolve(graph, leftCode);
+        int rightId = resolve(graph, rightCode);
+        CountryGraph edited = open ? graph.withBorder(leftId, rightId) : graph.withoutBorder(leftId, rightId);
+        if (edited == graph) {
+            return current;
+        }
+
+        edited = preloader.precompute(edited);
+        long editMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+        CountryGraphHolder.Snapshot snapshot = graphHolder.publish(edited, editMillis);
+        LOGGER.info(
+                "Updated country border: border={}-{}, open={}, version={}, previousVersion={}, edges={}, "
+                        + "components={}, updateMs={}",
+                graph.codeById(leftId),
+                graph.codeById(rightId),
+                open,
+                snapshot.version(),
+                current.version(),
+                edited.edgeCount(),
+                edited.componentCount(),
+                editMillis
+        );
+        return snapshot;
+    }
+
+    private static int resolve(CountryGraph graph, String code) {
+        int nodeId = graph.idByRawCode(code);
+        if (nodeId < 0) {
+            throw new IllegalArgumentException("Unknown country code: " + code);
+        }
+        return nodeId;
+    }
+
+    private WatchService startWatching(Path file) {
+        Path absoluteFile = file.toAbsolutePath();
+        boolean shardDirectory = Files.isDirectory(absoluteFile);
+        Path directory = shardDirectory ? absoluteFile : absoluteFile.getParent();
+        // null matches every entry of a shard directory
+        Path fileName = shardDirectory ? null : absoluteFile.getFileName();
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            directory.register(
+                    service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to watch " + absoluteFile, e);
+        }
+        daemon(() -> watch(service, fileName), "country-graph-watcher").start();
+        LOGGER.info("Watching {} for country data changes", absoluteFile);
+        return service;
+    }
+
+    private void watch(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                if (!touches(service.take(), fileName)) {
+                    continue;
+                }
+                // wait until writes settle, so one save triggers one reload
+                WatchKey next;
+                while ((next = service.poll(WATCH_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    touches(next, fileName);
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed on shutdown
+        }
+    }
+
+    /**
+     * Drains and resets {@code key}.
+     *
+     * @return whether one of its events refers to {@code fileName}, or any event when it is {@code null}
+     */
+    private static boolean touches(WatchKey key, Path fileName) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            touched |= fileName == null || fileName.equals(event.context());
+        }
+        key.reset();
+        return touched;
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
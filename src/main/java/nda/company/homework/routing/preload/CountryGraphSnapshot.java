@@ -0,0 +1,583 @@
+package nda.company.homework.routing.preload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned, checksummed binary form of a {@link CountryGraph}, loaded by memory-mapping instead of parsing JSON.
+ * <p>
+ * Layout (little-endian; every section starts on an 8-byte boundary, so any section can be mapped on its own):
+ * <pre>
+ * header     int magic "CGS1", int format version, long source checksum,
+ *            int V, int 2E, int C, int flags (1 = distances, 2 = coordinates), int code bytes, int reserved
+ * codes      int[V + 1] byte offsets, then UTF-8 code bytes, then int[V] node ids sorted by code bytes
+ * adjacency  int[V + 1] offsets, int[2E] targets
+ * components int[V] component id per node, int[C] component sizes
+ * distances  float[2E]                          when flag 1
+ * coords     double[V] latitude, double[V] longitude  when flag 2
+ * trailer    int CRC32C of everything before it
+ * </pre>
+ * The source checksum is the CRC32C of the countries data the graph was built from, so a snapshot is only used while
+ * that data is unchanged. Component ids and sizes are stored as built, so loading needs neither union-find nor
+ * adjacency construction. {@link #read} bulk-copies the sections onto the heap, from a file or from bytes such as a
+ * snapshot compiled into the application jar; {@link #map} keeps them in the mapped file and returns a graph that
+ * reads through {@link GraphAdjacency}, for graphs that do not fit the heap.
+ * Precomputed next-hop and landmark tables are not stored; they depend on preload options and are rebuilt.
+ */
+public final class CountryGraphSnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountryGraphSnapshot.class);
+
+    /**
+     * Format version; bump on any layout change so older snapshots are rebuilt instead of misread.
+     */
+    public static final int FORMAT_VERSION = 2;
+    private static final int MAGIC = 0x31534743;
+    private static final int HEADER_BYTES = 40;
+    private static final int TRAILER_BYTES = Integer.BYTES;
+    private static final int FLAG_DISTANCES = 1;
+    private static final int FLAG_COORDINATES = 2;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private CountryGraphSnapshot() {
+    }
+
+    /**
+     * @param source countries data bytes
+     * @return checksum recorded in snapshots built from {@code source}
+     */
+    public static long checksumOf(byte[] source) {
+        CRC32C crc = new CRC32C();
+        crc.update(source);
+        return crc.getValue();
+    }
+
+    /**
+     * Checksum of countries data spread over several files, streamed so they are never held in memory together.
+     * File names take part, so renaming or reordering shards counts as a change.
+     *
+     * @param sources countries data files in load order
+     * @return checksum recorded in snapshots built from {@code sources}
+     * @throws IOException when a file cannot be read
+     */
+    public static long checksumOf(List<Path> sources) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[WRITE_BUFFER_BYTES];
+        for (Path source : sources) {
+            crc.update(source.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            try (InputStream inputStream = Files.newInputStream(source)) {
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to {@code path} and moves it into place, so readers never see a
+     * partially written snapshot. Sections are streamed through a fixed-size buffer.
+     *
+     * @param graph on-heap graph to store; precomputed tables are ignored
+     * @param sourceChecksum {@link #checksumOf(byte[])} of the data the graph was built from
+     * @param path snapshot file
+     * @return snapshot size in bytes
+     * @throws IOException when the file cannot be written
+     */
+    public static long write(CountryGraph graph, long sourceChecksum, Path path) throws IOException {
+        int nodeCount = graph.nodeCount();
+        int[] offsets = graph.neighborOffsets();
+        int[] targets = graph.neighborTargets();
+        float[] distances = graph.neighborDistancesKm();
+        double[] latitudes = graph.latitudes();
+        double[] longitudes = graph.longitudes();
+        int[] componentSizes = graph.componentSizes();
+        byte[][] codes = new byte[nodeCount][];
+        int codeBytes = 0;
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            codes[nodeId] = graph.codeById(nodeId).getBytes(StandardCharsets.UTF_8);
+            codeBytes += codes[nodeId].length;
+        }
+        int flags = (distances != null ? FLAG_DISTANCES : 0) | (latitudes != null ? FLAG_COORDINATES : 0);
+        Layout layout = new Layout(nodeCount, targets.length, componentSizes.length, flags, codeBytes);
+
+        Path absolutePath = path.toAbsolutePath();
+        Files.createDirectories(absolutePath.getParent());
+        Path temporary = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                SectionWriter writer = new SectionWriter(channel);
+                writer.putInt(MAGIC);
+                writer.putInt(FORMAT_VERSION);
+                writer.putLong(sourceChecksum);
+                writer.putInt(nodeCount);
+                writer.putInt(targets.length);
+                writer.putInt(componentSizes.length);
+                writer.putInt(flags);
+                writer.putInt(codeBytes);
+                writer.putInt(0);
+
+                int codeOffset = 0;
+                writer.putInt(codeOffset);
+                for (byte[] code : codes) {
+                    codeOffset += code.length;
+                    writer.putInt(codeOffset);
+                }
+                writer.padTo(layout.codeBytes());
+                for (byte[] code : codes) {
+                    writer.putBytes(code);
+                }
+                writer.padTo(layout.codeOrder());
+                for (int nodeId : sortedByCode(codes)) {
+                    writer.putInt(nodeId);
+                }
+                writer.padTo(layout.offsets());
+                writer.putInts(offsets);
+                writer.padTo(layout.targets());
+                writer.putInts(targets);
+                writer.padTo(layout.components());
+                writer.putInts(graph.componentIds());
+                writer.padTo(layout.componentSizes());
+                writer.putInts(componentSizes);
+                writer.padTo(layout.distances());
+                if (distances != null) {
+                    for (float distance : distances) {
+                        writer.putFloat(distance);
+                    }
+                    writer.padTo(layout.coordinates());
+                }
+                if (latitudes != null) {
+                    for (double latitude : latitudes) {
+                        writer.putDouble(latitude);
+                    }
+                    for (double longitude : longitudes) {
+                        writer.putDouble(longitude);
+                    }
+                }
+                writer.finish();
+            }
+            Files.move(temporary, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return layout.fileSize();
+    }
+
+    /**
+     * Reads a snapshot onto the heap after verifying its checksum.
+     *
+     * @param path snapshot file
+     * @param sourceChecksum {@link #checksumOf(byte[])} of the current countries data
+     * @return graph, or {@code null} when the snapshot is missing, was built from other data, has another format
+     *         version or is corrupt (the reason is logged)
+     * @throws IOException when an existing snapshot cannot be read
+     */
+    public static CountryGraph read(Path path, long sourceChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(sectionsOf(channel), channel.size(), path, sourceChecksum);
+        } catch (NoSuchFileException e) {
+            return rejected(path, "missing");
+        }
+    }
+
+    /**
+     * Reads a snapshot held in memory, for example a classpath resource compiled at build time.
+     *
+     * @param snapshot snapshot bytes
+     * @param name snapshot name used in log messages
+     * @param sourceChecksum {@link #checksumOf(byte[])} of the current countries data
+     * @return graph, or {@code null} when the snapshot was built from other data, has another format version or is
+     *         corrupt (the reason is logged)
+     */
+    public static CountryGraph read(byte[] snapshot, String name, long sourceChecksum) {
+        try {
+            return read(sectionsOf(snapshot), snapshot.length, name, sourceChecksum);
+        } catch (IOException e) {
+            // heap sections never do I/O
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CountryGraph read(Sections sections, long size, Object name, long sourceChecksum)
+            throws IOException {
+        try {
+            Layout layout = readLayout(sections, size, name, sourceChecksum, true);
+            if (layout == null) {
+                return null;
+            }
+            if (!checksumMatches(sections, layout)) {
+                return rejected(name, "checksum mismatch");
+            }
+            return toHeapGraph(sections, layout);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return rejected(name, "malformed: " + e);
+        }
+    }
+
+    /**
+     * Maps a snapshot built from the current countries data without copying it onto the heap.
+     *
+     * @param path snapshot file
+     * @param sourceChecksum {@link #checksumOf(byte[])} of the current countries data
+     * @return memory-mapped graph, or {@code null} when the snapshot is missing, stale, of another format version or
+     *         structurally invalid (the reason is logged)
+     * @throws IOException when an existing snapshot cannot be mapped
+     * @see #map(Path)
+     */
+    public static CountryGraph map(Path path, long sourceChecksum) throws IOException {
+        return map(path, sourceChecksum, true);
+    }
+
+    /**
+     * Maps a snapshot without checking which countries data it was built from, for snapshots produced offline.
+     * <p>
+     * Only the header and section sizes are validated: the checksum pass would read the whole file and defeat
+     * on-demand paging, so it is left to {@link #read} and to the writer. Each section must stay below 2 GiB
+     * (about 500 million edge slots), the limit of one {@link java.nio.MappedByteBuffer}.
+     *
+     * @param path snapshot file
+     * @return memory-mapped graph, or {@code null} when the snapshot is missing or invalid (the reason is logged)
+     * @throws IOException when an existing snapshot cannot be mapped
+     */
+    public static CountryGraph map(Path path) throws IOException {
+        return map(path, 0, false);
+    }
+
+    private static CountryGraph map(Path path, long sourceChecksum, boolean checkSource) throws IOException {
+        // mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Sections sections = sectionsOf(channel);
+            Layout layout = readLayout(sections, channel.size(), path, sourceChecksum, checkSource);
+            if (layout == null) {
+                return null;
+            }
+            IntBuffer offsets = ints(sections, layout.offsets(), layout.nodeCount() + 1);
+            if (offsets.get(0) != 0 || offsets.get(layout.nodeCount()) != layout.targetCount()) {
+                return rejected(path, "offsets do not span the targets section");
+            }
+            return new CountryGraph(new MappedGraphStore(
+                    layout.nodeCount(),
+                    layout.targetCount(),
+                    layout.componentCount(),
+                    ints(sections, layout.codeOffsets(), layout.nodeCount() + 1),
+                    sections.slice(layout.codeBytes(), layout.codeByteCount()),
+                    ints(sections, layout.codeOrder(), layout.nodeCount()),
+                    offsets,
+                    ints(sections, layout.targets(), layout.targetCount()),
+                    ints(sections, layout.components(), layout.nodeCount()),
+                    ints(sections, layout.componentSizes(), layout.componentCount()),
+                    layout.hasDistances()
+                            ? sections.slice(layout.distances(), (long) layout.targetCount() * Float.BYTES)
+                                    .asFloatBuffer()
+                            : null
+            ));
+        } catch (NoSuchFileException e) {
+            return rejected(path, "missing");
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return rejected(path, "malformed: " + e);
+        }
+    }
+
+    /**
+     * @return layout from a header that matches the file, or {@code null} when the snapshot must not be used
+     */
+    private static Layout readLayout(
+            Sections sections,
+            long size,
+            Object name,
+            long sourceChecksum,
+            boolean checkSource
+    ) throws IOException {
+        if (size < HEADER_BYTES + TRAILER_BYTES) {
+            rejected(name, "unexpected size " + size);
+            return null;
+        }
+        ByteBuffer header = sections.slice(0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC) {
+            rejected(name, "not a country graph snapshot");
+            return null;
+        }
+        if (header.getInt(4) != FORMAT_VERSION) {
+            rejected(name, "format version " + header.getInt(4) + ", expected " + FORMAT_VERSION);
+            return null;
+        }
+        if (checkSource && header.getLong(8) != sourceChecksum) {
+            rejected(name, "stale, built from other countries data");
+            return null;
+        }
+        Layout layout = new Layout(
+                header.getInt(16),
+                header.getInt(20),
+                header.getInt(24),
+                header.getInt(28),
+                header.getInt(32)
+        );
+        if (layout.fileSize() != size) {
+            rejected(name, "section sizes do not add up to the file size");
+            return null;
+        }
+        return layout;
+    }
+
+    private static boolean checksumMatches(Sections sections, Layout layout) throws IOException {
+        CRC32C crc = new CRC32C();
+        // chunked, so a large file is never mapped as one region
+        for (long position = 0; position < layout.trailer(); position += WRITE_BUFFER_BYTES) {
+            crc.update(sections.slice(position, Math.min(WRITE_BUFFER_BYTES, layout.trailer() - position)));
+        }
+        return sections.slice(layout.trailer(), TRAILER_BYTES).getInt(0) == (int) crc.getValue();
+    }
+
+    private static CountryGraph toHeapGraph(Sections sections, Layout layout) throws IOException {
+        int nodeCount = layout.nodeCount();
+        int[] codeOffsets = readInts(sections, layout.codeOffsets(), nodeCount + 1);
+        ByteBuffer codeBytes = sections.slice(layout.codeBytes(), layout.codeByteCount());
+        CountryCodeIndex codeIndex = new CountryCodeIndex();
+        String[] codeByNodeId = new String[nodeCount];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            byte[] code = new byte[codeOffsets[nodeId + 1] - codeOffsets[nodeId]];
+            codeBytes.get(codeOffsets[nodeId], code);
+            codeByNodeId[nodeId] = new String(code, StandardCharsets.UTF_8);
+            codeIndex.put(codeByNodeId[nodeId], nodeId);
+        }
+        int[] targets = readInts(sections, layout.targets(), layout.targetCount());
+        for (int target : targets) {
+            Objects.checkIndex(target, nodeCount);
+        }
+        float[] distances = null;
+        if (layout.hasDistances()) {
+            distances = new float[layout.targetCount()];
+            sections.slice(layout.distances(), (long) distances.length * Float.BYTES).asFloatBuffer().get(distances);
+        }
+        double[] latitudes = null;
+        double[] longitudes = null;
+        if (layout.hasCoordinates()) {
+            latitudes = new double[nodeCount];
+            longitudes = new double[nodeCount];
+            sections.slice(layout.coordinates(), 2L * nodeCount * Double.BYTES)
+                    .asDoubleBuffer()
+                    .get(latitudes)
+                    .get(longitudes);
+        }
+        return new CountryGraph(
+                codeIndex,
+                codeByNodeId,
+                readInts(sections, layout.offsets(), nodeCount + 1),
+                targets,
+                distances,
+                latitudes,
+                longitudes,
+                readInts(sections, layout.components(), nodeCount)
+        );
+    }
+
+    private static int[] readInts(Sections sections, long position, int count) throws IOException {
+        int[] values = new int[count];
+        ints(sections, position, count).get(values);
+        return values;
+    }
+
+    private static IntBuffer ints(Sections sections, long position, int count) throws IOException {
+        return sections.slice(position, (long) count * Integer.BYTES).asIntBuffer();
+    }
+
+    private static Sections sectionsOf(FileChannel channel) {
+        return (position, size) -> channel.map(FileChannel.MapMode.READ_ONLY, position, size)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static Sections sectionsOf(byte[] snapshot) {
+        return (position, size) -> ByteBuffer.wrap(snapshot, Math.toIntExact(position), Math.toIntExact(size))
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return node ids ordered by unsigned lexicographic code bytes, the order {@link MappedGraphStore} searches
+     */
+    private static int[] sortedByCode(byte[][] codes) {
+        return IntStream.range(0, codes.length)
+                .boxed()
+                .sorted((left, right) -> Arrays.compareUnsigned(codes[left], codes[right]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static long alignUp(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static CountryGraph rejected(Object name, String reason) {
+        LOGGER.info("Ignoring country graph snapshot {}: {}", name, reason);
+        return null;
+    }
+
+    /**
+     * Little-endian view of one snapshot region, whether the snapshot is a file or bytes.
+     */
+    @FunctionalInterface
+    private interface Sections {
+        ByteBuffer slice(long position, long size) throws IOException;
+    }
+
+    /**
+     * Section positions derived from the header counts.
+     */
+    private record Layout(int nodeCount, int targetCount, int componentCount, int flags, int codeByteCount) {
+
+        Layout {
+            if (nodeCount < 0 || targetCount < 0 || componentCount < 0 || codeByteCount < 0) {
+                throw new IllegalArgumentException("negative section size");
+            }
+        }
+
+        boolean hasDistances() {
+            return (flags & FLAG_DISTANCES) != 0;
+        }
+
+        boolean hasCoordinates() {
+            return (flags & FLAG_COORDINATES) != 0;
+        }
+
+        long codeOffsets() {
+            return HEADER_BYTES;
+        }
+
+        long codeBytes() {
+            return alignUp(codeOffsets() + (nodeCount + 1L) * Integer.BYTES);
+        }
+
+        long codeOrder() {
+            return alignUp(codeBytes() + codeByteCount);
+        }
+
+        long offsets() {
+            return alignUp(codeOrder() + (long) nodeCount * Integer.BYTES);
+        }
+
+        long targets() {
+            return alignUp(offsets() + (nodeCount + 1L) * Integer.BYTES);
+        }
+
+        long components() {
+            return alignUp(targets() + (long) targetCount * Integer.BYTES);
+        }
+
+        long componentSizes() {
+            return alignUp(components() + (long) nodeCount * Integer.BYTES);
+        }
+
+        long distances() {
+            return alignUp(componentSizes() + (long) componentCount * Integer.BYTES);
+        }
+
+        long coordinates() {
+            return hasDistances() ? alignUp(distances() + (long) targetCount * Float.BYTES) : distances();
+        }
+
+        long trailer() {
+            return hasCoordinates() ? coordinates() + 2L * nodeCount * Double.BYTES : coordinates();
+        }
+
+        long fileSize() {
+            return trailer() + TRAILER_BYTES;
+        }
+    }
+
+    /**
+     * Streams little-endian values to a channel through one buffer and checksums everything it writes.
+     */
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private long position;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRoom(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRoom(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            ensureRoom(Float.BYTES);
+            buffer.putFloat(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureRoom(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int value : values) {
+                putInt(value);
+            }
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            for (byte value : values) {
+                ensureRoom(1);
+                buffer.put(value);
+            }
+        }
+
+        void padTo(long sectionStart) throws IOException {
+            while (position + buffer.position() < sectionStart) {
+                ensureRoom(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensureRoom(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -2,25 +2,45 @@ package nda.company.homework.routing.preload;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import tools.jackson.core.JsonParser;
 import tools.jackson.core.JsonToken;
 import tools.jackson.databind.ObjectMapper;
 
 /**
- * Loads countries from {@code countries.json} and builds an immutable routing graph at startup.
- * Parsing is streaming-based and reads only {@code cca3} and {@code borders}.
+ * Loads countries from {@code countries.json} and builds an immutable routing graph at startup or on reload.
+ * Parsing is streaming-based and reads only {@code cca3}, {@code borders} and {@code latlng}. Data is either one JSON
+ * array or one country object per line (NDJSON), optionally gzip-compressed; both are detected from the content.
+ * A {@code file:} location may name a directory of such files: its shards are parsed in parallel into separate
+ * {@link CountryGraphBuildState}s that are merged in file name order, and line-delimited files larger than
+ * {@link PreloadOptions#shardBytes()} are split at line boundaries into several shards.
+ * With a configured {@link PreloadOptions#snapshotPath()}, a {@link CountryGraphSnapshot} built from the same data
+ * replaces parsing; a missing or stale snapshot falls back to JSON and is rewritten. With
+ * {@link PreloadOptions#mappedGraph()} the snapshot is memory-mapped and served in place instead of being copied.
+ * With {@link PreloadOptions#compiledGraph()}, a graph compiled at build time by {@link CountryGraphCompiler} and
+ * bundled next to the data replaces parsing in the same way.
  */
 @Component
 public class CountryPreloader {
@@ -28,76 +48,419 @@ public class CountryPreloader {
 
     private static final String CCA3_FIELD = "cca3";
     private static final String BORDERS_FIELD = "borders";
-    private static final String COUNTRIES_RESOURCE = "classpath:countries.json";
-    private static final String COUNTRIES_ARRAY_ERROR = "Countries data must be a JSON array";
+    private static final String LATLNG_FIELD = "latlng";
+    /**
+     * Bundled countries resource used when no other location is configured.
+     */
+    public static final String DEFAULT_LOCATION = "classpath:countries.json";
+    private static final String JSON_SUFFIX = ".json";
+    private static final String COMPILED_GRAPH_SUFFIX = ".graph";
+    private static final List<String> SHARD_SUFFIXES = List.of(JSON_SUFFIX, ".ndjson", ".jsonl");
+    private static final List<String> LINE_DELIMITED_SUFFIXES = List.of(".ndjson", ".jsonl");
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+    private static final String COUNTRIES_ARRAY_ERROR = "Countries data must be a JSON array or NDJSON";
     private static final String LOAD_FAILURE_MESSAGE = "Failed to load country graph data";
 
     private final ObjectMapper objectMapper;
     private final ResourceLoader resourceLoader;
+    private final PreloadOptions preloadOptions;
 
     public CountryPreloader(
             ObjectMapper objectMapper,
             ResourceLoader resourceLoader
+    ) {
+        this(objectMapper, resourceLoader, PreloadOptions.defaults());
+    }
+
+    /**
+     * @param preloadOptions optional precomputation stages to run after parsing
+     */
+    @Autowired
+    public CountryPreloader(
+            ObjectMapper objectMapper,
+            ResourceLoader resourceLoader,
+            PreloadOptions preloadOptions
     ) {
         this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
         this.resourceLoader = Objects.requireNonNull(resourceLoader, "resourceLoader");
+        this.preloadOptions = Objects.requireNonNull(preloadOptions, "preloadOptions");
     }
 
     /**
-     * Parses the countries resource and returns precomputed routing data.
+     * Parses the bundled countries resource and returns precomputed routing data.
      *
      * @return immutable country graph ready for request-time routing
      */
     public CountryGraph load() {
+        return load(DEFAULT_LOCATION);
+    }
+
+    /**
+     * Parses the countries resource at {@code location} and returns precomputed routing data.
+     *
+     * @param location Spring resource location, e.g. {@code classpath:countries.json}, {@code file:/data/x.json} or
+     *                 a directory of shards such as {@code file:/data/countries/}
+     * @return immutable country graph ready for request-time routing
+     */
+    public CountryGraph load(String location) {
         long startedAtNanos = System.nanoTime();
-        LOGGER.info("Loading country graph from resource {}", COUNTRIES_RESOURCE);
-        Resource resource = resolveCountriesResource();
+        LOGGER.info("Loading country graph from resource {}", location);
+        Resource resource = resolveCountriesResource(location);
 
-        try (InputStream inputStream = resource.getInputStream()) {
-            CountryGraph graph = parseGraph(inputStream);
-            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+        try {
+            Path path = resource.isFile() ? resource.getFile().toPath() : null;
+            List<Shard> shards = path == null ? List.of() : shardsOf(path);
+            LoadedGraph loaded = path != null && (Files.isDirectory(path) || shards.size() > 1)
+                    ? loadShards(shards)
+                    : loadResource(resource, location);
+            CountryGraph graph = loaded.graph();
+
+            long nextHopStartedAtNanos = System.nanoTime();
+            if (preloadOptions.nextHopTable()) {
+                graph = graph.withNextHopTable(NextHopTable.build(graph));
+            }
+            long landmarksStartedAtNanos = System.nanoTime();
+            if (preloadOptions.landmarksPerComponent() > 0) {
+                graph = graph.withLandmarkTable(LandmarkTable.build(graph, preloadOptions.landmarksPerComponent()));
+            }
+            long finishedAtNanos = System.nanoTime();
+
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(finishedAtNanos - startedAtNanos);
+            long graphMillis = TimeUnit.NANOSECONDS.toMillis(nextHopStartedAtNanos - startedAtNanos);
+            long nextHopMillis = TimeUnit.NANOSECONDS.toMillis(landmarksStartedAtNanos - nextHopStartedAtNanos);
+            long landmarksMillis = TimeUnit.NANOSECONDS.toMillis(finishedAtNanos - landmarksStartedAtNanos);
+            long nextHopBytes = graph.nextHopTable() == null ? 0 : graph.nextHopTable().memoryBytes();
+            long landmarksBytes = graph.landmarkTable() == null ? 0 : graph.landmarkTable().memoryBytes();
             LOGGER.info(
-                    "Loaded country graph: countries={}, edges={}, components={}, preloadMs={}",
+                    "Loaded country graph: source={}, countries={}, edges={}, components={}, preloadMs={}, "
+                            + "graphMs={}, nextHopTable={}, nextHopTableMs={}, nextHopTableBytes={}, "
+                            + "landmarks={}, landmarksMs={}, landmarksBytes={}",
+                    graph.isMapped() ? "mapped" : loaded.source(),
                     graph.nodeCount(),
                     graph.edgeCount(),
                     graph.componentCount(),
-                    elapsedMillis
+                    elapsedMillis,
+                    graphMillis,
+                    preloadOptions.nextHopTable(),
+                    nextHopMillis,
+                    nextHopBytes,
+                    preloadOptions.landmarksPerComponent(),
+                    landmarksMillis,
+                    landmarksBytes
             );
             return graph;
         } catch (IOException exception) {
-            LOGGER.error("Failed to load country graph data from {}", COUNTRIES_RESOURCE, exception);
+            LOGGER.error("Failed to load country graph data from {}", location, exception);
             throw new IllegalStateException(LOAD_FAILURE_MESSAGE, exception);
         }
     }
 
+    /**
+     * Runs the configured precomputation stages on a graph that was not built by {@link #load(String)}, for example
+     * one derived by a border edit, which drops the tables of its source graph.
+     *
+     * @param graph graph without precomputed tables
+     * @return graph with the configured tables attached
+     */
+    public CountryGraph precompute(CountryGraph graph) {
+        if (preloadOptions.nextHopTable()) {
+            graph = graph.withNextHopTable(NextHopTable.build(graph));
+        }
+        if (preloadOptions.landmarksPerComponent() > 0) {
+            graph = graph.withLandmarkTable(LandmarkTable.build(graph, preloadOptions.landmarksPerComponent()));
+        }
+        return graph;
+    }
+
+    private LoadedGraph loadResource(Resource resource, String location) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            Path snapshotPath = preloadOptions.snapshotPath();
+            if (snapshotPath != null) {
+                byte[] data = inputStream.readAllBytes();
+                return loadThroughSnapshot(CountryGraphSnapshot.checksumOf(data), snapshotPath, () ->
+                        preloadOptions.compiledGraph()
+                                ? loadCompiledOrParse(data, location)
+                                : new LoadedGraph(parseGraph(new ByteArrayInputStream(data)), "json"));
+            }
+            if (preloadOptions.compiledGraph()) {
+                return loadCompiledOrParse(inputStream.readAllBytes(), location);
+            }
+            return new LoadedGraph(parseGraph(inputStream), "json");
+        }
+    }
+
+    /**
+     * Sharded data has no compiled graph; a snapshot still replaces parsing while the checksum over all shard files
+     * matches.
+     */
+    private LoadedGraph loadShards(List<Shard> shards) throws IOException {
+        Path snapshotPath = preloadOptions.snapshotPath();
+        if (snapshotPath == null) {
+            return new LoadedGraph(parseShards(shards), "json");
+        }
+        long checksum = CountryGraphSnapshot.checksumOf(shards.stream().map(Shard::file).distinct().toList());
+        return loadThroughSnapshot(checksum, snapshotPath, () -> new LoadedGraph(parseShards(shards), "json"));
+    }
+
+    /**
+     * Uses the snapshot while it was built from data with exactly this checksum; otherwise builds the graph (from
+     * the compiled graph when enabled and current, else by parsing) and rewrites the snapshot. A snapshot that cannot
+     * be read or written only costs the JSON parse, never the load.
+     */
+    private LoadedGraph loadThroughSnapshot(long checksum, Path snapshotPath, GraphBuilder builder)
+            throws IOException {
+        try {
+            CountryGraph graph = readSnapshot(snapshotPath, checksum);
+            if (graph != null) {
+                return new LoadedGraph(graph, "snapshot");
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to read country graph snapshot {}, parsing JSON instead", snapshotPath, e);
+        }
+
+        LoadedGraph built = builder.build();
+        CountryGraph graph = built.graph();
+        long startedAtNanos = System.nanoTime();
+        try {
+            long bytes = CountryGraphSnapshot.write(graph, checksum, snapshotPath);
+            LOGGER.info(
+                    "Wrote country graph snapshot: path={}, bytes={}, writeMs={}",
+                    snapshotPath,
+                    bytes,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos)
+            );
+            if (preloadOptions.mappedGraph()) {
+                CountryGraph mapped = CountryGraphSnapshot.map(snapshotPath, checksum);
+                if (mapped != null) {
+                    return new LoadedGraph(mapped, built.source());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to write country graph snapshot {}", snapshotPath, e);
+        }
+        return built;
+    }
+
+    /**
+     * Uses the graph compiled next to the countries resource while it was built from exactly these bytes; otherwise
+     * parses them. The check costs one checksum over the data, no JSON parsing.
+     */
+    private LoadedGraph loadCompiledOrParse(byte[] data, String location) throws IOException {
+        String compiledLocation = compiledGraphLocation(location);
+        Resource compiled = compiledLocation == null ? null : resourceLoader.getResource(compiledLocation);
+        if (compiled != null && compiled.exists()) {
+            try (InputStream compiledStream = compiled.getInputStream()) {
+                CountryGraph graph = CountryGraphSnapshot.read(
+                        compiledStream.readAllBytes(),
+                        compiledLocation,
+                        CountryGraphSnapshot.checksumOf(data)
+                );
+                if (graph != null) {
+                    return new LoadedGraph(graph, "compiled");
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to read compiled country graph {}, parsing JSON instead", compiledLocation, e);
+            }
+        }
+        return new LoadedGraph(parseGraph(new ByteArrayInputStream(data)), "json");
+    }
+
+    /**
+     * @param location countries resource location
+     * @return location of the graph {@link CountryGraphCompiler} compiles from it ({@code countries.graph} next to
+     *         {@code countries.json}), or {@code null} when the resource is not a {@code .json} file
+     */
+    public static String compiledGraphLocation(String location) {
+        return location.endsWith(JSON_SUFFIX)
+                ? location.substring(0, location.length() - JSON_SUFFIX.length()) + COMPILED_GRAPH_SUFFIX
+                : null;
+    }
+
+    private CountryGraph readSnapshot(Path snapshotPath, long checksum) throws IOException {
+        return preloadOptions.mappedGraph()
+                ? CountryGraphSnapshot.map(snapshotPath, checksum)
+                : CountryGraphSnapshot.read(snapshotPath, checksum);
+    }
+
     private CountryGraph parseGraph(InputStream inputStream) throws IOException {
         CountryGraphBuildState buildState = new CountryGraphBuildState();
+        readCountries(decompressed(inputStream), Long.MAX_VALUE, buildState);
+        return buildState.toGraph();
+    }
 
-        try (JsonParser parser = objectMapper.createParser(inputStream)) {
-            ensureArrayRoot(parser);
+    /**
+     * Parses every shard on the common ForkJoin pool into its own build state, then merges the states in shard order,
+     * so the graph (ids included) is the same as parsing the shards one after another.
+     */
+    private CountryGraph parseShards(List<Shard> shards) throws IOException {
+        if (shards.isEmpty()) {
+            throw new IOException("No countries files (" + String.join(", ", SHARD_SUFFIXES) + ", optionally "
+                    + GZIP_SUFFIX + ") in the data directory");
+        }
+        long startedAtNanos = System.nanoTime();
+        List<CountryGraphBuildState> shardStates;
+        try {
+            shardStates = shards.parallelStream().map(this::parseShard).toList();
+        } catch (UncheckedIOException e) {
+            throw new IOException("Failed to parse country data shards", e);
+        }
 
-            while (parser.nextToken() != JsonToken.END_ARRAY) {
-                if (parser.currentToken() != JsonToken.START_OBJECT) {
-                    parser.skipChildren();
-                    continue;
+        long mergeStartedAtNanos = System.nanoTime();
+        CountryGraphBuildState buildState = shardStates.get(0);
+        for (int shard = 1; shard < shardStates.size(); shard++) {
+            buildState.merge(shardStates.get(shard));
+        }
+        CountryGraph graph = buildState.toGraph();
+        long finishedAtNanos = System.nanoTime();
+        LOGGER.info(
+                "Parsed country data shards: files={}, shards={}, parseMs={}, mergeMs={}",
+                shards.stream().map(Shard::file).distinct().count(),
+                shards.size(),
+                TimeUnit.NANOSECONDS.toMillis(mergeStartedAtNanos - startedAtNanos),
+                TimeUnit.NANOSECONDS.toMillis(finishedAtNanos - mergeStartedAtNanos)
+        );
+        return graph;
+    }
+
+    private CountryGraphBuildState parseShard(Shard shard) {
+        CountryGraphBuildState buildState = new CountryGraphBuildState();
+        try (FileChannel channel = FileChannel.open(shard.file(), StandardOpenOption.READ)) {
+            channel.position(shard.start());
+            readCountries(decompressed(Channels.newInputStream(channel)), shard.end() - shard.start(), buildState);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse " + shard, e);
+        }
+        return buildState;
+    }
+
+    /**
+     * Reads a JSON array of countries, or a sequence of country objects (NDJSON) up to the first one starting at or
+     * after {@code limit} bytes into the stream.
+     */
+    private void readCountries(InputStream inputStream, long limit, CountryGraphBuildState buildState)
+            throws IOException {
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            JsonToken rootToken = parser.nextToken();
+            if (rootToken == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    readCountryInto(parser, buildState);
                 }
+            } else if (rootToken == JsonToken.START_OBJECT) {
+                do {
+                    readCountryInto(parser, buildState);
+                } while (parser.nextToken() != null && parser.currentTokenLocation().getByteOffset() < limit);
+            } else if (rootToken != null || limit == Long.MAX_VALUE) {
+                // a range split off a larger file may hold nothing but its trailing blank lines
+                throw new IOException(COUNTRIES_ARRAY_ERROR);
+            }
+        }
+    }
+
+    private void readCountryInto(JsonParser parser, CountryGraphBuildState buildState) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        ParsedCountry parsedCountry = readCountry(parser, buildState);
+        if (parsedCountry.cca3() == null) {
+            return;
+        }
 
-                ParsedCountry parsedCountry = readCountry(parser);
-                if (parsedCountry.cca3() == null) {
-                    continue;
+        int countryId = buildState.idFor(parsedCountry.cca3());
+        if (parsedCountry.hasCoordinates()) {
+            buildState.setCoordinates(countryId, parsedCountry.latitude(), parsedCountry.longitude());
+        }
+        connectBorders(buildState, countryId, parsedCountry.borders());
+    }
+
+    /**
+     * Lists the shards behind a countries path: the file itself, or every countries file of a directory in name
+     * order. Line-delimited files larger than {@link PreloadOptions#shardBytes()} are split into line-aligned byte
+     * ranges; JSON arrays and compressed files cannot be split and form one shard each.
+     */
+    private List<Shard> shardsOf(Path path) throws IOException {
+        List<Path> files;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> entries = Files.list(path)) {
+                files = entries.filter(Files::isRegularFile).filter(CountryPreloader::isShardFile).sorted().toList();
+            }
+        } else {
+            files = List.of(path);
+        }
+
+        List<Shard> shards = new ArrayList<>();
+        for (Path file : files) {
+            long size = Files.size(file);
+            if (size <= preloadOptions.shardBytes() || !hasSuffix(file, LINE_DELIMITED_SUFFIXES)) {
+                shards.add(new Shard(file, 0, Long.MAX_VALUE));
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long start = 0;
+                while (start < size) {
+                    long end = lineStartAfter(channel, start + preloadOptions.shardBytes(), size);
+                    shards.add(new Shard(file, start, end));
+                    start = end;
                 }
+            }
+        }
+        return shards;
+    }
 
-                int countryId = buildState.idFor(parsedCountry.cca3());
-                connectBorders(buildState, countryId, parsedCountry.borders());
+    /**
+     * @return offset of the first line starting at or after {@code position}, or {@code size} when there is none
+     */
+    private static long lineStartAfter(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_BYTES);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position - 1);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
             }
+            position += read;
         }
+        return size;
+    }
 
-        return buildState.toGraph();
+    private static boolean isShardFile(Path file) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(".")) {
+            return false;
+        }
+        return hasSuffix(file, SHARD_SUFFIXES)
+                || name.endsWith(GZIP_SUFFIX)
+                && hasSuffix(Path.of(name.substring(0, name.length() - GZIP_SUFFIX.length())), SHARD_SUFFIXES);
     }
 
-    private ParsedCountry readCountry(JsonParser parser) throws IOException {
+    private static boolean hasSuffix(Path file, List<String> suffixes) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return suffixes.stream().anyMatch(name::endsWith);
+    }
+
+    /**
+     * Wraps gzip data (detected by its magic bytes, so compressed files need no particular name) in a decompressor.
+     */
+    private static InputStream decompressed(InputStream inputStream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(inputStream, STREAM_BUFFER_BYTES);
+        buffered.mark(2);
+        int magic = buffered.read() | buffered.read() << 8;
+        buffered.reset();
+        return magic == GZIP_MAGIC ? new GZIPInputStream(buffered, STREAM_BUFFER_BYTES) : buffered;
+    }
+
+    private ParsedCountry readCountry(JsonParser parser, CountryGraphBuildState buildState) throws IOException {
         String countryCode = null;
         List<String> borderCodes = List.of();
+        double[] latLng = null;
 
         while (parser.nextToken() != JsonToken.END_OBJECT) {
             String fieldName = parser.currentName();
@@ -107,25 +470,51 @@ public class CountryPreloader {
             }
 
             if (CCA3_FIELD.equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
-                countryCode = normalizeCode(parser.getValueAsString());
+                countryCode = readCode(parser, buildState);
             } else if (BORDERS_FIELD.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
-                borderCodes = readBorders(parser);
+                borderCodes = readBorders(parser, buildState);
+            } else if (LATLNG_FIELD.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                latLng = readLatLng(parser);
             } else {
                 parser.skipChildren();
             }
         }
 
-        return new ParsedCountry(countryCode, borderCodes);
+        if (latLng == null) {
+            return new ParsedCountry(countryCode, borderCodes, Double.NaN, Double.NaN);
+        }
+        return new ParsedCountry(countryCode, borderCodes, latLng[0], latLng[1]);
+    }
+
+    /**
+     * Reads a {@code [latitude, longitude]} pair.
+     *
+     * @return coordinates, or {@code null} when the array is not a pair of numbers
+     */
+    private double[] readLatLng(JsonParser parser) throws IOException {
+        double[] latLng = new double[2];
+        int count = 0;
+        boolean numeric = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken().isNumeric() && count < latLng.length) {
+                latLng[count] = parser.getDoubleValue();
+            } else {
+                numeric = false;
+                parser.skipChildren();
+            }
+            count++;
+        }
+        return numeric && count == latLng.length ? latLng : null;
     }
 
-    private List<String> readBorders(JsonParser parser) throws IOException {
+    private List<String> readBorders(JsonParser parser, CountryGraphBuildState buildState) throws IOException {
         List<String> borders = new ArrayList<>();
         while (parser.nextToken() != JsonToken.END_ARRAY) {
             if (parser.currentToken() != JsonToken.VALUE_STRING) {
                 parser.skipChildren();
                 continue;
             }
-            String borderCode = normalizeCode(parser.getValueAsString());
+            String borderCode = readCode(parser, buildState);
             if (borderCode != null) {
                 borders.add(borderCode);
             }
@@ -133,27 +522,28 @@ public class CountryPreloader {
         return borders;
     }
 
-    private String normalizeCode(String rawCode) {
-        if (!StringUtils.hasText(rawCode)) {
-            return null;
-        }
-        return rawCode.trim().toUpperCase(Locale.ROOT);
+    /**
+     * Reads the current string token straight from the parser's text buffer; a code seen before is resolved through
+     * the packed index without building a trimmed, upper-cased copy.
+     *
+     * @return normalized code, or {@code null} when the value is blank
+     */
+    private static String readCode(JsonParser parser, CountryGraphBuildState buildState) {
+        return buildState.codeOfRaw(
+                parser.getStringCharacters(),
+                parser.getStringOffset(),
+                parser.getStringLength()
+        );
     }
 
-    private Resource resolveCountriesResource() {
-        Resource resource = resourceLoader.getResource(COUNTRIES_RESOURCE);
+    private Resource resolveCountriesResource(String location) {
+        Resource resource = resourceLoader.getResource(location);
         if (!resource.exists()) {
-            throw new IllegalStateException("Country data resource does not exist: " + COUNTRIES_RESOURCE);
+            throw new IllegalStateException("Country data resource does not exist: " + location);
         }
         return resource;
     }
 
-    private void ensureArrayRoot(JsonParser parser) throws IOException {
-        if (parser.nextToken() != JsonToken.START_ARRAY) {
-            throw new IOException(COUNTRIES_ARRAY_ERROR);
-        }
-    }
-
     private void connectBorders(CountryGraphBuildState buildState, int countryId, List<String> borderCodes) {
         for (String borderCode : borderCodes) {
             int borderId = buildState.idFor(borderCode);
@@ -161,6 +551,30 @@ public class CountryPreloader {
         }
     }
 
-    private record ParsedCountry(String cca3, List<String> borders) {
+    @FunctionalInterface
+    private interface GraphBuilder {
+        LoadedGraph build() throws IOException;
+    }
+
+    /**
+     * Byte range of a countries file parsed as one unit.
+     *
+     * @param start offset of the first byte, at a line start
+     * @param end offset after the last byte, {@link Long#MAX_VALUE} for the rest of the file
+     */
+    private record Shard(Path file, long start, long end) {
+    }
+
+    /**
+     * @param source where the graph came from, for the preload log line
+     */
+    private record LoadedGraph(CountryGraph graph, String source) {
+    }
+
+    private record ParsedCountry(String cca3, List<String> borders, double latitude, double longitude) {
+
+        boolean hasCoordinates() {
+            return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        }
     }
 }
@@ -0,0 +1,46 @@
+package nda.company.homework.routing.preload;
+
+/**
+ * Read access to a graph's CSR adjacency for search engines, wherever the arrays live.
+ * <p>
+ * Neighbors of node {@code v} are {@code neighborTarget(e)} for {@code e} in
+ * {@code [neighborStart(v), neighborEnd(v))}. On-heap graphs answer from plain arrays and memory-mapped graphs from
+ * the mapped file, so engines written against this interface run unchanged on both. All accessors are unchecked:
+ * callers pass node ids and edge slots of this graph only.
+ */
+public interface GraphAdjacency {
+
+    /**
+     * @return number of nodes
+     */
+    int nodeCount();
+
+    /**
+     * @param nodeId node id
+     * @return first edge slot of the node's row
+     */
+    int neighborStart(int nodeId);
+
+    /**
+     * @param nodeId node id
+     * @return edge slot just after the node's row
+     */
+    int neighborEnd(int nodeId);
+
+    /**
+     * @param edge edge slot
+     * @return neighbor node id stored in the slot
+     */
+    int neighborTarget(int edge);
+
+    /**
+     * @return whether {@link #neighborDistanceKm(int)} is available
+     */
+    boolean hasDistances();
+
+    /**
+     * @param edge edge slot
+     * @return great-circle length of the border in kilometres; only valid when {@link #hasDistances()}
+     */
+    float neighborDistanceKm(int edge);
+}
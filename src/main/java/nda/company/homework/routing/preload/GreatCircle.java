@@ -0,0 +1,29 @@
+package nda.company.homework.routing.preload;
+
+/**
+ * Great-circle distance between two points given in degrees, used for border edge weights.
+ */
+final class GreatCircle {
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GreatCircle() {
+    }
+
+    /**
+     * Haversine distance on a sphere with the mean Earth radius.
+     *
+     * @return distance in kilometres
+     */
+    static double distanceKm(double leftLatitude, double leftLongitude, double rightLatitude, double rightLongitude) {
+        double leftLatitudeRadians = Math.toRadians(leftLatitude);
+        double rightLatitudeRadians = Math.toRadians(rightLatitude);
+        double latitudeDelta = rightLatitudeRadians - leftLatitudeRadians;
+        double longitudeDelta = Math.toRadians(rightLongitude - leftLongitude);
+
+        double sinLatitude = Math.sin(latitudeDelta / 2);
+        double sinLongitude = Math.sin(longitudeDelta / 2);
+        double a = sinLatitude * sinLatitude
+                + Math.cos(leftLatitudeRadians) * Math.cos(rightLatitudeRadians) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
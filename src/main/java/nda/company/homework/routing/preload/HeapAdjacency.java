@@ -0,0 +1,49 @@
+package nda.company.homework.routing.preload;
+
+/**
+ * {@link GraphAdjacency} over the on-heap CSR arrays of a {@link CountryGraph}.
+ */
+final class HeapAdjacency implements GraphAdjacency {
+    private final int[] neighborOffsets;
+    private final int[] neighborTargets;
+    private final float[] neighborDistancesKm;
+
+    /**
+     * @param neighborDistancesKm distances aligned with {@code neighborTargets}, or {@code null}
+     */
+    HeapAdjacency(int[] neighborOffsets, int[] neighborTargets, float[] neighborDistancesKm) {
+        this.neighborOffsets = neighborOffsets;
+        this.neighborTargets = neighborTargets;
+        this.neighborDistancesKm = neighborDistancesKm;
+    }
+
+    @Override
+    public int nodeCount() {
+        return neighborOffsets.length - 1;
+    }
+
+    @Override
+    public int neighborStart(int nodeId) {
+        return neighborOffsets[nodeId];
+    }
+
+    @Override
+    public int neighborEnd(int nodeId) {
+        return neighborOffsets[nodeId + 1];
+    }
+
+    @Override
+    public int neighborTarget(int edge) {
+        return neighborTargets[edge];
+    }
+
+    @Override
+    public boolean hasDistances() {
+        return neighborDistancesKm != null;
+    }
+
+    @Override
+    public float neighborDistanceKm(int edge) {
+        return neighborDistancesKm[edge];
+    }
+}
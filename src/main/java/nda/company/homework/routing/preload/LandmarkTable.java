@@ -0,0 +1,171 @@
+package nda.company.homework.routing.preload;
+
+import java.util.Arrays;
+
+/**
+ * Landmark distance tables for goal-directed (ALT) search.
+ * <p>
+ * Selects {@code K} landmarks per connected component by farthest-point selection and stores the hop distance
+ * from each node to the {@code K} landmarks of its own component. By the triangle inequality,
+ * {@code |d(L, u) - d(L, v)|} is a lower bound on {@code d(u, v)} for every landmark {@code L}.
+ * Why this layout: distances are unsigned 16-bit values stored node-major ({@code node * K + k}),
+ * so evaluating a bound reads two short contiguous runs.
+ */
+public final class LandmarkTable {
+    private static final int UNREACHED = Character.MAX_VALUE;
+    private static final int MAX_DISTANCE = UNREACHED - 1;
+
+    private final int landmarksPerComponent;
+    private final int[] landmarkIdByComponentAndIndex;
+    private final char[] distanceByNodeAndLandmark;
+
+    private LandmarkTable(
+            int landmarksPerComponent,
+            int[] landmarkIdByComponentAndIndex,
+            char[] distanceByNodeAndLandmark
+    ) {
+        this.landmarksPerComponent = landmarksPerComponent;
+        this.landmarkIdByComponentAndIndex = landmarkIdByComponentAndIndex;
+        this.distanceByNodeAndLandmark = distanceByNodeAndLandmark;
+    }
+
+    /**
+     * Selects landmarks and computes their distance tables.
+     * <p>
+     * The first landmark of a component is the node farthest from its lowest node id; every next landmark
+     * maximizes the distance to the closest landmark already chosen. Each round is one multi-source BFS
+     * seeded with one landmark per component, so the whole build costs {@code O(K * (V + E))}.
+     *
+     * @param graph immutable country graph
+     * @param landmarksPerComponent number of landmarks {@code K} per connected component
+     * @return landmark distance tables
+     */
+    public static LandmarkTable build(CountryGraph graph, int landmarksPerComponent) {
+        if (landmarksPerComponent < 1) {
+            throw new IllegalArgumentException("At least one landmark per component is required");
+        }
+
+        int nodeCount = graph.nodeCount();
+        int componentCount = graph.componentCount();
+        int[] landmarks = new int[componentCount * landmarksPerComponent];
+        char[] distances = new char[nodeCount * landmarksPerComponent];
+        int[] bfsDistance = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+
+        int[] seeds = new int[componentCount];
+        Arrays.fill(seeds, -1);
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            int componentId = graph.componentOf(nodeId);
+            if (seeds[componentId] < 0) {
+                seeds[componentId] = nodeId;
+            }
+        }
+        multiSourceBfs(graph, seeds, bfsDistance, queue);
+        int[] nextLandmarks = farthestByComponent(graph, bfsDistance);
+
+        int[] closestLandmarkDistance = new int[nodeCount];
+        Arrays.fill(closestLandmarkDistance, Integer.MAX_VALUE);
+        for (int index = 0; index < landmarksPerComponent; index++) {
+            multiSourceBfs(graph, nextLandmarks, bfsDistance, queue);
+            for (int componentId = 0; componentId < componentCount; componentId++) {
+                landmarks[componentId * landmarksPerComponent + index] = nextLandmarks[componentId];
+            }
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                if (bfsDistance[nodeId] > MAX_DISTANCE) {
+                    throw new IllegalArgumentException("Graph diameter is too large for landmark tables");
+                }
+                distances[nodeId * landmarksPerComponent + index] = (char) bfsDistance[nodeId];
+                closestLandmarkDistance[nodeId] = Math.min(closestLandmarkDistance[nodeId], bfsDistance[nodeId]);
+            }
+            nextLandmarks = farthestByComponent(graph, closestLandmarkDistance);
+        }
+
+        return new LandmarkTable(landmarksPerComponent, landmarks, distances);
+    }
+
+    /**
+     * @return number of landmarks per connected component
+     */
+    public int landmarksPerComponent() {
+        return landmarksPerComponent;
+    }
+
+    /**
+     * @param componentId connected-component id
+     * @param index landmark index in {@code [0, K)}
+     * @return node id of the landmark
+     */
+    public int landmarkOf(int componentId, int index) {
+        return landmarkIdByComponentAndIndex[componentId * landmarksPerComponent + index];
+    }
+
+    /**
+     * Returns a lower bound on the hop distance between two nodes of the same component.
+     *
+     * @param fromNodeId first node id
+     * @param toNodeId second node id (same component as {@code fromNodeId})
+     * @return admissible and consistent lower bound on {@code d(from, to)}
+     */
+    public int lowerBound(int fromNodeId, int toNodeId) {
+        int fromBase = fromNodeId * landmarksPerComponent;
+        int toBase = toNodeId * landmarksPerComponent;
+        int bound = 0;
+        for (int index = 0; index < landmarksPerComponent; index++) {
+            int difference = Math.abs(
+                    distanceByNodeAndLandmark[fromBase + index] - distanceByNodeAndLandmark[toBase + index]
+            );
+            if (difference > bound) {
+                bound = difference;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * @return approximate heap footprint of table payload arrays in bytes
+     */
+    public long memoryBytes() {
+        return (long) distanceByNodeAndLandmark.length * Character.BYTES
+                + (long) landmarkIdByComponentAndIndex.length * Integer.BYTES;
+    }
+
+    /**
+     * BFS from one source per component; since sources lie in different components, their BFS trees never meet.
+     */
+    private static void multiSourceBfs(CountryGraph graph, int[] sources, int[] distance, int[] queue) {
+        GraphAdjacency adjacency = graph.adjacency();
+        Arrays.fill(distance, UNREACHED);
+        int head = 0;
+        int tail = 0;
+        for (int source : sources) {
+            if (source < 0) {
+                continue;
+            }
+            distance[source] = 0;
+            queue[tail++] = source;
+        }
+
+        while (head < tail) {
+            int nodeId = queue[head++];
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (distance[neighborId] == UNREACHED) {
+                    distance[neighborId] = distance[nodeId] + 1;
+                    queue[tail++] = neighborId;
+                }
+            }
+        }
+    }
+
+    private static int[] farthestByComponent(CountryGraph graph, int[] distance) {
+        int[] farthest = new int[graph.componentCount()];
+        Arrays.fill(farthest, -1);
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            int componentId = graph.componentOf(nodeId);
+            if (farthest[componentId] < 0 || distance[nodeId] > distance[farthest[componentId]]) {
+                farthest[componentId] = nodeId;
+            }
+        }
+        return farthest;
+    }
+}
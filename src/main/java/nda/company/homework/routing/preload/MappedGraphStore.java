@@ -0,0 +1,270 @@
+package nda.company.homework.routing.preload;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Graph data read straight from a memory-mapped {@link CountryGraphSnapshot} file.
+ * <p>
+ * Nothing proportional to the graph size is copied onto the heap: adjacency, component ids and the code dictionary
+ * are absolute reads from mapped buffers, so the operating system pages them in on demand and every JVM mapping
+ * the same file shares one copy through the page cache. Codes are resolved by binary search over node ids sorted
+ * by code bytes ({@code O(log V)}), and code strings are decoded per call instead of being cached. JSON tokens are
+ * written straight from the mapped UTF-8 code bytes, with no intermediate string.
+ */
+final class MappedGraphStore implements GraphAdjacency {
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final int nodeCount;
+    private final int targetCount;
+    private final int componentCount;
+    private final IntBuffer codeOffsets;
+    private final ByteBuffer codeBytes;
+    private final IntBuffer codeOrder;
+    private final IntBuffer neighborOffsets;
+    private final IntBuffer neighborTargets;
+    private final IntBuffer componentByNodeId;
+    private final IntBuffer componentSizes;
+    // null when the snapshot has no distances
+    private final FloatBuffer neighborDistancesKm;
+
+    MappedGraphStore(
+            int nodeCount,
+            int targetCount,
+            int componentCount,
+            IntBuffer codeOffsets,
+            ByteBuffer codeBytes,
+            IntBuffer codeOrder,
+            IntBuffer neighborOffsets,
+            IntBuffer neighborTargets,
+            IntBuffer componentByNodeId,
+            IntBuffer componentSizes,
+            FloatBuffer neighborDistancesKm
+    ) {
+        this.nodeCount = nodeCount;
+        this.targetCount = targetCount;
+        this.componentCount = componentCount;
+        this.codeOffsets = codeOffsets;
+        this.codeBytes = codeBytes;
+        this.codeOrder = codeOrder;
+        this.neighborOffsets = neighborOffsets;
+        this.neighborTargets = neighborTargets;
+        this.componentByNodeId = componentByNodeId;
+        this.componentSizes = componentSizes;
+        this.neighborDistancesKm = neighborDistancesKm;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int neighborStart(int nodeId) {
+        return neighborOffsets.get(nodeId);
+    }
+
+    @Override
+    public int neighborEnd(int nodeId) {
+        return neighborOffsets.get(nodeId + 1);
+    }
+
+    @Override
+    public int neighborTarget(int edge) {
+        return neighborTargets.get(edge);
+    }
+
+    @Override
+    public boolean hasDistances() {
+        return neighborDistancesKm != null;
+    }
+
+    @Override
+    public float neighborDistanceKm(int edge) {
+        return neighborDistancesKm.get(edge);
+    }
+
+    int edgeCount() {
+        return targetCount / 2;
+    }
+
+    int componentCount() {
+        return componentCount;
+    }
+
+    int componentSize(int componentId) {
+        return componentSizes.get(componentId);
+    }
+
+    int componentOf(int nodeId) {
+        return componentByNodeId.get(nodeId);
+    }
+
+    String codeOf(int nodeId) {
+        int from = codeOffsets.get(nodeId);
+        byte[] code = new byte[codeOffsets.get(nodeId + 1) - from];
+        codeBytes.get(from, code);
+        return new String(code, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param nodeId internal node id
+     * @return length of the quoted and escaped JSON token of the node's code
+     */
+    int jsonTokenLength(int nodeId) {
+        int length = 2;
+        for (int i = codeOffsets.get(nodeId), end = codeOffsets.get(nodeId + 1); i < end; i++) {
+            length += escapedLength(codeBytes.get(i));
+        }
+        return length;
+    }
+
+    /**
+     * Writes the quoted and escaped JSON token of the node's code; UTF-8 code bytes are copied as they are.
+     *
+     * @param nodeId internal node id
+     * @param target array to write into, with at least {@link #jsonTokenLength(int)} bytes free at {@code position}
+     * @param position index of the opening quote in {@code target}
+     * @return index just after the closing quote
+     */
+    int writeJsonToken(int nodeId, byte[] target, int position) {
+        int from = codeOffsets.get(nodeId);
+        int to = codeOffsets.get(nodeId + 1);
+        target[position++] = '"';
+        for (int i = from; i < to; i++) {
+            byte symbol = codeBytes.get(i);
+            int escapedLength = escapedLength(symbol);
+            if (escapedLength == 1) {
+                target[position++] = symbol;
+            } else if (escapedLength == 2) {
+                target[position++] = '\\';
+                target[position++] = symbol;
+            } else {
+                target[position++] = '\\';
+                target[position++] = 'u';
+                target[position++] = '0';
+                target[position++] = '0';
+                target[position++] = HEX_DIGITS[symbol >> 4];
+                target[position++] = HEX_DIGITS[symbol & 0xF];
+            }
+        }
+        target[position++] = '"';
+        return position;
+    }
+
+    /**
+     * @param code exact code
+     * @return node id, or {@code -1} when code is unknown
+     */
+    int idOf(String code) {
+        byte[] key = code.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int nodeId = codeOrder.get(middle);
+            int comparison = compareCode(nodeId, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return nodeId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resolves raw input the way {@link CountryCodeIndex#idOfRaw(CharSequence)} does: surrounding whitespace and
+     * letter case are ignored. ASCII input is trimmed and upper-cased on the fly while the binary search compares it
+     * with the mapped code bytes, so the lookup allocates nothing; only input with non-ASCII characters is copied.
+     */
+    int idOfRaw(CharSequence rawCode) {
+        if (rawCode == null) {
+            return -1;
+        }
+        int from = 0;
+        int to = rawCode.length();
+        while (from < to && rawCode.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && rawCode.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return -1;
+        }
+        for (int i = from; i < to; i++) {
+            if (rawCode.charAt(i) >= 0x80) {
+                return idOf(rawCode.subSequence(from, to).toString().toUpperCase(Locale.ROOT));
+            }
+        }
+
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int nodeId = codeOrder.get(middle);
+            int comparison = compareRawCode(nodeId, rawCode, from, to);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return nodeId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Unsigned lexicographic comparison, the order {@link CountryGraphSnapshot} sorts codes in.
+     */
+    private int compareCode(int nodeId, byte[] key) {
+        int from = codeOffsets.get(nodeId);
+        int length = codeOffsets.get(nodeId + 1) - from;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = Byte.toUnsignedInt(codeBytes.get(from + i)) - Byte.toUnsignedInt(key[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Same order as {@link #compareCode(int, byte[])} against the upper-cased ASCII characters
+     * {@code rawCode[rawFrom, rawTo)}; an ASCII character is its own UTF-8 byte.
+     */
+    private int compareRawCode(int nodeId, CharSequence rawCode, int rawFrom, int rawTo) {
+        int from = codeOffsets.get(nodeId);
+        int length = codeOffsets.get(nodeId + 1) - from;
+        int rawLength = rawTo - rawFrom;
+        int common = Math.min(length, rawLength);
+        for (int i = 0; i < common; i++) {
+            char symbol = rawCode.charAt(rawFrom + i);
+            int upperCase = symbol >= 'a' && symbol <= 'z' ? symbol - ('a' - 'A') : symbol;
+            int difference = Byte.toUnsignedInt(codeBytes.get(from + i)) - upperCase;
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - rawLength;
+    }
+
+    /**
+     * @return JSON-escaped length of one UTF-8 byte: quotes and backslashes take two bytes, control characters six
+     */
+    private static int escapedLength(byte symbol) {
+        if (symbol == '"' || symbol == '\\') {
+            return 2;
+        }
+        // multi-byte UTF-8 sequences consist of negative bytes and are copied unchanged
+        return symbol >= 0 && symbol < 0x20 ? 6 : 1;
+    }
+}
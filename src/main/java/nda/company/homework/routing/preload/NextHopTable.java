@@ -0,0 +1,133 @@
+package nda.company.homework.routing.preload;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed all-pairs shortest-path table for small immutable graphs.
+ * <p>
+ * Stores, for every (node, target) pair, the next hop on one shortest route towards the target
+ * plus the number of border crossings. Rows are indexed by target, so one BFS rooted at the target
+ * fills exactly one row and routes are reconstructed by walking next hops in {@code O(path length)}.
+ * Why this structure: for ~250 countries the whole table is a few hundred kilobytes,
+ * while request-time search disappears completely.
+ */
+public final class NextHopTable {
+    private static final int NO_HOP = 0xFFFF;
+    private static final int UNREACHABLE = 0xFF;
+    private static final int MAX_NODE_COUNT = NO_HOP;
+    private static final int MAX_DISTANCE = UNREACHABLE - 1;
+
+    private final int nodeCount;
+    private final short[] nextHopByTargetAndNode;
+    private final byte[] distanceByTargetAndNode;
+
+    private NextHopTable(int nodeCount, short[] nextHopByTargetAndNode, byte[] distanceByTargetAndNode) {
+        this.nodeCount = nodeCount;
+        this.nextHopByTargetAndNode = nextHopByTargetAndNode;
+        this.distanceByTargetAndNode = distanceByTargetAndNode;
+    }
+
+    /**
+     * Builds the table by running one BFS per target node in parallel across available cores.
+     *
+     * @param graph immutable country graph
+     * @return precomputed next-hop table
+     * @throws IllegalArgumentException when the graph is too large for the compact encoding
+     */
+    public static NextHopTable build(CountryGraph graph) {
+        int nodeCount = graph.nodeCount();
+        if (nodeCount > MAX_NODE_COUNT || (long) nodeCount * nodeCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Graph is too large for a next-hop table: nodes=" + nodeCount);
+        }
+
+        short[] nextHop = new short[nodeCount * nodeCount];
+        byte[] distance = new byte[nodeCount * nodeCount];
+        IntStream.range(0, nodeCount)
+                .parallel()
+                .forEach(targetId -> fillRow(graph, targetId, nextHop, distance));
+        return new NextHopTable(nodeCount, nextHop, distance);
+    }
+
+    /**
+     * Returns number of border crossings on a shortest route.
+     *
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @return shortest distance, or {@code -1} when destination is unreachable
+     */
+    public int distance(int originId, int destinationId) {
+        int hops = distanceByTargetAndNode[index(destinationId, originId)] & 0xFF;
+        return hops == UNREACHABLE ? -1 : hops;
+    }
+
+    /**
+     * Reconstructs one shortest route by walking precomputed next hops.
+     *
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @return node ids from origin to destination, or {@code null} when destination is unreachable
+     */
+    public int[] path(int originId, int destinationId) {
+        int hops = distance(originId, destinationId);
+        if (hops < 0) {
+            return null;
+        }
+
+        int rowStart = index(destinationId, 0);
+        int[] path = new int[hops + 1];
+        int nodeId = originId;
+        for (int i = 0; i < hops; i++) {
+            path[i] = nodeId;
+            nodeId = nextHopByTargetAndNode[rowStart + nodeId] & 0xFFFF;
+        }
+        path[hops] = destinationId;
+        return path;
+    }
+
+    /**
+     * @return approximate heap footprint of table payload arrays in bytes
+     */
+    public long memoryBytes() {
+        return (long) nextHopByTargetAndNode.length * Short.BYTES + distanceByTargetAndNode.length;
+    }
+
+    private int index(int targetId, int nodeId) {
+        return targetId * nodeCount + nodeId;
+    }
+
+    /**
+     * Runs BFS from the target: the BFS parent of every node is its next hop towards the target.
+     */
+    private static void fillRow(CountryGraph graph, int targetId, short[] nextHop, byte[] distance) {
+        int nodeCount = graph.nodeCount();
+        int rowStart = targetId * nodeCount;
+        Arrays.fill(nextHop, rowStart, rowStart + nodeCount, (short) NO_HOP);
+        Arrays.fill(distance, rowStart, rowStart + nodeCount, (byte) UNREACHABLE);
+
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = targetId;
+        nextHop[rowStart + targetId] = (short) targetId;
+        distance[rowStart + targetId] = 0;
+
+        GraphAdjacency adjacency = graph.adjacency();
+        while (head < tail) {
+            int nodeId = queue[head++];
+            int nextDistance = (distance[rowStart + nodeId] & 0xFF) + 1;
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if ((distance[rowStart + neighborId] & 0xFF) != UNREACHABLE) {
+                    continue;
+                }
+                if (nextDistance > MAX_DISTANCE) {
+                    throw new IllegalArgumentException("Graph diameter is too large for a next-hop table");
+                }
+                nextHop[rowStart + neighborId] = (short) nodeId;
+                distance[rowStart + neighborId] = (byte) nextDistance;
+                queue[tail++] = neighborId;
+            }
+        }
+    }
+}
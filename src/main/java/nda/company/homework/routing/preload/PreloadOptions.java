@@ -0,0 +1,103 @@
+package nda.company.homework.routing.preload;
+
+import java.nio.file.Path;
+
+/**
+ * Optional precomputation stages run by {@link CountryPreloader} after the graph is parsed.
+ *
+ * @param nextHopTable whether to build an all-pairs {@link NextHopTable}
+ * @param landmarksPerComponent number of ALT landmarks per connected component, {@code 0} disables {@link LandmarkTable}
+ * @param snapshotPath binary {@link CountryGraphSnapshot} file read instead of parsing JSON while it matches the
+ *                     countries data and rewritten when it does not, or {@code null} to always parse JSON
+ * @param mappedGraph whether to serve the graph straight from the memory-mapped snapshot instead of copying it onto
+ *                    the heap; requires {@code snapshotPath}, and border edits are unavailable
+ * @param compiledGraph whether to read the graph compiled at build time by {@link CountryGraphCompiler} next to the
+ *                      countries resource ({@code countries.graph} for {@code countries.json}) while it matches the
+ *                      data, instead of parsing JSON
+ * @param shardBytes size above which a line-delimited countries file ({@code .ndjson}, {@code .jsonl}) is split at
+ *                   line boundaries into shards parsed in parallel
+ */
+public record PreloadOptions(
+        boolean nextHopTable,
+        int landmarksPerComponent,
+        Path snapshotPath,
+        boolean mappedGraph,
+        boolean compiledGraph,
+        long shardBytes
+) {
+    /**
+     * Default {@link #shardBytes()}: 16 MiB.
+     */
+    public static final long DEFAULT_SHARD_BYTES = 16L << 20;
+
+    /**
+     * Validates option values.
+     */
+    public PreloadOptions {
+        if (landmarksPerComponent < 0) {
+            throw new IllegalArgumentException("Landmarks per component must not be negative");
+        }
+        if (mappedGraph && snapshotPath == null) {
+            throw new IllegalArgumentException("Mapped graph requires a snapshot path");
+        }
+        if (shardBytes <= 0) {
+            throw new IllegalArgumentException("Shard bytes must be positive");
+        }
+    }
+
+    /**
+     * @return options with every optional stage disabled
+     */
+    public static PreloadOptions defaults() {
+        return new PreloadOptions(false, 0, null, false, false, DEFAULT_SHARD_BYTES);
+    }
+
+    /**
+     * @param enabled whether to build an all-pairs next-hop table
+     * @return copy with the next-hop stage toggled
+     */
+    public PreloadOptions withNextHopTable(boolean enabled) {
+        return new PreloadOptions(enabled, landmarksPerComponent, snapshotPath, mappedGraph, compiledGraph, shardBytes);
+    }
+
+    /**
+     * @param count number of landmarks per component, {@code 0} disables the stage
+     * @return copy with the landmark stage configured
+     */
+    public PreloadOptions withLandmarksPerComponent(int count) {
+        return new PreloadOptions(nextHopTable, count, snapshotPath, mappedGraph, compiledGraph, shardBytes);
+    }
+
+    /**
+     * @param path snapshot file, or {@code null} to always parse JSON
+     * @return copy with the snapshot configured
+     */
+    public PreloadOptions withSnapshotPath(Path path) {
+        return new PreloadOptions(nextHopTable, landmarksPerComponent, path, mappedGraph, compiledGraph, shardBytes);
+    }
+
+    /**
+     * @param enabled whether to serve the graph from the mapped snapshot
+     * @return copy with the mapped graph toggled
+     */
+    public PreloadOptions withMappedGraph(boolean enabled) {
+        return new PreloadOptions(
+                nextHopTable, landmarksPerComponent, snapshotPath, enabled, compiledGraph, shardBytes);
+    }
+
+    /**
+     * @param enabled whether to read the graph compiled at build time
+     * @return copy with the compiled graph toggled
+     */
+    public PreloadOptions withCompiledGraph(boolean enabled) {
+        return new PreloadOptions(nextHopTable, landmarksPerComponent, snapshotPath, mappedGraph, enabled, shardBytes);
+    }
+
+    /**
+     * @param bytes size above which line-delimited files are split into shards
+     * @return copy with the shard size configured
+     */
+    public PreloadOptions withShardBytes(long bytes) {
+        return new PreloadOptions(nextHopTable, landmarksPerComponent, snapshotPath, mappedGraph, compiledGraph, bytes);
+    }
+}
@@ -0,0 +1,204 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Yen's K shortest loopless paths on the unweighted border graph.
+ * <p>
+ * Every accepted path {@code A[k-1]} is split at each of its nodes into a root prefix and a spur node.
+ * A spur search then runs BFS from the spur node to the destination with root-prefix nodes and the
+ * next edges of already accepted paths sharing that prefix masked out; root + spur path becomes a candidate,
+ * and the shortest candidate is accepted as {@code A[k]}.
+ * Why masking: masks are epoch-stamped arrays in a pooled context, so a spur search costs one BFS over the
+ * shared CSR arrays instead of a graph copy. The number of spur searches per request is capped by a budget;
+ * once it is spent the paths accepted so far are returned.
+ */
+final class AlternativeRouteSearch {
+    private final int spurSearchBudget;
+    private final SearchContextPool<AlternativeSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(AlternativeSearchContext::new);
+
+    /**
+     * @param spurSearchBudget maximum number of spur searches per request
+     */
+    AlternativeRouteSearch(int spurSearchBudget) {
+        this.spurSearchBudget = spurSearchBudget;
+    }
+
+    /**
+     * Finds up to {@code maxPaths} shortest loopless paths, ordered by length (ties broken by node ids).
+     *
+     * @param graph immutable graph to search
+     * @param originId origin node id
+     * @param destinationId destination node id (different from origin)
+     * @param maxPaths maximum number of paths to return
+     * @param excludedNodes bitset of nodes no path may pass through, may be {@code null}
+     * @return distinct paths from origin to destination, empty when destination is unreachable
+     */
+    List<int[]> findShortestPaths(
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            int maxPaths,
+            long[] excludedNodes
+    ) {
+        AlternativeSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return findShortestPaths(context, graph, originId, destinationId, maxPaths, excludedNodes);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private List<int[]> findShortestPaths(
+            AlternativeSearchContext context,
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            int maxPaths,
+            long[] excludedNodes
+    ) {
+        List<int[]> accepted = new ArrayList<>(maxPaths);
+        int[] first = findSpurPath(context, graph, new int[]{originId}, 0, destinationId, accepted, excludedNodes);
+        if (first == null) {
+            return accepted;
+        }
+        accepted.add(first);
+
+        PriorityQueue<int[]> candidates = new PriorityQueue<>(AlternativeRouteSearch::comparePaths);
+        Set<PathKey> seen = new HashSet<>();
+        seen.add(new PathKey(first));
+        int spurSearches = 0;
+
+        while (accepted.size() < maxPaths) {
+            int[] previous = accepted.get(accepted.size() - 1);
+            for (int spurIndex = 0; spurIndex < previous.length - 1; spurIndex++) {
+                if (spurSearches == spurSearchBudget) {
+                    return accepted;
+                }
+                spurSearches++;
+                int[] candidate =
+                        findSpurPath(context, graph, previous, spurIndex, destinationId, accepted, excludedNodes);
+                if (candidate != null && seen.add(new PathKey(candidate))) {
+                    candidates.add(candidate);
+                }
+            }
+
+            int[] next = candidates.poll();
+            if (next == null) {
+                break;
+            }
+            accepted.add(next);
+        }
+        return accepted;
+    }
+
+    /**
+     * Runs one masked BFS from {@code rootPath[spurIndex]} and prepends the root prefix.
+     *
+     * @return full origin-to-destination path, or {@code null} when the masked graph has no spur path
+     */
+    private static int[] findSpurPath(
+            AlternativeSearchContext context,
+            CountryGraph graph,
+            int[] rootPath,
+            int spurIndex,
+            int destinationId,
+            List<int[]> accepted,
+            long[] excludedNodes
+    ) {
+        GraphAdjacency adjacency = graph.adjacency();
+        int epoch = context.begin(graph.nodeCount(), 2 * graph.edgeCount());
+        int[] visitedMark = context.visitedMark;
+        int[] parent = context.parent;
+        int[] blockedNodeMark = context.blockedNodeMark;
+        int[] blockedEdgeMark = context.blockedEdgeMark;
+
+        // root prefix nodes must not reappear (loopless), and accepted paths sharing the prefix must diverge here
+        for (int i = 0; i < spurIndex; i++) {
+            blockedNodeMark[rootPath[i]] = epoch;
+        }
+        for (int[] path : accepted) {
+            if (path.length > spurIndex + 1 && Arrays.equals(path, 0, spurIndex + 1, rootPath, 0, spurIndex + 1)) {
+                int from = path[spurIndex];
+                int to = path[spurIndex + 1];
+                for (int edge = adjacency.neighborStart(from), end = adjacency.neighborEnd(from); edge < end; edge++) {
+                    if (adjacency.neighborTarget(edge) == to) {
+                        blockedEdgeMark[edge] = epoch;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int spurId = rootPath[spurIndex];
+        IntRingQueue queue = context.queue;
+        visitedMark[spurId] = epoch;
+        parent[spurId] = spurId;
+        queue.addLast(spurId);
+
+        while (!queue.isEmpty()) {
+            int nodeId = queue.removeFirst();
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (visitedMark[neighborId] == epoch
+                        || blockedNodeMark[neighborId] == epoch
+                        || blockedEdgeMark[edge] == epoch
+                        || excludedNodes != null && Bitsets.get(excludedNodes, neighborId)) {
+                    continue;
+                }
+                visitedMark[neighborId] = epoch;
+                parent[neighborId] = nodeId;
+                if (neighborId == destinationId) {
+                    return joinRoot(rootPath, spurIndex, parent, spurId, destinationId);
+                }
+                queue.addLast(neighborId);
+            }
+        }
+        return null;
+    }
+
+    private static int[] joinRoot(int[] rootPath, int spurIndex, int[] parent, int spurId, int destinationId) {
+        int spurLength = 1;
+        for (int nodeId = destinationId; nodeId != spurId; nodeId = parent[nodeId]) {
+            spurLength++;
+        }
+
+        int[] path = Arrays.copyOf(rootPath, spurIndex + spurLength);
+        int index = path.length - 1;
+        for (int nodeId = destinationId; nodeId != spurId; nodeId = parent[nodeId]) {
+            path[index--] = nodeId;
+        }
+        path[index] = spurId;
+        return path;
+    }
+
+    private static int comparePaths(int[] left, int[] right) {
+        int byLength = Integer.compare(left.length, right.length);
+        return byLength != 0 ? byLength : Arrays.compare(left, right);
+    }
+
+    /**
+     * Value-equality wrapper so candidate paths can be deduplicated in a hash set.
+     */
+    private record PathKey(int[] nodeIds) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PathKey key && Arrays.equals(nodeIds, key.nodeIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodeIds);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable scratch buffers for the masked BFS runs of one alternative-routes request.
+ * <p>
+ * Visited markers and node/edge masks share one epoch ({@link EpochMarkers}): masks set for a spur search are
+ * dropped by the next {@link #begin(int, int)} without clearing, so hiding root-path nodes and used edges never
+ * copies the graph.
+ */
+final class AlternativeSearchContext {
+    private static final int VISITED_MARK = 0;
+    private static final int BLOCKED_NODE_MARK = 1;
+    private static final int BLOCKED_EDGE_MARK = 2;
+
+    private final EpochMarkers markers = new EpochMarkers(3);
+    private int nodeCapacity;
+    private int edgeCapacity;
+
+    int[] visitedMark;
+    int[] parent;
+    int[] blockedNodeMark;
+    int[] blockedEdgeMark;
+    final IntRingQueue queue;
+
+    AlternativeSearchContext(int nodeCount) {
+        allocateNodes(nodeCount);
+        this.blockedEdgeMark = markers.allocate(BLOCKED_EDGE_MARK, 0);
+        this.queue = new IntRingQueue(nodeCount);
+    }
+
+    /**
+     * Starts a new masked search.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @param edgeSlotCount number of directed edge slots ({@code 2E}) in the searched graph
+     * @return epoch value that marks visited, blocked nodes and blocked edges of this search
+     */
+    int begin(int nodeCount, int edgeSlotCount) {
+        if (nodeCount > nodeCapacity) {
+            allocateNodes(nodeCount);
+        }
+        if (edgeSlotCount > edgeCapacity) {
+            edgeCapacity = edgeSlotCount;
+            blockedEdgeMark = markers.allocate(BLOCKED_EDGE_MARK, edgeSlotCount);
+        }
+        queue.reset(nodeCount);
+        return markers.next();
+    }
+
+    private void allocateNodes(int nodeCount) {
+        nodeCapacity = nodeCount;
+        visitedMark = markers.allocate(VISITED_MARK, nodeCount);
+        parent = new int[nodeCount];
+        blockedNodeMark = markers.allocate(BLOCKED_NODE_MARK, nodeCount);
+    }
+}
@@ -0,0 +1,219 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+/**
+ * Bidirectional BFS on the unweighted border graph.
+ * <p>
+ * Expands one full level of the smaller frontier at a time and stops at the first node reached from both sides,
+ * which preserves shortest-path guarantees while exploring far fewer nodes than one-sided BFS.
+ * Scratch buffers are pooled {@link SearchContext}s, so the search itself does not allocate.
+ */
+final class BidirectionalSearch {
+    private static final int UNKNOWN_ID = -1;
+
+    private final SearchContextPool<SearchContext> searchContexts =
+            SearchContextPool.forAvailableProcessors(SearchContext::new);
+
+    /**
+     * Finds one shortest path between two nodes.
+     *
+     * @param graph immutable graph to search
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param counter optional sink for settled-node statistics, may be {@code null}
+     * @return node ids from origin to destination, or {@code null} when destination is unreachable
+     */
+    int[] findShortestPath(CountryGraph graph, int originId, int destinationId, SearchCounter counter) {
+        return findShortestPath(graph, originId, destinationId, null, counter);
+    }
+
+    /**
+     * Finds one shortest path that does not pass through excluded nodes.
+     *
+     * @param graph immutable graph to search
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param excludedNodes bitset of nodes the path must avoid, may be {@code null}
+     * @param counter optional sink for settled-node statistics, may be {@code null}
+     * @return node ids from origin to destination, or {@code null} when destination is unreachable
+     */
+    int[] findShortestPath(
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            long[] excludedNodes,
+            SearchCounter counter
+    ) {
+        SearchContext context = searchContexts.acquire(graph.nodeCount());
+        try {
+            return findShortestPath(context, graph, originId, destinationId, excludedNodes, counter);
+        } finally {
+            searchContexts.release(context);
+        }
+    }
+
+    /**
+     * Takes a context from the shared pool for callers that run several searches in a row.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return exclusive context; must be returned via {@link #releaseContext(SearchContext)}
+     */
+    SearchContext acquireContext(int nodeCount) {
+        return searchContexts.acquire(nodeCount);
+    }
+
+    void releaseContext(SearchContext context) {
+        searchContexts.release(context);
+    }
+
+    /**
+     * Runs one search with a caller-provided context, so several searches can share it.
+     *
+     * @param context exclusive scratch context
+     * @param graph immutable graph to search
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param excludedNodes bitset of nodes the path must avoid, may be {@code null}
+     * @param counter optional sink for settled-node statistics, may be {@code null}
+     * @return node ids from origin to destination, or {@code null} when destination is unreachable
+     */
+    int[] findShortestPath(
+            SearchContext context,
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            long[] excludedNodes,
+            SearchCounter counter
+    ) {
+        int epoch = context.begin(graph.nodeCount());
+        int settledNodes = 0;
+        IntRingQueue originQueue = context.originQueue;
+        IntRingQueue destinationQueue = context.destinationQueue;
+
+        context.originMark[originId] = epoch;
+        context.parentFromOrigin[originId] = originId;
+        originQueue.addLast(originId);
+
+        context.destinationMark[destinationId] = epoch;
+        context.parentFromDestination[destinationId] = destinationId;
+        destinationQueue.addLast(destinationId);
+
+        while (!originQueue.isEmpty() && !destinationQueue.isEmpty()) {
+            int meetingNode;
+            // expanding the smaller frontier usually reduces explored nodes
+            if (originQueue.size() <= destinationQueue.size()) {
+                settledNodes += originQueue.size();
+                meetingNode = expandFrontier(
+                        graph,
+                        originQueue,
+                        epoch,
+                        context.originMark,
+                        context.destinationMark,
+                        context.parentFromOrigin,
+                        excludedNodes
+                );
+            } else {
+                settledNodes += destinationQueue.size();
+                meetingNode = expandFrontier(
+                        graph,
+                        destinationQueue,
+                        epoch,
+                        context.destinationMark,
+                        context.originMark,
+                        context.parentFromDestination,
+                        excludedNodes
+                );
+            }
+
+            if (meetingNode != UNKNOWN_ID) {
+                record(counter, settledNodes);
+                return reconstructPath(
+                        meetingNode,
+                        originId,
+                        destinationId,
+                        context.parentFromOrigin,
+                        context.parentFromDestination
+                );
+            }
+        }
+
+        record(counter, settledNodes);
+        return null;
+    }
+
+    private static void record(SearchCounter counter, int settledNodes) {
+        if (counter != null) {
+            counter.settledNodes = settledNodes;
+        }
+    }
+
+    private static int expandFrontier(
+            CountryGraph graph,
+            IntRingQueue queue,
+            int epoch,
+            int[] markThisSide,
+            int[] markOtherSide,
+            int[] parentThisSide,
+            long[] excludedNodes
+    ) {
+        // process one full BFS level to preserve shortest-path guarantees
+        GraphAdjacency adjacency = graph.adjacency();
+        int nodesOnLevel = queue.size();
+        for (int i = 0; i < nodesOnLevel; i++) {
+            int nodeId = queue.removeFirst();
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (markThisSide[neighborId] == epoch
+                        || excludedNodes != null && Bitsets.get(excludedNodes, neighborId)) {
+                    continue;
+                }
+
+                markThisSide[neighborId] = epoch;
+                parentThisSide[neighborId] = nodeId;
+                if (markOtherSide[neighborId] == epoch) {
+                    return neighborId;
+                }
+
+                queue.addLast(neighborId);
+            }
+        }
+
+        return UNKNOWN_ID;
+    }
+
+    private static int[] reconstructPath(
+            int meetingNode,
+            int originId,
+            int destinationId,
+            int[] parentFromOrigin,
+            int[] parentFromDestination
+    ) {
+        // count both segments first so the path is written straight into one exactly-sized array
+        int originSegmentLength = 1;
+        for (int nodeId = meetingNode; nodeId != originId; nodeId = parentFromOrigin[nodeId]) {
+            originSegmentLength++;
+        }
+        int destinationSegmentLength = 0;
+        for (int nodeId = meetingNode; nodeId != destinationId; nodeId = parentFromDestination[nodeId]) {
+            destinationSegmentLength++;
+        }
+
+        int[] fullPath = new int[originSegmentLength + destinationSegmentLength];
+        // origin -> meeting segment is filled backwards by walking parent pointers
+        int index = originSegmentLength - 1;
+        for (int nodeId = meetingNode; nodeId != originId; nodeId = parentFromOrigin[nodeId]) {
+            fullPath[index--] = nodeId;
+        }
+        fullPath[0] = originId;
+
+        // continue from meeting towards destination (exclude meeting to avoid duplication)
+        index = originSegmentLength;
+        for (int nodeId = meetingNode; nodeId != destinationId; ) {
+            nodeId = parentFromDestination[nodeId];
+            fullPath[index++] = nodeId;
+        }
+        return fullPath;
+    }
+}
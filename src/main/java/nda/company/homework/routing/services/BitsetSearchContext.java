@@ -0,0 +1,61 @@
+package nda.company.homework.routing.services;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch buffers for {@link DirectionOptimizingSearch}.
+ * <p>
+ * Visited and frontier sets are {@code long[]} bitsets, so clearing them costs {@code V / 64} word writes.
+ * Parent entries are read only for visited nodes and are never cleared.
+ */
+final class BitsetSearchContext {
+    private int capacity;
+
+    long[] visited;
+    long[] frontier;
+    long[] next;
+    int[] parent;
+    long[] discoveredByChunk;
+    long[] edgesByChunk;
+
+    BitsetSearchContext(int nodeCount) {
+        allocate(nodeCount);
+    }
+
+    /**
+     * Starts a new search over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @param chunkCount number of work chunks a level may be split into
+     */
+    void begin(int nodeCount, int chunkCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        if (discoveredByChunk.length < chunkCount) {
+            discoveredByChunk = new long[chunkCount];
+            edgesByChunk = new long[chunkCount];
+        }
+        int words = Bitsets.wordCount(nodeCount);
+        Arrays.fill(visited, 0, words, 0L);
+        Arrays.fill(frontier, 0, words, 0L);
+        Arrays.fill(next, 0, words, 0L);
+    }
+
+    void swapFrontiers() {
+        long[] previous = frontier;
+        frontier = next;
+        next = previous;
+    }
+
+    private void allocate(int nodeCount) {
+        int words = Bitsets.wordCount(nodeCount);
+        capacity = nodeCount;
+        visited = new long[words];
+        frontier = new long[words];
+        next = new long[words];
+        parent = new int[nodeCount];
+        discoveredByChunk = new long[1];
+        edgesByChunk = new long[1];
+    }
+}
@@ -0,0 +1,41 @@
+package nda.company.homework.routing.services;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Helpers for node sets stored as {@code long[]} bitsets (64 node ids per word).
+ */
+final class Bitsets {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private Bitsets() {
+    }
+
+    /**
+     * @param bitCount number of addressable bits
+     * @return number of {@code long} words needed to store the bits
+     */
+    static int wordCount(int bitCount) {
+        return (bitCount + Long.SIZE - 1) >>> 6;
+    }
+
+    static boolean get(long[] words, int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] words, int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Atomically sets a bit, safe for concurrent writers to the same word.
+     *
+     * @return {@code true} when this call changed the bit from 0 to 1
+     */
+    static boolean setAtomic(long[] words, int index) {
+        long bit = 1L << index;
+        long previous = (long) WORDS.getAndBitwiseOr(words, index >>> 6, bit);
+        return (previous & bit) == 0;
+    }
+}
@@ -0,0 +1,55 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable scratch buffers for building one shortest-route DAG.
+ * <p>
+ * Side markers and DAG membership share one epoch ({@link EpochMarkers}), so a new build starts without clearing
+ * anything. Levels and DAG indices are read only for marked nodes. The BFS order arrays double as level-by-level queues:
+ * all nodes of one level are stored contiguously, in increasing level order.
+ */
+final class DagSearchContext {
+    private static final int ORIGIN_MARK = 0;
+    private static final int DESTINATION_MARK = 1;
+    private static final int DAG_MARK = 2;
+
+    private final EpochMarkers markers = new EpochMarkers(3);
+    private int capacity;
+
+    int[] originMark;
+    int[] destinationMark;
+    int[] dagMark;
+    int[] originLevel;
+    int[] destinationLevel;
+    int[] dagIndex;
+    int[] originOrder;
+    int[] destinationOrder;
+
+    DagSearchContext(int nodeCount) {
+        allocate(nodeCount);
+    }
+
+    /**
+     * Starts a new build over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return epoch value that marks nodes visited by this build
+     */
+    int begin(int nodeCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        return markers.next();
+    }
+
+    private void allocate(int nodeCount) {
+        capacity = nodeCount;
+        originMark = markers.allocate(ORIGIN_MARK, nodeCount);
+        destinationMark = markers.allocate(DESTINATION_MARK, nodeCount);
+        dagMark = markers.allocate(DAG_MARK, nodeCount);
+        originLevel = new int[nodeCount];
+        destinationLevel = new int[nodeCount];
+        dagIndex = new int[nodeCount];
+        originOrder = new int[nodeCount];
+        destinationOrder = new int[nodeCount];
+    }
+}
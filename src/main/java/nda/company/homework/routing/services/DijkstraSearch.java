@@ -0,0 +1,93 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+/**
+ * Dijkstra search over great-circle edge distances, stopping as soon as the destination is settled.
+ * <p>
+ * Uses a primitive {@link IndexedMinHeap} with decrease-key instead of a boxed {@code PriorityQueue},
+ * and pooled epoch-stamped scratch buffers, so the search itself does not allocate.
+ */
+final class DijkstraSearch {
+    private final SearchContextPool<WeightedSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(WeightedSearchContext::new);
+
+    /**
+     * Finds the route with minimal total distance.
+     *
+     * @param graph immutable graph carrying edge distances
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @return shortest weighted path, or {@code null} when destination is unreachable
+     */
+    WeightedPath findShortestPath(CountryGraph graph, int originId, int destinationId) {
+        return findShortestPath(graph, originId, destinationId, null);
+    }
+
+    /**
+     * Finds the route with minimal total distance that does not pass through excluded nodes.
+     *
+     * @param graph immutable graph carrying edge distances
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param excludedNodes bitset of nodes the path must avoid, may be {@code null}
+     * @return shortest weighted path, or {@code null} when destination is unreachable
+     */
+    WeightedPath findShortestPath(CountryGraph graph, int originId, int destinationId, long[] excludedNodes) {
+        WeightedSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return findShortestPath(context, graph, originId, destinationId, excludedNodes);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private WeightedPath findShortestPath(
+            WeightedSearchContext context,
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            long[] excludedNodes
+    ) {
+        GraphAdjacency adjacency = graph.adjacency();
+        int epoch = context.begin(graph.nodeCount());
+        int[] reachedMark = context.reachedMark;
+        int[] parent = context.parent;
+        double[] distance = context.distance;
+        IndexedMinHeap heap = context.heap;
+
+        reachedMark[originId] = epoch;
+        parent[originId] = originId;
+        distance[originId] = 0;
+        heap.insert(originId, 0);
+
+        while (!heap.isEmpty()) {
+            int nodeId = heap.pollMin();
+            if (nodeId == destinationId) {
+                return new WeightedPath(SearchPaths.fromParents(parent, originId, destinationId), distance[destinationId]);
+            }
+
+            double nodeDistance = distance[nodeId];
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (excludedNodes != null && Bitsets.get(excludedNodes, neighborId)) {
+                    continue;
+                }
+                double candidate = nodeDistance + adjacency.neighborDistanceKm(edge);
+                if (reachedMark[neighborId] != epoch) {
+                    reachedMark[neighborId] = epoch;
+                    parent[neighborId] = nodeId;
+                    distance[neighborId] = candidate;
+                    heap.insert(neighborId, candidate);
+                } else if (candidate < distance[neighborId] && heap.contains(neighborId)) {
+                    parent[neighborId] = nodeId;
+                    distance[neighborId] = candidate;
+                    heap.decreaseKey(neighborId, candidate);
+                }
+            }
+        }
+
+        return null;
+    }
+}
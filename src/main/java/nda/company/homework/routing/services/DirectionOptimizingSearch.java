@@ -0,0 +1,260 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Direction-optimizing BFS (Beamer et al.) from origin until the destination level is reached.
+ * <p>
+ * Each level is expanded either top-down (frontier nodes push to unvisited neighbors) or bottom-up
+ * (unvisited nodes look for any parent in the frontier). Bottom-up wins when the frontier covers a large
+ * share of the remaining edges, because most unvisited nodes find a parent after checking a few neighbors.
+ * Frontiers and visited sets are {@code long[]} bitsets. Levels whose frontier reaches
+ * {@code parallelFrontierThreshold} nodes are split into word-aligned chunks and expanded on the
+ * ForkJoin common pool; smaller levels (and therefore small graphs) stay single-threaded.
+ */
+final class DirectionOptimizingSearch {
+    // switch thresholds from the original paper: top-down -> bottom-up when frontier edges exceed
+    // unexplored edges / ALPHA, back to top-down when frontier nodes drop below V / BETA
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final int parallelFrontierThreshold;
+    private final int maxChunkCount;
+    private final SearchContextPool<BitsetSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(BitsetSearchContext::new);
+
+    /**
+     * @param parallelFrontierThreshold minimum frontier size (in nodes) for a level to be expanded in parallel
+     */
+    DirectionOptimizingSearch(int parallelFrontierThreshold) {
+        if (parallelFrontierThreshold < 1) {
+            throw new IllegalArgumentException("Parallel frontier threshold must be positive");
+        }
+        this.parallelFrontierThreshold = parallelFrontierThreshold;
+        this.maxChunkCount = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_WORKER;
+    }
+
+    /**
+     * Finds one shortest path between two nodes.
+     *
+     * @param graph immutable graph to search
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param counter optional sink for settled-node statistics, may be {@code null}
+     * @return node ids from origin to destination, or {@code null} when destination is unreachable
+     */
+    int[] findShortestPath(CountryGraph graph, int originId, int destinationId, SearchCounter counter) {
+        BitsetSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return findShortestPath(context, graph, originId, destinationId, counter);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private int[] findShortestPath(
+            BitsetSearchContext context,
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            SearchCounter counter
+    ) {
+        int nodeCount = graph.nodeCount();
+        int wordCount = Bitsets.wordCount(nodeCount);
+        int chunkCount = Math.max(1, Math.min(wordCount, maxChunkCount));
+        context.begin(nodeCount, chunkCount);
+
+        GraphAdjacency adjacency = graph.adjacency();
+        Bitsets.set(context.visited, originId);
+        Bitsets.set(context.frontier, originId);
+        context.parent[originId] = originId;
+
+        long frontierSize = 1;
+        long frontierEdges = adjacency.neighborEnd(originId) - adjacency.neighborStart(originId);
+        long unexploredEdges = 2L * graph.edgeCount() - frontierEdges;
+        boolean topDown = true;
+        long settledNodes = 0;
+
+        while (frontierSize > 0) {
+            settledNodes += frontierSize;
+            if (topDown && frontierEdges > unexploredEdges / ALPHA) {
+                topDown = false;
+            } else if (!topDown && frontierSize < nodeCount / BETA) {
+                topDown = true;
+            }
+
+            boolean parallel = frontierSize >= parallelFrontierThreshold && chunkCount > 1;
+            expandLevel(context, graph, topDown, parallel ? chunkCount : 1, wordCount);
+
+            frontierSize = sum(context.discoveredByChunk, parallel ? chunkCount : 1);
+            frontierEdges = sum(context.edgesByChunk, parallel ? chunkCount : 1);
+            unexploredEdges -= frontierEdges;
+            if (Bitsets.get(context.visited, destinationId)) {
+                record(counter, settledNodes);
+                return SearchPaths.fromParents(context.parent, originId, destinationId);
+            }
+            context.swapFrontiers();
+        }
+
+        record(counter, settledNodes);
+        return null;
+    }
+
+    private static void record(SearchCounter counter, long settledNodes) {
+        if (counter != null) {
+            counter.settledNodes = (int) Math.min(Integer.MAX_VALUE, settledNodes);
+        }
+    }
+
+    private void expandLevel(
+            BitsetSearchContext context,
+            CountryGraph graph,
+            boolean topDown,
+            int chunkCount,
+            int wordCount
+    ) {
+        Arrays.fill(context.next, 0, wordCount, 0L);
+        if (chunkCount == 1) {
+            expandChunk(context, graph, topDown, false, 0, 0, wordCount);
+            return;
+        }
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> expandChunk(
+                context,
+                graph,
+                topDown,
+                true,
+                chunk,
+                (int) ((long) chunk * wordCount / chunkCount),
+                (int) ((long) (chunk + 1) * wordCount / chunkCount)
+        ));
+    }
+
+    private static void expandChunk(
+            BitsetSearchContext context,
+            CountryGraph graph,
+            boolean topDown,
+            boolean concurrent,
+            int chunk,
+            int fromWord,
+            int toWord
+    ) {
+        if (topDown) {
+            stepTopDown(context, graph, concurrent, chunk, fromWord, toWord);
+        } else {
+            stepBottomUp(context, graph, chunk, fromWord, toWord);
+        }
+    }
+
+    /**
+     * Pushes from frontier nodes in the chunk. Neighbors may belong to any chunk,
+     * so concurrent chunks claim nodes with an atomic visited-bit update.
+     */
+    private static void stepTopDown(
+            BitsetSearchContext context,
+            CountryGraph graph,
+            boolean concurrent,
+            int chunk,
+            int fromWord,
+            int toWord
+    ) {
+        GraphAdjacency adjacency = graph.adjacency();
+        long[] frontier = context.frontier;
+        long[] visited = context.visited;
+        long[] next = context.next;
+        int[] parent = context.parent;
+        long discovered = 0;
+        long edges = 0;
+
+        for (int word = fromWord; word < toWord; word++) {
+            long bits = frontier[word];
+            while (bits != 0) {
+                int nodeId = (word << 6) | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int end = adjacency.neighborEnd(nodeId);
+                for (int edge = adjacency.neighborStart(nodeId); edge < end; edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    if (Bitsets.get(visited, neighborId)) {
+                        continue;
+                    }
+                    if (concurrent) {
+                        if (!Bitsets.setAtomic(visited, neighborId)) {
+                            continue;
+                        }
+                        Bitsets.setAtomic(next, neighborId);
+                    } else {
+                        Bitsets.set(visited, neighborId);
+                        Bitsets.set(next, neighborId);
+                    }
+                    parent[neighborId] = nodeId;
+                    discovered++;
+                    edges += adjacency.neighborEnd(neighborId) - adjacency.neighborStart(neighborId);
+                }
+            }
+        }
+
+        context.discoveredByChunk[chunk] = discovered;
+        context.edgesByChunk[chunk] = edges;
+    }
+
+    /**
+     * Pulls into unvisited nodes of the chunk. Every chunk writes only its own visited/next words,
+     * so no atomic updates are needed.
+     */
+    private static void stepBottomUp(
+            BitsetSearchContext context,
+            CountryGraph graph,
+            int chunk,
+            int fromWord,
+            int toWord
+    ) {
+        int nodeCount = graph.nodeCount();
+        GraphAdjacency adjacency = graph.adjacency();
+        long[] frontier = context.frontier;
+        long[] visited = context.visited;
+        long[] next = context.next;
+        int[] parent = context.parent;
+        long discovered = 0;
+        long edges = 0;
+
+        for (int word = fromWord; word < toWord; word++) {
+            long unvisited = ~visited[word];
+            while (unvisited != 0) {
+                int nodeId = (word << 6) | Long.numberOfTrailingZeros(unvisited);
+                if (nodeId >= nodeCount) {
+                    break;
+                }
+                unvisited &= unvisited - 1;
+                int end = adjacency.neighborEnd(nodeId);
+                for (int edge = adjacency.neighborStart(nodeId); edge < end; edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    if (!Bitsets.get(frontier, neighborId)) {
+                        continue;
+                    }
+                    parent[nodeId] = neighborId;
+                    visited[word] |= 1L << nodeId;
+                    next[word] |= 1L << nodeId;
+                    discovered++;
+                    edges += end - adjacency.neighborStart(nodeId);
+                    break;
+                }
+            }
+        }
+
+        context.discoveredByChunk[chunk] = discovered;
+        context.edgesByChunk[chunk] = edges;
+    }
+
+    private static long sum(long[] values, int count) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,49 @@
+package nda.company.homework.routing.services;
+
+import java.util.Arrays;
+
+/**
+ * Epoch-stamped marker arrays shared by the pooled search contexts.
+ * <p>
+ * A slot counts as marked only while it holds the current epoch, so {@link #next()} starts a new search in
+ * {@code O(1)} instead of clearing {@code O(V)} arrays. All arrays of one set share the epoch; they are cleared only
+ * when the epoch counter wraps around. A freshly allocated array holds zeros, which never equal a live epoch, so
+ * growing one array leaves the stamps of the others valid.
+ */
+final class EpochMarkers {
+    private final int[][] markers;
+    private int epoch;
+
+    /**
+     * @param markerCount number of marker arrays in the set, allocated empty
+     */
+    EpochMarkers(int markerCount) {
+        this.markers = new int[markerCount][0];
+    }
+
+    /**
+     * Replaces one marker array with an unmarked array of {@code length} slots.
+     *
+     * @param index marker array index
+     * @param length number of slots
+     * @return the new array, for the owning context to keep as a field
+     */
+    int[] allocate(int index, int length) {
+        markers[index] = new int[length];
+        return markers[index];
+    }
+
+    /**
+     * @return epoch value that marks slots of the search being started
+     */
+    int next() {
+        if (epoch == Integer.MAX_VALUE) {
+            // wrap-around is the only moment markers have to be cleared
+            for (int[] marker : markers) {
+                Arrays.fill(marker, 0);
+            }
+            epoch = 0;
+        }
+        return ++epoch;
+    }
+}
@@ -0,0 +1,104 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time to the first successful route, the startup metric that covers JVM start, class loading, context
+ * refresh and graph preload together.
+ * <p>
+ * Once the application is ready, one route between two countries of the largest component goes through the regular
+ * {@link RoutingService} path, and the JVM uptime at its completion is logged as {@code firstRouteMs}. Compare it
+ * between a plain jar and one started from the AppCDS archive with the compiled graph.
+ */
+@Component
+public class FirstRouteProbe {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FirstRouteProbe.class);
+
+    private final CountryGraphHolder graphHolder;
+    private final RoutingService routingService;
+    // -1 until the probe route succeeded
+    private volatile long firstRouteMillis = -1;
+
+    public FirstRouteProbe(CountryGraphHolder graphHolder, RoutingService routingService) {
+        this.graphHolder = graphHolder;
+        this.routingService = routingService;
+    }
+
+    /**
+     * Routes once and logs the startup metric.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long startedAtNanos = System.nanoTime();
+        RoutingResult result = probe();
+        long routeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+        if (result instanceof RoutingResult.Success success) {
+            firstRouteMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            LOGGER.info(
+                    "Served first route: route={}, readyMs={}, routeMs={}, firstRouteMs={}",
+                    String.join("->", success.route()),
+                    readyMillis,
+                    routeMillis,
+                    firstRouteMillis
+            );
+        } else {
+            LOGGER.warn("First route probe did not find a route: result={}", result);
+        }
+    }
+
+    /**
+     * Routes between the first and the last country of the largest component, so the probe always has a route
+     * and exercises a search rather than the same-country shortcut whenever the component allows.
+     *
+     * @return probe route result, or {@code null} when the graph has no countries
+     */
+    public RoutingResult probe() {
+        List<String> codes = probeCodes();
+        if (codes.isEmpty()) {
+            return null;
+        }
+        return routingService.findRoute(codes.get(0), codes.get(1));
+    }
+
+    /**
+     * @return origin and destination code of the probe route, empty when the graph has no countries
+     */
+    public List<String> probeCodes() {
+        CountryGraph graph = graphHolder.current();
+        int originId = -1;
+        int destinationId = -1;
+        int largestSize = 0;
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            int size = graph.componentSize(graph.componentOf(nodeId));
+            if (size > largestSize) {
+                largestSize = size;
+                originId = nodeId;
+            }
+            if (originId >= 0 && graph.componentOf(nodeId) == graph.componentOf(originId)) {
+                destinationId = nodeId;
+            }
+        }
+        if (originId < 0) {
+            return List.of();
+        }
+        return List.of(graph.codeById(originId), graph.codeById(destinationId));
+    }
+
+    /**
+     * @return JVM uptime when the probe route succeeded, or {@code -1} before that
+     */
+    public long firstRouteMillis() {
+        return firstRouteMillis;
+    }
+}
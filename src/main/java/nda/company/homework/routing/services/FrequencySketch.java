@@ -0,0 +1,90 @@
+package nda.company.homework.routing.services;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often a key was requested recently (TinyLFU).
+ * <p>
+ * Each {@code long} word holds 16 counters; a key updates one counter in each of four words chosen by
+ * differently seeded hashes, and its frequency is the minimum of the four. After {@code 10 * capacity}
+ * increments every counter is halved, so the estimate follows the recent request mix instead of all history.
+ * Not thread-safe; {@link RouteCache} guards every sketch with its segment lock.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param capacity number of entries the owning cache holds
+     */
+    FrequencySketch(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1);
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * Math.max(16, capacity);
+    }
+
+    /**
+     * Records one request for the key.
+     *
+     * @param hash well-mixed key hash
+     */
+    void increment(long hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long rowHash = rowHash(hash, row);
+            int index = (int) rowHash & tableMask;
+            int shift = counterShift(rowHash);
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @param hash well-mixed key hash
+     * @return estimated number of recent requests, at most {@code 15}
+     */
+    int frequency(long hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long rowHash = rowHash(hash, row);
+            int count = (int) (table[(int) rowHash & tableMask] >>> counterShift(rowHash)) & MAX_COUNT;
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        additions = 0;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static long rowHash(long hash, int row) {
+        long rowHash = (hash + SEEDS[row]) * SEEDS[row];
+        return rowHash ^ (rowHash >>> 29);
+    }
+
+    private static int counterShift(long rowHash) {
+        return ((int) (rowHash >>> 40) & 15) << 2;
+    }
+}
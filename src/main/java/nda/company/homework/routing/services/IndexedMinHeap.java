@@ -0,0 +1,133 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Primitive indexed binary min-heap of node ids keyed by {@code double} priorities.
+ * <p>
+ * Supports {@code decreaseKey} in {@code O(log n)} through a node -> heap position index,
+ * so Dijkstra-style searches never box nodes or insert stale duplicates.
+ * Positions of nodes that were never inserted in the current run are undefined: callers must track
+ * reached nodes themselves and only query {@link #contains(int)} for nodes they inserted.
+ */
+final class IndexedMinHeap {
+    private static final int REMOVED = -1;
+
+    private int[] nodeByPosition;
+    private double[] keyByPosition;
+    private int[] positionByNode;
+    private int size;
+
+    IndexedMinHeap(int nodeCount) {
+        allocate(nodeCount);
+    }
+
+    /**
+     * Empties the heap and grows it when it cannot index {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     */
+    void reset(int nodeCount) {
+        if (nodeCount > positionByNode.length) {
+            allocate(nodeCount);
+        }
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param nodeId node inserted during the current run
+     * @return {@code true} when the node is still queued (not yet polled)
+     */
+    boolean contains(int nodeId) {
+        return positionByNode[nodeId] != REMOVED;
+    }
+
+    void insert(int nodeId, double key) {
+        int position = size++;
+        nodeByPosition[position] = nodeId;
+        keyByPosition[position] = key;
+        positionByNode[nodeId] = position;
+        siftUp(position);
+    }
+
+    void decreaseKey(int nodeId, double key) {
+        int position = positionByNode[nodeId];
+        keyByPosition[position] = key;
+        siftUp(position);
+    }
+
+    double minKey() {
+        return keyByPosition[0];
+    }
+
+    /**
+     * Removes the node with the smallest key.
+     *
+     * @return removed node id
+     */
+    int pollMin() {
+        int minNodeId = nodeByPosition[0];
+        positionByNode[minNodeId] = REMOVED;
+        size--;
+        if (size > 0) {
+            nodeByPosition[0] = nodeByPosition[size];
+            keyByPosition[0] = keyByPosition[size];
+            positionByNode[nodeByPosition[0]] = 0;
+            siftDown(0);
+        }
+        return minNodeId;
+    }
+
+    private void siftUp(int position) {
+        int nodeId = nodeByPosition[position];
+        double key = keyByPosition[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keyByPosition[parent] <= key) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(nodeId, key, position);
+    }
+
+    private void siftDown(int position) {
+        int nodeId = nodeByPosition[position];
+        double key = keyByPosition[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keyByPosition[right] < keyByPosition[child]) {
+                child = right;
+            }
+            if (key <= keyByPosition[child]) {
+                break;
+            }
+            move(child, position);
+            position = child;
+        }
+        place(nodeId, key, position);
+    }
+
+    private void move(int from, int to) {
+        nodeByPosition[to] = nodeByPosition[from];
+        keyByPosition[to] = keyByPosition[from];
+        positionByNode[nodeByPosition[to]] = to;
+    }
+
+    private void place(int nodeId, double key, int position) {
+        nodeByPosition[position] = nodeId;
+        keyByPosition[position] = key;
+        positionByNode[nodeId] = position;
+    }
+
+    private void allocate(int nodeCount) {
+        nodeByPosition = new int[nodeCount];
+        keyByPosition = new double[nodeCount];
+        positionByNode = new int[nodeCount];
+    }
+}
@@ -0,0 +1,56 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Fixed-capacity FIFO queue of primitive ints backed by a power-of-two ring buffer.
+ * <p>
+ * Replaces {@code ArrayDeque<Integer>} on search hot paths: no boxing and no allocation after construction.
+ * Callers size it for the maximum number of simultaneously queued elements (node count for BFS).
+ */
+final class IntRingQueue {
+    private int[] elements;
+    private int mask;
+    private int head;
+    private int tail;
+
+    IntRingQueue(int minCapacity) {
+        allocate(minCapacity);
+    }
+
+    /**
+     * Empties the queue and grows the buffer when it cannot hold {@code minCapacity} elements.
+     *
+     * @param minCapacity maximum number of elements queued at the same time
+     */
+    void reset(int minCapacity) {
+        if (minCapacity > elements.length) {
+            allocate(minCapacity);
+        }
+        head = 0;
+        tail = 0;
+    }
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+
+    int size() {
+        return tail - head;
+    }
+
+    void addLast(int value) {
+        if (tail - head == elements.length) {
+            throw new IllegalStateException("Queue capacity exceeded: " + elements.length);
+        }
+        elements[tail++ & mask] = value;
+    }
+
+    int removeFirst() {
+        return elements[head++ & mask];
+    }
+
+    private void allocate(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1;
+        elements = new int[capacity];
+        mask = capacity - 1;
+    }
+}
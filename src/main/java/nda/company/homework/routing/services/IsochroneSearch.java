@@ -0,0 +1,85 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+import java.util.Arrays;
+
+/**
+ * Depth-limited multi-source BFS: every country within {@code K} border crossings of the nearest origin.
+ * <p>
+ * All origins form level {@code 0}, so one traversal answers the whole origin set instead of one BFS per origin,
+ * and expansion stops after level {@code K}, so only the reached region is touched. Scratch buffers are pooled
+ * {@link IsochroneSearchContext}s; only the exactly sized result arrays are allocated.
+ */
+final class IsochroneSearch {
+    private final SearchContextPool<IsochroneSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(IsochroneSearchContext::new);
+
+    /**
+     * @param graph immutable graph to search
+     * @param originIds origin node ids, duplicates allowed
+     * @param maxCrossings maximum number of border crossings, at least {@code 0}
+     * @return reached node ids grouped by crossings from the nearest origin
+     */
+    Levels search(CountryGraph graph, int[] originIds, int maxCrossings) {
+        IsochroneSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return search(context, graph, originIds, maxCrossings);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private static Levels search(
+            IsochroneSearchContext context,
+            CountryGraph graph,
+            int[] originIds,
+            int maxCrossings
+    ) {
+        GraphAdjacency adjacency = graph.adjacency();
+        int epoch = context.begin(graph.nodeCount());
+        int[] visitedMark = context.visitedMark;
+        int[] order = context.order;
+
+        int tail = 0;
+        for (int originId : originIds) {
+            if (visitedMark[originId] != epoch) {
+                visitedMark[originId] = epoch;
+                order[tail++] = originId;
+            }
+        }
+
+        // levels beyond the graph diameter are empty, so the level array never needs more than V + 1 entries
+        int[] levelEnds = new int[Math.min(maxCrossings, graph.nodeCount()) + 1];
+        levelEnds[0] = tail;
+        int levelCount = 1;
+        int head = 0;
+        while (levelCount < levelEnds.length && head < tail) {
+            int levelEnd = tail;
+            for (; head < levelEnd; head++) {
+                int nodeId = order[head];
+                int end = adjacency.neighborEnd(nodeId);
+                for (int edge = adjacency.neighborStart(nodeId); edge < end; edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    if (visitedMark[neighborId] != epoch) {
+                        visitedMark[neighborId] = epoch;
+                        order[tail++] = neighborId;
+                    }
+                }
+            }
+            if (tail == levelEnd) {
+                break;
+            }
+            levelEnds[levelCount++] = tail;
+        }
+        return new Levels(Arrays.copyOf(order, tail), Arrays.copyOf(levelEnds, levelCount));
+    }
+
+    /**
+     * @param nodeIds reached node ids in BFS order
+     * @param levelEnds exclusive end of each crossing level in {@code nodeIds}; the last level is non-empty
+     */
+    record Levels(int[] nodeIds, int[] levelEnds) {
+    }
+}
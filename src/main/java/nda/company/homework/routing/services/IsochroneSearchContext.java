@@ -0,0 +1,38 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable scratch buffers for one depth-limited multi-source BFS.
+ * <p>
+ * Visited markers are epoch-stamped ({@link EpochMarkers}), so a new search starts without clearing anything.
+ * The BFS order array doubles as the queue and stores every level contiguously.
+ */
+final class IsochroneSearchContext {
+    private final EpochMarkers markers = new EpochMarkers(1);
+    private int capacity;
+
+    int[] visitedMark;
+    int[] order;
+
+    IsochroneSearchContext(int nodeCount) {
+        allocate(nodeCount);
+    }
+
+    /**
+     * Starts a new search over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return epoch value that marks nodes visited by this search
+     */
+    int begin(int nodeCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        return markers.next();
+    }
+
+    private void allocate(int nodeCount) {
+        capacity = nodeCount;
+        visitedMark = markers.allocate(0, nodeCount);
+        order = new int[nodeCount];
+    }
+}
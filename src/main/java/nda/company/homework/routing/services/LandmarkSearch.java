@@ -0,0 +1,170 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+import nda.company.homework.routing.preload.LandmarkTable;
+
+/**
+ * Bidirectional A* with landmark lower bounds (ALT) on the unweighted border graph.
+ * <p>
+ * Both directions use the average potential {@code p(v) = (pi_t(v) - pi_s(v)) / 2}, where {@code pi_t} and
+ * {@code pi_s} are landmark lower bounds towards destination and origin. With this symmetric potential both
+ * searches run on the same reduced graph, so the classic bidirectional Dijkstra stopping rule applies:
+ * stop once {@code minKeyForward + minKeyReverse >= best meeting distance}. Keys are kept doubled to stay integral.
+ * Why this algorithm: bounds steer both balls towards each other, so on large graphs far fewer nodes are settled
+ * than with plain bidirectional BFS.
+ */
+final class LandmarkSearch {
+    private final SearchContextPool<LandmarkSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(LandmarkSearchContext::new);
+
+    /**
+     * Finds one shortest path between two nodes of the same connected component.
+     *
+     * @param graph immutable graph carrying a {@link LandmarkTable}
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param counter optional sink for settled-node statistics, may be {@code null}
+     * @return node ids from origin to destination, or {@code null} when destination is unreachable
+     */
+    int[] findShortestPath(CountryGraph graph, int originId, int destinationId, SearchCounter counter) {
+        LandmarkSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return findShortestPath(context, graph, originId, destinationId, counter);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private int[] findShortestPath(
+            LandmarkSearchContext context,
+            CountryGraph graph,
+            int originId,
+            int destinationId,
+            SearchCounter counter
+    ) {
+        LandmarkTable landmarks = graph.landmarkTable();
+        GraphAdjacency adjacency = graph.adjacency();
+        int epoch = context.begin(graph.nodeCount());
+        IndexedMinHeap forwardHeap = context.forwardHeap;
+        IndexedMinHeap reverseHeap = context.reverseHeap;
+
+        context.forwardMark[originId] = epoch;
+        context.forwardDistance[originId] = 0;
+        context.forwardParent[originId] = originId;
+        forwardHeap.insert(originId, potential(context, landmarks, epoch, originId, originId, destinationId));
+
+        context.reverseMark[destinationId] = epoch;
+        context.reverseDistance[destinationId] = 0;
+        context.reverseParent[destinationId] = destinationId;
+        reverseHeap.insert(destinationId, -potential(context, landmarks, epoch, destinationId, originId, destinationId));
+
+        // best known route goes origin ... meetingNode ... destination, labeled by both directions
+        int bestDoubledDistance = Integer.MAX_VALUE;
+        int meetingNode = -1;
+        int settledNodes = 0;
+
+        while (!forwardHeap.isEmpty() && !reverseHeap.isEmpty()) {
+            double forwardMin = forwardHeap.minKey();
+            double reverseMin = reverseHeap.minKey();
+            if (forwardMin + reverseMin >= bestDoubledDistance) {
+                break;
+            }
+
+            boolean forward = forwardMin <= reverseMin;
+            IndexedMinHeap heap = forward ? forwardHeap : reverseHeap;
+            int[] mark = forward ? context.forwardMark : context.reverseMark;
+            int[] distance = forward ? context.forwardDistance : context.reverseDistance;
+            int[] parent = forward ? context.forwardParent : context.reverseParent;
+            int[] otherMark = forward ? context.reverseMark : context.forwardMark;
+            int[] otherDistance = forward ? context.reverseDistance : context.forwardDistance;
+            int sign = forward ? 1 : -1;
+
+            int nodeId = heap.pollMin();
+            settledNodes++;
+            int nextDistance = distance[nodeId] + 1;
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (mark[neighborId] != epoch) {
+                    mark[neighborId] = epoch;
+                    distance[neighborId] = nextDistance;
+                    parent[neighborId] = nodeId;
+                    int doubledPotential = potential(context, landmarks, epoch, neighborId, originId, destinationId);
+                    heap.insert(neighborId, 2.0 * nextDistance + sign * doubledPotential);
+                } else if (nextDistance < distance[neighborId] && heap.contains(neighborId)) {
+                    distance[neighborId] = nextDistance;
+                    parent[neighborId] = nodeId;
+                    int doubledPotential = potential(context, landmarks, epoch, neighborId, originId, destinationId);
+                    heap.decreaseKey(neighborId, 2.0 * nextDistance + sign * doubledPotential);
+                } else if (nextDistance > distance[neighborId]) {
+                    continue;
+                }
+
+                if (otherMark[neighborId] == epoch) {
+                    int candidate = 2 * (distance[neighborId] + otherDistance[neighborId]);
+                    if (candidate < bestDoubledDistance) {
+                        bestDoubledDistance = candidate;
+                        meetingNode = neighborId;
+                    }
+                }
+            }
+        }
+
+        if (counter != null) {
+            counter.settledNodes = settledNodes;
+        }
+        if (meetingNode < 0) {
+            return null;
+        }
+        return joinPaths(context, originId, destinationId, meetingNode);
+    }
+
+    /**
+     * Returns {@code 2 * p(v) = pi_t(v) - pi_s(v)}, cached per node for the current search.
+     */
+    private static int potential(
+            LandmarkSearchContext context,
+            LandmarkTable landmarks,
+            int epoch,
+            int nodeId,
+            int originId,
+            int destinationId
+    ) {
+        if (context.potentialMark[nodeId] != epoch) {
+            context.potentialMark[nodeId] = epoch;
+            context.doubledForwardPotential[nodeId] =
+                    landmarks.lowerBound(nodeId, destinationId) - landmarks.lowerBound(originId, nodeId);
+        }
+        return context.doubledForwardPotential[nodeId];
+    }
+
+    /**
+     * Joins origin -> meeting node (forward parents) with meeting node -> destination (reverse parents).
+     */
+    private static int[] joinPaths(LandmarkSearchContext context, int originId, int destinationId, int meetingNode) {
+        int[] forwardParent = context.forwardParent;
+        int[] reverseParent = context.reverseParent;
+        int originSegmentLength = 1;
+        for (int nodeId = meetingNode; nodeId != originId; nodeId = forwardParent[nodeId]) {
+            originSegmentLength++;
+        }
+        int destinationSegmentLength = 0;
+        for (int nodeId = meetingNode; nodeId != destinationId; nodeId = reverseParent[nodeId]) {
+            destinationSegmentLength++;
+        }
+
+        int[] path = new int[originSegmentLength + destinationSegmentLength];
+        int index = originSegmentLength - 1;
+        for (int nodeId = meetingNode; nodeId != originId; nodeId = forwardParent[nodeId]) {
+            path[index--] = nodeId;
+        }
+        path[0] = originId;
+
+        index = originSegmentLength;
+        for (int nodeId = meetingNode; nodeId != destinationId; ) {
+            nodeId = reverseParent[nodeId];
+            path[index++] = nodeId;
+        }
+        return path;
+    }
+}
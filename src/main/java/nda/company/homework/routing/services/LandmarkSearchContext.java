@@ -0,0 +1,58 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable scratch buffers for {@link LandmarkSearch}: one labeled heap per search direction
+ * plus a cache of node potentials, all epoch-stamped ({@link EpochMarkers}) so nothing is cleared between searches.
+ */
+final class LandmarkSearchContext {
+    private static final int FORWARD_MARK = 0;
+    private static final int REVERSE_MARK = 1;
+    private static final int POTENTIAL_MARK = 2;
+
+    private final EpochMarkers markers = new EpochMarkers(3);
+    private int capacity;
+
+    int[] forwardMark;
+    int[] reverseMark;
+    int[] forwardDistance;
+    int[] reverseDistance;
+    int[] forwardParent;
+    int[] reverseParent;
+    int[] potentialMark;
+    int[] doubledForwardPotential;
+    final IndexedMinHeap forwardHeap;
+    final IndexedMinHeap reverseHeap;
+
+    LandmarkSearchContext(int nodeCount) {
+        allocate(nodeCount);
+        this.forwardHeap = new IndexedMinHeap(nodeCount);
+        this.reverseHeap = new IndexedMinHeap(nodeCount);
+    }
+
+    /**
+     * Starts a new search over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return epoch value that marks nodes touched by this search
+     */
+    int begin(int nodeCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        forwardHeap.reset(nodeCount);
+        reverseHeap.reset(nodeCount);
+        return markers.next();
+    }
+
+    private void allocate(int nodeCount) {
+        capacity = nodeCount;
+        forwardMark = markers.allocate(FORWARD_MARK, nodeCount);
+        reverseMark = markers.allocate(REVERSE_MARK, nodeCount);
+        forwardDistance = new int[nodeCount];
+        reverseDistance = new int[nodeCount];
+        forwardParent = new int[nodeCount];
+        reverseParent = new int[nodeCount];
+        potentialMark = markers.allocate(POTENTIAL_MARK, nodeCount);
+        doubledForwardPotential = new int[nodeCount];
+    }
+}
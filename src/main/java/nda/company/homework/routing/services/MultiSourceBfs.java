@@ -0,0 +1,144 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Many-to-many crossing counts with multi-source bit-parallel BFS (MS-BFS, Then et al.).
+ * <p>
+ * Up to 64 origins share one BFS: bit {@code b} of {@code seen[v]} tells whether origin {@code b} has reached
+ * node {@code v}, and one level expands all origins with a single {@code visit[v] & ~seen[n]} word operation per
+ * edge. Batches of 64 origins are independent and run in parallel on the ForkJoin common pool.
+ * A batch stops as soon as every same-component (origin, destination) pair is settled.
+ */
+final class MultiSourceBfs {
+    static final int UNREACHABLE = -1;
+    private static final int BATCH_SIZE = Long.SIZE;
+
+    private final SearchContextPool<MultiSourceSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(MultiSourceSearchContext::new);
+
+    /**
+     * Computes the crossing-count matrix.
+     *
+     * @param graph immutable graph to search
+     * @param originIds origin node ids (duplicates allowed)
+     * @param destinationIds destination node ids (duplicates allowed)
+     * @return {@code matrix[o][d]} fewest crossings, or {@link #UNREACHABLE} for pairs without a land route
+     */
+    int[][] crossings(CountryGraph graph, int[] originIds, int[] destinationIds) {
+        int nodeCount = graph.nodeCount();
+        // distinct destination nodes get a dense column so duplicates are searched once
+        int[] columnByNodeId = new int[nodeCount];
+        Arrays.fill(columnByNodeId, -1);
+        int[] distinctDestinations = new int[destinationIds.length];
+        int distinctCount = 0;
+        for (int destinationId : destinationIds) {
+            if (columnByNodeId[destinationId] < 0) {
+                columnByNodeId[destinationId] = distinctCount;
+                distinctDestinations[distinctCount++] = destinationId;
+            }
+        }
+        int[] targets = Arrays.copyOf(distinctDestinations, distinctCount);
+
+        int[][] distinctMatrix = new int[originIds.length][];
+        int batchCount = (originIds.length + BATCH_SIZE - 1) / BATCH_SIZE;
+        IntStream.range(0, batchCount).parallel().forEach(batch -> {
+            int from = batch * BATCH_SIZE;
+            int to = Math.min(originIds.length, from + BATCH_SIZE);
+            MultiSourceSearchContext context = contexts.acquire(nodeCount);
+            try {
+                runBatch(context, graph, originIds, from, to, targets, columnByNodeId, distinctMatrix);
+            } finally {
+                contexts.release(context);
+            }
+        });
+
+        int[][] matrix = new int[originIds.length][destinationIds.length];
+        for (int row = 0; row < originIds.length; row++) {
+            for (int column = 0; column < destinationIds.length; column++) {
+                matrix[row][column] = distinctMatrix[row][columnByNodeId[destinationIds[column]]];
+            }
+        }
+        return matrix;
+    }
+
+    private static void runBatch(
+            MultiSourceSearchContext context,
+            CountryGraph graph,
+            int[] originIds,
+            int from,
+            int to,
+            int[] targets,
+            int[] columnByNodeId,
+            int[][] distinctMatrix
+    ) {
+        int nodeCount = graph.nodeCount();
+        context.begin(nodeCount);
+        long[] seen = context.seen;
+        long[] visit = context.visit;
+        long[] visitNext = context.visitNext;
+
+        int remainingPairs = 0;
+        for (int row = from; row < to; row++) {
+            int[] distances = new int[targets.length];
+            Arrays.fill(distances, UNREACHABLE);
+            distinctMatrix[row] = distances;
+
+            int originId = originIds[row];
+            long bit = 1L << (row - from);
+            seen[originId] |= bit;
+            visit[originId] |= bit;
+            int originComponent = graph.componentOf(originId);
+            for (int column = 0; column < targets.length; column++) {
+                if (targets[column] == originId) {
+                    distances[column] = 0;
+                } else if (graph.componentOf(targets[column]) == originComponent) {
+                    remainingPairs++;
+                }
+            }
+        }
+
+        GraphAdjacency adjacency = graph.adjacency();
+        int level = 0;
+        boolean active = true;
+        while (remainingPairs > 0 && active) {
+            level++;
+            active = false;
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                long sources = visit[nodeId];
+                if (sources == 0) {
+                    continue;
+                }
+                int end = adjacency.neighborEnd(nodeId);
+                for (int edge = adjacency.neighborStart(nodeId); edge < end; edge++) {
+                    int neighborId = adjacency.neighborTarget(edge);
+                    long discovered = sources & ~seen[neighborId];
+                    if (discovered == 0) {
+                        continue;
+                    }
+                    seen[neighborId] |= discovered;
+                    visitNext[neighborId] |= discovered;
+                    active = true;
+
+                    int column = columnByNodeId[neighborId];
+                    if (column >= 0) {
+                        while (discovered != 0) {
+                            int source = Long.numberOfTrailingZeros(discovered);
+                            discovered &= discovered - 1;
+                            distinctMatrix[from + source][column] = level;
+                            remainingPairs--;
+                        }
+                    }
+                }
+            }
+            context.swapVisit();
+            visit = context.visit;
+            visitNext = context.visitNext;
+            Arrays.fill(visitNext, 0, nodeCount, 0L);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package nda.company.homework.routing.services;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch buffers for one batch of {@link MultiSourceBfs}: one {@code long} per node for seen,
+ * current and next frontier, where bit {@code b} belongs to origin {@code b} of the batch.
+ * <p>
+ * Frontier bits cannot be epoch-stamped, so every batch clears its words once up front.
+ */
+final class MultiSourceSearchContext {
+    long[] seen;
+    long[] visit;
+    long[] visitNext;
+
+    MultiSourceSearchContext(int nodeCount) {
+        allocate(nodeCount);
+    }
+
+    /**
+     * Starts a new batch over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     */
+    void begin(int nodeCount) {
+        if (nodeCount > seen.length) {
+            allocate(nodeCount);
+            return;
+        }
+        Arrays.fill(seen, 0, nodeCount, 0L);
+        Arrays.fill(visit, 0, nodeCount, 0L);
+        Arrays.fill(visitNext, 0, nodeCount, 0L);
+    }
+
+    /**
+     * Makes the next frontier current; the caller clears the new next frontier.
+     */
+    void swapVisit() {
+        long[] current = visit;
+        visit = visitNext;
+        visitNext = current;
+    }
+
+    private void allocate(int nodeCount) {
+        seen = new long[nodeCount];
+        visit = new long[nodeCount];
+        visitNext = new long[nodeCount];
+    }
+}
@@ -0,0 +1,106 @@
+package nda.company.homework.routing.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded worker pool that maps a stream of inputs in parallel and emits results in input order.
+ * <p>
+ * Inputs are pulled lazily: at most {@code maxInFlight} tasks are submitted ahead of the oldest unfinished one,
+ * so memory stays bounded however long the input is. Results are handed to the sink on the calling thread.
+ * Workers call into {@link RoutingService}, whose pooled search contexts are sized above the worker count,
+ * so every worker keeps reusing scratch buffers instead of allocating them.
+ */
+@Component
+public class OrderedBatchExecutor implements AutoCloseable {
+    private final ExecutorService workers;
+    private final int maxInFlight;
+
+    /**
+     * @param parallelism number of worker threads, {@code 0} for the number of available cores
+     * @param maxInFlight maximum number of submitted but not yet emitted tasks per batch
+     */
+    public OrderedBatchExecutor(
+            @Value("${routing.batch.parallelism:0}") int parallelism,
+            @Value("${routing.batch.max-in-flight:1024}") int maxInFlight
+    ) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Batch parallelism must not be negative");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Batch max in-flight must be positive");
+        }
+        int threads = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.workers = Executors.newFixedThreadPool(threads, workerThreadFactory());
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Applies {@code task} to every input in parallel and passes results to {@code sink} in input order.
+     *
+     * @param inputs lazily consumed inputs
+     * @param task function applied on a worker thread
+     * @param sink receives results in input order on the calling thread
+     * @param <T> input type
+     * @param <R> result type
+     * @throws IllegalStateException when a task fails or the calling thread is interrupted
+     */
+    public <T, R> void mapInOrder(Iterator<T> inputs, Function<T, R> task, Consumer<R> sink) {
+        ArrayDeque<Future<R>> inFlight = new ArrayDeque<>(Math.min(maxInFlight, 1024));
+        try {
+            while (inputs.hasNext()) {
+                T input = inputs.next();
+                inFlight.addLast(workers.submit(() -> task.apply(input)));
+                // emit whatever is already done at the head, and block only when the window is full
+                while (!inFlight.isEmpty() && (inFlight.size() >= maxInFlight || inFlight.peekFirst().isDone())) {
+                    sink.accept(await(inFlight.pollFirst()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(await(inFlight.pollFirst()));
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Stops the worker threads; called by the container on shutdown.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch results", e);
+        } catch (ExecutionException | CancellationException e) {
+            throw new IllegalStateException("Batch task failed", e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "routing-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
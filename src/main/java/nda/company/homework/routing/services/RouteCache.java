@@ -0,0 +1,326 @@
+package nda.company.homework.routing.services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of crossing-count routes with W-TinyLFU admission (Einziger et al.).
+ * <p>
+ * Keys are unordered country pairs packed into one {@code long} (lower id in the high half, same packing as the
+ * preloader's undirected edge keys), so {@code A -> B} and {@code B -> A} share one entry that stores the
+ * node-id route from the lower id; the other direction is answered by reversing it. Entries live in primitive
+ * open-addressing tables with linear probing, no boxed keys. New entries enter a small LRU window (1% of
+ * capacity); an entry leaving the window is admitted to the main segmented LRU only when a {@link FrequencySketch}
+ * says it was requested more often than the main victim, so one-off pairs cannot flush popular ones.
+ * <p>
+ * The cache is split into independently locked segments by key hash. Every segment remembers the graph holder
+ * version its entries were computed on and empties itself only when a request for a newer version arrives; a request
+ * still running on an older graph misses and does not store its route, so it can neither flush nor pollute the
+ * entries of the current graph.
+ */
+final class RouteCache {
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of cached country pairs, at least {@code 1}
+     */
+    RouteCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Route cache size must be positive");
+        }
+        int wanted = Math.min(Runtime.getRuntime().availableProcessors(), maxEntries / MIN_SEGMENT_CAPACITY);
+        int segmentCount = Integer.highestOneBit(Math.max(1, wanted));
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param graphVersion version of the graph the route is requested on
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @return cached node ids oriented from origin to destination (callers must not modify them),
+     *         or {@code null} on a miss
+     */
+    int[] get(long graphVersion, int originId, int destinationId) {
+        long key = pairKey(originId, destinationId);
+        long hash = mix(key);
+        int[] route = segmentFor(hash).get(graphVersion, key, hash);
+        if (route == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return originId <= destinationId ? route : reversed(route);
+    }
+
+    /**
+     * Offers a freshly computed route; it may be rejected by the admission policy.
+     *
+     * @param graphVersion version of the graph the route was computed on
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @param route node ids oriented from origin to destination; kept by the cache and must not be modified
+     */
+    void put(long graphVersion, int originId, int destinationId, int[] route) {
+        long key = pairKey(originId, destinationId);
+        long hash = mix(key);
+        int[] stored = originId <= destinationId ? route : reversed(route);
+        if (segmentFor(hash).put(graphVersion, key, hash, stored)) {
+            evictions.increment();
+        }
+    }
+
+    RouteCacheStats stats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return new RouteCacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 40) & segmentMask];
+    }
+
+    private static long pairKey(int originId, int destinationId) {
+        int lowerId = Math.min(originId, destinationId);
+        int higherId = Math.max(originId, destinationId);
+        return (((long) lowerId) << 32) | (higherId & 0xffffffffL);
+    }
+
+    private static long mix(long key) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static int[] reversed(int[] route) {
+        int[] reversed = new int[route.length];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = route[route.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    /**
+     * One W-TinyLFU cache: an open-addressing key table over an entry pool threaded into three LRU lists.
+     */
+    private static final class Segment {
+        private static final int WINDOW = 0;
+        private static final int PROBATION = 1;
+        private static final int PROTECTED = 2;
+
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final int protectedCapacity;
+
+        // entry pool: one spare slot lets a new entry be linked before the admission decision,
+        // followed by one sentinel per LRU list
+        private final long[] entryKeys;
+        private final long[] entryHashes;
+        private final int[][] entryRoutes;
+        private final int[] previous;
+        private final int[] next;
+        private final byte[] regionOf;
+        private final int[] regionSize = new int[3];
+        private final int sentinelBase;
+        private final int[] freeEntries;
+        private int freeCount;
+
+        // open-addressing table of entry index + 1, 0 marks an empty slot
+        private final int[] slots;
+        private final int slotMask;
+        private final FrequencySketch sketch;
+        // 0 until the first request, graph versions start at 1
+        private long graphVersion;
+
+        Segment(int capacity) {
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.mainCapacity = capacity - windowCapacity;
+            this.protectedCapacity = mainCapacity * 4 / 5;
+
+            int poolSize = capacity + 1;
+            this.entryKeys = new long[poolSize];
+            this.entryHashes = new long[poolSize];
+            this.entryRoutes = new int[poolSize][];
+            this.previous = new int[poolSize + 3];
+            this.next = new int[poolSize + 3];
+            this.regionOf = new byte[poolSize];
+            this.sentinelBase = poolSize;
+            this.freeEntries = new int[poolSize];
+
+            int slotCount = Integer.highestOneBit(poolSize * 2 - 1) * 2;
+            this.slots = new int[slotCount];
+            this.slotMask = slotCount - 1;
+            this.sketch = new FrequencySketch(capacity);
+            clear();
+        }
+
+        synchronized int[] get(long requestedVersion, long key, long hash) {
+            if (!adoptVersion(requestedVersion)) {
+                return null;
+            }
+            sketch.increment(hash);
+            int slot = findSlot(key, hash);
+            if (slots[slot] == 0) {
+                return null;
+            }
+            int entry = slots[slot] - 1;
+            onHit(entry);
+            return entryRoutes[entry];
+        }
+
+        /**
+         * @return {@code true} when an entry was evicted or the new entry was rejected
+         */
+        synchronized boolean put(long requestedVersion, long key, long hash, int[] route) {
+            if (!adoptVersion(requestedVersion)) {
+                return false;
+            }
+            int slot = findSlot(key, hash);
+            if (slots[slot] != 0) {
+                // a concurrent miss on the same pair already stored an equal-length route
+                entryRoutes[slots[slot] - 1] = route;
+                return false;
+            }
+
+            int entry = freeEntries[--freeCount];
+            entryKeys[entry] = key;
+            entryHashes[entry] = hash;
+            entryRoutes[entry] = route;
+            slots[slot] = entry + 1;
+            linkLast(WINDOW, entry);
+            if (regionSize[WINDOW] <= windowCapacity) {
+                return false;
+            }
+
+            int candidate = first(WINDOW);
+            unlink(candidate);
+            linkLast(PROBATION, candidate);
+            if (regionSize[PROBATION] + regionSize[PROTECTED] <= mainCapacity) {
+                return false;
+            }
+
+            int victim = first(PROBATION);
+            if (victim == candidate) {
+                victim = regionSize[PROTECTED] > 0 ? first(PROTECTED) : candidate;
+            }
+            boolean admit = victim != candidate
+                    && sketch.frequency(entryHashes[candidate]) > sketch.frequency(entryHashes[victim]);
+            evict(admit ? victim : candidate);
+            return true;
+        }
+
+        synchronized int size() {
+            return regionSize[WINDOW] + regionSize[PROBATION] + regionSize[PROTECTED];
+        }
+
+        /**
+         * Moves the segment forward to a newer graph version, dropping the entries of the old one.
+         *
+         * @return {@code false} when the request runs on an older graph than the cached entries
+         */
+        private boolean adoptVersion(long requestedVersion) {
+            if (requestedVersion > graphVersion) {
+                clear();
+                graphVersion = requestedVersion;
+            }
+            return requestedVersion == graphVersion;
+        }
+
+        private void onHit(int entry) {
+            switch (regionOf[entry]) {
+                case WINDOW, PROTECTED -> {
+                    int region = regionOf[entry];
+                    unlink(entry);
+                    linkLast(region, entry);
+                }
+                case PROBATION -> {
+                    unlink(entry);
+                    linkLast(PROTECTED, entry);
+                    if (regionSize[PROTECTED] > protectedCapacity) {
+                        int demoted = first(PROTECTED);
+                        unlink(demoted);
+                        linkLast(PROBATION, demoted);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown cache region: " + regionOf[entry]);
+            }
+        }
+
+        private void evict(int entry) {
+            unlink(entry);
+            removeSlot(findSlot(entryKeys[entry], entryHashes[entry]));
+            entryRoutes[entry] = null;
+            freeEntries[freeCount++] = entry;
+        }
+
+        private int findSlot(long key, long hash) {
+            int slot = (int) hash & slotMask;
+            while (slots[slot] != 0 && entryKeys[slots[slot] - 1] != key) {
+                slot = (slot + 1) & slotMask;
+            }
+            return slot;
+        }
+
+        /**
+         * Backward-shift deletion: later entries of the probe run move into the hole when their home slot
+         * allows it, so lookups never need tombstones.
+         */
+        private void removeSlot(int slot) {
+            int hole = slot;
+            for (int probe = (hole + 1) & slotMask; slots[probe] != 0; probe = (probe + 1) & slotMask) {
+                int home = (int) entryHashes[slots[probe] - 1] & slotMask;
+                if (((probe - home) & slotMask) >= ((probe - hole) & slotMask)) {
+                    slots[hole] = slots[probe];
+                    hole = probe;
+                }
+            }
+            slots[hole] = 0;
+        }
+
+        private int first(int region) {
+            return next[sentinelBase + region];
+        }
+
+        private void linkLast(int region, int entry) {
+            int sentinel = sentinelBase + region;
+            int last = previous[sentinel];
+            next[last] = entry;
+            previous[entry] = last;
+            next[entry] = sentinel;
+            previous[sentinel] = entry;
+            regionOf[entry] = (byte) region;
+            regionSize[region]++;
+        }
+
+        private void unlink(int entry) {
+            next[previous[entry]] = next[entry];
+            previous[next[entry]] = previous[entry];
+            regionSize[regionOf[entry]]--;
+        }
+
+        private void clear() {
+            Arrays.fill(slots, 0);
+            Arrays.fill(entryRoutes, null);
+            Arrays.fill(regionSize, 0);
+            for (int region = WINDOW; region <= PROTECTED; region++) {
+                previous[sentinelBase + region] = sentinelBase + region;
+                next[sentinelBase + region] = sentinelBase + region;
+            }
+            freeCount = freeEntries.length;
+            for (int i = 0; i < freeEntries.length; i++) {
+                freeEntries[i] = freeEntries.length - 1 - i;
+            }
+            sketch.clear();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Counters of the route cache in front of {@link RoutingService#findRoute(String, String)}.
+ *
+ * @param hits lookups answered from the cache
+ * @param misses lookups that ran a search
+ * @param evictions entries dropped, or candidates rejected, to stay within the configured size
+ * @param size number of cached country pairs (one entry serves both directions)
+ */
+public record RouteCacheStats(long hits, long misses, long evictions, int size) {
+
+    /**
+     * @return counters of a disabled cache
+     */
+    static RouteCacheStats disabled() {
+        return new RouteCacheStats(0, 0, 0, 0);
+    }
+}
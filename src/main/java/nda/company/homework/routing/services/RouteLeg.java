@@ -0,0 +1,22 @@
+package nda.company.homework.routing.services;
+
+import java.util.Objects;
+
+/**
+ * One leg of a multi-stop route.
+ *
+ * @param origin normalized CCA3 code where the leg starts
+ * @param destination normalized CCA3 code where the leg ends
+ * @param startIndex index of {@code origin} in the concatenated route
+ * @param endIndex index of {@code destination} in the concatenated route
+ */
+public record RouteLeg(String origin, String destination, int startIndex, int endIndex) {
+
+    /**
+     * Creates a leg descriptor.
+     */
+    public RouteLeg {
+        origin = Objects.requireNonNull(origin, "origin");
+        destination = Objects.requireNonNull(destination, "destination");
+    }
+}
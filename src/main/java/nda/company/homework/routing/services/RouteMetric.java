@@ -0,0 +1,16 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Cost that a route request minimizes.
+ */
+public enum RouteMetric {
+    /**
+     * Fewest border crossings (unweighted shortest path).
+     */
+    CROSSINGS,
+
+    /**
+     * Shortest total great-circle distance between neighboring country centers.
+     */
+    DISTANCE
+}
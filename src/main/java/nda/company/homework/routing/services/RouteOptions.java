@@ -0,0 +1,54 @@
+package nda.company.homework.routing.services;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-request route constraints accepted by {@link RoutingService#findRoute(String, String, RouteOptions)}.
+ *
+ * @param metric cost to minimize on every leg
+ * @param via ordered waypoint country codes (any case) visited between origin and destination
+ * @param avoid country codes (any case) the route must not pass through
+ */
+public record RouteOptions(RouteMetric metric, List<String> via, List<String> avoid) {
+
+    /**
+     * Creates immutable options.
+     */
+    public RouteOptions {
+        metric = Objects.requireNonNull(metric, "metric");
+        via = List.copyOf(via);
+        avoid = List.copyOf(avoid);
+    }
+
+    /**
+     * @return fewest crossings, no waypoints, nothing avoided
+     */
+    public static RouteOptions defaults() {
+        return new RouteOptions(RouteMetric.CROSSINGS, List.of(), List.of());
+    }
+
+    /**
+     * @param routeMetric cost to minimize
+     * @return copy with the metric replaced
+     */
+    public RouteOptions withMetric(RouteMetric routeMetric) {
+        return new RouteOptions(routeMetric, via, avoid);
+    }
+
+    /**
+     * @param viaCodes ordered waypoint country codes
+     * @return copy with the waypoints replaced
+     */
+    public RouteOptions withVia(List<String> viaCodes) {
+        return new RouteOptions(metric, viaCodes, avoid);
+    }
+
+    /**
+     * @param avoidCodes country codes the route must not pass through
+     * @return copy with the exclusions replaced
+     */
+    public RouteOptions withAvoid(List<String> avoidCodes) {
+        return new RouteOptions(metric, via, avoidCodes);
+    }
+}
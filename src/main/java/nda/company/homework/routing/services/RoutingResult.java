@@ -1,5 +1,8 @@
 package nda.company.homework.routing.services;
 
+import nda.company.homework.routing.preload.CountryGraph;
+
+import java.math.BigInteger;
 import java.util.List;
 import java.util.Objects;
 
@@ -7,7 +10,8 @@ import java.util.Objects;
  * Result of route lookup.
  */
 public sealed interface RoutingResult
-        permits RoutingResult.Success, RoutingResult.Failure {
+        permits RoutingResult.Success, RoutingResult.NodePath, RoutingResult.Alternatives, RoutingResult.Tree,
+        RoutingResult.Matrix, RoutingResult.ShortestRoutes, RoutingResult.Isochrone, RoutingResult.Failure {
 
     /**
      * Creates a successful result.
@@ -19,6 +23,104 @@ public sealed interface RoutingResult
         return new Success(route);
     }
 
+    /**
+     * Creates a successful distance-optimized result.
+     *
+     * @param route ordered CCA3 route from origin to destination
+     * @param distanceKm total great-circle distance of the route in kilometres
+     * @return success result
+     */
+    static RoutingResult success(List<String> route, double distanceKm) {
+        return new Success(route, distanceKm);
+    }
+
+    /**
+     * Creates a successful multi-leg result.
+     *
+     * @param route concatenated CCA3 route from origin through every waypoint to destination
+     * @param distanceKm total great-circle distance, or {@code null} for crossing-count routes
+     * @param legs leg boundaries within {@code route}, in travel order
+     * @return success result
+     */
+    static RoutingResult success(List<String> route, Double distanceKm, List<RouteLeg> legs) {
+        return new Success(route, distanceKm, legs);
+    }
+
+    /**
+     * Creates a successful crossing-count result in node-id form.
+     *
+     * @param graph graph the node ids belong to
+     * @param nodeIds node ids from origin to destination, owned by the result
+     * @return node path result
+     */
+    static RoutingResult nodePath(CountryGraph graph, int[] nodeIds) {
+        return new NodePath(graph, nodeIds);
+    }
+
+    /**
+     * Creates a successful alternative-routes result.
+     *
+     * @param routes distinct CCA3 routes from origin to destination, shortest first
+     * @return alternatives result
+     */
+    static RoutingResult alternatives(List<List<String>> routes) {
+        return new Alternatives(routes);
+    }
+
+    /**
+     * Creates a successful one-to-all result.
+     *
+     * @param tree shortest-path tree from the origin over its component
+     * @return tree result
+     */
+    static RoutingResult tree(ShortestPathTree tree) {
+        return new Tree(tree);
+    }
+
+    /**
+     * Creates a successful many-to-many result.
+     *
+     * @param origins normalized origin CCA3 codes (matrix rows)
+     * @param destinations normalized destination CCA3 codes (matrix columns)
+     * @param crossings fewest crossings per (origin, destination) pair, {@code -1} without a land route
+     * @return matrix result
+     */
+    static RoutingResult matrix(List<String> origins, List<String> destinations, int[][] crossings) {
+        return new Matrix(origins, destinations, crossings);
+    }
+
+    /**
+     * Creates a successful all-shortest-routes result.
+     *
+     * @param origin normalized origin CCA3 code
+     * @param destination normalized destination CCA3 code
+     * @param crossings border crossings of every shortest route
+     * @param count exact number of distinct shortest routes
+     * @param routes enumerated shortest routes, possibly fewer than {@code count}
+     * @return shortest-routes result
+     */
+    static RoutingResult shortestRoutes(
+            String origin,
+            String destination,
+            int crossings,
+            BigInteger count,
+            List<List<String>> routes
+    ) {
+        return new ShortestRoutes(origin, destination, crossings, count, routes);
+    }
+
+    /**
+     * Creates a successful within-K-crossings result.
+     *
+     * @param origins normalized origin CCA3 codes
+     * @param maxCrossings requested crossing limit
+     * @param countriesByCrossings reached CCA3 codes grouped by crossings from the nearest origin
+     * @return isochrone result
+     */
+    static RoutingResult isochrone(List<String> origins, int maxCrossings, List<List<String>> countriesByCrossings) {
+        return new Isochrone(origins, maxCrossings, countriesByCrossings);
+    }
+
     /**
      * Creates an "unknown country code" failure.
      *
@@ -29,6 +131,16 @@ public sealed interface RoutingResult
         return new UnknownCountry(countryCode);
     }
 
+    /**
+     * Creates an "avoided country is also a route stop" failure.
+     *
+     * @param countryCode normalized CCA3 code listed both as a stop and as avoided
+     * @return failure result
+     */
+    static RoutingResult avoidedStop(String countryCode) {
+        return new AvoidedStop(countryCode);
+    }
+
     /**
      * Creates a "no land route" failure.
      *
@@ -40,25 +152,174 @@ public sealed interface RoutingResult
         return new NoLandRoute(origin, destination);
     }
 
+    /**
+     * Creates a "distance routing needs coordinates" failure.
+     *
+     * @return failure result
+     */
+    static RoutingResult distanceUnavailable() {
+        return new DistanceUnavailable();
+    }
+
     /**
      * Successful routing outcome.
      *
      * @param route ordered CCA3 route from origin to destination
+     * @param distanceKm total great-circle distance in kilometres, or {@code null} for crossing-count routes
+     * @param legs leg boundaries for routes through waypoints, or {@code null} for single-leg routes
      */
-    record Success(List<String> route) implements RoutingResult {
+    record Success(List<String> route, Double distanceKm, List<RouteLeg> legs) implements RoutingResult {
 
         /**
          * Creates immutable success payload.
          */
         public Success {
             route = List.copyOf(route);
+            legs = legs == null ? null : List.copyOf(legs);
+        }
+
+        /**
+         * Creates a single-leg success payload.
+         */
+        public Success(List<String> route, Double distanceKm) {
+            this(route, distanceKm, null);
+        }
+
+        /**
+         * Creates a crossing-count success payload without distance.
+         */
+        public Success(List<String> route) {
+            this(route, null, null);
+        }
+    }
+
+    /**
+     * Successful crossing-count outcome that keeps the route as node ids of the graph it was found on.
+     * <p>
+     * Lets serializers write pre-encoded code tokens ({@link CountryGraph#jsonCodeToken(int)}) without building
+     * a list of code strings first.
+     *
+     * @param graph graph the node ids belong to
+     * @param nodeIds node ids from origin to destination; owned by the result and must not be modified
+     */
+    record NodePath(CountryGraph graph, int[] nodeIds) implements RoutingResult {
+
+        /**
+         * Creates node path payload; the node id array is not copied.
+         */
+        public NodePath {
+            graph = Objects.requireNonNull(graph, "graph");
+            nodeIds = Objects.requireNonNull(nodeIds, "nodeIds");
+        }
+
+        /**
+         * @return route as CCA3 codes
+         */
+        public List<String> route() {
+            String[] codes = new String[nodeIds.length];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = graph.codeById(nodeIds[i]);
+            }
+            return List.of(codes);
+        }
+    }
+
+    /**
+     * Successful alternative-routes outcome.
+     *
+     * @param routes distinct CCA3 routes from origin to destination, shortest first
+     */
+    record Alternatives(List<List<String>> routes) implements RoutingResult {
+
+        /**
+         * Creates immutable alternatives payload.
+         */
+        public Alternatives {
+            routes = routes.stream().map(List::copyOf).toList();
+        }
+    }
+
+    /**
+     * Successful one-to-all outcome.
+     *
+     * @param tree shortest-path tree from the origin over its component
+     */
+    record Tree(ShortestPathTree tree) implements RoutingResult {
+
+        /**
+         * Creates tree payload.
+         */
+        public Tree {
+            tree = Objects.requireNonNull(tree, "tree");
+        }
+    }
+
+    /**
+     * Successful many-to-many outcome.
+     *
+     * @param origins normalized origin CCA3 codes (matrix rows)
+     * @param destinations normalized destination CCA3 codes (matrix columns)
+     * @param crossings fewest crossings per (origin, destination) pair, {@code -1} without a land route
+     */
+    record Matrix(List<String> origins, List<String> destinations, int[][] crossings) implements RoutingResult {
+
+        /**
+         * Creates matrix payload; the crossing rows are owned by the result and not copied.
+         */
+        public Matrix {
+            origins = List.copyOf(origins);
+            destinations = List.copyOf(destinations);
+            crossings = Objects.requireNonNull(crossings, "crossings");
+        }
+    }
+
+    /**
+     * Successful all-shortest-routes outcome.
+     *
+     * @param origin normalized origin CCA3 code
+     * @param destination normalized destination CCA3 code
+     * @param crossings border crossings of every shortest route
+     * @param count exact number of distinct shortest routes
+     * @param routes enumerated shortest routes in enumeration order, empty when only the count was requested
+     */
+    record ShortestRoutes(String origin, String destination, int crossings, BigInteger count, List<List<String>> routes)
+            implements RoutingResult {
+
+        /**
+         * Creates immutable shortest-routes payload.
+         */
+        public ShortestRoutes {
+            origin = Objects.requireNonNull(origin, "origin");
+            destination = Objects.requireNonNull(destination, "destination");
+            count = Objects.requireNonNull(count, "count");
+            routes = routes.stream().map(List::copyOf).toList();
+        }
+    }
+
+    /**
+     * Successful within-K-crossings outcome.
+     *
+     * @param origins normalized origin CCA3 codes
+     * @param maxCrossings requested crossing limit
+     * @param countriesByCrossings reached CCA3 codes, entry {@code i} holding countries exactly {@code i} crossings
+     *                             from the nearest origin; trailing empty levels are omitted
+     */
+    record Isochrone(List<String> origins, int maxCrossings, List<List<String>> countriesByCrossings)
+            implements RoutingResult {
+
+        /**
+         * Creates immutable isochrone payload.
+         */
+        public Isochrone {
+            origins = List.copyOf(origins);
+            countriesByCrossings = countriesByCrossings.stream().map(List::copyOf).toList();
         }
     }
 
     /**
      * Base type for predictable business failures returned by routing.
      */
-    sealed interface Failure extends RoutingResult permits UnknownCountry, NoLandRoute {
+    sealed interface Failure extends RoutingResult permits UnknownCountry, AvoidedStop, NoLandRoute, DistanceUnavailable {
 
         /**
          * Human-readable error message suitable for API responses.
@@ -88,6 +349,26 @@ public sealed interface RoutingResult
         }
     }
 
+    /**
+     * Failure for a country that is both a route stop (origin, destination or waypoint) and avoided.
+     *
+     * @param countryCode normalized CCA3 code
+     */
+    record AvoidedStop(String countryCode) implements Failure {
+
+        /**
+         * Creates avoided-stop failure.
+         */
+        public AvoidedStop {
+            countryCode = Objects.requireNonNull(countryCode, "countryCode");
+        }
+
+        @Override
+        public String message() {
+            return "Country " + countryCode + " cannot be both a route stop and avoided";
+        }
+    }
+
     /**
      * Failure for countries that are not connected by land route.
      *
@@ -109,4 +390,15 @@ public sealed interface RoutingResult
             return "No land route found from " + origin + " to " + destination;
         }
     }
+
+    /**
+     * Failure for distance routing on a graph loaded without country coordinates, hence without edge distances.
+     */
+    record DistanceUnavailable() implements Failure {
+
+        @Override
+        public String message() {
+            return "Distance routing is unavailable: country data has no coordinates";
+        }
+    }
 }
@@ -1,207 +1,854 @@
 package nda.company.homework.routing.services;
 
 import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import nda.company.homework.routing.preload.NextHopTable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Finds shortest land-border routes on the precomputed country graph.
- * Uses bidirectional BFS on an unweighted graph.
+ * Uses bidirectional BFS on an unweighted graph, or walks the precomputed next-hop table when the graph carries one.
+ * For very large graphs a direction-optimizing parallel BFS or landmark-based A* can be selected
+ * via {@link SearchMode}.
+ * <p>
+ * Every request reads the current graph from the {@link CountryGraphHolder} once and uses it to the end, so a
+ * reload swaps the graph between requests, never during one.
  */
 @Service
 public class RoutingService {
     private static final int UNKNOWN_ID = -1;
 
-    private final CountryGraph countryGraph;
+    private final CountryGraphHolder graphHolder;
+    private final SearchMode searchMode;
+    private final int maxAlternatives;
+    private final BidirectionalSearch bidirectionalSearch = new BidirectionalSearch();
+    private final DirectionOptimizingSearch directionOptimizingSearch;
+    private final LandmarkSearch landmarkSearch = new LandmarkSearch();
+    private final DijkstraSearch dijkstraSearch = new DijkstraSearch();
+    private final AlternativeRouteSearch alternativeRouteSearch;
+    private final MultiSourceBfs multiSourceBfs = new MultiSourceBfs();
+    private final ShortestRouteDagSearch shortestRouteDagSearch = new ShortestRouteDagSearch();
+    private final IsochroneSearch isochroneSearch = new IsochroneSearch();
+    private final ShortestPathTreeSearch shortestPathTreeSearch = new ShortestPathTreeSearch();
+    // trees of the current graph, computed once per origin and replaced together with the graph
+    private volatile ShortestPathTrees shortestPathTrees;
+    // 0 when the tree cache is disabled
+    private final int treeCacheMaxNodes;
+    // null when disabled
+    private final RouteCache routeCache;
 
     public RoutingService(CountryGraph countryGraph) {
-        this.countryGraph = countryGraph;
+        this(countryGraph, SearchOptions.defaults());
+    }
+
+    /**
+     * @param searchMode engine used when the graph has no precomputed next-hop table
+     * @param parallelFrontierThreshold minimum frontier size for parallel level expansion
+     *                                  in {@link SearchMode#DIRECTION_OPTIMIZING} mode
+     */
+    public RoutingService(CountryGraph countryGraph, SearchMode searchMode, int parallelFrontierThreshold) {
+        this(
+                countryGraph,
+                SearchOptions.defaults().withMode(searchMode).withParallelFrontierThreshold(parallelFrontierThreshold)
+        );
+    }
+
+    /**
+     * @param searchOptions request-time engine settings
+     */
+    public RoutingService(CountryGraph countryGraph, SearchOptions searchOptions) {
+        this(new CountryGraphHolder(countryGraph), searchOptions);
+    }
+
+    /**
+     * @param graphHolder source of the current graph, read once per request
+     * @param searchOptions request-time engine settings
+     */
+    @Autowired
+    public RoutingService(CountryGraphHolder graphHolder, SearchOptions searchOptions) {
+        this.graphHolder = graphHolder;
+        this.searchMode = searchOptions.mode();
+        this.maxAlternatives = searchOptions.maxAlternatives();
+        this.directionOptimizingSearch = new DirectionOptimizingSearch(searchOptions.parallelFrontierThreshold());
+        this.alternativeRouteSearch = new AlternativeRouteSearch(searchOptions.alternativeSpurSearchBudget());
+        this.treeCacheMaxNodes = searchOptions.treeCacheMaxNodes();
+        this.shortestPathTrees = ShortestPathTrees.empty(graphHolder.current(), treeCacheMaxNodes);
+        int routeCacheMaxEntries = searchOptions.routeCacheMaxEntries();
+        this.routeCache = routeCacheMaxEntries == 0 ? null : new RouteCache(routeCacheMaxEntries);
     }
 
     /**
      * Finds one shortest route between two countries.
      * <p>
-     * Worst-case complexity for connected countries is {@code O(V + E)}.
+     * Worst-case complexity for connected countries is {@code O(V + E)},
+     * or {@code O(path length)} when a {@link NextHopTable} was precomputed or the pair is in the route cache.
      *
      * @param originCode origin country code (any case)
      * @param destinationCode destination country code (any case)
      * @return typed success or failure outcome
      */
     public RoutingResult findRoute(String originCode, String destinationCode) {
-        String origin = normalizeCode(originCode);
-        if (origin == null) {
-            return RoutingResult.unknownCountry(originCode);
-        }
+        return findRoute(originCode, destinationCode, RouteMetric.CROSSINGS);
+    }
 
-        String destination = normalizeCode(destinationCode);
-        if (destination == null) {
-            return RoutingResult.unknownCountry(destinationCode);
-        }
+    /**
+     * Finds one route minimizing the requested metric.
+     * <p>
+     * {@link RouteMetric#DISTANCE} runs Dijkstra over great-circle edge distances in {@code O((V + E) log V)}
+     * and reports the total distance with the route.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @param metric cost to minimize
+     * @return typed success or failure outcome, failing as well when distance routing is requested on a graph
+     *         without coordinates
+     */
+    public RoutingResult findRoute(String originCode, String destinationCode, RouteMetric metric) {
+        return findRoute(graphHolder.snapshot(), originCode, destinationCode, metric, false);
+    }
+
+    /**
+     * Finds one route with the fewest border crossings and returns it as node ids.
+     * <p>
+     * Same search and failures as {@link #findRoute(String, String)}, but the route is not converted to code
+     * strings; serializers write it with the graph's pre-encoded code tokens.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @return {@link RoutingResult.NodePath} or a typed failure
+     */
+    public RoutingResult findNodePath(String originCode, String destinationCode) {
+        return findRoute(graphHolder.snapshot(), originCode, destinationCode, RouteMetric.CROSSINGS, true);
+    }
 
-        int originId = countryGraph.idByCode(origin);
+    private RoutingResult findRoute(
+            CountryGraphHolder.Snapshot snapshot,
+            String originCode,
+            String destinationCode,
+            RouteMetric metric,
+            boolean asNodePath
+    ) {
+        CountryGraph countryGraph = snapshot.graph();
+        // raw input resolves through the graph's direct-index code table without normalized copies
+        int originId = countryGraph.idByRawCode(originCode);
         if (originId == UNKNOWN_ID) {
-            return RoutingResult.unknownCountry(origin);
+            return unknownCountry(originCode);
         }
 
-        int destinationId = countryGraph.idByCode(destination);
+        int destinationId = countryGraph.idByRawCode(destinationCode);
         if (destinationId == UNKNOWN_ID) {
-            return RoutingResult.unknownCountry(destination);
+            return unknownCountry(destinationCode);
+        }
+
+        if (metric == RouteMetric.DISTANCE && !countryGraph.adjacency().hasDistances()) {
+            return RoutingResult.distanceUnavailable();
         }
 
         if (originId == destinationId) {
-            return RoutingResult.success(List.of(countryGraph.codeById(originId)));
+            if (asNodePath) {
+                return RoutingResult.nodePath(countryGraph, new int[]{originId});
+            }
+            List<String> route = List.of(countryGraph.codeById(originId));
+            return metric == RouteMetric.DISTANCE ? RoutingResult.success(route, 0.0) : RoutingResult.success(route);
         }
 
         // precomputed components let us reject impossible routes in O(1)
         if (countryGraph.componentOf(originId) != countryGraph.componentOf(destinationId)) {
-            return RoutingResult.noLandRoute(origin, destination);
+            return noLandRoute(countryGraph, originId, destinationId);
+        }
+
+        if (metric == RouteMetric.DISTANCE) {
+            WeightedPath weightedPath = dijkstraSearch.findShortestPath(countryGraph, originId, destinationId);
+            if (weightedPath == null) {
+                return noLandRoute(countryGraph, originId, destinationId);
+            }
+            List<String> route = toCountryCodes(countryGraph, weightedPath.nodeIds());
+            return RoutingResult.success(route, weightedPath.distanceKm());
         }
 
-        int[] path = findShortestPath(originId, destinationId);
+        int[] path = routeCache == null ? null : routeCache.get(snapshot.version(), originId, destinationId);
         if (path == null) {
-            return RoutingResult.noLandRoute(origin, destination);
+            path = findShortestPath(countryGraph, originId, destinationId, null);
+            if (path == null) {
+                return noLandRoute(countryGraph, originId, destinationId);
+            }
+            if (routeCache != null) {
+                routeCache.put(snapshot.version(), originId, destinationId, path);
+            }
         }
 
-        return RoutingResult.success(toCountryCodes(path));
+        return asNodePath
+                ? RoutingResult.nodePath(countryGraph, path)
+                : RoutingResult.success(toCountryCodes(countryGraph, path));
     }
 
-    private String normalizeCode(String countryCode) {
-        if (!StringUtils.hasText(countryCode)) {
-            return null;
-        }
-        return countryCode.trim().toUpperCase(Locale.ROOT);
+    /**
+     * Finds a route that visits waypoints in order and avoids excluded countries.
+     * <p>
+     * All codes are resolved once and every leg is checked against precomputed components before any search runs,
+     * so an impossible leg is rejected in {@code O(number of stops)}. Components ignore exclusions, so that check is
+     * only a necessary condition; a leg cut off by avoided countries is detected when one BFS side runs out of
+     * frontier. Excluded countries are a per-request bitset checked inside the expansion loop, the graph itself is
+     * never copied. Constrained crossing-count legs always run on the bidirectional engine and share one pooled
+     * search context. Consecutive legs share their junction country, which therefore appears once in the route.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @param options metric, waypoints and exclusions
+     * @return typed success with leg boundaries (when waypoints are given), or failure naming the first unknown code,
+     *         avoided stop or unreachable leg, or noting that a graph without coordinates cannot route by distance
+     */
+    public RoutingResult findRoute(String originCode, String destinationCode, RouteOptions options) {
+        return findRoute(graphHolder.snapshot(), originCode, destinationCode, options);
     }
 
-    private int[] findShortestPath(int originId, int destinationId) {
-        int nodeCount = countryGraph.nodeCount();
-        int[] parentFromOrigin = new int[nodeCount];
-        int[] parentFromDestination = new int[nodeCount];
-        Arrays.fill(parentFromOrigin, UNKNOWN_ID);
-        Arrays.fill(parentFromDestination, UNKNOWN_ID);
+    private RoutingResult findRoute(
+            CountryGraphHolder.Snapshot snapshot,
+            String originCode,
+            String destinationCode,
+            RouteOptions options
+    ) {
+        List<String> viaCodes = options.via();
+        RouteMetric metric = options.metric();
+        if (viaCodes.isEmpty() && options.avoid().isEmpty()) {
+            return findRoute(snapshot, originCode, destinationCode, metric, false);
+        }
+        CountryGraph countryGraph = snapshot.graph();
 
-        boolean[] visitedFromOrigin = new boolean[nodeCount];
-        boolean[] visitedFromDestination = new boolean[nodeCount];
+        int stopCount = viaCodes.size() + 2;
+        int[] stopIds = new int[stopCount];
+        for (int stop = 0; stop < stopCount; stop++) {
+            String rawCode = stop == 0
+                    ? originCode
+                    : stop == stopCount - 1 ? destinationCode : viaCodes.get(stop - 1);
+            stopIds[stop] = countryGraph.idByRawCode(rawCode);
+            if (stopIds[stop] == UNKNOWN_ID) {
+                return unknownCountry(rawCode);
+            }
+        }
 
-        ArrayDeque<Integer> originQueue = new ArrayDeque<>();
-        ArrayDeque<Integer> destinationQueue = new ArrayDeque<>();
+        RoutingResult invalidAvoid = validateAvoid(countryGraph, options.avoid());
+        if (invalidAvoid != null) {
+            return invalidAvoid;
+        }
+        long[] excludedNodes = toExclusionBitset(countryGraph, options.avoid());
+        if (excludedNodes != null) {
+            for (int stopId : stopIds) {
+                if (Bitsets.get(excludedNodes, stopId)) {
+                    return RoutingResult.avoidedStop(countryGraph.codeById(stopId));
+                }
+            }
+        }
 
-        visitedFromOrigin[originId] = true;
-        parentFromOrigin[originId] = originId;
-        originQueue.add(originId);
+        if (metric == RouteMetric.DISTANCE && !countryGraph.adjacency().hasDistances()) {
+            return RoutingResult.distanceUnavailable();
+        }
 
-        visitedFromDestination[destinationId] = true;
-        parentFromDestination[destinationId] = destinationId;
-        destinationQueue.add(destinationId);
+        for (int stop = 1; stop < stopCount; stop++) {
+            if (countryGraph.componentOf(stopIds[stop - 1]) != countryGraph.componentOf(stopIds[stop])) {
+                return legNoLandRoute(countryGraph, stopIds, stop - 1);
+            }
+        }
 
-        while (!originQueue.isEmpty() && !destinationQueue.isEmpty()) {
-            int meetingNode;
-            // expanding the smaller frontier usually reduces explored nodes
-            if (originQueue.size() <= destinationQueue.size()) {
-                meetingNode = expandFrontier(
-                        originQueue,
-                        visitedFromOrigin,
-                        visitedFromDestination,
-                        parentFromOrigin
-                );
-            } else {
-                meetingNode = expandFrontier(
-                        destinationQueue,
-                        visitedFromDestination,
-                        visitedFromOrigin,
-                        parentFromDestination
-                );
+        int[][] legPaths = new int[stopCount - 1][];
+        double distanceKm = 0.0;
+        if (metric == RouteMetric.DISTANCE) {
+            for (int leg = 0; leg < legPaths.length; leg++) {
+                WeightedPath weightedPath = stopIds[leg] == stopIds[leg + 1]
+                        ? new WeightedPath(new int[]{stopIds[leg]}, 0.0)
+                        : dijkstraSearch.findShortestPath(countryGraph, stopIds[leg], stopIds[leg + 1], excludedNodes);
+                if (weightedPath == null) {
+                    return legNoLandRoute(countryGraph, stopIds, leg);
+                }
+                legPaths[leg] = weightedPath.nodeIds();
+                distanceKm += weightedPath.distanceKm();
             }
+        } else if (!findLegPaths(countryGraph, stopIds, legPaths, excludedNodes)) {
+            for (int leg = 0; leg < legPaths.length; leg++) {
+                if (legPaths[leg] == null) {
+                    return legNoLandRoute(countryGraph, stopIds, leg);
+                }
+            }
+        }
+
+        Double totalDistanceKm = metric == RouteMetric.DISTANCE ? distanceKm : null;
+        return joinLegs(countryGraph, legPaths, totalDistanceKm, !viaCodes.isEmpty());
+    }
+
+    /**
+     * Finds up to {@code count} distinct loopless routes with the fewest border crossings, shortest first.
+     * <p>
+     * Runs Yen's algorithm over masked BFS spur searches. {@code count} is capped by
+     * {@link SearchOptions#maxAlternatives()}, and the number of spur searches by
+     * {@link SearchOptions#alternativeSpurSearchBudget()}; when the budget runs out fewer routes are returned.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @param count requested number of routes, at least {@code 1}
+     * @return {@link RoutingResult.Alternatives} or a typed failure
+     * @throws IllegalArgumentException when {@code count} is not positive
+     */
+    public RoutingResult findAlternativeRoutes(String originCode, String destinationCode, int count) {
+        return findAlternativeRoutes(originCode, destinationCode, count, List.of());
+    }
 
-            if (meetingNode != UNKNOWN_ID) {
-                return reconstructPath(
-                        meetingNode,
-                        originId,
-                        destinationId,
-                        parentFromOrigin,
-                        parentFromDestination
-                );
+    /**
+     * Finds up to {@code count} distinct loopless routes that avoid the given countries.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @param count requested number of routes, at least {@code 1}
+     * @param avoidCodes country codes (any case) no route may pass through
+     * @return {@link RoutingResult.Alternatives} or a typed failure
+     * @throws IllegalArgumentException when {@code count} is not positive
+     * @see #findAlternativeRoutes(String, String, int)
+     */
+    public RoutingResult findAlternativeRoutes(
+            String originCode,
+            String destinationCode,
+            int count,
+            List<String> avoidCodes
+    ) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Alternative route count must be positive");
+        }
+        CountryGraph countryGraph = graphHolder.current();
+        int originId = countryGraph.idByRawCode(originCode);
+        if (originId == UNKNOWN_ID) {
+            return unknownCountry(originCode);
+        }
+        int destinationId = countryGraph.idByRawCode(destinationCode);
+        if (destinationId == UNKNOWN_ID) {
+            return unknownCountry(destinationCode);
+        }
+        RoutingResult invalidAvoid = validateAvoid(countryGraph, avoidCodes);
+        if (invalidAvoid != null) {
+            return invalidAvoid;
+        }
+        long[] excludedNodes = toExclusionBitset(countryGraph, avoidCodes);
+        if (excludedNodes != null) {
+            if (Bitsets.get(excludedNodes, originId)) {
+                return RoutingResult.avoidedStop(countryGraph.codeById(originId));
+            }
+            if (Bitsets.get(excludedNodes, destinationId)) {
+                return RoutingResult.avoidedStop(countryGraph.codeById(destinationId));
             }
         }
 
+        if (originId == destinationId) {
+            return RoutingResult.alternatives(List.of(List.of(countryGraph.codeById(originId))));
+        }
+        if (countryGraph.componentOf(originId) != countryGraph.componentOf(destinationId)) {
+            return noLandRoute(countryGraph, originId, destinationId);
+        }
+
+        // the first spur search of Yen's algorithm is the shortest route itself, so no separate search runs
+        List<int[]> paths = alternativeRouteSearch.findShortestPaths(
+                countryGraph,
+                originId,
+                destinationId,
+                Math.min(count, maxAlternatives),
+                excludedNodes
+        );
+        if (paths.isEmpty()) {
+            return noLandRoute(countryGraph, originId, destinationId);
+        }
+        List<List<String>> routes = new ArrayList<>(paths.size());
+        for (int[] path : paths) {
+            routes.add(toCountryCodes(countryGraph, path));
+        }
+        return RoutingResult.alternatives(routes);
+    }
+
+    /**
+     * Counts all distinct routes with the fewest border crossings.
+     * <p>
+     * Builds the DAG of all shortest routes with bidirectional BFS layers ({@code O(V + E)} worst case) and sums
+     * route counts over it; counts that overflow {@code long} are summed exactly as {@link java.math.BigInteger}.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @return {@link RoutingResult.ShortestRoutes} without routes, or a typed failure
+     */
+    public RoutingResult countShortestRoutes(String originCode, String destinationCode) {
+        return findShortestRoutes(graphHolder.current(), originCode, destinationCode, 0);
+    }
+
+    /**
+     * Enumerates up to {@code limit} distinct routes with the fewest border crossings.
+     * <p>
+     * Routes are produced lazily from the shortest-route DAG, so only the returned routes are materialized even
+     * when the total count is astronomically large.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @param limit maximum number of routes to return, at least {@code 1}
+     * @return {@link RoutingResult.ShortestRoutes} with the total count, or a typed failure
+     * @throws IllegalArgumentException when {@code limit} is not positive
+     */
+    public RoutingResult findAllShortestRoutes(String originCode, String destinationCode, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Shortest route limit must be positive");
+        }
+        return findShortestRoutes(graphHolder.current(), originCode, destinationCode, limit);
+    }
+
+    /**
+     * Picks one route uniformly at random among all routes with the fewest border crossings.
+     * <p>
+     * Unlike {@link #findRoute(String, String)}, whose choice among equal routes follows BFS tie order, every
+     * shortest route is equally likely: a rank is drawn below the route count and unranked through the DAG counts.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @return {@link RoutingResult.Success} or a typed failure
+     */
+    public RoutingResult sampleShortestRoute(String originCode, String destinationCode) {
+        CountryGraph countryGraph = graphHolder.current();
+        int[] nodeIds = new int[2];
+        RoutingResult failure = resolveConnectedPair(countryGraph, originCode, destinationCode, nodeIds);
+        if (failure != null) {
+            return failure;
+        }
+        ShortestRouteDag dag = shortestRouteDagSearch.build(countryGraph, nodeIds[0], nodeIds[1]);
+        if (dag == null) {
+            return noLandRoute(countryGraph, nodeIds[0], nodeIds[1]);
+        }
+        return RoutingResult.success(toCountryCodes(countryGraph, dag.sample(ThreadLocalRandom.current())));
+    }
+
+    /**
+     * @param limit maximum number of routes to enumerate, {@code 0} for the count only
+     */
+    private RoutingResult findShortestRoutes(
+            CountryGraph countryGraph,
+            String originCode,
+            String destinationCode,
+            int limit
+    ) {
+        int[] nodeIds = new int[2];
+        RoutingResult failure = resolveConnectedPair(countryGraph, originCode, destinationCode, nodeIds);
+        if (failure != null) {
+            return failure;
+        }
+        ShortestRouteDag dag = shortestRouteDagSearch.build(countryGraph, nodeIds[0], nodeIds[1]);
+        if (dag == null) {
+            return noLandRoute(countryGraph, nodeIds[0], nodeIds[1]);
+        }
+
+        List<List<String>> routes = new ArrayList<>();
+        Iterator<int[]> paths = dag.routes();
+        while (routes.size() < limit && paths.hasNext()) {
+            routes.add(toCountryCodes(countryGraph, paths.next()));
+        }
+        return RoutingResult.shortestRoutes(
+                countryGraph.codeById(nodeIds[0]),
+                countryGraph.codeById(nodeIds[1]),
+                dag.crossings(),
+                dag.routeCount(),
+                routes
+        );
+    }
+
+    /**
+     * Resolves origin and destination into {@code nodeIds} and rejects pairs in different components.
+     *
+     * @return unknown-country or no-land-route failure, or {@code null} when both ids were resolved
+     */
+    private RoutingResult resolveConnectedPair(
+            CountryGraph countryGraph,
+            String originCode,
+            String destinationCode,
+            int[] nodeIds
+    ) {
+        nodeIds[0] = countryGraph.idByRawCode(originCode);
+        if (nodeIds[0] == UNKNOWN_ID) {
+            return unknownCountry(originCode);
+        }
+        nodeIds[1] = countryGraph.idByRawCode(destinationCode);
+        if (nodeIds[1] == UNKNOWN_ID) {
+            return unknownCountry(destinationCode);
+        }
+        if (countryGraph.componentOf(nodeIds[0]) != countryGraph.componentOf(nodeIds[1])) {
+            return noLandRoute(countryGraph, nodeIds[0], nodeIds[1]);
+        }
         return null;
     }
 
-    private int expandFrontier(
-            ArrayDeque<Integer> queue,
-            boolean[] visitedThisSide,
-            boolean[] visitedOtherSide,
-            int[] parentThisSide
+    /**
+     * Returns fewest crossings and the shortest-path tree from one country to every country reachable by land.
+     * <p>
+     * The first request per origin runs one BFS over the origin's component ({@code O(component size + edges)})
+     * with pooled visited markers; the tree is cached per origin, so later requests cost {@code O(1)}. The cache
+     * admits trees until their summed size reaches {@link SearchOptions#treeCacheMaxNodes()}; later trees are built
+     * per request. Concurrent first requests may each build the tree, and one of the equal results is kept.
+     *
+     * @param originCode origin country code (any case)
+     * @return {@link RoutingResult.Tree} or unknown-country failure
+     */
+    public RoutingResult findShortestPathTree(String originCode) {
+        CountryGraph countryGraph = graphHolder.current();
+        int originId = countryGraph.idByRawCode(originCode);
+        if (originId == UNKNOWN_ID) {
+            return unknownCountry(originCode);
+        }
+
+        if (treeCacheMaxNodes == 0) {
+            return RoutingResult.tree(shortestPathTreeSearch.build(countryGraph, originId));
+        }
+        ShortestPathTrees trees = shortestPathTreesOf(countryGraph);
+        ShortestPathTree tree = trees.byOrigin().get(originId);
+        if (tree == null) {
+            tree = trees.admit(originId, shortestPathTreeSearch.build(countryGraph, originId), treeCacheMaxNodes);
+        }
+        return RoutingResult.tree(tree);
+    }
+
+    /**
+     * Computes fewest border crossings for every (origin, destination) pair.
+     * <p>
+     * Runs multi-source bit-parallel BFS with 64 origins per batch and batches spread across cores, so the cost is
+     * roughly {@code ceil(origins / 64)} BFS traversals instead of one search per pair.
+     *
+     * @param originCodes origin country codes (any case), matrix rows
+     * @param destinationCodes destination country codes (any case), matrix columns
+     * @return {@link RoutingResult.Matrix} with {@code -1} for pairs without a land route,
+     *         or failure naming the first unknown code
+     */
+    public RoutingResult findCrossingMatrix(List<String> originCodes, List<String> destinationCodes) {
+        CountryGraph countryGraph = graphHolder.current();
+        List<String> origins = new ArrayList<>(originCodes.size());
+        int[] originIds = new int[originCodes.size()];
+        RoutingResult unknownOrigin = resolveAll(countryGraph, originCodes, origins, originIds);
+        if (unknownOrigin != null) {
+            return unknownOrigin;
+        }
+        List<String> destinations = new ArrayList<>(destinationCodes.size());
+        int[] destinationIds = new int[destinationCodes.size()];
+        RoutingResult unknownDestination = resolveAll(countryGraph, destinationCodes, destinations, destinationIds);
+        if (unknownDestination != null) {
+            return unknownDestination;
+        }
+
+        return RoutingResult.matrix(
+                origins,
+                destinations,
+                multiSourceBfs.crossings(countryGraph, originIds, destinationIds)
+        );
+    }
+
+    /**
+     * Returns every country within {@code maxCrossings} border crossings of the nearest origin.
+     * <p>
+     * Runs one depth-limited multi-source BFS with all origins at level {@code 0}, stopping after level
+     * {@code maxCrossings}, so the cost is {@code O(reached countries + their borders)} regardless of the number
+     * of origins.
+     *
+     * @param originCodes origin country codes (any case)
+     * @param maxCrossings maximum number of border crossings, at least {@code 0}
+     * @return {@link RoutingResult.Isochrone} or failure naming the first unknown code
+     * @throws IllegalArgumentException when {@code maxCrossings} is negative
+     */
+    public RoutingResult findWithinCrossings(List<String> originCodes, int maxCrossings) {
+        if (maxCrossings < 0) {
+            throw new IllegalArgumentException("Max crossings must not be negative");
+        }
+        CountryGraph countryGraph = graphHolder.current();
+        List<String> origins = new ArrayList<>(originCodes.size());
+        int[] originIds = new int[originCodes.size()];
+        RoutingResult unknownOrigin = resolveAll(countryGraph, originCodes, origins, originIds);
+        if (unknownOrigin != null) {
+            return unknownOrigin;
+        }
+
+        IsochroneSearch.Levels levels = isochroneSearch.search(countryGraph, originIds, maxCrossings);
+        int[] nodeIds = levels.nodeIds();
+        int[] levelEnds = levels.levelEnds();
+        List<List<String>> countriesByCrossings = new ArrayList<>(levelEnds.length);
+        int levelStart = 0;
+        for (int levelEnd : levelEnds) {
+            String[] level = new String[levelEnd - levelStart];
+            for (int i = levelStart; i < levelEnd; i++) {
+                level[i - levelStart] = countryGraph.codeById(nodeIds[i]);
+            }
+            countriesByCrossings.add(List.of(level));
+            levelStart = levelEnd;
+        }
+        return RoutingResult.isochrone(origins, maxCrossings, countriesByCrossings);
+    }
+
+    /**
+     * Resolves codes into {@code normalizedCodes} and {@code nodeIds}.
+     *
+     * @return unknown-country failure for the first unresolvable code, or {@code null} when all codes are known
+     */
+    private RoutingResult resolveAll(
+            CountryGraph countryGraph,
+            List<String> rawCodes,
+            List<String> normalizedCodes,
+            int[] nodeIds
     ) {
-        // process one full BFS level to preserve shortest-path guarantees
-        int nodesOnLevel = queue.size();
-        for (int i = 0; i < nodesOnLevel; i++) {
-            int nodeId = queue.removeFirst();
-            for (int neighborId : countryGraph.neighborsOf(nodeId)) {
-                if (visitedThisSide[neighborId]) {
-                    continue;
-                }
+        for (int i = 0; i < nodeIds.length; i++) {
+            nodeIds[i] = countryGraph.idByRawCode(rawCodes.get(i));
+            if (nodeIds[i] == UNKNOWN_ID) {
+                return unknownCountry(rawCodes.get(i));
+            }
+            normalizedCodes.add(countryGraph.codeById(nodeIds[i]));
+        }
+        return null;
+    }
 
-                visitedThisSide[neighborId] = true;
-                parentThisSide[neighborId] = nodeId;
-                if (visitedOtherSide[neighborId]) {
-                    return neighborId;
-                }
+    /**
+     * Returns counters of the crossing-count route cache.
+     *
+     * @return hits, misses, evictions and size; all {@code 0} when the cache is disabled
+     */
+    public RouteCacheStats routeCacheStats() {
+        return routeCache == null ? RouteCacheStats.disabled() : routeCache.stats();
+    }
+
+    /**
+     * Runs the configured crossing-count engine and reports how much work it did.
+     * <p>
+     * Intended for benchmarks and diagnostics; request handling should use {@link #findRoute(String, String)}.
+     *
+     * @param originCode origin country code (any case)
+     * @param destinationCode destination country code (any case)
+     * @return route length and number of settled nodes (both {@code 0} when there is no land route)
+     * @throws IllegalArgumentException when a country code is unknown
+     */
+    public SearchStats searchStats(String originCode, String destinationCode) {
+        CountryGraph countryGraph = graphHolder.current();
+        int originId = resolveKnownId(countryGraph, originCode);
+        int destinationId = resolveKnownId(countryGraph, destinationCode);
+        if (countryGraph.componentOf(originId) != countryGraph.componentOf(destinationId)) {
+            return new SearchStats(0, 0);
+        }
+        if (originId == destinationId) {
+            return new SearchStats(1, 0);
+        }
+
+        SearchCounter counter = new SearchCounter();
+        int[] path = findShortestPath(countryGraph, originId, destinationId, counter);
+        return new SearchStats(path == null ? 0 : path.length, counter.settledNodes);
+    }
+
+    private int resolveKnownId(CountryGraph countryGraph, String countryCode) {
+        int nodeId = countryGraph.idByRawCode(countryCode);
+        if (nodeId == UNKNOWN_ID) {
+            throw new IllegalArgumentException("Unknown country code: " + countryCode);
+        }
+        return nodeId;
+    }
+
+    /**
+     * @return per-origin tree slots of {@code countryGraph}, swapped in on the first tree request after a reload
+     */
+    private ShortestPathTrees shortestPathTreesOf(CountryGraph countryGraph) {
+        ShortestPathTrees trees = shortestPathTrees;
+        if (trees.graph() == countryGraph) {
+            return trees;
+        }
+        trees = ShortestPathTrees.empty(countryGraph, treeCacheMaxNodes);
+        // a request that started before the reload still gets correct trees, but does not evict the new graph's
+        if (countryGraph == graphHolder.current()) {
+            shortestPathTrees = trees;
+        }
+        return trees;
+    }
+
+    /**
+     * Builds the failure for a code that did not resolve; only this rare path creates a normalized copy.
+     */
+    private static RoutingResult unknownCountry(String rawCode) {
+        if (!StringUtils.hasText(rawCode)) {
+            return RoutingResult.unknownCountry(rawCode);
+        }
+        return RoutingResult.unknownCountry(rawCode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private RoutingResult noLandRoute(CountryGraph countryGraph, int originId, int destinationId) {
+        return RoutingResult.noLandRoute(countryGraph.codeById(originId), countryGraph.codeById(destinationId));
+    }
+
+    private int[] findShortestPath(CountryGraph countryGraph, int originId, int destinationId, SearchCounter counter) {
+        NextHopTable nextHopTable = countryGraph.nextHopTable();
+        if (nextHopTable != null) {
+            return nextHopTable.path(originId, destinationId);
+        }
 
-                queue.addLast(neighborId);
+        return switch (searchMode) {
+            case DIRECTION_OPTIMIZING ->
+                    directionOptimizingSearch.findShortestPath(countryGraph, originId, destinationId, counter);
+            case LANDMARKS -> countryGraph.landmarkTable() != null
+                    ? landmarkSearch.findShortestPath(countryGraph, originId, destinationId, counter)
+                    : bidirectionalSearch.findShortestPath(countryGraph, originId, destinationId, counter);
+            case BIDIRECTIONAL -> bidirectionalSearch.findShortestPath(countryGraph, originId, destinationId, counter);
+        };
+    }
+
+    /**
+     * Fills crossing-count paths for every leg, stopping at the first unreachable one.
+     *
+     * @return {@code true} when every leg was found
+     */
+    private boolean findLegPaths(CountryGraph countryGraph, int[] stopIds, int[][] legPaths, long[] excludedNodes) {
+        // only the bidirectional engine understands exclusions, so constrained legs always use it
+        boolean sharedContext = excludedNodes != null || countryGraph.nextHopTable() == null
+                && (searchMode == SearchMode.BIDIRECTIONAL
+                || searchMode == SearchMode.LANDMARKS && countryGraph.landmarkTable() == null);
+        if (!sharedContext) {
+            for (int leg = 0; leg < legPaths.length; leg++) {
+                legPaths[leg] = findLegPath(countryGraph, stopIds[leg], stopIds[leg + 1], null, null);
+                if (legPaths[leg] == null) {
+                    return false;
+                }
             }
+            return true;
         }
 
-        return UNKNOWN_ID;
+        SearchContext context = bidirectionalSearch.acquireContext(countryGraph.nodeCount());
+        try {
+            for (int leg = 0; leg < legPaths.length; leg++) {
+                legPaths[leg] = findLegPath(countryGraph, stopIds[leg], stopIds[leg + 1], context, excludedNodes);
+                if (legPaths[leg] == null) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            bidirectionalSearch.releaseContext(context);
+        }
     }
 
-    private int[] reconstructPath(
-            int meetingNode,
+    private int[] findLegPath(
+            CountryGraph countryGraph,
             int originId,
             int destinationId,
-            int[] parentFromOrigin,
-            int[] parentFromDestination
+            SearchContext context,
+            long[] excludedNodes
     ) {
-        // build origin -> meeting segment by walking parent pointers backwards
-        List<Integer> originSegment = new ArrayList<>();
-        int nodeId = meetingNode;
-        while (nodeId != originId) {
-            originSegment.add(nodeId);
-            nodeId = parentFromOrigin[nodeId];
+        if (originId == destinationId) {
+            return new int[]{originId};
         }
-        originSegment.add(originId);
-        Collections.reverse(originSegment);
+        if (context == null) {
+            return findShortestPath(countryGraph, originId, destinationId, null);
+        }
+        return bidirectionalSearch.findShortestPath(
+                context,
+                countryGraph,
+                originId,
+                destinationId,
+                excludedNodes,
+                null
+        );
+    }
 
-        // continue from meeting towards destination (exclude meeting to avoid duplication)
-        List<Integer> destinationSegment = new ArrayList<>();
-        nodeId = meetingNode;
-        while (nodeId != destinationId) {
-            nodeId = parentFromDestination[nodeId];
-            destinationSegment.add(nodeId);
+    /**
+     * @return unknown-country failure for the first unresolvable code, or {@code null} when all codes are known
+     */
+    private RoutingResult validateAvoid(CountryGraph countryGraph, List<String> avoidCodes) {
+        for (String rawCode : avoidCodes) {
+            if (countryGraph.idByRawCode(rawCode) == UNKNOWN_ID) {
+                return unknownCountry(rawCode);
+            }
         }
+        return null;
+    }
 
-        int[] fullPath = new int[originSegment.size() + destinationSegment.size()];
-        int index = 0;
-        for (int originNode : originSegment) {
-            fullPath[index++] = originNode;
+    /**
+     * @param avoidCodes validated country codes
+     * @return bitset over node ids, or {@code null} when nothing is excluded
+     */
+    private long[] toExclusionBitset(CountryGraph countryGraph, List<String> avoidCodes) {
+        if (avoidCodes.isEmpty()) {
+            return null;
         }
-        for (int destinationNode : destinationSegment) {
-            fullPath[index++] = destinationNode;
+        long[] excludedNodes = new long[Bitsets.wordCount(countryGraph.nodeCount())];
+        for (String code : avoidCodes) {
+            Bitsets.set(excludedNodes, countryGraph.idByRawCode(code));
         }
-        return fullPath;
+        return excludedNodes;
     }
 
-    private List<String> toCountryCodes(int[] pathByNodeId) {
-        List<String> route = new ArrayList<>(pathByNodeId.length);
-        for (int nodeId : pathByNodeId) {
-            route.add(countryGraph.codeById(nodeId));
+    private RoutingResult legNoLandRoute(CountryGraph countryGraph, int[] stopIds, int leg) {
+        return RoutingResult.noLandRoute(countryGraph.codeById(stopIds[leg]), countryGraph.codeById(stopIds[leg + 1]));
+    }
+
+    private RoutingResult joinLegs(CountryGraph countryGraph, int[][] legPaths, Double distanceKm, boolean withLegs) {
+        int routeLength = 1;
+        for (int[] legPath : legPaths) {
+            routeLength += legPath.length - 1;
+        }
+
+        List<String> route = new ArrayList<>(routeLength);
+        List<RouteLeg> legs = new ArrayList<>(legPaths.length);
+        route.add(countryGraph.codeById(legPaths[0][0]));
+        for (int[] legPath : legPaths) {
+            int startIndex = route.size() - 1;
+            // the first node of every leg is the last node of the previous one
+            for (int i = 1; i < legPath.length; i++) {
+                route.add(countryGraph.codeById(legPath[i]));
+            }
+            legs.add(new RouteLeg(
+                    countryGraph.codeById(legPath[0]),
+                    countryGraph.codeById(legPath[legPath.length - 1]),
+                    startIndex,
+                    route.size() - 1
+            ));
+        }
+        return RoutingResult.success(route, distanceKm, withLegs ? legs : null);
+    }
+
+    /**
+     * @return immutable list, so {@link RoutingResult.Success} keeps it without another copy
+     */
+    private List<String> toCountryCodes(CountryGraph countryGraph, int[] pathByNodeId) {
+        String[] route = new String[pathByNodeId.length];
+        for (int i = 0; i < route.length; i++) {
+            route[i] = countryGraph.codeById(pathByNodeId[i]);
+        }
+        return List.of(route);
+    }
+
+    private record ShortestPathTrees(
+            CountryGraph graph,
+            AtomicReferenceArray<ShortestPathTree> byOrigin,
+            AtomicLong cachedNodes
+    ) {
+
+        static ShortestPathTrees empty(CountryGraph graph, int maxNodes) {
+            // no origin slots are needed while the cache is disabled
+            int slots = maxNodes == 0 ? 0 : graph.nodeCount();
+            return new ShortestPathTrees(graph, new AtomicReferenceArray<>(slots), new AtomicLong());
+        }
+
+        /**
+         * Caches the tree while the summed size of cached trees stays within {@code maxNodes}.
+         *
+         * @return tree cached for the origin, or {@code tree} itself when the budget is spent
+         */
+        ShortestPathTree admit(int originId, ShortestPathTree tree, int maxNodes) {
+            // reserve budget before publishing, so concurrent admissions never overshoot it
+            if (cachedNodes.addAndGet(tree.size()) > maxNodes) {
+                cachedNodes.addAndGet(-tree.size());
+                return tree;
+            }
+            if (!byOrigin.compareAndSet(originId, null, tree)) {
+                cachedNodes.addAndGet(-tree.size());
+                return byOrigin.get(originId);
+            }
+            return tree;
         }
-        return route;
     }
 }
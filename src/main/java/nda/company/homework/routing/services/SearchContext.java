@@ -0,0 +1,52 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable scratch buffers for one bidirectional BFS.
+ * <p>
+ * Visited markers are epoch-stamped ({@link EpochMarkers}): a node counts as visited only when its marker equals the
+ * current epoch, so starting a new search is {@code O(1)} instead of clearing {@code O(V)} arrays.
+ * Parent entries are read only for marked nodes and therefore never need clearing either.
+ */
+final class SearchContext {
+    private static final int ORIGIN_MARK = 0;
+    private static final int DESTINATION_MARK = 1;
+
+    private final EpochMarkers markers = new EpochMarkers(2);
+    private int capacity;
+
+    int[] originMark;
+    int[] destinationMark;
+    int[] parentFromOrigin;
+    int[] parentFromDestination;
+    final IntRingQueue originQueue;
+    final IntRingQueue destinationQueue;
+
+    SearchContext(int nodeCount) {
+        allocate(nodeCount);
+        this.originQueue = new IntRingQueue(nodeCount);
+        this.destinationQueue = new IntRingQueue(nodeCount);
+    }
+
+    /**
+     * Starts a new search over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return epoch value that marks nodes visited by this search
+     */
+    int begin(int nodeCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        originQueue.reset(nodeCount);
+        destinationQueue.reset(nodeCount);
+        return markers.next();
+    }
+
+    private void allocate(int nodeCount) {
+        capacity = nodeCount;
+        originMark = markers.allocate(ORIGIN_MARK, nodeCount);
+        destinationMark = markers.allocate(DESTINATION_MARK, nodeCount);
+        parentFromOrigin = new int[nodeCount];
+        parentFromDestination = new int[nodeCount];
+    }
+}
@@ -0,0 +1,67 @@
+package nda.company.homework.routing.services;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Small lock-free pool of reusable search scratch contexts (for example {@link SearchContext}).
+ * <p>
+ * Why not {@code ThreadLocal}: with many short-lived (or virtual) threads a per-thread context would be
+ * allocated per thread and retained by each of them. A bounded pool keeps at most a few contexts alive,
+ * and a request that finds the pool empty simply allocates a temporary context instead of blocking.
+ */
+final class SearchContextPool<C> {
+    private final AtomicReferenceArray<C> slots;
+    private final IntFunction<C> contextFactory;
+
+    SearchContextPool(int size, IntFunction<C> contextFactory) {
+        this.slots = new AtomicReferenceArray<>(size);
+        this.contextFactory = contextFactory;
+    }
+
+    /**
+     * @param contextFactory creates a context for a given node count
+     * @return pool sized for the number of available cores
+     */
+    static <C> SearchContextPool<C> forAvailableProcessors(IntFunction<C> contextFactory) {
+        return new SearchContextPool<>(Runtime.getRuntime().availableProcessors() * 2, contextFactory);
+    }
+
+    /**
+     * Takes a context from the pool or creates a new one when all pooled contexts are in use.
+     *
+     * @param nodeCount number of nodes the context must be able to search
+     * @return exclusive search context; must be returned via {@link #release(Object)}
+     */
+    C acquire(int nodeCount) {
+        int start = probeStart();
+        for (int i = 0; i < slots.length(); i++) {
+            int slot = (start + i) % slots.length();
+            C context = slots.get(slot);
+            if (context != null && slots.compareAndSet(slot, context, null)) {
+                return context;
+            }
+        }
+        return contextFactory.apply(nodeCount);
+    }
+
+    /**
+     * Returns a context to the pool. Contexts that do not fit are dropped for GC.
+     *
+     * @param context context previously obtained from {@link #acquire(int)}
+     */
+    void release(C context) {
+        int start = probeStart();
+        for (int i = 0; i < slots.length(); i++) {
+            int slot = (start + i) % slots.length();
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, context)) {
+                return;
+            }
+        }
+    }
+
+    private int probeStart() {
+        // spread concurrent threads over different slots to avoid CAS contention on slot 0
+        return (int) (Thread.currentThread().getId() % slots.length());
+    }
+}
@@ -0,0 +1,8 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Optional per-call sink for search work statistics; hot paths pass {@code null}.
+ */
+final class SearchCounter {
+    int settledNodes;
+}
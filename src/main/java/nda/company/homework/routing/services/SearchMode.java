@@ -0,0 +1,23 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Point-to-point search engine used by {@link RoutingService} when no next-hop table is precomputed.
+ */
+public enum SearchMode {
+    /**
+     * Single-threaded bidirectional BFS. Best for small graphs such as the country border graph.
+     */
+    BIDIRECTIONAL,
+
+    /**
+     * Direction-optimizing (top-down / bottom-up) BFS over bitset frontiers, parallel for large frontiers.
+     * Aimed at graphs with millions of nodes where one query touches most of the graph.
+     */
+    DIRECTION_OPTIMIZING,
+
+    /**
+     * Bidirectional A* with landmark lower bounds (ALT). Requires landmarks to be precomputed at preload
+     * ({@code routing.preload.landmarks-per-component}); falls back to {@link #BIDIRECTIONAL} otherwise.
+     */
+    LANDMARKS
+}
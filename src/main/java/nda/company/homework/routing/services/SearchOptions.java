@@ -0,0 +1,158 @@
+package nda.company.homework.routing.services;
+
+import java.util.Objects;
+
+/**
+ * Request-time engine settings used by {@link RoutingService}.
+ *
+ * @param mode engine used for crossing-count routes when the graph has no precomputed next-hop table
+ * @param parallelFrontierThreshold minimum frontier size for parallel level expansion
+ *                                  in {@link SearchMode#DIRECTION_OPTIMIZING} mode
+ * @param maxAlternatives upper bound on the number of alternative routes returned for one request
+ * @param alternativeSpurSearchBudget maximum number of spur searches run for one alternative-routes request
+ * @param routeCacheMaxEntries maximum number of country pairs in the crossing-count route cache,
+ *                             {@code 0} disables the cache
+ * @param treeCacheMaxNodes maximum number of countries summed over all cached shortest-path trees,
+ *                          {@code 0} disables the tree cache
+ */
+public record SearchOptions(
+        SearchMode mode,
+        int parallelFrontierThreshold,
+        int maxAlternatives,
+        int alternativeSpurSearchBudget,
+        int routeCacheMaxEntries,
+        int treeCacheMaxNodes
+) {
+    public static final int DEFAULT_PARALLEL_FRONTIER_THRESHOLD = 4096;
+    public static final int DEFAULT_MAX_ALTERNATIVES = 10;
+    public static final int DEFAULT_ALTERNATIVE_SPUR_SEARCH_BUDGET = 256;
+    public static final int DEFAULT_ROUTE_CACHE_MAX_ENTRIES = 0;
+    public static final int DEFAULT_TREE_CACHE_MAX_NODES = 1 << 20;
+
+    /**
+     * Validates option values.
+     */
+    public SearchOptions {
+        Objects.requireNonNull(mode, "mode");
+        if (parallelFrontierThreshold < 1) {
+            throw new IllegalArgumentException("Parallel frontier threshold must be positive");
+        }
+        if (maxAlternatives < 1) {
+            throw new IllegalArgumentException("Max alternatives must be positive");
+        }
+        if (alternativeSpurSearchBudget < 0) {
+            throw new IllegalArgumentException("Alternative spur search budget must not be negative");
+        }
+        if (routeCacheMaxEntries < 0) {
+            throw new IllegalArgumentException("Route cache size must not be negative");
+        }
+        if (treeCacheMaxNodes < 0) {
+            throw new IllegalArgumentException("Tree cache size must not be negative");
+        }
+    }
+
+    /**
+     * @return bidirectional BFS with default thresholds and budgets, without route cache and with the default tree
+     *         cache bound
+     */
+    public static SearchOptions defaults() {
+        return new SearchOptions(
+                SearchMode.BIDIRECTIONAL,
+                DEFAULT_PARALLEL_FRONTIER_THRESHOLD,
+                DEFAULT_MAX_ALTERNATIVES,
+                DEFAULT_ALTERNATIVE_SPUR_SEARCH_BUDGET,
+                DEFAULT_ROUTE_CACHE_MAX_ENTRIES,
+                DEFAULT_TREE_CACHE_MAX_NODES
+        );
+    }
+
+    /**
+     * @param searchMode crossing-count engine
+     * @return copy with the engine replaced
+     */
+    public SearchOptions withMode(SearchMode searchMode) {
+        return new SearchOptions(
+                searchMode,
+                parallelFrontierThreshold,
+                maxAlternatives,
+                alternativeSpurSearchBudget,
+                routeCacheMaxEntries,
+                treeCacheMaxNodes
+        );
+    }
+
+    /**
+     * @param threshold minimum frontier size for parallel level expansion
+     * @return copy with the threshold replaced
+     */
+    public SearchOptions withParallelFrontierThreshold(int threshold) {
+        return new SearchOptions(
+                mode,
+                threshold,
+                maxAlternatives,
+                alternativeSpurSearchBudget,
+                routeCacheMaxEntries,
+                treeCacheMaxNodes
+        );
+    }
+
+    /**
+     * @param count upper bound on alternative routes per request
+     * @return copy with the bound replaced
+     */
+    public SearchOptions withMaxAlternatives(int count) {
+        return new SearchOptions(
+                mode,
+                parallelFrontierThreshold,
+                count,
+                alternativeSpurSearchBudget,
+                routeCacheMaxEntries,
+                treeCacheMaxNodes
+        );
+    }
+
+    /**
+     * @param budget maximum spur searches per alternative-routes request
+     * @return copy with the budget replaced
+     */
+    public SearchOptions withAlternativeSpurSearchBudget(int budget) {
+        return new SearchOptions(
+                mode,
+                parallelFrontierThreshold,
+                maxAlternatives,
+                budget,
+                routeCacheMaxEntries,
+                treeCacheMaxNodes
+        );
+    }
+
+    /**
+     * @param maxEntries maximum number of cached country pairs, {@code 0} to disable the cache
+     * @return copy with the cache size replaced
+     */
+    public SearchOptions withRouteCacheMaxEntries(int maxEntries) {
+        return new SearchOptions(
+                mode,
+                parallelFrontierThreshold,
+                maxAlternatives,
+                alternativeSpurSearchBudget,
+                maxEntries,
+                treeCacheMaxNodes
+        );
+    }
+
+    /**
+     * @param maxNodes maximum number of countries summed over all cached trees, {@code 0} to disable the tree cache
+     * @return copy with the tree cache bound replaced
+     */
+    public SearchOptions withTreeCacheMaxNodes(int maxNodes) {
+        return new SearchOptions(
+                mode,
+                parallelFrontierThreshold,
+                maxAlternatives,
+                alternativeSpurSearchBudget,
+                routeCacheMaxEntries,
+                maxNodes
+        );
+    }
+}
@@ -0,0 +1,33 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Path reconstruction helpers shared by single-source search engines.
+ */
+final class SearchPaths {
+
+    private SearchPaths() {
+    }
+
+    /**
+     * Walks parent pointers back from the destination and writes the path into one exactly-sized array.
+     *
+     * @param parent parent node id per reached node, with {@code parent[originId] == originId}
+     * @param originId origin node id
+     * @param destinationId destination node id (must be reached)
+     * @return node ids from origin to destination
+     */
+    static int[] fromParents(int[] parent, int originId, int destinationId) {
+        int length = 1;
+        for (int nodeId = destinationId; nodeId != originId; nodeId = parent[nodeId]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        int index = length - 1;
+        for (int nodeId = destinationId; nodeId != originId; nodeId = parent[nodeId]) {
+            path[index--] = nodeId;
+        }
+        path[0] = originId;
+        return path;
+    }
+}
@@ -0,0 +1,10 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Work done by one point-to-point search, for benchmarks and diagnostics.
+ *
+ * @param routeLength number of countries on the found route, or {@code 0} when no route exists
+ * @param settledNodes number of nodes the engine expanded (removed from its queue or frontier)
+ */
+public record SearchStats(int routeLength, int settledNodes) {
+}
@@ -0,0 +1,93 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BFS shortest-path tree from one origin over its connected component.
+ * <p>
+ * Countries are stored in BFS order as dense arrays: index {@code 0} is the origin, crossing counts are
+ * non-decreasing, and every parent index points to an earlier entry. The layout doubles as the compact API encoding.
+ * Instances are immutable and safe to cache and share across requests.
+ */
+public final class ShortestPathTree {
+    private final CountryGraph graph;
+    private final int[] nodeIds;
+    private final int[] crossings;
+    private final int[] parentIndices;
+
+    /**
+     * Wraps BFS-order arrays built by {@link ShortestPathTreeSearch}; the arrays are owned by the tree.
+     */
+    ShortestPathTree(CountryGraph graph, int[] nodeIds, int[] crossings, int[] parentIndices) {
+        this.graph = graph;
+        this.nodeIds = nodeIds;
+        this.crossings = crossings;
+        this.parentIndices = parentIndices;
+    }
+
+    /**
+     * @return normalized CCA3 code of the origin
+     */
+    public String origin() {
+        return graph.codeById(nodeIds[0]);
+    }
+
+    /**
+     * @return number of reachable countries, including the origin
+     */
+    public int size() {
+        return nodeIds.length;
+    }
+
+    /**
+     * @param index tree index in {@code [0, size())}
+     * @return CCA3 code of the country at the index
+     */
+    public String codeAt(int index) {
+        return graph.codeById(nodeIds[index]);
+    }
+
+    /**
+     * @param index tree index in {@code [0, size())}
+     * @return fewest border crossings from the origin
+     */
+    public int crossingsAt(int index) {
+        return crossings[index];
+    }
+
+    /**
+     * @param index tree index in {@code [0, size())}
+     * @return tree index of the previous country on a shortest route, or {@code -1} for the origin
+     */
+    public int parentIndexAt(int index) {
+        return parentIndices[index];
+    }
+
+    /**
+     * @return CCA3 codes in tree (BFS) order
+     */
+    public List<String> codes() {
+        List<String> codes = new ArrayList<>(nodeIds.length);
+        for (int nodeId : nodeIds) {
+            codes.add(graph.codeById(nodeId));
+        }
+        return codes;
+    }
+
+    /**
+     * @return copy of crossing counts in tree order
+     */
+    public int[] crossings() {
+        return crossings.clone();
+    }
+
+    /**
+     * @return copy of parent indices in tree order ({@code -1} for the origin)
+     */
+    public int[] parentIndices() {
+        return parentIndices.clone();
+    }
+}
@@ -0,0 +1,60 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+/**
+ * One BFS from an origin over its connected component, producing a {@link ShortestPathTree}.
+ * <p>
+ * Visited markers come from pooled {@link TreeSearchContext}s; only the tree arrays, sized exactly by the origin's
+ * component, are allocated per build.
+ */
+final class ShortestPathTreeSearch {
+    private final SearchContextPool<TreeSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(TreeSearchContext::new);
+
+    /**
+     * @param graph immutable country graph
+     * @param originId origin node id
+     * @return tree covering every country reachable from the origin
+     */
+    ShortestPathTree build(CountryGraph graph, int originId) {
+        TreeSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return build(context, graph, originId);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private static ShortestPathTree build(TreeSearchContext context, CountryGraph graph, int originId) {
+        int size = graph.componentSize(graph.componentOf(originId));
+        GraphAdjacency adjacency = graph.adjacency();
+        int epoch = context.begin(graph.nodeCount());
+        int[] visitedMark = context.visitedMark;
+        int[] nodeIds = new int[size];
+        int[] crossings = new int[size];
+        int[] parentIndices = new int[size];
+
+        // BFS order array doubles as the queue
+        nodeIds[0] = originId;
+        parentIndices[0] = -1;
+        visitedMark[originId] = epoch;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int nodeId = nodeIds[head];
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (visitedMark[neighborId] == epoch) {
+                    continue;
+                }
+                visitedMark[neighborId] = epoch;
+                nodeIds[tail] = neighborId;
+                crossings[tail] = crossings[head] + 1;
+                parentIndices[tail] = head;
+                tail++;
+            }
+        }
+        return new ShortestPathTree(graph, nodeIds, crossings, parentIndices);
+    }
+}
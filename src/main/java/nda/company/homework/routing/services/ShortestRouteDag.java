@@ -0,0 +1,217 @@
+package nda.company.homework.routing.services;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Layered DAG of every shortest route between two countries.
+ * <p>
+ * DAG nodes are dense indices in layer order: index {@code 0} is the origin, the last index is the destination,
+ * and every successor lies in the next layer, so each origin-to-destination walk is a shortest route.
+ * Each index stores the number of routes from it to the destination. Counts are {@code long} while they fit and
+ * switch to {@link BigInteger} once a sum would overflow (corner-to-corner routes on large grids).
+ * The counts rank routes in enumeration order, which gives uniform sampling by drawing one rank and
+ * unranking it in {@code O(crossings * degree)}.
+ */
+final class ShortestRouteDag {
+    private final int[] nodeIds;
+    private final int[] successorOffsets;
+    private final int[] successors;
+    private final int crossings;
+    // null when some count does not fit a long
+    private final long[] routeCounts;
+    // null unless routeCounts overflowed
+    private final BigInteger[] bigRouteCounts;
+
+    /**
+     * @param nodeIds graph node id per DAG index, in layer order
+     * @param successorOffsets CSR offsets into {@code successors}, size {@code nodeIds.length + 1}
+     * @param successors DAG indices of next-layer neighbors
+     * @param crossings number of crossings of every route (layer count minus one)
+     */
+    ShortestRouteDag(int[] nodeIds, int[] successorOffsets, int[] successors, int crossings) {
+        this.nodeIds = nodeIds;
+        this.successorOffsets = successorOffsets;
+        this.successors = successors;
+        this.crossings = crossings;
+        this.routeCounts = countRoutes(successorOffsets, successors);
+        this.bigRouteCounts = routeCounts == null ? countBigRoutes(successorOffsets, successors) : null;
+    }
+
+    /**
+     * @param nodeId origin and destination node id
+     * @return DAG holding the single zero-crossing route
+     */
+    static ShortestRouteDag singleNode(int nodeId) {
+        return new ShortestRouteDag(new int[]{nodeId}, new int[]{0, 0}, new int[0], 0);
+    }
+
+    /**
+     * @return border crossings of every shortest route
+     */
+    int crossings() {
+        return crossings;
+    }
+
+    /**
+     * @return exact number of distinct shortest routes
+     */
+    BigInteger routeCount() {
+        return routeCounts != null ? BigInteger.valueOf(routeCounts[0]) : bigRouteCounts[0];
+    }
+
+    /**
+     * Lazily enumerates routes by depth-first walk over the DAG; each route costs {@code O(crossings)} at most.
+     *
+     * @return iterator of node-id routes from origin to destination, each a new array
+     */
+    Iterator<int[]> routes() {
+        return new RouteIterator();
+    }
+
+    /**
+     * Draws one route uniformly among all shortest routes.
+     *
+     * @param random source of the route rank
+     * @return node ids from origin to destination
+     */
+    int[] sample(Random random) {
+        if (routeCounts != null) {
+            return routeAt(random.nextLong(routeCounts[0]));
+        }
+        BigInteger bound = bigRouteCounts[0];
+        BigInteger rank;
+        do {
+            rank = new BigInteger(bound.bitLength(), random);
+        } while (rank.compareTo(bound) >= 0);
+        return routeAt(rank);
+    }
+
+    /**
+     * @param rank route position in enumeration order, below {@code routeCounts[0]}
+     */
+    private int[] routeAt(long rank) {
+        int[] route = new int[crossings + 1];
+        int index = 0;
+        route[0] = nodeIds[0];
+        for (int layer = 1; layer <= crossings; layer++) {
+            int slot = successorOffsets[index];
+            while (rank >= routeCounts[successors[slot]]) {
+                rank -= routeCounts[successors[slot]];
+                slot++;
+            }
+            index = successors[slot];
+            route[layer] = nodeIds[index];
+        }
+        return route;
+    }
+
+    /**
+     * @param rank route position in enumeration order, below {@code bigRouteCounts[0]}
+     */
+    private int[] routeAt(BigInteger rank) {
+        int[] route = new int[crossings + 1];
+        int index = 0;
+        route[0] = nodeIds[0];
+        for (int layer = 1; layer <= crossings; layer++) {
+            int slot = successorOffsets[index];
+            while (rank.compareTo(bigRouteCounts[successors[slot]]) >= 0) {
+                rank = rank.subtract(bigRouteCounts[successors[slot]]);
+                slot++;
+            }
+            index = successors[slot];
+            route[layer] = nodeIds[index];
+        }
+        return route;
+    }
+
+    /**
+     * Routes to the destination per DAG index, summed over successors from the last layer backwards.
+     *
+     * @return counts, or {@code null} when a count does not fit a {@code long}
+     */
+    private static long[] countRoutes(int[] successorOffsets, int[] successors) {
+        int size = successorOffsets.length - 1;
+        long[] counts = new long[size];
+        counts[size - 1] = 1;
+        for (int index = size - 2; index >= 0; index--) {
+            long count = 0;
+            for (int slot = successorOffsets[index]; slot < successorOffsets[index + 1]; slot++) {
+                count += counts[successors[slot]];
+                // both addends are non-negative, so a wrap-around always shows up as a negative sum
+                if (count < 0) {
+                    return null;
+                }
+            }
+            counts[index] = count;
+        }
+        return counts;
+    }
+
+    private static BigInteger[] countBigRoutes(int[] successorOffsets, int[] successors) {
+        int size = successorOffsets.length - 1;
+        BigInteger[] counts = new BigInteger[size];
+        counts[size - 1] = BigInteger.ONE;
+        for (int index = size - 2; index >= 0; index--) {
+            BigInteger count = BigInteger.ZERO;
+            for (int slot = successorOffsets[index]; slot < successorOffsets[index + 1]; slot++) {
+                count = count.add(counts[successors[slot]]);
+            }
+            counts[index] = count;
+        }
+        return counts;
+    }
+
+    /**
+     * Depth-first walk keeping one successor slot per layer; advancing bumps the deepest slot that has a
+     * sibling left and descends along first successors again, so no route is materialized ahead of time.
+     */
+    private final class RouteIterator implements Iterator<int[]> {
+        private final int[] indexByLayer = new int[crossings + 1];
+        private final int[] slotByLayer = new int[crossings + 1];
+        private boolean hasNext = true;
+
+        RouteIterator() {
+            descendFrom(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            int[] route = new int[crossings + 1];
+            for (int layer = 0; layer <= crossings; layer++) {
+                route[layer] = nodeIds[indexByLayer[layer]];
+            }
+            advance();
+            return route;
+        }
+
+        private void advance() {
+            for (int layer = crossings - 1; layer >= 0; layer--) {
+                if (slotByLayer[layer] + 1 < successorOffsets[indexByLayer[layer] + 1]) {
+                    slotByLayer[layer]++;
+                    indexByLayer[layer + 1] = successors[slotByLayer[layer]];
+                    descendFrom(layer + 1);
+                    return;
+                }
+            }
+            hasNext = false;
+        }
+
+        private void descendFrom(int layer) {
+            for (; layer < crossings; layer++) {
+                slotByLayer[layer] = successorOffsets[indexByLayer[layer]];
+                indexByLayer[layer + 1] = successors[slotByLayer[layer]];
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package nda.company.homework.routing.services;
+
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.GraphAdjacency;
+
+/**
+ * Builds the DAG of all shortest routes between two countries with bidirectional BFS layers.
+ * <p>
+ * Both sides expand one full level of the smaller frontier at a time, exactly like {@link BidirectionalSearch},
+ * but the level that first touches the other side is completed, so every meeting node is found. Meeting nodes
+ * sit at origin level {@code a} and destination level {@code b} with {@code a + b} crossings. Walking each side's
+ * BFS order backwards then keeps only nodes with a neighbor one level closer to the meeting layer that is already
+ * on a route, which leaves exactly the nodes of some shortest route. Scratch arrays are pooled
+ * {@link DagSearchContext}s; only the compact DAG (sized by its own nodes and edges) is allocated.
+ */
+final class ShortestRouteDagSearch {
+    private final SearchContextPool<DagSearchContext> contexts =
+            SearchContextPool.forAvailableProcessors(DagSearchContext::new);
+
+    /**
+     * @param graph immutable graph to search
+     * @param originId origin node id
+     * @param destinationId destination node id
+     * @return DAG of every shortest route, or {@code null} when destination is unreachable
+     */
+    ShortestRouteDag build(CountryGraph graph, int originId, int destinationId) {
+        if (originId == destinationId) {
+            return ShortestRouteDag.singleNode(originId);
+        }
+        DagSearchContext context = contexts.acquire(graph.nodeCount());
+        try {
+            return build(context, graph, originId, destinationId);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    private static ShortestRouteDag build(
+            DagSearchContext context,
+            CountryGraph graph,
+            int originId,
+            int destinationId
+    ) {
+        GraphAdjacency adjacency = graph.adjacency();
+        int epoch = context.begin(graph.nodeCount());
+        int[] originMark = context.originMark;
+        int[] destinationMark = context.destinationMark;
+        int[] originLevel = context.originLevel;
+        int[] destinationLevel = context.destinationLevel;
+        int[] originOrder = context.originOrder;
+        int[] destinationOrder = context.destinationOrder;
+
+        originMark[originId] = epoch;
+        originLevel[originId] = 0;
+        originOrder[0] = originId;
+        destinationMark[destinationId] = epoch;
+        destinationLevel[destinationId] = 0;
+        destinationOrder[0] = destinationId;
+        int originHead = 0;
+        int originTail = 1;
+        int originDepth = 0;
+        int destinationHead = 0;
+        int destinationTail = 1;
+        int destinationDepth = 0;
+
+        while (true) {
+            int originFrontier = originTail - originHead;
+            int destinationFrontier = destinationTail - destinationHead;
+            if (originFrontier == 0 || destinationFrontier == 0) {
+                return null;
+            }
+            if (originFrontier <= destinationFrontier) {
+                int tail = expandLevel(
+                        adjacency, epoch, originOrder, originHead, originTail, originMark, originLevel,
+                        ++originDepth
+                );
+                originHead = originTail;
+                originTail = tail;
+                if (touches(originOrder, originHead, originTail, destinationMark, epoch)) {
+                    break;
+                }
+            } else {
+                int tail = expandLevel(
+                        adjacency, epoch, destinationOrder, destinationHead, destinationTail, destinationMark,
+                        destinationLevel, ++destinationDepth
+                );
+                destinationHead = destinationTail;
+                destinationTail = tail;
+                if (touches(destinationOrder, destinationHead, destinationTail, originMark, epoch)) {
+                    break;
+                }
+            }
+        }
+
+        int[] dagMark = context.dagMark;
+        int dagSize = 0;
+        // deepest level first: a node is on a route when a neighbor one level deeper already is
+        for (int i = originTail - 1; i >= 0; i--) {
+            int nodeId = originOrder[i];
+            int level = originLevel[nodeId];
+            boolean onRoute = level == originDepth
+                    ? destinationMark[nodeId] == epoch
+                    : hasRouteNeighbor(adjacency, nodeId, epoch, originMark, originLevel, level + 1, dagMark);
+            if (onRoute) {
+                dagMark[nodeId] = epoch;
+                dagSize++;
+            }
+        }
+        for (int i = destinationTail - 1; i >= 0; i--) {
+            int nodeId = destinationOrder[i];
+            int level = destinationLevel[nodeId];
+            // meeting nodes were already marked from the origin side
+            if (level < destinationDepth && hasRouteNeighbor(
+                    adjacency, nodeId, epoch, destinationMark, destinationLevel, level + 1, dagMark
+            )) {
+                dagMark[nodeId] = epoch;
+                dagSize++;
+            }
+        }
+
+        int crossings = originDepth + destinationDepth;
+        int[] dagIndex = context.dagIndex;
+        int[] layerByIndex = new int[dagSize];
+        int[] nodeIds = new int[dagSize];
+        int size = 0;
+        // origin order lists layers 0..a, destination order read backwards lists layers a+1..a+b
+        for (int i = 0; i < originTail; i++) {
+            int nodeId = originOrder[i];
+            if (dagMark[nodeId] == epoch) {
+                dagIndex[nodeId] = size;
+                layerByIndex[size] = originLevel[nodeId];
+                nodeIds[size++] = nodeId;
+            }
+        }
+        for (int i = destinationTail - 1; i >= 0; i--) {
+            int nodeId = destinationOrder[i];
+            if (destinationLevel[nodeId] < destinationDepth && dagMark[nodeId] == epoch) {
+                dagIndex[nodeId] = size;
+                layerByIndex[size] = crossings - destinationLevel[nodeId];
+                nodeIds[size++] = nodeId;
+            }
+        }
+
+        // successors are the neighbors on a route one layer further: count them first, then fill exact arrays
+        int[] successorOffsets = new int[dagSize + 1];
+        for (int index = 0; index < dagSize; index++) {
+            int nodeId = nodeIds[index];
+            int successorCount = 0;
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (dagMark[neighborId] == epoch && layerByIndex[dagIndex[neighborId]] == layerByIndex[index] + 1) {
+                    successorCount++;
+                }
+            }
+            successorOffsets[index + 1] = successorOffsets[index] + successorCount;
+        }
+        int[] successors = new int[successorOffsets[dagSize]];
+        for (int index = 0; index < dagSize; index++) {
+            int nodeId = nodeIds[index];
+            int slot = successorOffsets[index];
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (dagMark[neighborId] == epoch && layerByIndex[dagIndex[neighborId]] == layerByIndex[index] + 1) {
+                    successors[slot++] = dagIndex[neighborId];
+                }
+            }
+        }
+        return new ShortestRouteDag(nodeIds, successorOffsets, successors, crossings);
+    }
+
+    /**
+     * Appends the next BFS level after {@code order[head, tail)}.
+     *
+     * @return new tail of {@code order}
+     */
+    private static int expandLevel(
+            GraphAdjacency adjacency,
+            int epoch,
+            int[] order,
+            int head,
+            int tail,
+            int[] mark,
+            int[] level,
+            int nextLevel
+    ) {
+        int nextTail = tail;
+        for (int i = head; i < tail; i++) {
+            int nodeId = order[i];
+            for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+                int neighborId = adjacency.neighborTarget(edge);
+                if (mark[neighborId] != epoch) {
+                    mark[neighborId] = epoch;
+                    level[neighborId] = nextLevel;
+                    order[nextTail++] = neighborId;
+                }
+            }
+        }
+        return nextTail;
+    }
+
+    private static boolean touches(int[] order, int from, int to, int[] otherMark, int epoch) {
+        for (int i = from; i < to; i++) {
+            if (otherMark[order[i]] == epoch) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasRouteNeighbor(
+            GraphAdjacency adjacency,
+            int nodeId,
+            int epoch,
+            int[] mark,
+            int[] level,
+            int neighborLevel,
+            int[] dagMark
+    ) {
+        for (int edge = adjacency.neighborStart(nodeId), end = adjacency.neighborEnd(nodeId); edge < end; edge++) {
+            int neighborId = adjacency.neighborTarget(edge);
+            if (dagMark[neighborId] == epoch && mark[neighborId] == epoch && level[neighborId] == neighborLevel) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
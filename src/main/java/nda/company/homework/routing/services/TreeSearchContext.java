@@ -0,0 +1,36 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable visited markers for one shortest-path tree BFS.
+ * <p>
+ * Markers are epoch-stamped ({@link EpochMarkers}), so a new search starts without clearing anything. The BFS queue
+ * is the tree's own exactly sized order array, so no queue is kept here.
+ */
+final class TreeSearchContext {
+    private final EpochMarkers markers = new EpochMarkers(1);
+    private int capacity;
+
+    int[] visitedMark;
+
+    TreeSearchContext(int nodeCount) {
+        allocate(nodeCount);
+    }
+
+    /**
+     * Starts a new search over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return epoch value that marks nodes visited by this search
+     */
+    int begin(int nodeCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        return markers.next();
+    }
+
+    private void allocate(int nodeCount) {
+        capacity = nodeCount;
+        visitedMark = markers.allocate(0, nodeCount);
+    }
+}
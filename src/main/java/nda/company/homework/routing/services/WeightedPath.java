@@ -0,0 +1,10 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Shortest path found by a weighted search.
+ *
+ * @param nodeIds node ids from origin to destination
+ * @param distanceKm total great-circle distance in kilometres
+ */
+record WeightedPath(int[] nodeIds, double distanceKm) {
+}
@@ -0,0 +1,43 @@
+package nda.company.homework.routing.services;
+
+/**
+ * Reusable scratch buffers for weighted (Dijkstra-style) searches.
+ * <p>
+ * Like {@link SearchContext}, reached markers are epoch-stamped so a new search needs no clearing;
+ * distance and parent entries are read only for nodes reached in the current epoch.
+ */
+final class WeightedSearchContext {
+    private final EpochMarkers markers = new EpochMarkers(1);
+    private int capacity;
+
+    int[] reachedMark;
+    int[] parent;
+    double[] distance;
+    final IndexedMinHeap heap;
+
+    WeightedSearchContext(int nodeCount) {
+        allocate(nodeCount);
+        this.heap = new IndexedMinHeap(nodeCount);
+    }
+
+    /**
+     * Starts a new search over a graph with {@code nodeCount} nodes.
+     *
+     * @param nodeCount number of nodes in the searched graph
+     * @return epoch value that marks nodes reached by this search
+     */
+    int begin(int nodeCount) {
+        if (nodeCount > capacity) {
+            allocate(nodeCount);
+        }
+        heap.reset(nodeCount);
+        return markers.next();
+    }
+
+    private void allocate(int nodeCount) {
+        capacity = nodeCount;
+        reachedMark = markers.allocate(0, nodeCount);
+        parent = new int[nodeCount];
+        distance = new double[nodeCount];
+    }
+}
@@ -0,0 +1,259 @@
+package nda.company.homework.analytics;
+
+import nda.company.homework.routing.analytics.GraphAnalytics;
+import nda.company.homework.routing.analytics.GraphAnalyticsService;
+import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Graph analytics")
+class GraphAnalyticsTest {
+
+    @Test
+    @DisplayName("computes centrality, eccentricity and chokepoints of a path")
+    void shouldAnalyzePath() {
+        int length = 6;
+        int[][] edges = new int[length - 1][];
+        for (int i = 0; i + 1 < length; i++) {
+            edges[i] = new int[]{i, i + 1};
+        }
+        GraphAnalytics analytics = GraphAnalytics.compute(graph(length, edges));
+
+        for (int nodeId = 0; nodeId < length; nodeId++) {
+            assertEquals(nodeId * (length - 1 - nodeId), analytics.betweenness(nodeId), 1e-9);
+            assertEquals(Math.max(nodeId, length - 1 - nodeId), analytics.eccentricity(nodeId));
+        }
+        assertEquals(length - 1, analytics.componentDiameter(0));
+        assertArrayEquals(new int[]{1, 2, 3, 4}, analytics.articulationPoints());
+        assertEquals(length - 1, analytics.bridgeCount());
+        assertEquals(2, analytics.bridgeLow(2));
+        assertEquals(3, analytics.bridgeHigh(2));
+        assertArrayEquals(new int[]{2, 3, 1}, analytics.mostCentral(3));
+    }
+
+    @Test
+    @DisplayName("finds the only chokepoint of a cycle with a pendant country, per component")
+    void shouldAnalyzeCycleWithPendantAndSecondComponent() {
+        // 0..5 form a cycle, 6 hangs off 0, and 7-8-9 is a separate triangle
+        GraphAnalytics analytics = GraphAnalytics.compute(graph(10, new int[][]{
+                {0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 0}, {0, 6},
+                {7, 8}, {8, 9}, {9, 7}
+        }));
+
+        assertArrayEquals(new int[]{0}, analytics.articulationPoints());
+        assertEquals(1, analytics.bridgeCount());
+        assertEquals(0, analytics.bridgeLow(0));
+        assertEquals(6, analytics.bridgeHigh(0));
+        assertEquals(4, analytics.eccentricity(6));
+        assertEquals(4, analytics.componentDiameter(0));
+        assertEquals(1, analytics.componentDiameter(1));
+        assertEquals(0, analytics.betweenness(7), 1e-9);
+        assertEquals(0, analytics.mostCentral(1)[0]);
+    }
+
+    @Test
+    @DisplayName("matches brute-force betweenness and articulation points on random graphs")
+    void shouldMatchBruteForceOnRandomGraphs() {
+        Random random = new Random(18);
+        for (int round = 0; round < 20; round++) {
+            int nodeCount = 5 + random.nextInt(40);
+            CountryGraph graph = randomGraph(nodeCount, nodeCount + random.nextInt(nodeCount), random);
+            GraphAnalytics analytics = GraphAnalytics.compute(graph);
+
+            double[] expectedBetweenness = bruteForceBetweenness(graph);
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                assertEquals(expectedBetweenness[nodeId], analytics.betweenness(nodeId), 1e-6);
+            }
+            assertArrayEquals(bruteForceArticulationPoints(graph), analytics.articulationPoints());
+        }
+    }
+
+    @Test
+    @DisplayName("analyzes only the latest of several quickly published graphs on its own pool")
+    void shouldCoalesceSupersededComputations() {
+        Random random = new Random(18);
+        CountryGraphHolder holder = new CountryGraphHolder(randomGraph(400, 1200, random));
+        try (GraphAnalyticsService service = new GraphAnalyticsService(holder, true, 2, 1000)) {
+            for (int reload = 0; reload < 5; reload++) {
+                holder.publish(randomGraph(400, 1200, random), 0);
+            }
+            CountryGraph latest = holder.current();
+
+            GraphAnalytics analytics = service.await();
+
+            assertSame(latest, analytics.graph());
+            assertSame(analytics, service.current());
+            assertEquals(GraphAnalyticsService.Status.READY, service.status());
+            GraphAnalytics expected = GraphAnalytics.compute(latest);
+            for (int nodeId = 0; nodeId < latest.nodeCount(); nodeId++) {
+                assertEquals(expected.betweenness(nodeId), analytics.betweenness(nodeId), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("refuses graphs above the configured country limit instead of serving stale analytics")
+    void shouldRefuseGraphsAboveCountryLimit() {
+        CountryGraphHolder holder = new CountryGraphHolder(graph(3, new int[][]{{0, 1}, {1, 2}}));
+        try (GraphAnalyticsService service = new GraphAnalyticsService(holder, true, 1, 3)) {
+            assertEquals(3, service.await().graph().nodeCount());
+
+            holder.publish(graph(4, new int[][]{{0, 1}, {1, 2}, {2, 3}}), 0);
+
+            assertEquals(GraphAnalyticsService.Status.TOO_LARGE, service.status());
+            assertNull(service.current());
+            assertThrows(IllegalStateException.class, service::await);
+        }
+    }
+
+    private static double[] bruteForceBetweenness(CountryGraph graph) {
+        int nodeCount = graph.nodeCount();
+        int[][] distances = new int[nodeCount][];
+        double[][] pathCounts = new double[nodeCount][];
+        for (int source = 0; source < nodeCount; source++) {
+            distances[source] = new int[nodeCount];
+            pathCounts[source] = new double[nodeCount];
+            Arrays.fill(distances[source], -1);
+            distances[source][source] = 0;
+            pathCounts[source][source] = 1;
+            ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(source));
+            while (!queue.isEmpty()) {
+                int nodeId = queue.poll();
+                for (int neighborId : graph.neighborsOf(nodeId)) {
+                    if (distances[source][neighborId] < 0) {
+                        distances[source][neighborId] = distances[source][nodeId] + 1;
+                        queue.add(neighborId);
+                    }
+                    if (distances[source][neighborId] == distances[source][nodeId] + 1) {
+                        pathCounts[source][neighborId] += pathCounts[source][nodeId];
+                    }
+                }
+            }
+        }
+
+        double[] betweenness = new double[nodeCount];
+        for (int source = 0; source < nodeCount; source++) {
+            for (int target = source + 1; target < nodeCount; target++) {
+                int distance = distances[source][target];
+                if (distance < 0) {
+                    continue;
+                }
+                for (int via = 0; via < nodeCount; via++) {
+                    if (via != source && via != target && distances[source][via] >= 0
+                            && distances[source][via] + distances[via][target] == distance) {
+                        betweenness[via] += pathCounts[source][via] * pathCounts[via][target]
+                                / pathCounts[source][target];
+                    }
+                }
+            }
+        }
+        return betweenness;
+    }
+
+    private static int[] bruteForceArticulationPoints(CountryGraph graph) {
+        int components = componentCount(graph, -1);
+        List<Integer> articulationPoints = new ArrayList<>();
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            // removing an isolated country also removes a component, so only more components means a chokepoint
+            if (componentCount(graph, nodeId) > components - (graph.degreeOf(nodeId) == 0 ? 1 : 0)) {
+                articulationPoints.add(nodeId);
+            }
+        }
+        return articulationPoints.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int componentCount(CountryGraph graph, int removedId) {
+        boolean[] visited = new boolean[graph.nodeCount()];
+        int components = 0;
+        for (int root = 0; root < graph.nodeCount(); root++) {
+            if (root == removedId || visited[root]) {
+                continue;
+            }
+            components++;
+            visited[root] = true;
+            ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(root));
+            while (!queue.isEmpty()) {
+                for (int neighborId : graph.neighborsOf(queue.poll())) {
+                    if (neighborId != removedId && !visited[neighborId]) {
+                        visited[neighborId] = true;
+                        queue.add(neighborId);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    private static CountryGraph randomGraph(int nodeCount, int edgeCount, Random random) {
+        Set<Long> seen = new HashSet<>();
+        List<int[]> edges = new ArrayList<>();
+        for (int attempt = 0; attempt < edgeCount; attempt++) {
+            int from = random.nextInt(nodeCount);
+            int to = random.nextInt(nodeCount);
+            if (from != to && seen.add((long) Math.min(from, to) * nodeCount + Math.max(from, to))) {
+                edges.add(new int[]{from, to});
+            }
+        }
+        return graph(nodeCount, edges.toArray(int[][]::new));
+    }
+
+    private static CountryGraph graph(int nodeCount, int[][] edges) {
+        List<List<Integer>> neighbors = new ArrayList<>(nodeCount);
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            neighbors.add(new ArrayList<>());
+        }
+        for (int[] edge : edges) {
+            neighbors.get(edge[0]).add(edge[1]);
+            neighbors.get(edge[1]).add(edge[0]);
+        }
+        int[][] adjacency = new int[nodeCount][];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            adjacency[nodeId] = neighbors.get(nodeId).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int[] componentById = new int[nodeCount];
+        Arrays.fill(componentById, -1);
+        int componentCount = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (componentById[root] >= 0) {
+                continue;
+            }
+            componentById[root] = componentCount;
+            ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(root));
+            while (!queue.isEmpty()) {
+                for (int neighborId : adjacency[queue.poll()]) {
+                    if (componentById[neighborId] < 0) {
+                        componentById[neighborId] = componentCount;
+                        queue.add(neighborId);
+                    }
+                }
+            }
+            componentCount++;
+        }
+
+        Map<String, Integer> idByCode = new HashMap<>();
+        String[] codeById = new String[nodeCount];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            codeById[nodeId] = "N" + nodeId;
+            idByCode.put(codeById[nodeId], nodeId);
+        }
+        return new CountryGraph(idByCode, codeById, adjacency, componentById);
+    }
+}
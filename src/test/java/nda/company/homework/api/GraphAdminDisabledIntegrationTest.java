@@ -0,0 +1,54 @@
+package nda.company.homework.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@DisplayName("Graph admin API, disabled by default")
+class GraphAdminDisabledIntegrationTest {
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    @DisplayName("does not expose graph version or reload without routing.admin.enabled")
+    void shouldNotExposeReloadByDefault() throws Exception {
+        mockMvc.perform(get("/admin/graph"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/admin/graph/reload"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("does not expose border edits without routing.admin.enabled and keeps the served graph")
+    void shouldNotExposeBorderEditsByDefault() throws Exception {
+        mockMvc.perform(put("/admin/graph/borders/{left}/{right}", "CZE", "ITA"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/admin/graph/borders/{left}/{right}", "CZE", "AUT"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route.length()").value(3));
+    }
+}
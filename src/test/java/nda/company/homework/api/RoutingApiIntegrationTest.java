@@ -1,26 +1,53 @@
 package nda.company.homework.api;
 
+import nda.company.homework.routing.analytics.GraphAnalyticsService;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import nda.company.homework.routing.services.RouteMetric;
+import nda.company.homework.routing.services.RoutingService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "routing.admin.enabled=true")
 @DisplayName("Routing API")
 class RoutingApiIntegrationTest {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private GraphAnalyticsService graphAnalyticsService;
+
+    @Autowired
+    private CountryGraphHolder countryGraphHolder;
+
+    @MockitoSpyBean
+    private RoutingService routingService;
+
     private MockMvc mockMvc;
 
     @BeforeEach
@@ -49,6 +76,381 @@ class RoutingApiIntegrationTest {
                 .andExpect(jsonPath("$.route[" + (expectedRouteSize - 1) + "]").value(expectedEnd));
     }
 
+    @Test
+    @DisplayName("writes pre-encoded crossing-count routes byte-identical to the Jackson payload")
+    void shouldWritePreEncodedRouteLikeJackson() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "cze", "ita"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().longValue("Content-Length", 29))
+                .andExpect(content().string("{\"route\":[\"CZE\",\"AUT\",\"ITA\"]}"));
+
+        String viaJackson = mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("avoid", "DEU"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        assertEquals("{\"route\":[\"CZE\",\"AUT\",\"ITA\"]}", viaJackson);
+    }
+
+    @Test
+    @DisplayName("serializes pre-encoded routes like the Jackson payload when Jackson handles the media type")
+    void shouldSerializePreEncodedRouteThroughJacksonForOtherJsonTypes() throws Exception {
+        MediaType vendorJson = MediaType.parseMediaType("application/vnd.routing+json");
+
+        mockMvc.perform(get("/routing/{origin}/{destination}", "cze", "ita").accept(vendorJson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(vendorJson))
+                .andExpect(content().string("{\"route\":[\"CZE\",\"AUT\",\"ITA\"]}"));
+    }
+
+    @Test
+    @DisplayName("returns distance-optimized route with total distance")
+    void shouldReturnDistanceOptimizedRouteWithTotalDistance() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("optimize", "distance"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route[0]").value("CZE"))
+                .andExpect(jsonPath("$.route[-1]").value("ITA"))
+                .andExpect(jsonPath("$.distanceKm").value(greaterThan(0.0)));
+    }
+
+    @Test
+    @DisplayName("omits distance for crossing-count routes")
+    void shouldOmitDistanceForCrossingCountRoutes() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distanceKm").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("rejects unknown optimize value")
+    void shouldRejectUnknownOptimizeValue() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("optimize", "time"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("Unknown optimize value")));
+    }
+
+    @Test
+    @DisplayName("returns route through waypoints with leg boundaries")
+    void shouldReturnRouteThroughWaypoints() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("via", "hun,SVN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route[0]").value("CZE"))
+                .andExpect(jsonPath("$.route[-1]").value("ITA"))
+                .andExpect(jsonPath("$.legs.length()").value(3))
+                .andExpect(jsonPath("$.legs[0].origin").value("CZE"))
+                .andExpect(jsonPath("$.legs[0].destination").value("HUN"))
+                .andExpect(jsonPath("$.legs[1].destination").value("SVN"))
+                .andExpect(jsonPath("$.legs[2].startIndex").value(3))
+                .andExpect(jsonPath("$.legs[2].endIndex").value(4));
+    }
+
+    @Test
+    @DisplayName("returns route around avoided countries")
+    void shouldReturnRouteAroundAvoidedCountries() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("avoid", "AUT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route[0]").value("CZE"))
+                .andExpect(jsonPath("$.route[-1]").value("ITA"))
+                .andExpect(jsonPath("$.route").value(not(hasItem("AUT"))));
+    }
+
+    @Test
+    @DisplayName("returns countries within K crossings grouped by crossings")
+    void shouldReturnCountriesWithinCrossings() throws Exception {
+        mockMvc.perform(get("/routing/{origins}/within/{k}", "cze", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origins[0]").value("CZE"))
+                .andExpect(jsonPath("$.maxCrossings").value(1))
+                .andExpect(jsonPath("$.countriesByCrossings.length()").value(2))
+                .andExpect(jsonPath("$.countriesByCrossings[0][0]").value("CZE"))
+                .andExpect(jsonPath("$.countriesByCrossings[1].length()").value(4))
+                .andExpect(jsonPath("$.countriesByCrossings[1]").value(hasItem("AUT")));
+        mockMvc.perform(get("/routing/{origins}/within/{k}", "CZE,ITA", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countriesByCrossings[0].length()").value(2))
+                .andExpect(jsonPath("$.countriesByCrossings[1]").value(hasItem("FRA")));
+        mockMvc.perform(get("/routing/{origins}/within/{k}", "CZE", -1))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("k must not be negative")));
+        mockMvc.perform(get("/routing/{origins}/within/{k}", "CZE,XXX", 1))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("Unknown country code: XXX")));
+    }
+
+    @Test
+    @DisplayName("returns graph analytics once the background computation finishes")
+    void shouldReturnGraphAnalytics() throws Exception {
+        graphAnalyticsService.await();
+
+        mockMvc.perform(get("/analytics").param("top", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.components.length()").value(greaterThan(1)))
+                .andExpect(jsonPath("$.articulationPoints").value(hasItem("ESP")))
+                .andExpect(jsonPath("$.articulationPoints").value(not(hasItem("PRT"))))
+                .andExpect(jsonPath("$.mostCentral.length()").value(5));
+        mockMvc.perform(get("/analytics/{country}", "esp"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.country").value("ESP"))
+                .andExpect(jsonPath("$.articulationPoint").value(true))
+                .andExpect(jsonPath("$.eccentricity").value(greaterThan(0)));
+        mockMvc.perform(get("/analytics/{country}", "PRT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.betweenness").value(0.0))
+                .andExpect(jsonPath("$.articulationPoint").value(false));
+        mockMvc.perform(get("/analytics/{country}", "XXX"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("Unknown country code: XXX")));
+        mockMvc.perform(get("/analytics").param("top", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("reloads the country graph and keeps routing on the new version")
+    void shouldReloadCountryGraph() throws Exception {
+        int versionBefore = (int) countryGraphHolder.snapshot().version();
+
+        mockMvc.perform(get("/admin/graph"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(versionBefore))
+                .andExpect(jsonPath("$.countries").value(greaterThan(200)));
+        mockMvc.perform(post("/admin/graph/reload"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(versionBefore + 1))
+                .andExpect(jsonPath("$.loadMillis").value(greaterThan(-1)));
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route.length()").value(3));
+    }
+
+    @Test
+    @DisplayName("opens and closes single borders without reloading countries data")
+    void shouldOpenAndCloseBorders() throws Exception {
+        int versionBefore = (int) countryGraphHolder.snapshot().version();
+
+        mockMvc.perform(put("/admin/graph/borders/{left}/{right}", "cze", "ITA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(versionBefore + 1));
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route.length()").value(2));
+        mockMvc.perform(delete("/admin/graph/borders/{left}/{right}", "ITA", "CZE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(versionBefore + 2));
+        mockMvc.perform(delete("/admin/graph/borders/{left}/{right}", "ITA", "CZE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(versionBefore + 2));
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.route.length()").value(3));
+
+        mockMvc.perform(put("/admin/graph/borders/{left}/{right}", "CZE", "XXX"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("Unknown country code")));
+        mockMvc.perform(put("/admin/graph/borders/{left}/{right}", "CZE", "cze"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("returns shortest route count, enumeration and random sample per mode")
+    void shouldReturnShortestRoutesPerMode() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "cze", "ita").param("mode", "count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origin").value("CZE"))
+                .andExpect(jsonPath("$.crossings").value(2))
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.routes").doesNotExist());
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("mode", "all").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routes.length()").value(1))
+                .andExpect(jsonPath("$.routes[0][1]").value("AUT"));
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("mode", "random"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"route\":[\"CZE\",\"AUT\",\"ITA\"]}"));
+
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("mode", "one").param("limit", "5"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("limit is only supported")));
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("mode", "all").param("via", "HUN"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("only supports plain crossing-count routes")));
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("mode", "every"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("Unknown mode value")));
+    }
+
+    @ParameterizedTest(name = "[{index}] GET /routing/{0}/{1}?avoid={2} -> 400 with detail \"{3}\"")
+    @CsvSource(delimiter = ';', value = {
+            "PRT;FRA;esp;No land route found from PRT to FRA",
+            "CZE;ITA;ITA;cannot be both a route stop and avoided",
+            "CZE;ITA;AUT,;avoid must be"
+    })
+    @DisplayName("rejects avoid lists that make the route impossible or invalid")
+    void shouldRejectInvalidAvoidRequests(String origin, String destination, String avoid, String expectedDetailPart)
+            throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", origin, destination).param("avoid", avoid))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString(expectedDetailPart)));
+    }
+
+    @Test
+    @DisplayName("rejects blank waypoint codes")
+    void shouldRejectBlankWaypointCodes() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("via", "HUN,,SVN"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString("via must be")));
+    }
+
+    @Test
+    @DisplayName("returns crossings to every country reachable from origin")
+    void shouldReturnShortestPathTree() throws Exception {
+        mockMvc.perform(get("/routing/{origin}", "cze"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origin").value("CZE"))
+                .andExpect(jsonPath("$.countries.CZE.crossings").value(0))
+                .andExpect(jsonPath("$.countries.CZE.parent").doesNotExist())
+                .andExpect(jsonPath("$.countries.ITA.crossings").value(2))
+                .andExpect(jsonPath("$.countries.AUT.parent").value("CZE"))
+                .andExpect(jsonPath("$.countries.USA").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("returns compact shortest-path tree as parallel arrays")
+    void shouldReturnCompactShortestPathTree() throws Exception {
+        mockMvc.perform(get("/routing/{origin}", "PRT").param("format", "compact"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countries[0]").value("PRT"))
+                .andExpect(jsonPath("$.countries[1]").value("ESP"))
+                .andExpect(jsonPath("$.crossings[1]").value(1))
+                .andExpect(jsonPath("$.parents[0]").value(-1))
+                .andExpect(jsonPath("$.parents[1]").value(0));
+    }
+
+    @ParameterizedTest(name = "[{index}] GET /routing/{0}?format={1} -> 400")
+    @CsvSource({
+            "ZZZ,map,Unknown country code",
+            "CZE,xml,Unknown format value"
+    })
+    @DisplayName("rejects invalid shortest-path tree requests")
+    void shouldRejectInvalidShortestPathTreeRequests(String origin, String format, String expectedDetailPart)
+            throws Exception {
+        mockMvc.perform(get("/routing/{origin}", origin).param("format", format))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString(expectedDetailPart)));
+    }
+
+    @Test
+    @DisplayName("returns dense crossing matrix")
+    void shouldReturnCrossingMatrix() throws Exception {
+        mockMvc.perform(post("/routing/matrix")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origins\":[\"cze\",\"USA\"],\"destinations\":[\"ITA\",\"CZE\",\"CAN\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origins[0]").value("CZE"))
+                .andExpect(jsonPath("$.destinations.length()").value(3))
+                .andExpect(jsonPath("$.crossings[0][0]").value(2))
+                .andExpect(jsonPath("$.crossings[0][1]").value(0))
+                .andExpect(jsonPath("$.crossings[0][2]").value(-1))
+                .andExpect(jsonPath("$.crossings[1][2]").value(1));
+    }
+
+    @ParameterizedTest(name = "[{index}] POST /routing/matrix {0} -> 400")
+    @CsvSource(delimiter = ';', value = {
+            "{\"origins\":[],\"destinations\":[\"ITA\"]};must be non-empty",
+            "{\"origins\":[\"CZE\"]};must be non-empty",
+            "{\"origins\":[\"CZE\"],\"destinations\":[\"ZZZ\"]};Unknown country code: ZZZ"
+    })
+    @DisplayName("rejects invalid crossing matrix requests")
+    void shouldRejectInvalidCrossingMatrixRequests(String body, String expectedDetailPart) throws Exception {
+        mockMvc.perform(post("/routing/matrix").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString(expectedDetailPart)));
+    }
+
+    @Test
+    @DisplayName("streams batch results as NDJSON in input order with inline failures")
+    void shouldStreamBatchResultsInInputOrder() throws Exception {
+        String body = String.join("\n",
+                "{\"origin\":\"CZE\",\"destination\":\"ITA\"}",
+                "",
+                "{\"origin\":\"USA\",\"destination\":\"FRA\"}",
+                "not json",
+                "{\"origin\":\"cze\",\"destination\":\"ita\",\"optimize\":\"distance\"}",
+                "{\"origin\":\"ZZZ\"}"
+        );
+
+        String response = mockMvc.perform(post("/routing/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("{\"index\":0,\"route\":[\"CZE\",\"AUT\",\"ITA\"]}", lines[0]);
+        assertEquals("{\"index\":1,\"error\":\"No land route found from USA to FRA\"}", lines[1]);
+        assertEquals("{\"index\":2,\"error\":\"Malformed request line\"}", lines[2]);
+        assertTrue(lines[3].startsWith("{\"index\":3,\"route\":[\"CZE\""));
+        assertTrue(lines[3].contains("\"distanceKm\":"));
+        assertEquals("{\"index\":4,\"error\":\"origin and destination are required\"}", lines[4]);
+    }
+
+    @Test
+    @DisplayName("answers a batch pair whose lookup throws with an inline error and keeps streaming")
+    void shouldKeepStreamingBatchWhenOneLookupThrows() throws Exception {
+        doThrow(new IllegalStateException("lookup failed"))
+                .when(routingService)
+                .findRoute("FRA", "ESP", RouteMetric.CROSSINGS);
+        String body = String.join("\n",
+                "{\"origin\":\"CZE\",\"destination\":\"ITA\"}",
+                "{\"origin\":\"FRA\",\"destination\":\"ESP\"}",
+                "{\"origin\":\"CZE\",\"destination\":\"AUT\"}"
+        );
+
+        String response = mockMvc.perform(post("/routing/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"index\":0,\"route\":[\"CZE\",\"AUT\",\"ITA\"]}", lines[0]);
+        assertEquals("{\"index\":1,\"error\":\"Route lookup failed\"}", lines[1]);
+        assertEquals("{\"index\":2,\"route\":[\"CZE\",\"AUT\"]}", lines[2]);
+    }
+
+    @Test
+    @DisplayName("returns alternative routes ordered by crossings")
+    void shouldReturnAlternativeRoutes() throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA").param("alternatives", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routes.length()").value(3))
+                .andExpect(jsonPath("$.routes[0].length()").value(3))
+                .andExpect(jsonPath("$.routes[2][0]").value("CZE"))
+                .andExpect(jsonPath("$.routes[2][-1]").value("ITA"));
+    }
+
+    @ParameterizedTest(name = "[{index}] alternatives={0}, optimize={1} -> 400")
+    @CsvSource({
+            "0,crossings,alternatives must be a positive number",
+            "2,distance,only supported with optimize=crossings"
+    })
+    @DisplayName("rejects invalid alternatives requests")
+    void shouldRejectInvalidAlternativesRequests(String alternatives, String optimize, String expectedDetailPart)
+            throws Exception {
+        mockMvc.perform(get("/routing/{origin}/{destination}", "CZE", "ITA")
+                        .param("alternatives", alternatives)
+                        .param("optimize", optimize))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(containsString(expectedDetailPart)));
+    }
+
     @ParameterizedTest(name = "[{index}] GET /routing/{0}/{1} -> 400 with detail \"{2}\"")
     @CsvSource({
             "USA,FRA,No land route found",
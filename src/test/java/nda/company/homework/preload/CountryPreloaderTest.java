@@ -1,24 +1,62 @@
 package nda.company.homework.preload;
 
 import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphCompiler;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import nda.company.homework.routing.preload.CountryGraphReloader;
+import nda.company.homework.routing.preload.CountryGraphSnapshot;
 import nda.company.homework.routing.preload.CountryPreloader;
+import nda.company.homework.routing.preload.PreloadOptions;
+import nda.company.homework.routing.preload.SyntheticGraphGenerator;
+import nda.company.homework.routing.preload.SyntheticGraphGenerator.Topology;
+import nda.company.homework.routing.services.RouteMetric;
+import nda.company.homework.routing.services.RouteOptions;
+import nda.company.homework.routing.services.RoutingResult;
+import nda.company.homework.routing.services.RoutingService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Country preloader")
 class CountryPreloaderTest {
+    @TempDir
+    Path tempDir;
+
     @Test
     @DisplayName("reads only cca3 and borders while ignoring all other JSON fields")
     void shouldReadOnlyCca3AndBordersAndIgnoreOtherJsonFields() {
@@ -109,6 +147,336 @@ class CountryPreloaderTest {
         assertEquals(2, graph.edgeCount());
     }
 
+    @Test
+    @DisplayName("builds compressed sparse row adjacency spanning all border endpoints")
+    void shouldBuildCompressedSparseRowAdjacency() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB","CCC"]},
+                  {"cca3":"BBB","borders":["AAA","CCC"]},
+                  {"cca3":"CCC","borders":["AAA","BBB"]},
+                  {"cca3":"DDD","borders":[]}
+                ]
+                """;
+
+        CountryPreloader loader = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(json)
+        );
+
+        CountryGraph graph = loader.load();
+        int[] offsets = graph.neighborOffsets();
+        int[] targets = graph.neighborTargets();
+
+        assertEquals(graph.nodeCount() + 1, offsets.length);
+        assertEquals(2 * graph.edgeCount(), targets.length);
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            assertEquals(graph.degreeOf(nodeId), offsets[nodeId + 1] - offsets[nodeId]);
+        }
+        assertEquals(0, graph.degreeOf(graph.idByCode("DDD")));
+    }
+
+    @Test
+    @DisplayName("precomputes great-circle edge distances from latlng")
+    void shouldPrecomputeGreatCircleEdgeDistances() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB"],"latlng":[0,0],"capital":["A"]},
+                  {"cca3":"BBB","borders":["AAA"],"latlng":[0,1]}
+                ]
+                """;
+
+        CountryPreloader loader = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(json)
+        );
+
+        CountryGraph graph = loader.load();
+        float[] distances = graph.neighborDistancesKm();
+
+        assertNotNull(distances);
+        assertEquals(2, distances.length);
+        // one degree of longitude on the equator
+        assertEquals(111.19, distances[0], 0.01);
+        assertEquals(distances[0], distances[1]);
+    }
+
+    @Test
+    @DisplayName("leaves edge distances empty when some country has no latlng")
+    void shouldSkipEdgeDistancesWhenCoordinatesAreMissing() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB"],"latlng":[0,0]},
+                  {"cca3":"BBB","borders":["AAA"],"latlng":["x","y"]}
+                ]
+                """;
+
+        CountryPreloader loader = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(json)
+        );
+
+        assertNull(loader.load().neighborDistancesKm());
+    }
+
+    @Test
+    @DisplayName("answers distance routing on a graph without coordinates with a typed failure")
+    void shouldRejectDistanceRoutingWhenCoordinatesAreMissing() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB"],"latlng":[0,0]},
+                  {"cca3":"BBB","borders":["AAA"],"latlng":["x","y"]}
+                ]
+                """;
+
+        CountryPreloader loader = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(json)
+        );
+        RoutingService routingService = new RoutingService(loader.load());
+
+        assertInstanceOf(
+                RoutingResult.DistanceUnavailable.class,
+                routingService.findRoute("AAA", "BBB", RouteMetric.DISTANCE)
+        );
+        assertInstanceOf(
+                RoutingResult.DistanceUnavailable.class,
+                routingService.findRoute(
+                        "AAA",
+                        "BBB",
+                        RouteOptions.defaults().withMetric(RouteMetric.DISTANCE).withVia(List.of("BBB"))
+                )
+        );
+        assertInstanceOf(RoutingResult.Success.class, routingService.findRoute("AAA", "BBB", RouteMetric.CROSSINGS));
+    }
+
+    @Test
+    @DisplayName("resolves raw codes case-insensitively and keeps non-three-letter codes resolvable")
+    void shouldResolveRawCodesThroughPackedIndex() {
+        String json = """
+                [
+                  {"cca3":"aaa","borders":["BBB","X1"]},
+                  {"cca3":"BBB","borders":["AAA"]},
+                  {"cca3":" x1 ","borders":["AAA"]},
+                  {"cca3":"ccc","borders":[" aaa","Bbb\\t"," ","x1 "]}
+                ]
+                """;
+
+        CountryGraph graph = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(json)
+        ).load();
+        int aaa = graph.idByCode("AAA");
+        int x1 = graph.idByCode("X1");
+
+        assertNotEquals(-1, aaa);
+        assertNotEquals(-1, x1);
+        assertEquals(4, graph.nodeCount());
+        assertEquals(3, graph.degreeOf(graph.idByCode("CCC")));
+        assertEquals(-1, graph.idByCode("aaa"));
+        assertEquals(aaa, graph.idByRawCode("aaa"));
+        assertEquals(aaa, graph.idByRawCode(" aAa\t"));
+        assertEquals(aaa, graph.idByRawCode(new StringBuilder("AAA")));
+        assertEquals(x1, graph.idByRawCode(" x1"));
+        assertEquals(-1, graph.idByRawCode("ZZZ"));
+        assertEquals(-1, graph.idByRawCode("AA1"));
+        assertEquals(-1, graph.idByRawCode("AAAA"));
+        assertEquals(-1, graph.idByRawCode("   "));
+        assertEquals(-1, graph.idByRawCode(null));
+    }
+
+    @Test
+    @DisplayName("publishes a reloaded graph as the next version and keeps serving it when a reload fails")
+    void shouldPublishReloadedGraph() {
+        InMemoryResourceLoader resourceLoader = new InMemoryResourceLoader("""
+                [{"cca3":"aaa","borders":[]}]
+                """);
+        CountryPreloader loader = new CountryPreloader(new ObjectMapper(), resourceLoader);
+        CountryGraphHolder holder = new CountryGraphHolder(loader.load());
+
+        try (CountryGraphReloader reloader = new CountryGraphReloader(
+                loader,
+                holder,
+                CountryPreloader.DEFAULT_LOCATION,
+                false
+        )) {
+            resourceLoader.replaceJson("""
+                    [{"cca3":"aaa","borders":["bbb"]},{"cca3":"bbb","borders":["aaa"]}]
+                    """);
+            CountryGraphHolder.Snapshot snapshot = reloader.reload().join();
+
+            assertEquals(2, snapshot.version());
+            assertSame(snapshot.graph(), holder.current());
+            assertEquals(1, holder.current().edgeCount());
+
+            resourceLoader.replaceJson("42");
+            assertThrows(CompletionException.class, () -> reloader.reload().join());
+            assertEquals(2, holder.snapshot().version());
+            assertSame(snapshot.graph(), holder.current());
+        }
+    }
+
+    @Test
+    @DisplayName("opening a border merges components and weighs the border like a preloaded one")
+    void shouldMergeComponentsWhenBorderOpens() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB"],"latlng":[0,0]},
+                  {"cca3":"BBB","borders":["AAA"],"latlng":[0,1]},
+                  {"cca3":"CCC","borders":["DDD"],"latlng":[1,1]},
+                  {"cca3":"DDD","borders":["CCC"],"latlng":[1,2]},
+                  {"cca3":"EEE","borders":[],"latlng":[5,5]}
+                ]
+                """;
+        CountryGraph graph = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json)).load();
+        int aaa = graph.idByCode("AAA");
+        int bbb = graph.idByCode("BBB");
+        int ccc = graph.idByCode("CCC");
+        int ddd = graph.idByCode("DDD");
+        int eee = graph.idByCode("EEE");
+
+        CountryGraph opened = graph.withBorder(bbb, ccc);
+
+        assertEquals(3, graph.componentCount());
+        assertFalse(graph.hasBorder(bbb, ccc));
+        assertTrue(opened.hasBorder(ccc, bbb));
+        assertEquals(3, opened.edgeCount());
+        assertEquals(2, opened.componentCount());
+        assertEquals(opened.componentOf(aaa), opened.componentOf(ddd));
+        assertEquals(4, opened.componentSize(opened.componentOf(aaa)));
+        assertEquals(1, opened.componentSize(opened.componentOf(eee)));
+        assertSame(opened, opened.withBorder(ccc, bbb));
+        assertThrows(IllegalArgumentException.class, () -> graph.withBorder(aaa, aaa));
+
+        String rebuiltJson = json.replace("\"borders\":[\"AAA\"]", "\"borders\":[\"AAA\",\"CCC\"]");
+        CountryGraph rebuilt = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(rebuiltJson)).load();
+        assertEquals(distanceOf(rebuilt, bbb, ccc), distanceOf(opened, bbb, ccc));
+        assertEquals(distanceOf(rebuilt, ccc, bbb), distanceOf(opened, ccc, bbb));
+        assertEquals(distanceOf(rebuilt, aaa, bbb), distanceOf(opened, aaa, bbb));
+        assertEquals(distanceOf(rebuilt, ddd, ccc), distanceOf(opened, ddd, ccc));
+    }
+
+    @Test
+    @DisplayName("closing a bridge splits its component, closing a cycle border keeps components")
+    void shouldSplitComponentOnlyWhenBridgeCloses() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB","CCC"]},
+                  {"cca3":"BBB","borders":["AAA","CCC"]},
+                  {"cca3":"CCC","borders":["AAA","BBB","DDD"]},
+                  {"cca3":"DDD","borders":["CCC"]}
+                ]
+                """;
+        CountryGraph graph = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json)).load();
+        int aaa = graph.idByCode("AAA");
+        int bbb = graph.idByCode("BBB");
+        int ccc = graph.idByCode("CCC");
+        int ddd = graph.idByCode("DDD");
+
+        CountryGraph cycleClosed = graph.withoutBorder(bbb, aaa);
+        CountryGraph bridgeClosed = graph.withoutBorder(ccc, ddd);
+
+        assertEquals(3, cycleClosed.edgeCount());
+        assertEquals(1, cycleClosed.componentCount());
+        assertEquals(Set.of(ccc), neighborsOf(cycleClosed, aaa));
+        assertEquals(3, bridgeClosed.edgeCount());
+        assertEquals(2, bridgeClosed.componentCount());
+        assertNotEquals(bridgeClosed.componentOf(aaa), bridgeClosed.componentOf(ddd));
+        assertEquals(3, bridgeClosed.componentSize(bridgeClosed.componentOf(aaa)));
+        assertEquals(1, bridgeClosed.componentSize(bridgeClosed.componentOf(ddd)));
+        assertSame(bridgeClosed, bridgeClosed.withoutBorder(ddd, ccc));
+        assertEquals(4, graph.edgeCount());
+    }
+
+    @Test
+    @DisplayName("keeps adjacency and components equal to a full rebuild across random border edits")
+    void shouldMatchFullRebuildAcrossRandomBorderEdits() {
+        int nodeCount = 30;
+        Map<String, Integer> nodeIdByCode = new HashMap<>();
+        String[] codes = new String[nodeCount];
+        int[] components = new int[nodeCount];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            codes[nodeId] = "N" + nodeId;
+            nodeIdByCode.put(codes[nodeId], nodeId);
+            components[nodeId] = nodeId;
+        }
+        CountryGraph graph = new CountryGraph(nodeIdByCode, codes, new int[nodeCount][0], components);
+        boolean[][] borders = new boolean[nodeCount][nodeCount];
+        Random random = new Random(20);
+
+        for (int edit = 0; edit < 2_000; edit++) {
+            int left = random.nextInt(nodeCount);
+            int right = random.nextInt(nodeCount - 1);
+            right += right >= left ? 1 : 0;
+            // closing more often than opening keeps the graph splitting and merging instead of saturating
+            boolean open = random.nextInt(5) < 2;
+            graph = open ? graph.withBorder(left, right) : graph.withoutBorder(left, right);
+            borders[left][right] = open;
+            borders[right][left] = open;
+
+            int[] expected = componentsOf(borders);
+            int endpointCount = 0;
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                Set<Integer> expectedNeighbors = new HashSet<>();
+                for (int otherId = 0; otherId < nodeCount; otherId++) {
+                    if (borders[nodeId][otherId]) {
+                        expectedNeighbors.add(otherId);
+                        endpointCount++;
+                    }
+                    assertEquals(
+                            expected[nodeId] == expected[otherId],
+                            graph.componentOf(nodeId) == graph.componentOf(otherId)
+                    );
+                }
+                assertEquals(expectedNeighbors, neighborsOf(graph, nodeId));
+                assertEquals(expected[nodeCount + nodeId], graph.componentSize(graph.componentOf(nodeId)));
+            }
+            assertEquals(endpointCount / 2, graph.edgeCount());
+            assertEquals(expected[2 * nodeCount], graph.componentCount());
+        }
+    }
+
+    @Test
+    @DisplayName("publishes border edits as new versions until the next full reload")
+    void shouldPublishBorderEdits() {
+        InMemoryResourceLoader resourceLoader = new InMemoryResourceLoader("""
+                [{"cca3":"aaa","borders":["bbb"]},{"cca3":"bbb","borders":["aaa"]},{"cca3":"ccc","borders":[]}]
+                """);
+        CountryPreloader loader = new CountryPreloader(new ObjectMapper(), resourceLoader);
+        CountryGraphHolder holder = new CountryGraphHolder(loader.load());
+
+        try (CountryGraphReloader reloader = new CountryGraphReloader(
+                loader,
+                holder,
+                CountryPreloader.DEFAULT_LOCATION,
+                false
+        )) {
+            CountryGraphHolder.Snapshot opened = reloader.openBorder("bbb", " CCC ").join();
+
+            assertEquals(2, opened.version());
+            assertSame(opened.graph(), holder.current());
+            assertEquals(1, holder.current().componentCount());
+            assertSame(opened, reloader.openBorder("CCC", "BBB").join());
+
+            CountryGraph closed = reloader.closeBorder("AAA", "BBB").join().graph();
+
+            assertEquals(3, holder.snapshot().version());
+            assertEquals(2, closed.componentCount());
+            assertArrayEquals(new int[]{closed.idByCode("CCC")}, closed.neighborsOf(closed.idByCode("BBB")));
+
+            CompletionException failure = assertThrows(
+                    CompletionException.class,
+                    () -> reloader.closeBorder("AAA", "ZZZ").join()
+            );
+            assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+            assertEquals(3, holder.snapshot().version());
+
+            CountryGraph reloaded = reloader.reload().join().graph();
+            assertTrue(reloaded.hasBorder(reloaded.idByCode("AAA"), reloaded.idByCode("BBB")));
+            assertEquals(0, reloaded.degreeOf(reloaded.idByCode("CCC")));
+        }
+    }
+
     private Set<Integer> neighborsOf(CountryGraph graph, int nodeId) {
         Set<Integer> neighbors = new HashSet<>();
         for (int neighborId : graph.neighborsOf(nodeId)) {
@@ -117,11 +485,411 @@ class CountryPreloaderTest {
         return neighbors;
     }
 
+    @Test
+    @DisplayName("writes a snapshot on first load and reads the same graph back from it")
+    void shouldRoundTripGraphThroughSnapshot() {
+        String json = """
+                [
+                  {"cca3":"AAA","borders":["BBB","CCC"],"latlng":[0,0]},
+                  {"cca3":"BBB","borders":["AAA"],"latlng":[0,1]},
+                  {"cca3":"CCC","borders":["AAA"],"latlng":[1,0]},
+                  {"cca3":"X1","borders":[],"latlng":[2,2]}
+                ]
+                """;
+        Path snapshotPath = tempDir.resolve("countries.graph");
+        PreloadOptions options = PreloadOptions.defaults().withSnapshotPath(snapshotPath);
+
+        CountryGraph parsed = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json), options).load();
+
+        assertTrue(Files.exists(snapshotPath));
+        CountryGraph restored = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json), options)
+                .load();
+        assertEquals(parsed.nodeCount(), restored.nodeCount());
+        assertEquals(parsed.edgeCount(), restored.edgeCount());
+        assertEquals(parsed.componentCount(), restored.componentCount());
+        assertArrayEquals(parsed.neighborOffsets(), restored.neighborOffsets());
+        assertArrayEquals(parsed.neighborTargets(), restored.neighborTargets());
+        assertArrayEquals(parsed.neighborDistancesKm(), restored.neighborDistancesKm());
+        for (int nodeId = 0; nodeId < parsed.nodeCount(); nodeId++) {
+            assertEquals(parsed.codeById(nodeId), restored.codeById(nodeId));
+            assertEquals(parsed.componentOf(nodeId), restored.componentOf(nodeId));
+            assertArrayEquals(parsed.jsonCodeToken(nodeId), restored.jsonCodeToken(nodeId));
+        }
+        assertEquals(restored.idByCode("X1"), restored.idByRawCode(" x1 "));
+        // coordinates survive, so borders opened later are still weighed
+        assertNotNull(restored.withBorder(restored.idByCode("BBB"), restored.idByCode("CCC")).neighborDistancesKm());
+    }
+
+    @Test
+    @DisplayName("uses a snapshot only while it matches the countries data and format")
+    void shouldFallBackToJsonWhenSnapshotIsStaleOrCorrupt() throws IOException {
+        String json = """
+                [{"cca3":"AAA","borders":["BBB"]},{"cca3":"BBB","borders":["AAA"]}]
+                """;
+        String otherJson = """
+                [{"cca3":"CCC","borders":[]}]
+                """;
+        Path snapshotPath = tempDir.resolve("countries.graph");
+        PreloadOptions options = PreloadOptions.defaults().withSnapshotPath(snapshotPath);
+        CountryGraph other = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(otherJson)).load();
+
+        // a snapshot recorded against this data is trusted without parsing
+        long checksum = CountryGraphSnapshot.checksumOf(json.getBytes(StandardCharsets.UTF_8));
+        CountryGraphSnapshot.write(other, checksum, snapshotPath);
+        CountryGraph fromSnapshot = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json), options)
+                .load();
+        assertEquals(-1, fromSnapshot.idByCode("AAA"));
+        assertNotEquals(-1, fromSnapshot.idByCode("CCC"));
+
+        // stale: built from other data, so JSON is parsed and the snapshot rewritten
+        CountryGraphSnapshot.write(other, checksum + 1, snapshotPath);
+        CountryGraph reparsed = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json), options)
+                .load();
+        assertEquals(1, reparsed.edgeCount());
+        assertEquals(1, CountryGraphSnapshot.read(snapshotPath, checksum).edgeCount());
+        assertNull(CountryGraphSnapshot.read(snapshotPath, checksum + 1));
+
+        // corrupt: one flipped byte fails the checksum
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshotPath, bytes);
+        assertNull(CountryGraphSnapshot.read(snapshotPath, checksum));
+        assertEquals(1, new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(json), options)
+                .load()
+                .edgeCount());
+
+        assertNull(CountryGraphSnapshot.read(tempDir.resolve("missing.graph"), checksum));
+    }
+
+    @Test
+    @DisplayName("writes escaped and non-ASCII code tokens from the mapped code bytes like the heap graph")
+    void shouldWriteMappedCodeTokensLikeHeapTokens() throws IOException {
+        String countries = """
+                [
+                  {"cca3":"Q\\"1","borders":["B\\\\2"]},
+                  {"cca3":"B\\\\2","borders":["Q\\"1","X\\u0001Y"]},
+                  {"cca3":"X\\u0001Y","borders":["B\\\\2","\\u00C4\\u00D6\\u00DC"]},
+                  {"cca3":"\\u00C4\\u00D6\\u00DC","borders":["X\\u0001Y"]}
+                ]
+                """;
+        PreloadOptions options = PreloadOptions.defaults().withSnapshotPath(tempDir.resolve("escaped.graph"));
+        CountryGraph heap = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(countries), options)
+                .load();
+        CountryGraph mapped = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(countries),
+                options.withMappedGraph(true)
+        ).load();
+
+        assertTrue(mapped.isMapped());
+        assertEquals(4, mapped.nodeCount());
+        for (int nodeId = 0; nodeId < heap.nodeCount(); nodeId++) {
+            assertEquals(heap.jsonCodeTokenLength(nodeId), mapped.jsonCodeTokenLength(nodeId));
+            byte[] written = new byte[mapped.jsonCodeTokenLength(nodeId)];
+            assertEquals(written.length, mapped.writeJsonCodeToken(nodeId, written, 0));
+            assertArrayEquals(heap.jsonCodeToken(nodeId), written);
+        }
+        assertEquals(
+                "\"X\\u0001Y\"",
+                new String(mapped.jsonCodeToken(mapped.idByCode("X\u0001Y")), StandardCharsets.UTF_8)
+        );
+        assertEquals(mapped.idByCode("Q\"1"), mapped.idByRawCode(" q\"1\t"));
+        assertEquals(mapped.idByCode("B\\2"), mapped.idByRawCode("b\\2"));
+        assertEquals(mapped.idByCode("\u00C4\u00D6\u00DC"), mapped.idByRawCode(" \u00E4\u00F6\u00FC"));
+        assertEquals(-1, mapped.idByRawCode("Q\""));
+        assertEquals(-1, mapped.idByRawCode("Q\"12"));
+        assertEquals(-1, mapped.idByRawCode(" "));
+    }
+
+    @Test
+    @DisplayName("serves the same graph and routes from the memory-mapped snapshot as from the heap")
+    void shouldServeMappedGraphLikeHeapGraph() throws IOException {
+        Random random = new Random(22);
+        StringBuilder json = new StringBuilder("[");
+        int countryCount = 60;
+        for (int nodeId = 0; nodeId < countryCount; nodeId++) {
+            StringBuilder borders = new StringBuilder();
+            for (int otherId = 0; otherId < countryCount; otherId++) {
+                if (otherId != nodeId && random.nextInt(countryCount) < 2) {
+                    borders.append(borders.isEmpty() ? "" : ",").append("\"C").append(otherId).append('"');
+                }
+            }
+            json.append(nodeId == 0 ? "" : ",")
+                    .append("{\"cca3\":\"C").append(nodeId)
+                    .append("\",\"borders\":[").append(borders)
+                    .append("],\"latlng\":[").append(random.nextInt(120) - 60)
+                    .append(',').append(random.nextInt(300) - 150).append("]}");
+        }
+        String countries = json.append(']').toString();
+        Path snapshotPath = tempDir.resolve("countries.graph");
+        PreloadOptions options = PreloadOptions.defaults().withSnapshotPath(snapshotPath).withLandmarksPerComponent(2);
+
+        CountryGraph heap = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader(countries), options)
+                .load();
+        // the heap load wrote the snapshot, so this load maps it without parsing
+        CountryGraph mapped = new CountryPreloader(
+                new ObjectMapper(),
+                new InMemoryResourceLoader(countries),
+                options.withMappedGraph(true)
+        ).load();
+
+        assertTrue(mapped.isMapped());
+        assertFalse(heap.isMapped());
+        assertNotNull(mapped.landmarkTable());
+        assertEquals(heap.nodeCount(), mapped.nodeCount());
+        assertEquals(heap.edgeCount(), mapped.edgeCount());
+        assertEquals(heap.componentCount(), mapped.componentCount());
+        for (int nodeId = 0; nodeId < heap.nodeCount(); nodeId++) {
+            String code = heap.codeById(nodeId);
+            assertEquals(code, mapped.codeById(nodeId));
+            assertEquals(nodeId, mapped.idByCode(code));
+            assertEquals(nodeId, mapped.idByRawCode(" " + code.toLowerCase() + "\t"));
+            int componentId = heap.componentOf(nodeId);
+            assertEquals(componentId, mapped.componentOf(nodeId));
+            assertEquals(heap.componentSize(componentId), mapped.componentSize(componentId));
+            assertArrayEquals(heap.neighborsOf(nodeId), mapped.neighborsOf(nodeId));
+            assertArrayEquals(heap.jsonCodeToken(nodeId), mapped.jsonCodeToken(nodeId));
+            assertEquals(heap.jsonCodeTokenLength(nodeId), mapped.jsonCodeTokenLength(nodeId));
+            byte[] written = new byte[mapped.jsonCodeTokenLength(nodeId) + 1];
+            assertEquals(written.length, mapped.writeJsonCodeToken(nodeId, written, 1));
+            assertArrayEquals(heap.jsonCodeToken(nodeId), Arrays.copyOfRange(written, 1, written.length));
+        }
+        assertEquals(-1, mapped.idByCode("C999"));
+        assertEquals(-1, mapped.idByRawCode("  "));
+
+        RoutingService heapRouting = new RoutingService(heap);
+        RoutingService mappedRouting = new RoutingService(mapped);
+        for (int originId = 0; originId < countryCount; originId += 3) {
+            for (int destinationId = 0; destinationId < countryCount; destinationId += 2) {
+                String origin = heap.codeById(originId);
+                String destination = heap.codeById(destinationId);
+                for (RouteMetric metric : RouteMetric.values()) {
+                    assertEquals(
+                            heapRouting.findRoute(origin, destination, metric),
+                            mappedRouting.findRoute(origin, destination, metric)
+                    );
+                }
+            }
+        }
+
+        // mapped graphs have no heap arrays to edit
+        assertThrows(UnsupportedOperationException.class, mapped::neighborTargets);
+        assertThrows(UnsupportedOperationException.class, () -> mapped.withBorder(0, 1));
+        // offline snapshots map without knowing the source data
+        assertEquals(heap.edgeCount(), CountryGraphSnapshot.map(snapshotPath).edgeCount());
+        assertNull(CountryGraphSnapshot.map(snapshotPath, 0));
+    }
+
+    @Test
+    @DisplayName("reads the graph compiled next to the countries data only while it matches the data")
+    void shouldLoadCompiledGraphWhileItMatchesTheData() throws IOException {
+        String json = """
+                [{"cca3":"AAA","borders":["BBB"]},{"cca3":"BBB","borders":["AAA"]}]
+                """;
+        Path source = tempDir.resolve("countries.json");
+        Path compiledPath = tempDir.resolve("countries.graph");
+        Files.writeString(source, json);
+        String location = source.toUri().toString();
+        assertEquals(compiledPath.toUri().toString(), CountryPreloader.compiledGraphLocation(location));
+        assertNull(CountryPreloader.compiledGraphLocation("file:/data/countries.ndjson"));
+
+        assertTrue(CountryGraphCompiler.compile(source, compiledPath) > 0);
+        CountryPreloader compiledLoader = new CountryPreloader(
+                new ObjectMapper(),
+                new DefaultResourceLoader(),
+                PreloadOptions.defaults().withCompiledGraph(true)
+        );
+        CountryGraph compiled = compiledLoader.load(location);
+        assertEquals(1, compiled.edgeCount());
+        assertEquals(compiled.idByCode("BBB"), compiled.neighborsOf(compiled.idByCode("AAA"))[0]);
+
+        // a compiled graph recorded against this data is trusted without parsing
+        CountryGraph other = new CountryPreloader(new ObjectMapper(), new InMemoryResourceLoader("""
+                [{"cca3":"CCC","borders":[]}]
+                """)).load();
+        CountryGraphSnapshot.write(other, CountryGraphSnapshot.checksumOf(Files.readAllBytes(source)), compiledPath);
+        assertNotEquals(-1, compiledLoader.load(location).idByCode("CCC"));
+        // disabled, or stale after the data changed: JSON is parsed
+        assertNotEquals(-1, new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader())
+                .load(location)
+                .idByCode("AAA"));
+        Files.writeString(source, json.replace("AAA", "DDD"));
+        assertNotEquals(-1, compiledLoader.load(location).idByCode("DDD"));
+
+        // the build compiler keeps a graph that matches the data and rewrites a stale one
+        CountryGraphSnapshot.write(other, CountryGraphSnapshot.checksumOf(Files.readAllBytes(source)), compiledPath);
+        CountryGraphCompiler.compile(source, compiledPath);
+        assertNotEquals(-1, compiledLoader.load(location).idByCode("CCC"));
+        Files.writeString(source, json);
+        CountryGraphCompiler.compile(source, compiledPath);
+        assertEquals(-1, CountryGraphSnapshot.read(compiledPath, CountryGraphSnapshot.checksumOf(
+                Files.readAllBytes(source))).idByCode("CCC"));
+    }
+
+    @Test
+    @DisplayName("merges parallel shards of JSON, gzip and split NDJSON into the same graph as one JSON array")
+    void shouldMergeShardedDataLikeOneJsonArray() throws IOException {
+        Random random = new Random(24);
+        int nodeCount = 300;
+        List<String> countries = new ArrayList<>();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            StringJoiner borders = new StringJoiner("\",\"", "[\"", "\"]").setEmptyValue("[]");
+            for (int border = random.nextInt(4); border > 0; border--) {
+                borders.add(String.format("c%03d", random.nextInt(nodeCount)));
+            }
+            countries.add(String.format(
+                    Locale.ROOT,
+                    "{\"cca3\":\"C%03d\",\"borders\":%s,\"latlng\":[%.3f,%.3f],\"name\":{\"common\":\"x\"}}",
+                    nodeId,
+                    borders,
+                    random.nextDouble() * 180 - 90,
+                    random.nextDouble() * 360 - 180
+            ));
+        }
+        Path single = tempDir.resolve("countries.json");
+        Files.writeString(single, "[" + String.join(",\n", countries) + "]");
+        Path shards = Files.createDirectory(tempDir.resolve("shards"));
+        Files.writeString(shards.resolve("part-0.json"), "[" + String.join(",", countries.subList(0, 100)) + "]");
+        try (Writer writer = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(shards.resolve("part-1.ndjson.gz"))),
+                StandardCharsets.UTF_8
+        )) {
+            writer.write(String.join("\n", countries.subList(100, 200)));
+        }
+        // trailing blank lines end up in a range of their own
+        String lastShard = String.join("\n", countries.subList(200, nodeCount)) + "\n".repeat(600);
+        Files.writeString(shards.resolve("part-2.jsonl"), lastShard);
+        Files.writeString(shards.resolve("README.txt"), "not countries data");
+
+        CountryGraph expected = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader())
+                .load(single.toUri().toString());
+        // 512-byte shards split the last file into many line-aligned ranges
+        PreloadOptions options = PreloadOptions.defaults().withShardBytes(512);
+        CountryPreloader shardLoader = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader(), options);
+        String location = shards.toUri().toString();
+        assertSameGraph(expected, shardLoader.load(location));
+
+        Path snapshotPath = tempDir.resolve("shards.graph");
+        CountryPreloader snapshotLoader = new CountryPreloader(
+                new ObjectMapper(),
+                new DefaultResourceLoader(),
+                options.withSnapshotPath(snapshotPath)
+        );
+        assertSameGraph(expected, snapshotLoader.load(location));
+        assertTrue(Files.exists(snapshotPath));
+        assertSameGraph(expected, snapshotLoader.load(location));
+        // a changed shard makes the snapshot stale
+        Files.writeString(shards.resolve("part-3.ndjson"), "{\"cca3\":\"NEW\",\"borders\":[\"C000\"]}");
+        assertNotEquals(-1, snapshotLoader.load(location).idByCode("NEW"));
+    }
+
+    @Test
+    @DisplayName("generates deterministic synthetic graphs that load back unchanged from NDJSON shards")
+    void shouldGenerateSyntheticGraphsThatLoadBackFromNdjson() throws IOException {
+        assertEquals("AAA", SyntheticGraphGenerator.codeOf(0));
+        assertEquals("ZZZ", SyntheticGraphGenerator.codeOf(26 * 26 * 26 - 1));
+        assertEquals("BAAA", SyntheticGraphGenerator.codeOf(26 * 26 * 26));
+        CountryPreloader loader = new CountryPreloader(new ObjectMapper(), new DefaultResourceLoader());
+        int nodeCount = 3000;
+        for (Topology topology : Topology.values()) {
+            CountryGraph graph = SyntheticGraphGenerator.generate(topology, nodeCount, 6, 25);
+            assertSameGraph(graph, SyntheticGraphGenerator.generate(topology, nodeCount, 6, 25));
+            assertEquals(nodeCount, graph.nodeCount());
+            assertNotNull(graph.neighborDistancesKm());
+            double averageDegree = 2.0 * graph.edgeCount() / nodeCount;
+            assertTrue(averageDegree > 3 && averageDegree < 9, topology + " average degree " + averageDegree);
+
+            Path directory = tempDir.resolve(topology.name());
+            SyntheticGraphGenerator.writeNdjson(graph, directory, 3);
+            CountryGraph loaded = loader.load(directory.toUri().toString());
+            assertEquals(graph.edgeCount(), loaded.edgeCount());
+            assertEquals(graph.componentCount(), loaded.componentCount());
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                int loadedId = loaded.idByCode(graph.codeById(nodeId));
+                assertEquals(bordersOf(graph, nodeId), bordersOf(loaded, loadedId));
+            }
+        }
+    }
+
+    /**
+     * @return neighbour codes with their edge distances
+     */
+    private static Map<String, Float> bordersOf(CountryGraph graph, int nodeId) {
+        Map<String, Float> borders = new HashMap<>();
+        int[] offsets = graph.neighborOffsets();
+        for (int edge = offsets[nodeId]; edge < offsets[nodeId + 1]; edge++) {
+            borders.put(graph.codeById(graph.neighborTargets()[edge]), graph.neighborDistancesKm()[edge]);
+        }
+        return borders;
+    }
+
+    private static void assertSameGraph(CountryGraph expected, CountryGraph actual) {
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        for (int nodeId = 0; nodeId < expected.nodeCount(); nodeId++) {
+            assertEquals(expected.codeById(nodeId), actual.codeById(nodeId));
+            assertEquals(expected.componentOf(nodeId), actual.componentOf(nodeId));
+        }
+        assertArrayEquals(expected.neighborOffsets(), actual.neighborOffsets());
+        assertArrayEquals(expected.neighborTargets(), actual.neighborTargets());
+        assertArrayEquals(expected.neighborDistancesKm(), actual.neighborDistancesKm());
+    }
+
+    /**
+     * Reference connectivity by plain BFS over an adjacency matrix.
+     *
+     * @return component per node, then component size per node, then the component count
+     */
+    private static int[] componentsOf(boolean[][] borders) {
+        int nodeCount = borders.length;
+        int[] result = new int[2 * nodeCount + 1];
+        Arrays.fill(result, 0, nodeCount, -1);
+        int componentCount = 0;
+        int[] queue = new int[nodeCount];
+        for (int start = 0; start < nodeCount; start++) {
+            if (result[start] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            result[start] = componentCount;
+            while (head < tail) {
+                int nodeId = queue[head++];
+                for (int otherId = 0; otherId < nodeCount; otherId++) {
+                    if (borders[nodeId][otherId] && result[otherId] < 0) {
+                        result[otherId] = componentCount;
+                        queue[tail++] = otherId;
+                    }
+                }
+            }
+            for (int i = 0; i < tail; i++) {
+                result[nodeCount + queue[i]] = tail;
+            }
+            componentCount++;
+        }
+        result[2 * nodeCount] = componentCount;
+        return result;
+    }
+
+    private static float distanceOf(CountryGraph graph, int nodeId, int neighborId) {
+        int[] offsets = graph.neighborOffsets();
+        for (int edge = offsets[nodeId]; edge < offsets[nodeId + 1]; edge++) {
+            if (graph.neighborTargets()[edge] == neighborId) {
+                return graph.neighborDistancesKm()[edge];
+            }
+        }
+        throw new AssertionError("No border between " + nodeId + " and " + neighborId);
+    }
+
     private static final class InMemoryResourceLoader implements ResourceLoader {
 
-        private final byte[] jsonData;
+        private volatile byte[] jsonData;
 
         private InMemoryResourceLoader(String json) {
+            replaceJson(json);
+        }
+
+        private void replaceJson(String json) {
             this.jsonData = json.getBytes(StandardCharsets.UTF_8);
         }
 
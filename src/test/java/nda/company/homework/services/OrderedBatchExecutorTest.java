@@ -0,0 +1,82 @@
+package nda.company.homework.services;
+
+import nda.company.homework.routing.services.OrderedBatchExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Ordered batch executor")
+class OrderedBatchExecutorTest {
+    private final OrderedBatchExecutor executor = new OrderedBatchExecutor(4, 8);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("emits results in input order although tasks finish out of order")
+    void shouldEmitResultsInInputOrder() {
+        List<Integer> results = new ArrayList<>();
+
+        executor.mapInOrder(IntStream.range(0, 500).iterator(), value -> {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(50_000));
+            return value * 2;
+        }, results::add);
+
+        assertEquals(IntStream.range(0, 500).map(value -> value * 2).boxed().toList(), results);
+    }
+
+    @Test
+    @DisplayName("pulls inputs lazily and never runs more than the in-flight window ahead of the sink")
+    void shouldBoundInFlightTasks() {
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger emitted = new AtomicInteger();
+        Iterator<Integer> inputs = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 200;
+            }
+
+            @Override
+            public Integer next() {
+                maxAhead.accumulateAndGet(pulled.get() - emitted.get(), Math::max);
+                return pulled.getAndIncrement();
+            }
+        };
+
+        executor.mapInOrder(inputs, value -> value, value -> emitted.incrementAndGet());
+
+        assertEquals(200, emitted.get());
+        assertTrue(maxAhead.get() <= 8);
+    }
+
+    @Test
+    @DisplayName("propagates task failures to the caller")
+    void shouldPropagateTaskFailures() {
+        assertThrows(IllegalStateException.class, () -> executor.mapInOrder(
+                List.of(1, 2, 3).iterator(),
+                value -> {
+                    if (value == 2) {
+                        throw new IllegalArgumentException("boom");
+                    }
+                    return value;
+                },
+                value -> {
+                }
+        ));
+    }
+}
@@ -1,23 +1,53 @@
 package nda.company.homework.services;
 
 import nda.company.homework.routing.preload.CountryGraph;
+import nda.company.homework.routing.preload.CountryGraphHolder;
+import nda.company.homework.routing.preload.LandmarkTable;
+import nda.company.homework.routing.preload.NextHopTable;
+import nda.company.homework.routing.services.FirstRouteProbe;
+import nda.company.homework.routing.services.RouteCacheStats;
+import nda.company.homework.routing.services.RouteLeg;
+import nda.company.homework.routing.services.RouteMetric;
+import nda.company.homework.routing.services.RouteOptions;
 import nda.company.homework.routing.services.RoutingResult;
 import nda.company.homework.routing.services.RoutingService;
+import nda.company.homework.routing.services.SearchMode;
+import nda.company.homework.routing.services.SearchOptions;
+import nda.company.homework.routing.services.SearchStats;
+import nda.company.homework.routing.services.ShortestPathTree;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Routing service")
 class RoutingServiceTest {
     private final RoutingService routingService = new RoutingService(testGraph());
+    private final RoutingService nextHopRoutingService = new RoutingService(
+            testGraph().withNextHopTable(NextHopTable.build(testGraph()))
+    );
 
     @ParameterizedTest(name = "[{index}] {0} -> {1} returns {2}")
     @MethodSource("successfulRoutes")
@@ -29,6 +59,728 @@ class RoutingServiceTest {
         assertEquals(expectedRoute, success.route());
     }
 
+    @ParameterizedTest(name = "[{index}] {0} -> {1} returns {2} on every repeated search")
+    @MethodSource("successfulRoutes")
+    @DisplayName("returns the same route when scratch buffers are reused across searches")
+    void shouldReturnSameRouteWhenScratchBuffersAreReused(String origin, String destination, List<String> expectedRoute) {
+        for (int attempt = 0; attempt < 1_000; attempt++) {
+            RoutingResult result = routingService.findRoute(origin, destination);
+
+            RoutingResult.Success success = assertInstanceOf(RoutingResult.Success.class, result);
+            assertEquals(expectedRoute, success.route());
+        }
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} -> {1} returns {2} from next-hop table")
+    @MethodSource("successfulRoutes")
+    @DisplayName("returns shortest route from precomputed next-hop table")
+    void shouldReturnShortestRouteFromNextHopTable(String origin, String destination, List<String> expectedRoute) {
+        RoutingResult result = nextHopRoutingService.findRoute(origin, destination);
+
+        RoutingResult.Success success = assertInstanceOf(RoutingResult.Success.class, result);
+        assertEquals(expectedRoute, success.route());
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} -> {1} returns {2} with direction-optimizing search")
+    @MethodSource("successfulRoutes")
+    @DisplayName("returns shortest route with direction-optimizing search")
+    void shouldReturnShortestRouteWithDirectionOptimizingSearch(
+            String origin,
+            String destination,
+            List<String> expectedRoute
+    ) {
+        RoutingService directionOptimizing = new RoutingService(testGraph(), SearchMode.DIRECTION_OPTIMIZING, 1);
+
+        RoutingResult result = directionOptimizing.findRoute(origin, destination);
+
+        RoutingResult.Success success = assertInstanceOf(RoutingResult.Success.class, result);
+        assertEquals(expectedRoute, success.route());
+    }
+
+    @Test
+    @DisplayName("direction-optimizing parallel search matches bidirectional route lengths on a large grid")
+    void shouldMatchBidirectionalRouteLengthsOnLargeGrid() {
+        CountryGraph graph = gridGraph(120, 120);
+        assertSameRouteLengths(graph, new RoutingService(graph, SearchMode.DIRECTION_OPTIMIZING, 64));
+    }
+
+    @Test
+    @DisplayName("direction-optimizing bottom-up search matches bidirectional route lengths on a dense graph")
+    void shouldMatchBidirectionalRouteLengthsOnDenseGraph() {
+        CountryGraph graph = randomGraph(20_000, 8);
+        assertSameRouteLengths(graph, new RoutingService(graph, SearchMode.DIRECTION_OPTIMIZING, 64));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} -> {1} returns {2} with landmark search")
+    @MethodSource("successfulRoutes")
+    @DisplayName("returns shortest route with landmark search")
+    void shouldReturnShortestRouteWithLandmarkSearch(String origin, String destination, List<String> expectedRoute) {
+        CountryGraph graph = testGraph();
+        RoutingService landmarks = new RoutingService(
+                graph.withLandmarkTable(LandmarkTable.build(graph, 2)),
+                SearchMode.LANDMARKS,
+                1
+        );
+
+        RoutingResult result = landmarks.findRoute(origin, destination);
+
+        RoutingResult.Success success = assertInstanceOf(RoutingResult.Success.class, result);
+        assertEquals(expectedRoute, success.route());
+    }
+
+    @Test
+    @DisplayName("landmark search matches bidirectional route lengths on a large grid and settles fewer nodes")
+    void shouldMatchBidirectionalRouteLengthsWithLandmarksOnLargeGrid() {
+        CountryGraph graph = gridGraph(120, 120);
+        CountryGraph graphWithLandmarks = graph.withLandmarkTable(LandmarkTable.build(graph, 4));
+        RoutingService bidirectional = new RoutingService(graph);
+        RoutingService landmarks = new RoutingService(graphWithLandmarks, SearchMode.LANDMARKS, 1);
+
+        assertSameRouteLengths(graph, landmarks);
+
+        SearchStats bfsStats = bidirectional.searchStats("N0", "N14399");
+        SearchStats altStats = landmarks.searchStats("N0", "N14399");
+        assertEquals(bfsStats.routeLength(), altStats.routeLength());
+        assertTrue(altStats.settledNodes() < bfsStats.settledNodes());
+    }
+
+    @Test
+    @DisplayName("landmark search matches bidirectional route lengths on a dense graph")
+    void shouldMatchBidirectionalRouteLengthsWithLandmarksOnDenseGraph() {
+        CountryGraph graph = randomGraph(20_000, 8);
+        assertSameRouteLengths(
+                graph,
+                new RoutingService(graph.withLandmarkTable(LandmarkTable.build(graph, 4)), SearchMode.LANDMARKS, 1)
+        );
+    }
+
+    @Test
+    @DisplayName("landmark mode falls back to bidirectional search when no landmarks were precomputed")
+    void shouldFallBackToBidirectionalSearchWithoutLandmarks() {
+        RoutingService landmarks = new RoutingService(testGraph(), SearchMode.LANDMARKS, 1);
+
+        RoutingResult.Success success = assertInstanceOf(
+                RoutingResult.Success.class,
+                landmarks.findRoute("AAA", "CCC")
+        );
+        assertEquals(List.of("AAA", "BBB", "CCC"), success.route());
+    }
+
+    @Test
+    @DisplayName("minimizes total distance instead of crossings when distance metric is requested")
+    void shouldMinimizeDistanceWhenDistanceMetricIsRequested() {
+        RoutingService weightedRoutingService = new RoutingService(weightedTestGraph());
+
+        RoutingResult.Success byCrossings = assertInstanceOf(
+                RoutingResult.Success.class,
+                weightedRoutingService.findRoute("AAA", "CCC", RouteMetric.CROSSINGS)
+        );
+        RoutingResult.Success byDistance = assertInstanceOf(
+                RoutingResult.Success.class,
+                weightedRoutingService.findRoute("AAA", "CCC", RouteMetric.DISTANCE)
+        );
+
+        assertEquals(List.of("AAA", "CCC"), byCrossings.route());
+        assertEquals(null, byCrossings.distanceKm());
+        assertEquals(List.of("AAA", "BBB", "DDD", "CCC"), byDistance.route());
+        assertEquals(30.0, byDistance.distanceKm(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("routes through waypoints in order and reports leg boundaries")
+    void shouldRouteThroughWaypointsInOrder() {
+        RoutingResult.Success success = assertInstanceOf(
+                RoutingResult.Success.class,
+                routingService.findRoute("aaa", "AAA", RouteOptions.defaults().withVia(List.of("ccc")))
+        );
+
+        assertEquals(List.of("AAA", "BBB", "CCC", "BBB", "AAA"), success.route());
+        assertEquals(
+                List.of(new RouteLeg("AAA", "CCC", 0, 2), new RouteLeg("CCC", "AAA", 2, 4)),
+                success.legs()
+        );
+    }
+
+    @Test
+    @DisplayName("sums leg distances for distance-optimized waypoint routes")
+    void shouldSumLegDistancesForWaypointRoutes() {
+        RoutingService weightedRoutingService = new RoutingService(weightedTestGraph());
+
+        RoutingResult.Success success = assertInstanceOf(
+                RoutingResult.Success.class,
+                weightedRoutingService.findRoute(
+                        "AAA",
+                        "CCC",
+                        RouteOptions.defaults().withMetric(RouteMetric.DISTANCE).withVia(List.of("DDD", "DDD"))
+                )
+        );
+
+        assertEquals(List.of("AAA", "BBB", "DDD", "CCC"), success.route());
+        assertEquals(30.0, success.distanceKm(), 1e-6);
+        assertEquals(3, success.legs().size());
+        assertEquals(new RouteLeg("DDD", "DDD", 2, 2), success.legs().get(1));
+    }
+
+    @Test
+    @DisplayName("rejects waypoint routes with an unknown code or an unreachable leg before searching")
+    void shouldRejectInvalidWaypointRoutes() {
+        RoutingResult.UnknownCountry unknownCountry = assertInstanceOf(
+                RoutingResult.UnknownCountry.class,
+                routingService.findRoute("AAA", "CCC", RouteOptions.defaults().withVia(List.of("BBB", "zzz")))
+        );
+        assertEquals("ZZZ", unknownCountry.countryCode());
+
+        RoutingResult.NoLandRoute noLandRoute = assertInstanceOf(
+                RoutingResult.NoLandRoute.class,
+                routingService.findRoute("AAA", "CCC", RouteOptions.defaults().withVia(List.of("BBB", "DDD")))
+        );
+        assertEquals("BBB", noLandRoute.origin());
+        assertEquals("DDD", noLandRoute.destination());
+    }
+
+    @Test
+    @DisplayName("finds shortest route around avoided countries")
+    void shouldRouteAroundAvoidedCountries() {
+        RoutingService gridRoutingService = new RoutingService(gridGraph(3, 3));
+
+        RoutingResult.Success success = assertInstanceOf(
+                RoutingResult.Success.class,
+                gridRoutingService.findRoute("N0", "N2", RouteOptions.defaults().withAvoid(List.of("n1")))
+        );
+
+        assertEquals(List.of("N0", "N3", "N4", "N5", "N2"), success.route());
+        assertNull(success.legs());
+    }
+
+    @Test
+    @DisplayName("rejects routes cut off by avoided countries even with a precomputed next-hop table")
+    void shouldRejectRoutesCutOffByAvoidedCountries() {
+        RouteOptions avoidBbb = RouteOptions.defaults().withAvoid(List.of("BBB"));
+
+        for (RoutingService service : List.of(routingService, nextHopRoutingService)) {
+            RoutingResult.NoLandRoute noLandRoute = assertInstanceOf(
+                    RoutingResult.NoLandRoute.class,
+                    service.findRoute("AAA", "CCC", avoidBbb)
+            );
+            assertEquals("AAA", noLandRoute.origin());
+            assertEquals("CCC", noLandRoute.destination());
+        }
+    }
+
+    @Test
+    @DisplayName("rejects avoided route stops and unknown avoided codes")
+    void shouldRejectInvalidAvoidLists() {
+        RoutingResult.AvoidedStop avoidedStop = assertInstanceOf(
+                RoutingResult.AvoidedStop.class,
+                routingService.findRoute("AAA", "CCC", RouteOptions.defaults().withAvoid(List.of("ccc")))
+        );
+        assertEquals("CCC", avoidedStop.countryCode());
+
+        RoutingResult.UnknownCountry unknownCountry = assertInstanceOf(
+                RoutingResult.UnknownCountry.class,
+                routingService.findRoute("AAA", "CCC", RouteOptions.defaults().withAvoid(List.of("zzz")))
+        );
+        assertEquals("ZZZ", unknownCountry.countryCode());
+    }
+
+    @Test
+    @DisplayName("applies avoided countries to distance-optimized and alternative routes")
+    void shouldApplyAvoidedCountriesToDistanceAndAlternativeRoutes() {
+        RoutingService weightedRoutingService = new RoutingService(weightedTestGraph());
+        RoutingResult.Success byDistance = assertInstanceOf(
+                RoutingResult.Success.class,
+                weightedRoutingService.findRoute(
+                        "AAA",
+                        "CCC",
+                        RouteOptions.defaults().withMetric(RouteMetric.DISTANCE).withAvoid(List.of("BBB"))
+                )
+        );
+        assertEquals(List.of("AAA", "CCC"), byDistance.route());
+        assertEquals(100.0, byDistance.distanceKm(), 1e-6);
+
+        RoutingService gridRoutingService = new RoutingService(gridGraph(3, 3));
+        RoutingResult.Alternatives alternatives = assertInstanceOf(
+                RoutingResult.Alternatives.class,
+                gridRoutingService.findAlternativeRoutes("N0", "N8", 5, List.of("N4"))
+        );
+        // without the center only the two routes around the border remain
+        assertEquals(2, alternatives.routes().size());
+        alternatives.routes().forEach(route -> assertFalse(route.contains("N4")));
+    }
+
+    @Test
+    @DisplayName("returns crossings and parent tree from one origin to its whole component")
+    void shouldReturnShortestPathTreeOverComponent() {
+        RoutingResult.Tree result =
+                assertInstanceOf(RoutingResult.Tree.class, routingService.findShortestPathTree("aaa"));
+
+        ShortestPathTree tree = result.tree();
+        assertEquals("AAA", tree.origin());
+        assertEquals(List.of("AAA", "BBB", "CCC"), tree.codes());
+        assertArrayEquals(new int[]{0, 1, 2}, tree.crossings());
+        assertArrayEquals(new int[]{-1, 0, 1}, tree.parentIndices());
+        assertEquals(1, ((RoutingResult.Tree) routingService.findShortestPathTree("DDD")).tree().size());
+        assertInstanceOf(RoutingResult.UnknownCountry.class, routingService.findShortestPathTree("ZZZ"));
+    }
+
+    @Test
+    @DisplayName("shortest-path tree matches point-to-point routes and is cached per origin")
+    void shouldMatchRoutesAndCacheShortestPathTree() {
+        CountryGraph graph = gridGraph(30, 30);
+        RoutingService gridRoutingService = new RoutingService(graph);
+
+        ShortestPathTree tree =
+                assertInstanceOf(RoutingResult.Tree.class, gridRoutingService.findShortestPathTree("N31")).tree();
+
+        assertEquals(graph.nodeCount(), tree.size());
+        for (int index = 0; index < tree.size(); index += 7) {
+            List<String> route =
+                    ((RoutingResult.Success) gridRoutingService.findRoute("N31", tree.codeAt(index))).route();
+            assertEquals(route.size() - 1, tree.crossingsAt(index));
+        }
+        assertSame(tree, ((RoutingResult.Tree) gridRoutingService.findShortestPathTree("n31")).tree());
+    }
+
+    @Test
+    @DisplayName("stops caching shortest-path trees once their summed size reaches the configured bound")
+    void shouldBoundShortestPathTreeCache() {
+        CountryGraph graph = gridGraph(10, 10);
+        RoutingService boundedRoutingService = new RoutingService(
+                graph,
+                SearchOptions.defaults().withTreeCacheMaxNodes(graph.nodeCount())
+        );
+
+        ShortestPathTree first = ((RoutingResult.Tree) boundedRoutingService.findShortestPathTree("N0")).tree();
+        ShortestPathTree second = ((RoutingResult.Tree) boundedRoutingService.findShortestPathTree("N1")).tree();
+
+        ShortestPathTree secondAgain = ((RoutingResult.Tree) boundedRoutingService.findShortestPathTree("N1")).tree();
+
+        assertSame(first, ((RoutingResult.Tree) boundedRoutingService.findShortestPathTree("N0")).tree());
+        assertNotSame(second, secondAgain);
+        assertEquals(second.codes(), secondAgain.codes());
+
+        RoutingService uncachedRoutingService = new RoutingService(
+                graph,
+                SearchOptions.defaults().withTreeCacheMaxNodes(0)
+        );
+        ShortestPathTree uncached = ((RoutingResult.Tree) uncachedRoutingService.findShortestPathTree("N0")).tree();
+        assertNotSame(uncached, ((RoutingResult.Tree) uncachedRoutingService.findShortestPathTree("N0")).tree());
+        assertArrayEquals(first.crossings(), uncached.crossings());
+        assertArrayEquals(first.parentIndices(), uncached.parentIndices());
+    }
+
+    @Test
+    @DisplayName("groups countries within K crossings of the nearest origin by crossings")
+    void shouldReturnCountriesWithinCrossings() {
+        RoutingResult.Isochrone withinOne = assertInstanceOf(
+                RoutingResult.Isochrone.class,
+                routingService.findWithinCrossings(List.of("aaa"), 1)
+        );
+        assertEquals(List.of("AAA"), withinOne.origins());
+        assertEquals(List.of(List.of("AAA"), List.of("BBB")), withinOne.countriesByCrossings());
+
+        RoutingResult.Isochrone all = (RoutingResult.Isochrone) routingService.findWithinCrossings(
+                List.of("AAA", "ddd", "AAA"),
+                Integer.MAX_VALUE
+        );
+        assertEquals(List.of(List.of("AAA", "DDD"), List.of("BBB"), List.of("CCC")), all.countriesByCrossings());
+        assertInstanceOf(RoutingResult.UnknownCountry.class, routingService.findWithinCrossings(List.of("ZZZ"), 2));
+    }
+
+    @Test
+    @DisplayName("multi-origin isochrone matches the fewest crossings from the nearest origin")
+    void shouldMatchNearestOriginCrossingsInIsochrone() {
+        CountryGraph graph = gridGraph(30, 30);
+        RoutingService gridRoutingService = new RoutingService(graph);
+        List<String> origins = List.of("N31", "N500", "N899");
+
+        List<List<String>> levels = ((RoutingResult.Isochrone) gridRoutingService.findWithinCrossings(origins, 6))
+                .countriesByCrossings();
+
+        assertEquals(7, levels.size());
+        Set<String> reached = new HashSet<>();
+        for (int crossings = 0; crossings < levels.size(); crossings++) {
+            for (String code : levels.get(crossings)) {
+                assertTrue(reached.add(code));
+                assertEquals(crossings, nearestOriginCrossings(gridRoutingService, origins, code));
+            }
+        }
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            String code = graph.codeById(nodeId);
+            assertEquals(
+                    nearestOriginCrossings(gridRoutingService, origins, code) <= 6,
+                    reached.contains(code)
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("returns node paths that match code routes and failures")
+    void shouldReturnNodePathsMatchingCodeRoutes() {
+        CountryGraph graph = testGraph();
+        RoutingService nodePathRoutingService = new RoutingService(graph);
+
+        RoutingResult.NodePath path =
+                assertInstanceOf(RoutingResult.NodePath.class, nodePathRoutingService.findNodePath("aaa", "CCC"));
+        assertSame(graph, path.graph());
+        assertEquals(List.of("AAA", "BBB", "CCC"), path.route());
+        RoutingResult sameCountry = nodePathRoutingService.findNodePath("BBB", "bbb");
+        assertEquals(List.of("BBB"), ((RoutingResult.NodePath) sameCountry).route());
+        assertEquals("\"BBB\"", new String(graph.jsonCodeToken(graph.idByCode("BBB")), StandardCharsets.UTF_8));
+        assertInstanceOf(RoutingResult.NoLandRoute.class, nodePathRoutingService.findNodePath("AAA", "DDD"));
+        assertInstanceOf(RoutingResult.UnknownCountry.class, nodePathRoutingService.findNodePath("AAA", "ZZZ"));
+    }
+
+    @Test
+    @DisplayName("route cache serves both directions of a country pair from one entry")
+    void shouldServeBothDirectionsFromOneCacheEntry() {
+        RoutingService cachedRoutingService =
+                new RoutingService(testGraph(), SearchOptions.defaults().withRouteCacheMaxEntries(16));
+
+        RoutingResult first = cachedRoutingService.findRoute("AAA", "CCC");
+        RoutingResult reverse = cachedRoutingService.findRoute("ccc", "aaa");
+        RoutingResult repeated = cachedRoutingService.findRoute("AAA", "CCC");
+
+        assertEquals(List.of("AAA", "BBB", "CCC"), ((RoutingResult.Success) first).route());
+        assertEquals(List.of("CCC", "BBB", "AAA"), ((RoutingResult.Success) reverse).route());
+        assertEquals(first, repeated);
+        assertSame(
+                ((RoutingResult.NodePath) cachedRoutingService.findNodePath("AAA", "CCC")).nodeIds(),
+                ((RoutingResult.NodePath) cachedRoutingService.findNodePath("aaa", "ccc")).nodeIds()
+        );
+        assertInstanceOf(RoutingResult.NoLandRoute.class, cachedRoutingService.findRoute("AAA", "DDD"));
+
+        assertEquals(new RouteCacheStats(4, 1, 0, 1), cachedRoutingService.routeCacheStats());
+        assertEquals(new RouteCacheStats(0, 0, 0, 0), routingService.routeCacheStats());
+    }
+
+    @Test
+    @DisplayName("route cache drops its entries when a newer graph version is published")
+    void shouldDropCachedRoutesWhenGraphVersionAdvances() {
+        CountryGraphHolder holder = new CountryGraphHolder(testGraph());
+        RoutingService cachedRoutingService =
+                new RoutingService(holder, SearchOptions.defaults().withRouteCacheMaxEntries(16));
+        cachedRoutingService.findRoute("AAA", "CCC");
+        cachedRoutingService.findRoute("AAA", "CCC");
+        assertEquals(new RouteCacheStats(1, 1, 0, 1), cachedRoutingService.routeCacheStats());
+
+        // republishing the same instance is still a new version
+        holder.publish(holder.current(), 0);
+        cachedRoutingService.findRoute("AAA", "CCC");
+        assertEquals(new RouteCacheStats(1, 2, 0, 1), cachedRoutingService.routeCacheStats());
+
+        // the reloaded data adds a CCC-DDD border
+        holder.publish(new CountryGraph(
+                Map.of("AAA", 0, "BBB", 1, "CCC", 2, "DDD", 3),
+                new String[]{"AAA", "BBB", "CCC", "DDD"},
+                new int[][]{{1}, {0, 2}, {1, 3}, {2}},
+                new int[]{0, 0, 0, 0}
+        ), 0);
+        assertEquals(
+                List.of("AAA", "BBB", "CCC", "DDD"),
+                ((RoutingResult.Success) cachedRoutingService.findRoute("AAA", "DDD")).route()
+        );
+        assertEquals(new RouteCacheStats(1, 3, 0, 1), cachedRoutingService.routeCacheStats());
+    }
+
+    @Test
+    @DisplayName("route cache keeps frequently requested pairs through a scan of one-off pairs")
+    void shouldKeepPopularPairsCachedThroughScan() {
+        CountryGraph graph = gridGraph(30, 30);
+        RoutingService cachedRoutingService =
+                new RoutingService(graph, SearchOptions.defaults().withRouteCacheMaxEntries(64));
+        for (int round = 0; round < 5; round++) {
+            for (int hot = 1; hot <= 10; hot++) {
+                cachedRoutingService.findRoute("N0", "N" + (hot * 31));
+            }
+        }
+        for (int scan = 0; scan < 1000; scan++) {
+            cachedRoutingService.findRoute("N" + (20 + scan % 400), "N" + (500 + scan / 400));
+        }
+        RouteCacheStats beforeHotRound = cachedRoutingService.routeCacheStats();
+
+        for (int hot = 1; hot <= 10; hot++) {
+            List<String> route =
+                    ((RoutingResult.Success) cachedRoutingService.findRoute("N" + (hot * 31), "N0")).route();
+            assertEquals(2 * hot + 1, route.size());
+            assertEquals("N0", route.get(route.size() - 1));
+            assertAdjacent(graph, route);
+        }
+
+        RouteCacheStats afterHotRound = cachedRoutingService.routeCacheStats();
+        assertEquals(beforeHotRound.hits() + 10, afterHotRound.hits());
+        assertTrue(afterHotRound.evictions() > 0);
+        assertTrue(afterHotRound.size() <= 64);
+    }
+
+    @Test
+    @DisplayName("cached routes match uncached route lengths under constant eviction")
+    void shouldMatchUncachedRouteLengthsUnderEviction() {
+        CountryGraph graph = randomGraph(2_000, 4);
+        RoutingService cachedRoutingService =
+                new RoutingService(graph, SearchOptions.defaults().withRouteCacheMaxEntries(8));
+
+        for (int pass = 0; pass < 3; pass++) {
+            assertSameRouteLengths(graph, cachedRoutingService);
+        }
+        assertTrue(cachedRoutingService.routeCacheStats().evictions() > 0);
+    }
+
+    @Test
+    @DisplayName("computes crossing matrix with unreachable pairs and duplicate codes")
+    void shouldComputeCrossingMatrix() {
+        RoutingResult.Matrix matrix = assertInstanceOf(
+                RoutingResult.Matrix.class,
+                routingService.findCrossingMatrix(List.of("AAA", "ddd", " aaa "), List.of("CCC", "AAA", "DDD", "ccc"))
+        );
+
+        assertEquals(List.of("AAA", "DDD", "AAA"), matrix.origins());
+        assertEquals(List.of("CCC", "AAA", "DDD", "CCC"), matrix.destinations());
+        assertArrayEquals(new int[]{2, 0, -1, 2}, matrix.crossings()[0]);
+        assertArrayEquals(new int[]{-1, -1, 0, -1}, matrix.crossings()[1]);
+        assertArrayEquals(new int[]{2, 0, -1, 2}, matrix.crossings()[2]);
+
+        RoutingResult.UnknownCountry unknownCountry = assertInstanceOf(
+                RoutingResult.UnknownCountry.class,
+                routingService.findCrossingMatrix(List.of("AAA"), List.of("BBB", "zzz"))
+        );
+        assertEquals("ZZZ", unknownCountry.countryCode());
+    }
+
+    @Test
+    @DisplayName("bit-parallel crossing matrix matches point-to-point routes across several source batches")
+    void shouldMatchPointToPointRoutesInCrossingMatrix() {
+        CountryGraph graph = randomGraph(5_000, 2);
+        RoutingService randomRoutingService = new RoutingService(graph);
+        Random random = new Random(11);
+        List<String> origins = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            origins.add(graph.codeById(random.nextInt(graph.nodeCount())));
+        }
+        List<String> destinations = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            destinations.add(graph.codeById(random.nextInt(graph.nodeCount())));
+        }
+
+        int[][] crossings = ((RoutingResult.Matrix) randomRoutingService.findCrossingMatrix(origins, destinations))
+                .crossings();
+
+        for (int row = 0; row < origins.size(); row++) {
+            for (int column = 0; column < destinations.size(); column++) {
+                List<String> route = ((RoutingResult.Success) randomRoutingService.findRoute(
+                        origins.get(row),
+                        destinations.get(column)
+                )).route();
+                assertEquals(route.size() - 1, crossings[row][column]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("returns alternative loopless routes ordered by crossings")
+    void shouldReturnAlternativeRoutesOrderedByCrossings() {
+        CountryGraph graph = gridGraph(3, 3);
+        RoutingService gridRoutingService = new RoutingService(graph);
+
+        RoutingResult.Alternatives alternatives = assertInstanceOf(
+                RoutingResult.Alternatives.class,
+                gridRoutingService.findAlternativeRoutes("N0", "N8", 8)
+        );
+
+        List<List<String>> routes = alternatives.routes();
+        assertEquals(8, routes.size());
+        assertEquals(routes.size(), new HashSet<>(routes).size());
+        for (int i = 0; i < routes.size(); i++) {
+            List<String> route = routes.get(i);
+            // a 3x3 grid has exactly six corner-to-corner routes with four crossings
+            assertEquals(i < 6 ? 5 : 7, route.size());
+            assertEquals("N0", route.get(0));
+            assertEquals("N8", route.get(route.size() - 1));
+            assertEquals(route.size(), new HashSet<>(route).size());
+            assertAdjacent(graph, route);
+        }
+    }
+
+    @Test
+    @DisplayName("returns only the shortest route when the spur search budget is exhausted")
+    void shouldStopAtSpurSearchBudget() {
+        RoutingService budgeted = new RoutingService(
+                gridGraph(3, 3),
+                SearchOptions.defaults().withAlternativeSpurSearchBudget(0)
+        );
+
+        RoutingResult.Alternatives alternatives = assertInstanceOf(
+                RoutingResult.Alternatives.class,
+                budgeted.findAlternativeRoutes("N0", "N8", 5)
+        );
+
+        assertEquals(1, alternatives.routes().size());
+        assertEquals(5, alternatives.routes().get(0).size());
+    }
+
+    @Test
+    @DisplayName("returns fewer alternatives when the graph has no more loopless routes")
+    void shouldReturnFewerAlternativesWhenGraphHasNoMoreRoutes() {
+        RoutingResult.Alternatives alternatives = assertInstanceOf(
+                RoutingResult.Alternatives.class,
+                routingService.findAlternativeRoutes("aaa", "ccc", 3)
+        );
+
+        assertEquals(List.of(List.of("AAA", "BBB", "CCC")), alternatives.routes());
+    }
+
+    @Test
+    @DisplayName("alternative routes report the same failures as single routes")
+    void shouldRejectAlternativeRoutesBetweenDifferentComponents() {
+        assertInstanceOf(RoutingResult.NoLandRoute.class, routingService.findAlternativeRoutes("AAA", "DDD", 2));
+        assertInstanceOf(RoutingResult.UnknownCountry.class, routingService.findAlternativeRoutes("ZZZ", "AAA", 2));
+        assertInstanceOf(
+                RoutingResult.UnknownCountry.class,
+                routingService.findAlternativeRoutes("AAA", "CCC", 2, List.of("ZZZ"))
+        );
+        assertEquals(
+                new RoutingResult.AvoidedStop("CCC"),
+                routingService.findAlternativeRoutes("AAA", "ccc", 2, List.of("CCC"))
+        );
+        assertEquals(
+                new RoutingResult.NoLandRoute("AAA", "CCC"),
+                routingService.findAlternativeRoutes("AAA", "CCC", 2, List.of("BBB"))
+        );
+        assertEquals(
+                List.of(List.of("AAA")),
+                assertInstanceOf(
+                        RoutingResult.Alternatives.class,
+                        routingService.findAlternativeRoutes("aaa", "AAA", 2)
+                ).routes()
+        );
+    }
+
+    @Test
+    @DisplayName("counts and lazily enumerates every shortest route")
+    void shouldCountAndEnumerateAllShortestRoutes() {
+        CountryGraph graph = gridGraph(3, 3);
+        RoutingService gridRoutingService = new RoutingService(graph);
+
+        RoutingResult.ShortestRoutes count = assertInstanceOf(
+                RoutingResult.ShortestRoutes.class,
+                gridRoutingService.countShortestRoutes("n0", "N8")
+        );
+        assertEquals(4, count.crossings());
+        assertEquals(BigInteger.valueOf(6), count.count());
+        assertTrue(count.routes().isEmpty());
+
+        RoutingResult.ShortestRoutes all = (RoutingResult.ShortestRoutes) gridRoutingService.findAllShortestRoutes(
+                "N0",
+                "N8",
+                100
+        );
+        assertEquals(6, new HashSet<>(all.routes()).size());
+        all.routes().forEach(route -> {
+            assertEquals(5, route.size());
+            assertAdjacent(graph, route);
+        });
+        RoutingResult.ShortestRoutes limited =
+                (RoutingResult.ShortestRoutes) gridRoutingService.findAllShortestRoutes("N0", "N8", 4);
+        assertEquals(all.routes().subList(0, 4), limited.routes());
+        assertEquals(BigInteger.valueOf(6), limited.count());
+
+        assertEquals(
+                List.of(List.of("AAA")),
+                ((RoutingResult.ShortestRoutes) routingService.findAllShortestRoutes("AAA", "aaa", 5)).routes()
+        );
+        assertInstanceOf(RoutingResult.NoLandRoute.class, routingService.countShortestRoutes("AAA", "DDD"));
+        assertInstanceOf(RoutingResult.UnknownCountry.class, routingService.sampleShortestRoute("AAA", "ZZZ"));
+    }
+
+    @Test
+    @DisplayName("counts shortest routes exactly beyond the long range and matches single-source BFS counts")
+    void shouldCountShortestRoutesExactly() {
+        CountryGraph grid = gridGraph(40, 40);
+        RoutingResult.ShortestRoutes corners = (RoutingResult.ShortestRoutes)
+                new RoutingService(grid).findAllShortestRoutes("N0", "N1599", 3);
+        // corner to corner on a 40x40 grid: choose 39 of 78 steps, about 2.7e22
+        assertEquals(binomial(78, 39), corners.count());
+        assertEquals(3, corners.routes().size());
+        assertEquals(79, corners.routes().get(0).size());
+
+        CountryGraph graph = randomGraph(3_000, 2);
+        RoutingService randomRoutingService = new RoutingService(graph);
+        Random random = new Random(5);
+        for (int query = 0; query < 50; query++) {
+            int originId = random.nextInt(graph.nodeCount());
+            int destinationId = random.nextInt(graph.nodeCount());
+            RoutingResult result = randomRoutingService.countShortestRoutes(
+                    graph.codeById(originId),
+                    graph.codeById(destinationId)
+            );
+            BigInteger expected = countShortestRoutes(graph, originId, destinationId);
+            assertEquals(expected, ((RoutingResult.ShortestRoutes) result).count());
+        }
+    }
+
+    @Test
+    @DisplayName("samples every shortest route with equal probability")
+    void shouldSampleShortestRoutesUniformly() {
+        CountryGraph graph = gridGraph(3, 3);
+        RoutingService gridRoutingService = new RoutingService(graph);
+
+        Map<List<String>, Integer> frequencies = new HashMap<>();
+        for (int draw = 0; draw < 6_000; draw++) {
+            List<String> route = ((RoutingResult.Success) gridRoutingService.sampleShortestRoute("N0", "N8")).route();
+            frequencies.merge(route, 1, Integer::sum);
+        }
+
+        assertEquals(6, frequencies.size());
+        // expected 1000 per route with a standard deviation of about 29
+        frequencies.values().forEach(frequency -> assertTrue(frequency > 800 && frequency < 1200));
+    }
+
+    @Test
+    @DisplayName("routes on a reloaded graph while earlier results keep the graph they were computed on")
+    void shouldRouteOnPublishedGraph() {
+        CountryGraph original = testGraph();
+        CountryGraphHolder holder = new CountryGraphHolder(original);
+        RoutingService reloadingService = new RoutingService(holder, SearchOptions.defaults());
+        RoutingResult.NodePath beforeReload = assertInstanceOf(
+                RoutingResult.NodePath.class,
+                reloadingService.findNodePath("AAA", "CCC")
+        );
+        ShortestPathTree treeBeforeReload = ((RoutingResult.Tree) reloadingService.findShortestPathTree("CCC")).tree();
+        assertInstanceOf(RoutingResult.NoLandRoute.class, reloadingService.findRoute("AAA", "DDD"));
+
+        // the reloaded data adds a CCC-DDD border
+        CountryGraphHolder.Snapshot snapshot = holder.publish(new CountryGraph(
+                Map.of("AAA", 0, "BBB", 1, "CCC", 2, "DDD", 3),
+                new String[]{"AAA", "BBB", "CCC", "DDD"},
+                new int[][]{{1}, {0, 2}, {1, 3}, {2}},
+                new int[]{0, 0, 0, 0}
+        ), 0);
+
+        assertEquals(2, snapshot.version());
+        assertEquals(
+                List.of("AAA", "BBB", "CCC", "DDD"),
+                ((RoutingResult.Success) reloadingService.findRoute("AAA", "DDD")).route()
+        );
+        assertEquals(4, ((RoutingResult.Tree) reloadingService.findShortestPathTree("CCC")).tree().size());
+        assertEquals(3, treeBeforeReload.size());
+        assertSame(original, beforeReload.graph());
+    }
+
+    @Test
+    @DisplayName("probes startup with a route across the largest component")
+    void shouldProbeFirstRouteAcrossLargestComponent() {
+        CountryGraphHolder holder = new CountryGraphHolder(testGraph());
+        FirstRouteProbe probe = new FirstRouteProbe(holder, new RoutingService(holder, SearchOptions.defaults()));
+
+        assertEquals(
+                List.of("AAA", "BBB", "CCC"),
+                ((RoutingResult.Success) probe.probe()).route()
+        );
+        assertEquals(-1, probe.firstRouteMillis());
+        probe.onApplicationReady();
+        assertTrue(probe.firstRouteMillis() >= 0);
+    }
+
     @ParameterizedTest(name = "[{index}] {0} -> {1} has no land route")
     @MethodSource("unreachablePairs")
     @DisplayName("rejects countries from different connected components")
@@ -79,6 +831,152 @@ class RoutingServiceTest {
         );
     }
 
+    private static void assertSameRouteLengths(CountryGraph graph, RoutingService candidate) {
+        RoutingService bidirectional = new RoutingService(graph);
+        Random random = new Random(42);
+
+        for (int query = 0; query < 50; query++) {
+            String origin = graph.codeById(random.nextInt(graph.nodeCount()));
+            String destination = graph.codeById(random.nextInt(graph.nodeCount()));
+
+            List<String> expected = ((RoutingResult.Success) bidirectional.findRoute(origin, destination)).route();
+            List<String> actual = ((RoutingResult.Success) candidate.findRoute(origin, destination)).route();
+
+            assertEquals(expected.size(), actual.size());
+            assertEquals(origin, actual.get(0));
+            assertEquals(destination, actual.get(actual.size() - 1));
+            assertAdjacent(graph, actual);
+        }
+    }
+
+    private static void assertAdjacent(CountryGraph graph, List<String> route) {
+        for (int i = 1; i < route.size(); i++) {
+            int from = graph.idByCode(route.get(i - 1));
+            int to = graph.idByCode(route.get(i));
+            assertTrue(Arrays.stream(graph.neighborsOf(from)).anyMatch(neighbor -> neighbor == to));
+        }
+    }
+
+    private static int nearestOriginCrossings(RoutingService service, List<String> origins, String destination) {
+        int crossings = Integer.MAX_VALUE;
+        for (String origin : origins) {
+            List<String> route = ((RoutingResult.Success) service.findRoute(origin, destination)).route();
+            crossings = Math.min(crossings, route.size() - 1);
+        }
+        return crossings;
+    }
+
+    private static BigInteger binomial(int n, int k) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 1; i <= k; i++) {
+            result = result.multiply(BigInteger.valueOf(n - k + i)).divide(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    /**
+     * Reference count: single-source BFS summing path counts of all previous-level neighbors.
+     */
+    private static BigInteger countShortestRoutes(CountryGraph graph, int originId, int destinationId) {
+        int[] level = new int[graph.nodeCount()];
+        Arrays.fill(level, -1);
+        BigInteger[] counts = new BigInteger[graph.nodeCount()];
+        level[originId] = 0;
+        counts[originId] = BigInteger.ONE;
+        List<Integer> queue = new ArrayList<>(List.of(originId));
+        for (int head = 0; head < queue.size(); head++) {
+            int nodeId = queue.get(head);
+            for (int neighborId : graph.neighborsOf(nodeId)) {
+                if (level[neighborId] < 0) {
+                    level[neighborId] = level[nodeId] + 1;
+                    counts[neighborId] = counts[nodeId];
+                    queue.add(neighborId);
+                } else if (level[neighborId] == level[nodeId] + 1) {
+                    counts[neighborId] = counts[neighborId].add(counts[nodeId]);
+                }
+            }
+        }
+        return counts[destinationId];
+    }
+
+    /**
+     * Path backbone keeps the graph connected; random chords make frontiers explode after a few levels.
+     */
+    private static CountryGraph randomGraph(int nodeCount, int chordsPerNode) {
+        Random random = new Random(7);
+        List<List<Integer>> neighbors = new ArrayList<>();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            neighbors.add(new ArrayList<>());
+        }
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            if (nodeId > 0) {
+                neighbors.get(nodeId).add(nodeId - 1);
+                neighbors.get(nodeId - 1).add(nodeId);
+            }
+            for (int chord = 0; chord < chordsPerNode / 2; chord++) {
+                int other = random.nextInt(nodeCount);
+                if (other != nodeId) {
+                    neighbors.get(nodeId).add(other);
+                    neighbors.get(other).add(nodeId);
+                }
+            }
+        }
+
+        Map<String, Integer> idByCode = new HashMap<>();
+        String[] codeById = new String[nodeCount];
+        int[][] adjacency = new int[nodeCount][];
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            codeById[nodeId] = "N" + nodeId;
+            idByCode.put(codeById[nodeId], nodeId);
+            adjacency[nodeId] = neighbors.get(nodeId).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new CountryGraph(idByCode, codeById, adjacency, new int[nodeCount]);
+    }
+
+    private static CountryGraph gridGraph(int width, int height) {
+        int nodeCount = width * height;
+        Map<String, Integer> idByCode = new HashMap<>();
+        String[] codeById = new String[nodeCount];
+        int[][] adjacency = new int[nodeCount][];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int nodeId = y * width + x;
+                codeById[nodeId] = "N" + nodeId;
+                idByCode.put(codeById[nodeId], nodeId);
+                int[] neighbors = new int[4];
+                int degree = 0;
+                if (x > 0) {
+                    neighbors[degree++] = nodeId - 1;
+                }
+                if (x < width - 1) {
+                    neighbors[degree++] = nodeId + 1;
+                }
+                if (y > 0) {
+                    neighbors[degree++] = nodeId - width;
+                }
+                if (y < height - 1) {
+                    neighbors[degree++] = nodeId + width;
+                }
+                adjacency[nodeId] = Arrays.copyOf(neighbors, degree);
+            }
+        }
+        return new CountryGraph(idByCode, codeById, adjacency, new int[nodeCount]);
+    }
+
+    /**
+     * AAA-CCC is one crossing but 100 km; AAA-BBB-DDD-CCC is three crossings of 10 km each. EEE is isolated.
+     */
+    private static CountryGraph weightedTestGraph() {
+        return new CountryGraph(
+                Map.of("AAA", 0, "BBB", 1, "CCC", 2, "DDD", 3, "EEE", 4),
+                new String[]{"AAA", "BBB", "CCC", "DDD", "EEE"},
+                new int[]{0, 2, 4, 6, 8, 8},
+                new int[]{2, 1, 0, 3, 0, 3, 1, 2},
+                new float[]{100f, 10f, 10f, 10f, 100f, 10f, 10f, 10f},
+                new int[]{0, 0, 0, 0, 1}
+        );
+    }
+
     private static CountryGraph testGraph() {
         return new CountryGraph(
                 Map.of(